@@ -1,5 +1,6 @@
 package com.rimanware.volcanoisland;
 
+import akka.Done;
 import akka.NotUsed;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
@@ -9,33 +10,71 @@ import akka.http.javadsl.ServerBinding;
 import akka.http.javadsl.model.HttpRequest;
 import akka.http.javadsl.model.HttpResponse;
 import akka.http.javadsl.server.Route;
+import akka.pattern.PatternsCS;
 import akka.stream.ActorMaterializer;
 import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Tcp;
 import akka.util.Timeout;
+import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
 import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.rimanware.volcanoisland.cluster.PropertyDatabaseSharding;
+import com.rimanware.volcanoisland.common.Tuple;
+import com.rimanware.volcanoisland.database.FileBookingJournal;
+import com.rimanware.volcanoisland.database.InMemoryBookingJournal;
 import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
 import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.BookingJournal;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
 import com.rimanware.volcanoisland.errors.APIErrorMessagesImpl;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.metrics.Metrics;
 import com.rimanware.volcanoisland.routes.AvailabilitiesRouteProvider;
 import com.rimanware.volcanoisland.routes.BookingRouteProvider;
 import com.rimanware.volcanoisland.routes.ConcatRouteProvider;
+import com.rimanware.volcanoisland.routes.HealthRouteProvider;
+import com.rimanware.volcanoisland.routes.MetricsRouteProvider;
+import com.rimanware.volcanoisland.routes.PropertyRouteProvider;
+import com.rimanware.volcanoisland.routes.ReplicationLagRouteProvider;
+import com.rimanware.volcanoisland.routes.ReplicationRouteProvider;
 import com.rimanware.volcanoisland.routes.api.RouteProvider;
+import com.rimanware.volcanoisland.replication.InMemoryReplica;
+import com.rimanware.volcanoisland.replication.ReplicationPrimaryActor;
+import com.rimanware.volcanoisland.replication.ReplicationServer;
+import com.rimanware.volcanoisland.replication.ReplicationStandbyActor;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyCommand;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyResponse;
 import com.rimanware.volcanoisland.services.AvailabilityServiceImpl;
 import com.rimanware.volcanoisland.services.BookingServiceImpl;
+import com.rimanware.volcanoisland.services.admission.AIMDConcurrencyLimiter;
+import com.rimanware.volcanoisland.services.admission.AdmissionControlledAvailabilityService;
+import com.rimanware.volcanoisland.services.admission.AdmissionControlledBookingService;
+import com.rimanware.volcanoisland.services.admission.AdmissionController;
 import com.rimanware.volcanoisland.services.api.AvailabilityService;
 import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.batch.BatchBookingPipeline;
+import com.rimanware.volcanoisland.services.follower.FollowerAvailabilityService;
+import com.rimanware.volcanoisland.services.follower.ReadOnlyBookingService;
+import com.rimanware.volcanoisland.services.optimistic.OptimisticBookingEngine;
 import com.rimanware.volcanoisland.services.requesthandlers.dispatchers.RequestHandlerDispatcherActorFactory;
+import com.rimanware.volcanoisland.startup.DatabaseReadiness;
+import com.rimanware.volcanoisland.startup.WarmUp;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import scala.compat.java8.FutureConverters;
 import scala.concurrent.duration.FiniteDuration;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 public final class VolcanoIslandApp {
 
@@ -48,76 +87,550 @@ public final class VolcanoIslandApp {
   public static final String AVAILABILITY_REQUEST_HANDLER_DISPATCHER_ACTOR =
       "AvailabilityRequestHandlerDispatcherActor";
   public static final String ROLLING_MONTH_DATABASE_ACTOR = "RollingMonthDatabaseActor";
+  private static final String ADMISSION_CONTROL_CONFIG = "volcano-island.admission-control";
+  private static final String BATCH_BOOKINGS_CONFIG = "volcano-island.batch-bookings";
+  private static final String BOOKING_ENGINE_CONFIG = "volcano-island.booking-engine";
+  private static final String OPTIMISTIC_BOOKING_ENGINE = "optimistic";
+  private static final String STARTUP_CONFIG = "volcano-island.startup";
+  private static final String PROPERTY_IDS_CONFIG = "volcano-island.properties.ids";
+  private static final String PROPERTIES_FOLDER = "properties";
+  private static final String HTTP_CONFIG = "volcano-island.http";
+  private static final String DATABASE_FOLDER_CONFIG = "volcano-island.database-folder";
+  private static final String REPLICATION_CONFIG = "volcano-island.replication";
+  private static final String PRIMARY_REPLICATION_ROLE = "primary";
+  private static final String STANDBY_REPLICATION_ROLE = "standby";
+  private static final String FOLLOWER_REPLICATION_ROLE = "follower";
+  public static final String REPLICATION_PRIMARY_ACTOR = "ReplicationPrimaryActor";
+  public static final String REPLICATION_STANDBY_ACTOR = "ReplicationStandbyActor";
+  public static final String REPLICATION_FOLLOWER_ACTOR = "ReplicationFollowerActor";
+  // Not a valid property id, so it can't clash with one
+  private static final String DEFAULT_PROPERTY_ENTITY_ID = "~default";
 
   public static void main(final String[] args) throws IOException {
     final Config config = ConfigFactory.load("application.conf");
     final ActorSystem system = ActorSystem.create("routes", config);
     final Http http = Http.get(system);
     final ActorMaterializer materializer = ActorMaterializer.create(system);
+    final Config startupConfig = config.getConfig(STARTUP_CONFIG);
+    final String httpInterface = config.getConfig(HTTP_CONFIG).getString("interface");
+    final int httpPort = config.getConfig(HTTP_CONFIG).getInt("port");
 
-    final String databaseFolderPath = "database";
-    final Route route = initialize(LocalDate.now(), system, databaseFolderPath);
+    final String databaseFolderPath = config.getString(DATABASE_FOLDER_CONFIG);
+    final LocalDate currentDate = LocalDate.now();
+    final Config replicationConfig = config.getConfig(REPLICATION_CONFIG);
+    final String replicationRole = replicationConfig.getString("role");
+    final AtomicBoolean ready = new AtomicBoolean(false);
+
+    final CompletionStage<Route> instanceRoute;
+    final BooleanSupplier upToDate;
+    if (FOLLOWER_REPLICATION_ROLE.equals(replicationRole)) {
+      // Nothing to recover nor warm up, availabilities are answered from memory
+      final InMemoryReplica replica = InMemoryReplica.create();
+      final Duration maxStaleness =
+          replicationConfig.getConfig("follower").getDuration("max-staleness");
+      instanceRoute =
+          CompletableFuture.completedFuture(
+              follow(currentDate, system, replicationConfig, replica));
+      // Out of the load balancer for as long as it lags behind
+      upToDate = () -> replica.getStaleness().compareTo(maxStaleness) <= 0;
+      ready.set(true);
+    } else if (STANDBY_REPLICATION_ROLE.equals(replicationRole)) {
+      // Nothing to recover nor warm up, the database is only started once promoted
+      final ActorRef replicationStandbyActor =
+          startReplicationStandby(system, replicationConfig, databaseFolderPath);
+      instanceRoute =
+          CompletableFuture.completedFuture(
+              ReplicationRouteProvider.create(
+                      () ->
+                          promote(currentDate, system, replicationStandbyActor, databaseFolderPath)
+                              .thenApply(
+                                  instance -> {
+                                    ready.set(true);
+                                    return instance.getRoute();
+                                  }))
+                  .getRoutes());
+      upToDate = () -> true;
+    } else {
+      if (PRIMARY_REPLICATION_ROLE.equals(replicationRole)) {
+        startReplicationPrimary(system, replicationConfig, databaseFolderPath);
+      }
+      final Instance instance = initialize(currentDate, system, Optional.of(databaseFolderPath));
+      // Only bind once the database is recovered and the hot paths are warmed up, so that the
+      // first requests don't race the recovery nor run interpreted code.
+      instanceRoute =
+          instance
+              .getDatabaseReady()
+              .thenCompose(done -> warmUp(currentDate, config))
+              .thenApply(
+                  done -> {
+                    ready.set(true);
+                    return instance.getRoute();
+                  });
+      upToDate = () -> true;
+    }
 
-    final Flow<HttpRequest, HttpResponse, NotUsed> routeFlow = route.flow(system, materializer);
     final CompletionStage<ServerBinding> binding =
-        http.bindAndHandle(routeFlow, ConnectHttp.toHost("localhost", 8080), materializer);
+        instanceRoute
+            .thenCompose(
+                route -> {
+                  final Flow<HttpRequest, HttpResponse, NotUsed> routeFlow =
+                      ConcatRouteProvider.create(
+                              () -> route,
+                              HealthRouteProvider.create(
+                                  () -> ready.get() && upToDate.getAsBoolean()))
+                          .getRoutes()
+                          .flow(system, materializer);
+                  return http.bindAndHandle(
+                      routeFlow, ConnectHttp.toHost(httpInterface, httpPort), materializer);
+                })
+            .thenApply(
+                serverBinding -> {
+                  System.out.println(
+                      "Server online at http://"
+                          + httpInterface
+                          + ":"
+                          + httpPort
+                          + "/\nPress RETURN to stop...");
+                  return serverBinding;
+                });
+    // Nothing is served if the database never gets ready, don't keep the process around
+    binding.whenComplete(
+        (serverBinding, throwable) -> {
+          if (throwable != null) {
+            system.log().error(throwable, "Startup failed, shutting down");
+            system.terminate();
+          }
+        });
 
-    System.out.println("Server online at http://localhost:8080/\nPress RETURN to stop...");
+    System.out.println(
+        "Server starting, waiting for database recovery and warm-up...\nPress RETURN to stop...");
     System.in.read(); // let it run until user presses return
 
+    // Stop advertising readiness first so load balancers drain this instance
+    ready.set(false);
     binding
         .thenCompose(ServerBinding::unbind) // trigger unbinding from the port
         .thenAccept(unbound -> system.terminate()); // and shutdown when done
   }
 
+  /**
+   * Streams every event written to the database folder to the standbys. Started before the
+   * database so that no write is missed.
+   */
+  public static CompletionStage<Tcp.ServerBinding> startReplicationPrimary(
+      final ActorSystem system, final Config replicationConfig, final String databaseFolderPath) {
+    final Config primaryConfig = replicationConfig.getConfig("primary");
+    return ReplicationServer.bind(
+        system,
+        system.actorOf(
+            ReplicationPrimaryActor.props(
+                databaseFolderPath,
+                primaryConfig.getInt("log-tail-size"),
+                FiniteDuration.fromNanos(
+                    primaryConfig.getDuration("heartbeat-interval").toNanos())),
+            REPLICATION_PRIMARY_ACTOR),
+        primaryConfig.getString("interface"),
+        primaryConfig.getInt("port"),
+        primaryConfig.getInt("send-buffer-size"),
+        replicationConfig.getBytes("max-frame-size").intValue());
+  }
+
+  public static ActorRef startReplicationStandby(
+      final ActorSystem system, final Config replicationConfig, final String databaseFolderPath) {
+    final Config standbyConfig = replicationConfig.getConfig("standby");
+    return system.actorOf(
+        ReplicationStandbyActor.props(
+            databaseFolderPath,
+            standbyConfig.getString("primary-host"),
+            standbyConfig.getInt("primary-port"),
+            FiniteDuration.fromNanos(standbyConfig.getDuration("reconnect-delay").toNanos()),
+            replicationConfig.getBytes("max-frame-size").intValue()),
+        REPLICATION_STANDBY_ACTOR);
+  }
+
+  /**
+   * Replicates the primary in memory and serves availabilities from there, of the default property
+   * and of every other one. Bookings are rejected, they are taken by the primary.
+   */
+  public static Route follow(
+      final LocalDate currentDate,
+      final ActorSystem system,
+      final Config replicationConfig,
+      final InMemoryReplica replica) {
+    final Config standbyConfig = replicationConfig.getConfig("standby");
+    system.actorOf(
+        ReplicationStandbyActor.props(
+            replica,
+            standbyConfig.getString("primary-host"),
+            standbyConfig.getInt("primary-port"),
+            FiniteDuration.fromNanos(standbyConfig.getDuration("reconnect-delay").toNanos()),
+            replicationConfig.getBytes("max-frame-size").intValue()),
+        REPLICATION_FOLLOWER_ACTOR);
+
+    final Config config = system.settings().config();
+    final BookingConstraints bookingConstraints = BookingConstraintsImpl.fromConfig(config);
+    final APIErrorMessages apiErrorMessages = APIErrorMessagesImpl.ENGLISH;
+    final FollowerAvailabilityService followerAvailabilityService =
+        FollowerAvailabilityService.create(
+            replica,
+            currentDate,
+            bookingConstraints,
+            config.getInt(SingleDateDatabaseActor.CAPACITY),
+            replicationConfig.getConfig("follower").getDuration("max-staleness"),
+            config.getConfig(ADMISSION_CONTROL_CONFIG).getDuration("retry-after"),
+            apiErrorMessages);
+    final BookingService readOnlyBookingService = ReadOnlyBookingService.create(apiErrorMessages);
+
+    return ConcatRouteProvider.create(
+            ConcatRouteProvider.create(
+                () ->
+                    getRoute(
+                        followerAvailabilityService,
+                        readOnlyBookingService,
+                        bookingConstraints,
+                        apiErrorMessages,
+                        config.getConfig(BATCH_BOOKINGS_CONFIG)),
+                PropertyRouteProvider.create(
+                    propertyId ->
+                        getRoute(
+                            followerAvailabilityService.forFolder(
+                                PROPERTIES_FOLDER + "/" + propertyId),
+                            readOnlyBookingService,
+                            bookingConstraints,
+                            apiErrorMessages,
+                            config.getConfig(BATCH_BOOKINGS_CONFIG)),
+                    ImmutableSet.copyOf(config.getStringList(PROPERTY_IDS_CONFIG)),
+                    apiErrorMessages)),
+            ReplicationLagRouteProvider.create(replica::getLag))
+        .getRoutes();
+  }
+
+  /**
+   * Stops replicating and serves the database folder of the standby. Recovery only reads the
+   * latest event of each file, and warm-up is skipped, to take over quickly.
+   */
+  public static CompletionStage<Instance> promote(
+      final LocalDate currentDate,
+      final ActorSystem system,
+      final ActorRef replicationStandbyActor,
+      final String databaseFolderPath) {
+    return PatternsCS.ask(
+            replicationStandbyActor,
+            ReplicationStandbyCommand.promote(),
+            Timeout.durationToTimeout(FiniteDuration.apply(5, TimeUnit.SECONDS)))
+        .thenApply(ReplicationStandbyResponse.Promoted.class::cast)
+        .thenCompose(
+            promoted -> {
+              system
+                  .log()
+                  .info("Standby promoted at record {}", promoted.getLastAppliedSequenceNr());
+              final Instance instance =
+                  initialize(currentDate, system, Optional.of(databaseFolderPath));
+              return instance.getDatabaseReady().thenApply(done -> instance);
+            });
+  }
+
+  /**
+   * Runs the configured synthetic warm-up against an in-memory instance living in its own actor
+   * system, which is terminated afterward. Warm-up failures are logged but never prevent startup.
+   */
+  private static CompletionStage<Done> warmUp(final LocalDate currentDate, final Config config) {
+    final Config warmUpConfig = config.getConfig(STARTUP_CONFIG).getConfig("warm-up");
+    final int iterations = warmUpConfig.getInt("iterations");
+    if (iterations <= 0) {
+      return CompletableFuture.completedFuture(Done.getInstance());
+    }
+
+    // The warm-up instance stays local even when this node is part of a cluster
+    final ActorSystem warmUpSystem =
+        ActorSystem.create(
+            "warm-up",
+            ConfigFactory.parseString(
+                    "akka.actor.provider = local\n"
+                        + PropertyDatabaseSharding.CLUSTER_CONFIG
+                        + ".enabled = off")
+                .withFallback(config));
+    final Instance warmUpInstance = initialize(currentDate, warmUpSystem, Optional.empty());
+    final long start = System.nanoTime();
+    return warmUpInstance
+        .getDatabaseReady()
+        .thenCompose(
+            done ->
+                WarmUp.run(
+                    warmUpInstance.getRoute(),
+                    warmUpSystem,
+                    ActorMaterializer.create(warmUpSystem),
+                    BookingConstraintsImpl.fromConfig(config)
+                        .generateAllReservableDays(currentDate),
+                    iterations,
+                    warmUpConfig.getInt("parallelism")))
+        .handle(
+            (done, throwable) -> {
+              if (throwable != null) {
+                warmUpSystem.log().error(throwable, "Warm-up failed, starting anyway");
+              } else {
+                warmUpSystem
+                    .log()
+                    .info(
+                        "Warm-up of {} iterations done in {} ms",
+                        iterations,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+              }
+              return Done.getInstance();
+            })
+        .thenCompose(done -> FutureConverters.toJava(warmUpSystem.terminate()))
+        .thenApply(terminated -> Done.getInstance());
+  }
+
   public static Route initialize(
       final LocalDate currentDate, final ActorSystem system, final String databaseFolderPath) {
+    return initialize(currentDate, system, Optional.of(databaseFolderPath)).getRoute();
+  }
+
+  /**
+   * @param maybeDatabaseFolderPath Folder of the database files, in memory database if empty
+   */
+  public static Instance initialize(
+      final LocalDate currentDate,
+      final ActorSystem system,
+      final Optional<String> maybeDatabaseFolderPath) {
     final Timeout timeout = Timeout.durationToTimeout(FiniteDuration.apply(5, TimeUnit.SECONDS));
 
-    // This should be made configurable, but for the sake of simplicity it is hardcoded.
-    final BookingConstraints bookingConstraints = BookingConstraintsImpl.INSTANCE;
+    final BookingConstraints bookingConstraints =
+        BookingConstraintsImpl.fromConfig(system.settings().config());
 
     // This should be determined by a more sophisticated internationalization implementation, but
     // for the sake of simplicity it is hardcoded.
     final APIErrorMessages apiErrorMessages = APIErrorMessagesImpl.ENGLISH;
 
-    // Wire everything together manually as we are not using an Dependency Injection framework
+    final AvailabilityService engineAvailabilityService;
+    final BookingService engineBookingService;
+    final Function<String, Tuple<AvailabilityService, BookingService>> propertyEngineServices;
+    final CompletionStage<Done> databaseReady;
+    if (OPTIMISTIC_BOOKING_ENGINE.equals(
+        system.settings().config().getString(BOOKING_ENGINE_CONFIG))) {
+      final OptimisticBookingEngine optimisticBookingEngine =
+          createOptimisticBookingEngine(
+              currentDate, bookingConstraints, apiErrorMessages, maybeDatabaseFolderPath);
+      engineAvailabilityService = optimisticBookingEngine;
+      engineBookingService = optimisticBookingEngine;
+      propertyEngineServices =
+          propertyId -> {
+            final OptimisticBookingEngine propertyBookingEngine =
+                createOptimisticBookingEngine(
+                    currentDate,
+                    bookingConstraints,
+                    apiErrorMessages,
+                    maybeDatabaseFolderPath.map(
+                        databaseFolderPath ->
+                            propertyFolderPathOf(databaseFolderPath, propertyId)));
+            return Tuple.create(propertyBookingEngine, propertyBookingEngine);
+          };
+      databaseReady = CompletableFuture.completedFuture(Done.getInstance());
+    } else {
+      // Wire everything together manually as we are not using an Dependency Injection framework
+      final Function<String, ActorRef> startPropertyDatabase =
+          startPropertyDatabases(currentDate, system, bookingConstraints, maybeDatabaseFolderPath);
+      final ActorRef rollingMonthDatabaseActor =
+          startPropertyDatabase.apply(DEFAULT_PROPERTY_ENTITY_ID);
+      final AvailabilityServiceImpl availabilityServiceImpl =
+          getAvailabilityService(system, timeout, rollingMonthDatabaseActor, apiErrorMessages);
+      final BookingServiceImpl bookingServiceImpl =
+          getBookingService(system, timeout, rollingMonthDatabaseActor, apiErrorMessages);
+      engineAvailabilityService = availabilityServiceImpl;
+      engineBookingService = bookingServiceImpl;
+      // Every property has its own database, but shares the request dispatchers with the others
+      propertyEngineServices =
+          propertyId -> {
+            final ActorRef propertyRollingMonthDatabaseActor =
+                startPropertyDatabase.apply(propertyId);
+            return Tuple.create(
+                availabilityServiceImpl.forDatabase(propertyRollingMonthDatabaseActor),
+                bookingServiceImpl.forDatabase(propertyRollingMonthDatabaseActor));
+          };
+      final Config startupConfig = system.settings().config().getConfig(STARTUP_CONFIG);
+      databaseReady =
+          DatabaseReadiness.awaitReady(
+              system,
+              rollingMonthDatabaseActor,
+              FiniteDuration.fromNanos(
+                  startupConfig.getDuration("readiness-poll-interval").toNanos()),
+              timeout,
+              FiniteDuration.fromNanos(startupConfig.getDuration("readiness-timeout").toNanos()));
+    }
+
+    // Shed load per route before it reaches the actors so that admitted requests keep a healthy
+    // latency instead of everyone waiting for the ask timeout. Properties share the limits.
+    final Config admissionControlConfig =
+        system.settings().config().getConfig(ADMISSION_CONTROL_CONFIG);
+    final Duration retryAfter = admissionControlConfig.getDuration("retry-after");
+    final AdmissionController availabilitiesAdmissionController =
+        AdmissionController.create(
+            AIMDConcurrencyLimiter.fromConfig(admissionControlConfig.getConfig("availabilities")),
+            retryAfter,
+            apiErrorMessages);
+    final AdmissionController bookingsAdmissionController =
+        AdmissionController.create(
+            AIMDConcurrencyLimiter.fromConfig(admissionControlConfig.getConfig("bookings")),
+            retryAfter,
+            apiErrorMessages);
+    final Config batchBookingsConfig =
+        system.settings().config().getConfig(BATCH_BOOKINGS_CONFIG);
+
+    final RouteProvider propertyRouteProvider =
+        PropertyRouteProvider.create(
+            propertyId -> {
+              final Tuple<AvailabilityService, BookingService> services =
+                  propertyEngineServices.apply(propertyId);
+              return getRoute(
+                  AdmissionControlledAvailabilityService.create(
+                      services.getLeft(), availabilitiesAdmissionController),
+                  AdmissionControlledBookingService.create(
+                      services.getRight(), bookingsAdmissionController),
+                  bookingConstraints,
+                  apiErrorMessages,
+                  batchBookingsConfig);
+            },
+            ImmutableSet.copyOf(system.settings().config().getStringList(PROPERTY_IDS_CONFIG)),
+            apiErrorMessages);
+
+    final Route route =
+        ConcatRouteProvider.create(
+                ConcatRouteProvider.create(
+                    () ->
+                        getRoute(
+                            AdmissionControlledAvailabilityService.create(
+                                engineAvailabilityService, availabilitiesAdmissionController),
+                            AdmissionControlledBookingService.create(
+                                engineBookingService, bookingsAdmissionController),
+                            bookingConstraints,
+                            apiErrorMessages,
+                            batchBookingsConfig),
+                    propertyRouteProvider),
+                MetricsRouteProvider.create(Metrics.METRICS.get(system)))
+            .getRoutes();
+    return Instance.create(route, databaseReady);
+  }
+
+  /** Recovers synchronously from the journal on creation. */
+  private static OptimisticBookingEngine createOptimisticBookingEngine(
+      final LocalDate currentDate,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final Optional<String> maybeDatabaseFolderPath) {
+    return OptimisticBookingEngine.create(
+        currentDate,
+        bookingConstraints,
+        apiErrorMessages,
+        maybeDatabaseFolderPath
+            .<BookingJournal>map(FileBookingJournal::create)
+            .orElseGet(InMemoryBookingJournal::create));
+  }
+
+  /**
+   * @return starts the database of a property and returns it, given the property id. Databases
+   *     are local actors, or when the cluster is enabled, local proxies of the entities of the
+   *     cluster shard region hosting them on whichever node.
+   */
+  private static Function<String, ActorRef> startPropertyDatabases(
+      final LocalDate currentDate,
+      final ActorSystem system,
+      final BookingConstraints bookingConstraints,
+      final Optional<String> maybeDatabaseFolderPath) {
+    final Function<String, Optional<String>> databaseFolderPathOf =
+        propertyId ->
+            maybeDatabaseFolderPath.map(
+                databaseFolderPath ->
+                    DEFAULT_PROPERTY_ENTITY_ID.equals(propertyId)
+                        ? databaseFolderPath
+                        : propertyFolderPathOf(databaseFolderPath, propertyId));
+    final Function<String, String> actorNameOf =
+        propertyId ->
+            DEFAULT_PROPERTY_ENTITY_ID.equals(propertyId)
+                ? ROLLING_MONTH_DATABASE_ACTOR
+                : ROLLING_MONTH_DATABASE_ACTOR + "-" + propertyId;
+
+    if (system
+        .settings()
+        .config()
+        .getConfig(PropertyDatabaseSharding.CLUSTER_CONFIG)
+        .getBoolean("enabled")) {
+      final PropertyDatabaseSharding propertyDatabaseSharding =
+          PropertyDatabaseSharding.start(
+              system,
+              RollingMonthDatabaseActor.entityProps(
+                  databaseFolderPathOf,
+                  bookingConstraints,
+                  SingleDateDatabaseManagerActor::props,
+                  currentDate));
+      return propertyId ->
+          propertyDatabaseSharding.databaseOf(propertyId, actorNameOf.apply(propertyId));
+    } else {
+      return propertyId ->
+          startRollingMonthDatabase(
+              currentDate,
+              system,
+              bookingConstraints,
+              databaseFolderPathOf.apply(propertyId),
+              actorNameOf.apply(propertyId));
+    }
+  }
+
+  private static ActorRef startRollingMonthDatabase(
+      final LocalDate currentDate,
+      final ActorSystem system,
+      final BookingConstraints bookingConstraints,
+      final Optional<String> maybeDatabaseFolderPath,
+      final String name) {
     final ActorRef rollingMonthDatabaseActor =
         system.actorOf(
-            RollingMonthDatabaseActor.props(
-                databaseFolderPath,
-                BookingConstraintsImpl.INSTANCE,
-                SingleDateDatabaseManagerActor::props),
-            ROLLING_MONTH_DATABASE_ACTOR);
+            maybeDatabaseFolderPath
+                .map(
+                    databaseFolderPath ->
+                        RollingMonthDatabaseActor.props(
+                            databaseFolderPath,
+                            bookingConstraints,
+                            SingleDateDatabaseManagerActor::props))
+                .orElseGet(
+                    () ->
+                        RollingMonthDatabaseActor.propsInMemory(
+                            bookingConstraints, SingleDateDatabaseManagerActor::props)),
+            name);
     rollingMonthDatabaseActor.tell(
         RollingMonthDatabaseCommand.start(currentDate), ActorRef.noSender());
+    return rollingMonthDatabaseActor;
+  }
 
-    final AvailabilityService availabilityService =
-        getAvailabilityService(system, timeout, rollingMonthDatabaseActor, apiErrorMessages);
-
-    final BookingService bookingService =
-        getBookingService(system, timeout, rollingMonthDatabaseActor, apiErrorMessages);
-
-    return getRoute(availabilityService, bookingService, bookingConstraints, apiErrorMessages);
+  /** Properties live in sub folders, next to the date files of the default property. */
+  private static String propertyFolderPathOf(
+      final String databaseFolderPath, final String propertyId) {
+    return databaseFolderPath + "/" + PROPERTIES_FOLDER + "/" + propertyId;
   }
 
   public static Route getRoute(
       final AvailabilityService availabilityService,
       final BookingService bookingService,
       final BookingConstraints bookingConstraints,
-      final APIErrorMessages apiErrorMessages) {
+      final APIErrorMessages apiErrorMessages,
+      final Config batchBookingsConfig) {
 
     final RouteProvider availabilitiesRouteProvider =
-        AvailabilitiesRouteProvider.create(availabilityService, apiErrorMessages);
+        AvailabilitiesRouteProvider.create(
+            availabilityService, bookingConstraints, apiErrorMessages);
 
     final RouteProvider bookingRouteProvider =
-        BookingRouteProvider.create(bookingService, bookingConstraints, apiErrorMessages);
+        BookingRouteProvider.create(
+            bookingService,
+            BatchBookingPipeline.fromConfig(
+                bookingService, bookingConstraints, apiErrorMessages, batchBookingsConfig),
+            bookingConstraints,
+            apiErrorMessages);
 
     return ConcatRouteProvider.create(availabilitiesRouteProvider, bookingRouteProvider)
         .getRoutes();
   }
 
-  private static BookingService getBookingService(
+  private static BookingServiceImpl getBookingService(
       final ActorSystem system,
       final Timeout timeout,
       final ActorRef rollingMonthDatabaseActor,
@@ -147,7 +660,7 @@ public final class VolcanoIslandApp {
         timeout);
   }
 
-  private static AvailabilityService getAvailabilityService(
+  private static AvailabilityServiceImpl getAvailabilityService(
       final ActorSystem system,
       final Timeout timeout,
       final ActorRef rollingMonthDatabaseActor,
@@ -160,4 +673,27 @@ public final class VolcanoIslandApp {
 
     return AvailabilityServiceImpl.create(availabilityRequestHandlerDispatcherActor, timeout);
   }
+
+  /** Routes of an initialized application and when its database is ready to serve them. */
+  public static final class Instance {
+    private final Route route;
+    private final CompletionStage<Done> databaseReady;
+
+    private Instance(final Route route, final CompletionStage<Done> databaseReady) {
+      this.route = route;
+      this.databaseReady = databaseReady;
+    }
+
+    public static Instance create(final Route route, final CompletionStage<Done> databaseReady) {
+      return new Instance(route, databaseReady);
+    }
+
+    public Route getRoute() {
+      return route;
+    }
+
+    public CompletionStage<Done> getDatabaseReady() {
+      return databaseReady;
+    }
+  }
 }
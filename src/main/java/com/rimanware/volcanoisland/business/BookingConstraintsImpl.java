@@ -2,6 +2,7 @@ package com.rimanware.volcanoisland.business;
 
 import com.google.common.collect.ImmutableList;
 import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.typesafe.config.Config;
 
 import java.time.LocalDate;
 import java.util.stream.Collectors;
@@ -11,6 +12,7 @@ import static java.time.temporal.ChronoUnit.DAYS;
 
 public class BookingConstraintsImpl implements BookingConstraints {
   public static final BookingConstraints INSTANCE = new BookingConstraintsImpl(1, 30, 3);
+  public static final String BOOKING_CONSTRAINTS_CONFIG = "volcano-island.booking-constraints";
 
   private final int minimumAllowedDaysToBookAheadOfArrivalDate;
   private final int maximumAllowedDaysToBookAheadOfArrivalDate;
@@ -25,6 +27,25 @@ public class BookingConstraintsImpl implements BookingConstraints {
     this.maximumReservableDaysPerBooking = maximumReservableDaysPerBooking;
   }
 
+  public static BookingConstraints create(
+      final int minimumAllowedDaysToBookAheadOfArrivalDate,
+      final int maximumAllowedDaysToBookAheadOfArrivalDate,
+      final int maximumReservableDaysPerBooking) {
+    return new BookingConstraintsImpl(
+        minimumAllowedDaysToBookAheadOfArrivalDate,
+        maximumAllowedDaysToBookAheadOfArrivalDate,
+        maximumReservableDaysPerBooking);
+  }
+
+  /** @param config Root config, constraints are read from volcano-island.booking-constraints */
+  public static BookingConstraints fromConfig(final Config config) {
+    final Config constraintsConfig = config.getConfig(BOOKING_CONSTRAINTS_CONFIG);
+    return create(
+        constraintsConfig.getInt("minimum-days-ahead-of-arrival"),
+        constraintsConfig.getInt("maximum-days-ahead-of-arrival"),
+        constraintsConfig.getInt("maximum-reservable-days-per-booking"));
+  }
+
   @Override
   public LocalDate startDateOfReservationWindowGivenCurrentDate(final LocalDate currentDate) {
     return currentDate.plusDays(1 + this.minimumAllowedDaysToBookAheadOfArrivalDate);
@@ -0,0 +1,40 @@
+package com.rimanware.volcanoisland.cluster;
+
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import com.rimanware.volcanoisland.common.LoggingReceiveActor;
+
+/**
+ * Stands for the database of a property wherever it lives in the cluster, so request handlers talk
+ * to it like to a local RollingMonthDatabaseActor. Replies go straight back to the original sender.
+ */
+public final class PropertyDatabaseProxyActor extends LoggingReceiveActor {
+
+  private final ActorRef shardRegion;
+  private final String propertyId;
+
+  private PropertyDatabaseProxyActor(final ActorRef shardRegion, final String propertyId) {
+    this.shardRegion = shardRegion;
+    this.propertyId = propertyId;
+  }
+
+  private static PropertyDatabaseProxyActor create(
+      final ActorRef shardRegion, final String propertyId) {
+    return new PropertyDatabaseProxyActor(shardRegion, propertyId);
+  }
+
+  public static Props props(final ActorRef shardRegion, final String propertyId) {
+    return Props.create(
+        PropertyDatabaseProxyActor.class,
+        () -> PropertyDatabaseProxyActor.create(shardRegion, propertyId));
+  }
+
+  @Override
+  public Receive createReceive() {
+    return receiveBuilder()
+        .matchAny(
+            message ->
+                shardRegion.tell(PropertyEnvelope.create(propertyId, message), getSender()))
+        .build();
+  }
+}
@@ -0,0 +1,53 @@
+package com.rimanware.volcanoisland.cluster;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.cluster.sharding.ClusterSharding;
+import akka.cluster.sharding.ClusterShardingSettings;
+
+/**
+ * Distributes the databases of the properties across the nodes of the cluster. Every node starts
+ * the same shard region, property ids are hashed to shards and shards are allocated to the nodes,
+ * then moved when nodes join or leave. A RollingMonthDatabaseActor is the entity of its property.
+ */
+public final class PropertyDatabaseSharding {
+
+  public static final String TYPE_NAME = "RollingMonthDatabase";
+  public static final String CLUSTER_CONFIG = "volcano-island.cluster";
+
+  private final ActorSystem system;
+  private final ActorRef shardRegion;
+
+  private PropertyDatabaseSharding(final ActorSystem system, final ActorRef shardRegion) {
+    this.system = system;
+    this.shardRegion = shardRegion;
+  }
+
+  /** @param entityProps props of the database of a property, its entity id being the actor name */
+  public static PropertyDatabaseSharding start(final ActorSystem system, final Props entityProps) {
+    final ActorRef shardRegion =
+        ClusterSharding.lookup()
+            .get(system)
+            .start(
+                TYPE_NAME,
+                entityProps,
+                ClusterShardingSettings.create(system),
+                PropertyMessageExtractor.create(
+                    system
+                        .settings()
+                        .config()
+                        .getConfig(CLUSTER_CONFIG)
+                        .getInt("number-of-shards")));
+    return new PropertyDatabaseSharding(system, shardRegion);
+  }
+
+  /** @return local stand-in of the database of the property, wherever the shard lives. */
+  public ActorRef databaseOf(final String propertyId, final String proxyName) {
+    return system.actorOf(PropertyDatabaseProxyActor.props(shardRegion, propertyId), proxyName);
+  }
+
+  public ActorRef getShardRegion() {
+    return shardRegion;
+  }
+}
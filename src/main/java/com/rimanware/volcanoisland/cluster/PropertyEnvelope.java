@@ -0,0 +1,32 @@
+package com.rimanware.volcanoisland.cluster;
+
+import java.io.Serializable;
+
+/** Message to the database of a property, routed by the shard region to the node hosting it. */
+public final class PropertyEnvelope implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private final String propertyId;
+  private final Object message;
+
+  private PropertyEnvelope(final String propertyId, final Object message) {
+    this.propertyId = propertyId;
+    this.message = message;
+  }
+
+  public static PropertyEnvelope create(final String propertyId, final Object message) {
+    return new PropertyEnvelope(propertyId, message);
+  }
+
+  @Override
+  public String toString() {
+    return "PropertyEnvelope{" + "propertyId='" + propertyId + '\'' + ", message=" + message + '}';
+  }
+
+  public String getPropertyId() {
+    return propertyId;
+  }
+
+  public Object getMessage() {
+    return message;
+  }
+}
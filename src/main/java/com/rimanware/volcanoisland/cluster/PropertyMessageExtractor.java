@@ -0,0 +1,33 @@
+package com.rimanware.volcanoisland.cluster;
+
+import akka.cluster.sharding.ShardRegion;
+
+/** Hashes property ids to a fixed number of shards, the unit of rebalancing between nodes. */
+final class PropertyMessageExtractor extends ShardRegion.HashCodeMessageExtractor {
+
+  private PropertyMessageExtractor(final int numberOfShards) {
+    super(numberOfShards);
+  }
+
+  static PropertyMessageExtractor create(final int numberOfShards) {
+    return new PropertyMessageExtractor(numberOfShards);
+  }
+
+  @Override
+  public String entityId(final Object message) {
+    if (message instanceof PropertyEnvelope) {
+      return ((PropertyEnvelope) message).getPropertyId();
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public Object entityMessage(final Object message) {
+    if (message instanceof PropertyEnvelope) {
+      return ((PropertyEnvelope) message).getMessage();
+    } else {
+      return message;
+    }
+  }
+}
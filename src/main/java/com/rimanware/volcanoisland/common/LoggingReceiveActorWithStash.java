@@ -0,0 +1,19 @@
+package com.rimanware.volcanoisland.common;
+
+import akka.actor.AbstractActorWithStash;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import scala.PartialFunction;
+import scala.runtime.BoxedUnit;
+
+/** LoggingReceiveActor holding messages back in a stash, its mailbox must be deque based. */
+public abstract class LoggingReceiveActorWithStash extends AbstractActorWithStash {
+
+  protected final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+
+  @Override
+  public void aroundReceive(final PartialFunction<Object, BoxedUnit> receive, final Object msg) {
+    log.info("Received Message : {}", msg);
+    super.aroundReceive(receive, msg);
+  }
+}
@@ -1,6 +1,7 @@
 package com.rimanware.volcanoisland.common;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import java.time.LocalDate;
@@ -40,6 +41,39 @@ public final class UtilityFunctions {
     }.stream().collect(ImmutableSet.toImmutableSet());
   }
 
+  /**
+   * @return copy of the map with the entry added, or replaced if the key already exists, made in a
+   *     single pass over the map.
+   */
+  public static <K, V> ImmutableMap<K, V> putInImmutableMap(
+      final ImmutableMap<K, V> immutableMap, final K key, final V value) {
+    final ImmutableMap.Builder<K, V> builder =
+        ImmutableMap.builderWithExpectedSize(immutableMap.size() + 1);
+    immutableMap.forEach(
+        (entryKey, entryValue) -> {
+          if (!entryKey.equals(key)) {
+            builder.put(entryKey, entryValue);
+          }
+        });
+    return builder.put(key, value).build();
+  }
+
+  public static <K, V> ImmutableMap<K, V> removeFromImmutableMap(
+      final ImmutableMap<K, V> immutableMap, final K key) {
+    if (!immutableMap.containsKey(key)) {
+      return immutableMap;
+    }
+    final ImmutableMap.Builder<K, V> builder =
+        ImmutableMap.builderWithExpectedSize(immutableMap.size() - 1);
+    immutableMap.forEach(
+        (entryKey, entryValue) -> {
+          if (!entryKey.equals(key)) {
+            builder.put(entryKey, entryValue);
+          }
+        });
+    return builder.build();
+  }
+
   public static ImmutableSet<LocalDate> generateAllDatesInRange(
       final LocalDate startDate, final LocalDate endDate) {
     return Stream.iterate(startDate, d -> d.plusDays(1))
@@ -0,0 +1,68 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import java.time.LocalDate;
+
+/**
+ * Remaining capacity of every date of the reservation window at one point in time. Never changes
+ * once created, each change of a date makes a new snapshot with the next version.
+ */
+public final class AvailabilitySnapshot {
+  static final AvailabilitySnapshot EMPTY = new AvailabilitySnapshot(0, ImmutableSortedMap.of());
+  private final long version;
+  private final ImmutableSortedMap<LocalDate, Integer> remainingCapacityByDate;
+
+  private AvailabilitySnapshot(
+      final long version, final ImmutableSortedMap<LocalDate, Integer> remainingCapacityByDate) {
+    this.version = version;
+    this.remainingCapacityByDate = remainingCapacityByDate;
+  }
+
+  AvailabilitySnapshot replace(final ImmutableMap<LocalDate, Integer> newRemainingCapacityByDate) {
+    return new AvailabilitySnapshot(
+        version + 1, ImmutableSortedMap.copyOf(newRemainingCapacityByDate));
+  }
+
+  /** @return this snapshot if the remaining capacity of the date didn't change */
+  AvailabilitySnapshot update(final LocalDate date, final int remainingCapacity) {
+    final Integer currentRemainingCapacity = remainingCapacityByDate.get(date);
+    if (currentRemainingCapacity != null && currentRemainingCapacity == remainingCapacity) {
+      return this;
+    }
+    return new AvailabilitySnapshot(
+        version + 1,
+        ImmutableSortedMap.<LocalDate, Integer>naturalOrder()
+            .putAll(Maps.filterKeys(remainingCapacityByDate, key -> !key.equals(date)))
+            .put(date, remainingCapacity)
+            .build());
+  }
+
+  /** @return remaining capacity of the dates with units left, none left out of the window */
+  public ImmutableMap<LocalDate, Integer> availableDates(final ImmutableSet<LocalDate> dates) {
+    return dates.stream()
+        .filter(date -> remainingCapacityByDate.getOrDefault(date, 0) > 0)
+        .collect(ImmutableMap.toImmutableMap(date -> date, remainingCapacityByDate::get));
+  }
+
+  public ImmutableMap<LocalDate, Integer> getRemainingCapacityByDate() {
+    return remainingCapacityByDate;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public String toString() {
+    return "AvailabilitySnapshot{"
+        + "version="
+        + version
+        + ", remainingCapacityByDate="
+        + remainingCapacityByDate
+        + '}';
+  }
+}
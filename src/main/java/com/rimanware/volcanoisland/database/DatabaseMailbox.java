@@ -0,0 +1,208 @@
+package com.rimanware.volcanoisland.database;
+
+import akka.actor.ActorPath;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.DequeBasedMessageQueueSemantics;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.PriorityGenerator;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMailbox;
+import akka.dispatch.UnboundedStablePriorityMailbox;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.time.LocalDate;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mailbox of the database actors, configured by its mailbox section:
+ *
+ * <ul>
+ *   <li>mailbox-capacity: bookings and availability requests of the request handlers are shed
+ *       once that many of them are waiting, without blocking the sender, which is answered
+ *       Overloaded right away. Every other message is never dropped, whatever the number of
+ *       messages waiting: a dropped commit or revert would leave its unit held until the
+ *       transaction times out, and a dropped message the actors of a date send each other (the
+ *       election query of a manager to its read replica) or themselves would leave them waiting
+ *       forever. Unbounded if 0 or less.
+ *   <li>priority: messages ending a transaction (commits, reverts, cancellations, transaction
+ *       timeouts and written events) are dequeued before the others, so that units held on
+ *       probation are released without waiting behind floods of bookings and availability
+ *       requests. Only the start and passivation of a date go before them, a date must not be
+ *       asked to commit before being started. Messages of the same priority keep their order.
+ * </ul>
+ *
+ * <p>Messages put back by an actor unstashing them go before every waiting message, whatever their
+ * priority, so that actors with a stash can use it.
+ */
+public final class DatabaseMailbox
+    implements MailboxType, ProducesMessageQueue<DatabaseMailbox.DatabaseMessageQueue> {
+  private static final int LIFECYCLE_PRIORITY = 0;
+  private static final int TRANSACTION_COMPLETION_PRIORITY = 1;
+  private static final int DEFAULT_PRIORITY = 2;
+  private static final PriorityGenerator TRANSACTION_COMPLETIONS_FIRST =
+      new PriorityGenerator() {
+        @Override
+        public int gen(final Object message) {
+          if (isLifecycle(message)) {
+            return LIFECYCLE_PRIORITY;
+          } else if (endsTransaction(message)) {
+            return TRANSACTION_COMPLETION_PRIORITY;
+          } else {
+            return DEFAULT_PRIORITY;
+          }
+        }
+      };
+  private final MailboxType mailboxType;
+  private final int capacity;
+
+  public DatabaseMailbox(final ActorSystem.Settings settings, final Config config) {
+    this.capacity = config.getInt("mailbox-capacity");
+    this.mailboxType =
+        config.getBoolean("priority")
+            ? new UnboundedStablePriorityMailbox(TRANSACTION_COMPLETIONS_FIRST)
+            : new UnboundedMailbox();
+  }
+
+  /**
+   * Stopping messages keep their place, what was routed to a date before it is asked to stop must
+   * still reach it.
+   */
+  private static boolean isLifecycle(final Object message) {
+    return message instanceof SingleDateDatabaseManagerActor.Start
+        || message instanceof SingleDateDatabaseManagerActor.Passivated;
+  }
+
+  private static boolean endsTransaction(final Object message) {
+    return message instanceof SingleDateDatabaseCommand.Commit
+        || message instanceof SingleDateDatabaseCommand.Revert
+        || message instanceof SingleDateDatabaseCommand.CancelBooking
+        || message instanceof SingleDateDatabaseActor.TransactionTimedOut
+        || message instanceof SingleDateDatabaseActor.EventsAppended
+        || message instanceof SingleDateDatabaseActor.WriteFailed;
+  }
+
+  /** Requests of a date a request handler waits an answer for. */
+  private static boolean isRequest(final Object message) {
+    return message instanceof SingleDateDatabaseCommand.Book
+        || message instanceof SingleDateDatabaseCommand.BookAndCommit
+        || message instanceof SingleDateDatabaseCommand.GetAvailability;
+  }
+
+  private static LocalDate dateOf(final Object message) {
+    if (message instanceof SingleDateDatabaseCommand.Book) {
+      return ((SingleDateDatabaseCommand.Book) message).getDate();
+    } else if (message instanceof SingleDateDatabaseCommand.BookAndCommit) {
+      return ((SingleDateDatabaseCommand.BookAndCommit) message).getDate();
+    } else {
+      return ((SingleDateDatabaseCommand.GetAvailability) message).getDate();
+    }
+  }
+
+  @Override
+  public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+    final MessageQueue queue = mailboxType.create(owner, system);
+    return owner.isDefined()
+        ? new DatabaseMessageQueue(queue, owner.get(), capacity)
+        : new DatabaseMessageQueue(queue, ActorRef.noSender(), 0);
+  }
+
+  /**
+   * Counts the requests of the request handlers waiting in the queue, shedding those past
+   * capacity. Unstashed messages wait in front of the queue.
+   */
+  static final class DatabaseMessageQueue
+      implements MessageQueue, DequeBasedMessageQueueSemantics {
+    private final MessageQueue queue;
+    private final Deque<Envelope> unstashedMessages = new ConcurrentLinkedDeque<>();
+    private final ActorRef owner;
+    private final int capacity;
+    private final AtomicInteger waitingDroppableMessages = new AtomicInteger();
+
+    private DatabaseMessageQueue(
+        final MessageQueue queue, final ActorRef owner, final int capacity) {
+      this.queue = queue;
+      this.owner = owner;
+      this.capacity = capacity;
+    }
+
+    /** Nothing is dropped without capacity. */
+    private boolean isDroppable(final ActorRef receiver, final Envelope handle) {
+      return capacity > 0
+          && isRequest(handle.message())
+          && !isSentWithinDate(receiver, handle.sender());
+    }
+
+    /**
+     * Sent by the actor itself (timers, write outcomes, flushes), its parent or the other children
+     * of its parent (a date manager and the writer and read replica it started), rather than
+     * forwarded on behalf of a request handler.
+     */
+    private static boolean isSentWithinDate(final ActorRef receiver, final ActorRef sender) {
+      final ActorPath parent = receiver.path().parent();
+      return sender.equals(receiver)
+          || sender.path().equals(parent)
+          || sender.path().parent().equals(parent);
+    }
+
+    @Override
+    public void enqueue(final ActorRef receiver, final Envelope handle) {
+      if (!isDroppable(receiver, handle)) {
+        queue.enqueue(receiver, handle);
+      } else if (waitingDroppableMessages.incrementAndGet() <= capacity) {
+        queue.enqueue(receiver, handle);
+      } else {
+        waitingDroppableMessages.decrementAndGet();
+        handle
+            .sender()
+            .tell(SingleDateDatabaseResponse.overloaded(dateOf(handle.message())), receiver);
+      }
+    }
+
+    /** Unstashed messages were already admitted once, they are never dropped. */
+    @Override
+    public void enqueueFirst(final ActorRef receiver, final Envelope handle) {
+      if (isDroppable(receiver, handle)) {
+        waitingDroppableMessages.incrementAndGet();
+      }
+      unstashedMessages.addFirst(handle);
+    }
+
+    @Override
+    public Envelope dequeue() {
+      final Envelope unstashedMessage = unstashedMessages.poll();
+      final Envelope envelope = unstashedMessage != null ? unstashedMessage : queue.dequeue();
+      if (envelope != null && isDroppable(owner, envelope)) {
+        waitingDroppableMessages.decrementAndGet();
+      }
+      return envelope;
+    }
+
+    @Override
+    public int numberOfMessages() {
+      return unstashedMessages.size() + queue.numberOfMessages();
+    }
+
+    @Override
+    public boolean hasMessages() {
+      return !unstashedMessages.isEmpty() || queue.hasMessages();
+    }
+
+    @Override
+    public void cleanUp(final ActorRef owner, final MessageQueue deadLetters) {
+      Envelope unstashedMessage = unstashedMessages.poll();
+      while (unstashedMessage != null) {
+        deadLetters.enqueue(owner, unstashedMessage);
+        unstashedMessage = unstashedMessages.poll();
+      }
+      queue.cleanUp(owner, deadLetters);
+    }
+  }
+}
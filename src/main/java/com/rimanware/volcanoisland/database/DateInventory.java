@@ -0,0 +1,301 @@
+package com.rimanware.volcanoisland.database;
+
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Units of a single date. A unit is occupied once committed to a booking or claimed by an open
+ * transaction, occupied units are tracked in a bitset so that claiming the next free unit and
+ * counting the remaining capacity don't depend on the number of bookings. Committed units are
+ * indexed by booking id so that finding the unit of a booking doesn't either.
+ */
+final class DateInventory {
+  private final int capacity;
+  private final ImmutableSortedMap<Integer, Booking> committedBookingsByUnit;
+  private final ImmutableMap<String, Integer> committedUnitsByBookingId;
+  private final ImmutableMap<String, Transaction> transactionsByBookingId;
+  // Never mutated once the inventory is created, changes are made on a copy
+  private final BitSet occupiedUnits;
+
+  private DateInventory(
+      final int capacity,
+      final ImmutableSortedMap<Integer, Booking> committedBookingsByUnit,
+      final ImmutableMap<String, Integer> committedUnitsByBookingId,
+      final ImmutableMap<String, Transaction> transactionsByBookingId,
+      final BitSet occupiedUnits) {
+    this.capacity = capacity;
+    this.committedBookingsByUnit = committedBookingsByUnit;
+    this.committedUnitsByBookingId = committedUnitsByBookingId;
+    this.transactionsByBookingId = transactionsByBookingId;
+    this.occupiedUnits = occupiedUnits;
+  }
+
+  static DateInventory create(
+      final int capacity, final SingleDateDatabaseEvent latestDatabaseEvent) {
+    final BitSet occupiedUnits = new BitSet(capacity);
+    latestDatabaseEvent.getBookingsByUnit().keySet().forEach(occupiedUnits::set);
+    return new DateInventory(
+        capacity,
+        latestDatabaseEvent.getBookingsByUnit(),
+        latestDatabaseEvent.getBookingsByUnit().entrySet().stream()
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    entry -> entry.getValue().getId(), Map.Entry::getKey, Math::min)),
+        ImmutableMap.of(),
+        occupiedUnits);
+  }
+
+  int remainingCapacity() {
+    return Math.max(0, capacity - occupiedUnits.cardinality());
+  }
+
+  OptionalInt nextFreeUnit() {
+    final int unit = occupiedUnits.nextClearBit(0);
+    return unit < capacity ? OptionalInt.of(unit) : OptionalInt.empty();
+  }
+
+  Optional<Map.Entry<Integer, Booking>> committedUnitOf(final String bookingId) {
+    return Optional.ofNullable(committedUnitsByBookingId.get(bookingId))
+        .map(unit -> Maps.immutableEntry(unit, committedBookingsByUnit.get(unit)));
+  }
+
+  Optional<Transaction> transactionOf(final String bookingId) {
+    return Optional.ofNullable(transactionsByBookingId.get(bookingId));
+  }
+
+  Optional<Transaction> transactionWithId(final String transactionId) {
+    return transactionsByBookingId.values().stream()
+        .filter(transaction -> transaction.getTransactionId().equals(transactionId))
+        .findFirst();
+  }
+
+  boolean hasOpenTransactions() {
+    return !transactionsByBookingId.isEmpty();
+  }
+
+  /** Claims the unit of the transaction if it isn't already held by its booking. */
+  DateInventory begin(final Transaction transaction) {
+    final BitSet newOccupiedUnits = (BitSet) occupiedUnits.clone();
+    newOccupiedUnits.set(transaction.getUnit());
+    return new DateInventory(
+        capacity,
+        committedBookingsByUnit,
+        committedUnitsByBookingId,
+        UtilityFunctions.putInImmutableMap(
+            transactionsByBookingId, transaction.getBookingId(), transaction),
+        newOccupiedUnits);
+  }
+
+  DateInventory commit(final Transaction transaction) {
+    final ImmutableMap<String, Transaction> newTransactions =
+        UtilityFunctions.removeFromImmutableMap(
+            transactionsByBookingId, transaction.getBookingId());
+    return new DateInventory(
+        capacity,
+        committedBookingsWith(transaction.getUnit(), transaction.getBooking()),
+        committedUnitsWith(transaction.getUnit(), transaction.getBooking()),
+        newTransactions,
+        transaction.getBooking().isPresent() ? occupiedUnits : release(transaction.getUnit()));
+  }
+
+  /** Commits the booking to the unit without a transaction, see begin and commit. */
+  DateInventory book(final int unit, final Booking booking) {
+    final BitSet newOccupiedUnits = (BitSet) occupiedUnits.clone();
+    newOccupiedUnits.set(unit);
+    return new DateInventory(
+        capacity,
+        committedBookingsWith(unit, Optional.of(booking)),
+        committedUnitsWith(unit, Optional.of(booking)),
+        transactionsByBookingId,
+        newOccupiedUnits);
+  }
+
+  DateInventory revert(final Transaction transaction) {
+    return new DateInventory(
+        capacity,
+        committedBookingsByUnit,
+        committedUnitsByBookingId,
+        UtilityFunctions.removeFromImmutableMap(
+            transactionsByBookingId, transaction.getBookingId()),
+        transaction.claimsUnit() ? release(transaction.getUnit()) : occupiedUnits);
+  }
+
+  DateInventory cancel(final int unit) {
+    return new DateInventory(
+        capacity,
+        committedBookingsWith(unit, Optional.empty()),
+        committedUnitsWith(unit, Optional.empty()),
+        transactionsByBookingId,
+        release(unit));
+  }
+
+  /** @return snapshot of the committed units, what gets persisted. */
+  SingleDateDatabaseEvent toDatabaseEvent() {
+    return committedBookingsByUnit.isEmpty()
+        ? SingleDateDatabaseEvent.noBooking()
+        : SingleDateDatabaseEvent.allocated(committedBookingsByUnit);
+  }
+
+  private BitSet release(final int unit) {
+    final BitSet newOccupiedUnits = (BitSet) occupiedUnits.clone();
+    newOccupiedUnits.clear(unit);
+    return newOccupiedUnits;
+  }
+
+  /** @return committed bookings with the unit given to the booking, or freed if empty. */
+  private ImmutableSortedMap<Integer, Booking> committedBookingsWith(
+      final int unit, final Optional<Booking> maybeBooking) {
+    final ImmutableSortedMap.Builder<Integer, Booking> builder =
+        ImmutableSortedMap.naturalOrder();
+    committedBookingsByUnit.forEach(
+        (committedUnit, booking) -> {
+          if (committedUnit != unit) {
+            builder.put(committedUnit, booking);
+          }
+        });
+    maybeBooking.ifPresent(booking -> builder.put(unit, booking));
+    return builder.build();
+  }
+
+  /** Index of committedBookingsWith, a booking holds a single unit of the date. */
+  private ImmutableMap<String, Integer> committedUnitsWith(
+      final int unit, final Optional<Booking> maybeBooking) {
+    final Optional<String> maybeBookingId = maybeBooking.map(Booking::getId);
+    final ImmutableMap.Builder<String, Integer> builder =
+        ImmutableMap.builderWithExpectedSize(committedUnitsByBookingId.size() + 1);
+    committedUnitsByBookingId.forEach(
+        (bookingId, committedUnit) -> {
+          if (committedUnit != unit && !maybeBookingId.filter(bookingId::equals).isPresent()) {
+            builder.put(bookingId, committedUnit);
+          }
+        });
+    maybeBookingId.ifPresent(bookingId -> builder.put(bookingId, unit));
+    return builder.build();
+  }
+
+  /**
+   * Probatory change of one unit by one booking, until committed or reverted by its owner.
+   *
+   * <p>The booking is empty when the unit is released by the change (booking updated to other
+   * dates).
+   */
+  static final class Transaction {
+    private final String transactionId;
+    private final String bookingId;
+    private final ActorRef owner;
+    private final int unit;
+    private final Optional<Booking> booking;
+    private final boolean claimsUnit;
+    private final Cancellable timeout;
+
+    private Transaction(
+        final String transactionId,
+        final String bookingId,
+        final ActorRef owner,
+        final int unit,
+        final Optional<Booking> booking,
+        final boolean claimsUnit,
+        final Cancellable timeout) {
+      this.transactionId = transactionId;
+      this.bookingId = bookingId;
+      this.owner = owner;
+      this.unit = unit;
+      this.booking = booking;
+      this.claimsUnit = claimsUnit;
+      this.timeout = timeout;
+    }
+
+    /** A booking taking a free unit. */
+    static Transaction claim(
+        final String transactionId,
+        final Booking booking,
+        final ActorRef owner,
+        final int unit,
+        final Cancellable timeout) {
+      return new Transaction(
+          transactionId, booking.getId(), owner, unit, Optional.of(booking), true, timeout);
+    }
+
+    /** A booking overriding the unit it already holds. */
+    static Transaction override(
+        final String transactionId,
+        final Booking booking,
+        final ActorRef owner,
+        final int unit,
+        final Cancellable timeout) {
+      return new Transaction(
+          transactionId, booking.getId(), owner, unit, Optional.of(booking), false, timeout);
+    }
+
+    /** A booking giving back the unit it holds. */
+    static Transaction release(
+        final String transactionId,
+        final String bookingId,
+        final ActorRef owner,
+        final int unit,
+        final Cancellable timeout) {
+      return new Transaction(
+          transactionId, bookingId, owner, unit, Optional.empty(), false, timeout);
+    }
+
+    String getTransactionId() {
+      return transactionId;
+    }
+
+    String getBookingId() {
+      return bookingId;
+    }
+
+    /** The request handler the transaction was opened for, the only one to settle it. */
+    ActorRef getOwner() {
+      return owner;
+    }
+
+    int getUnit() {
+      return unit;
+    }
+
+    Optional<Booking> getBooking() {
+      return booking;
+    }
+
+    boolean claimsUnit() {
+      return claimsUnit;
+    }
+
+    Cancellable getTimeout() {
+      return timeout;
+    }
+
+    @Override
+    public String toString() {
+      return "Transaction{"
+          + "transactionId='"
+          + transactionId
+          + '\''
+          + ", bookingId='"
+          + bookingId
+          + '\''
+          + ", owner="
+          + owner
+          + ", unit="
+          + unit
+          + ", booking="
+          + booking
+          + ", claimsUnit="
+          + claimsUnit
+          + '}';
+    }
+  }
+}
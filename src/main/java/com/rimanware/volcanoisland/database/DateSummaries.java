@@ -0,0 +1,108 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Latest event of every date of the reservation window, indexed by booking id so that requests
+ * targeting a booking only touch the dates it holds a unit of.
+ */
+final class DateSummaries {
+  private final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents;
+  private final ImmutableMap<String, ImmutableSet<LocalDate>> datesByBookingId;
+
+  private DateSummaries(
+      final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents,
+      final ImmutableMap<String, ImmutableSet<LocalDate>> datesByBookingId) {
+    this.latestDatabaseEvents = latestDatabaseEvents;
+    this.datesByBookingId = datesByBookingId;
+  }
+
+  static DateSummaries create(
+      final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents) {
+    final Map<String, Set<LocalDate>> datesByBookingId = new HashMap<>();
+    latestDatabaseEvents.forEach(
+        (date, latestDatabaseEvent) ->
+            bookingIdsOf(latestDatabaseEvent)
+                .forEach(
+                    bookingId ->
+                        datesByBookingId
+                            .computeIfAbsent(bookingId, id -> new HashSet<>())
+                            .add(date)));
+    return new DateSummaries(
+        latestDatabaseEvents,
+        datesByBookingId.entrySet().stream()
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    Map.Entry::getKey, entry -> ImmutableSet.copyOf(entry.getValue()))));
+  }
+
+  ImmutableSet<LocalDate> getDates() {
+    return latestDatabaseEvents.keySet();
+  }
+
+  int size() {
+    return latestDatabaseEvents.size();
+  }
+
+  Optional<SingleDateDatabaseEvent> get(final LocalDate date) {
+    return Optional.ofNullable(latestDatabaseEvents.get(date));
+  }
+
+  ImmutableSet<LocalDate> datesBookedBy(final String bookingId) {
+    return datesByBookingId.getOrDefault(bookingId, ImmutableSet.of());
+  }
+
+  /** Copies each map once, only the bookings of the date before and after are looked at. */
+  DateSummaries update(final LocalDate date, final SingleDateDatabaseEvent latestDatabaseEvent) {
+    final ImmutableSet<String> previousBookingIds =
+        get(date).map(DateSummaries::bookingIdsOf).orElse(ImmutableSet.of());
+    final ImmutableSet<String> bookingIds = bookingIdsOf(latestDatabaseEvent);
+
+    final ImmutableMap.Builder<String, ImmutableSet<LocalDate>> newDatesByBookingId =
+        ImmutableMap.builderWithExpectedSize(datesByBookingId.size() + bookingIds.size());
+    datesByBookingId.forEach(
+        (bookingId, dates) -> {
+          if (!previousBookingIds.contains(bookingId) && !bookingIds.contains(bookingId)) {
+            newDatesByBookingId.put(bookingId, dates);
+          }
+        });
+    Sets.union(previousBookingIds, bookingIds)
+        .forEach(
+            bookingId -> {
+              final ImmutableSet<LocalDate> otherDates =
+                  datesByBookingId.getOrDefault(bookingId, ImmutableSet.of()).stream()
+                      .filter(bookedDate -> !bookedDate.equals(date))
+                      .collect(ImmutableSet.toImmutableSet());
+              final ImmutableSet<LocalDate> dates =
+                  bookingIds.contains(bookingId)
+                      ? UtilityFunctions.addToImmutableSet(otherDates, date)
+                      : otherDates;
+              if (!dates.isEmpty()) {
+                newDatesByBookingId.put(bookingId, dates);
+              }
+            });
+
+    return new DateSummaries(
+        UtilityFunctions.putInImmutableMap(latestDatabaseEvents, date, latestDatabaseEvent),
+        newDatesByBookingId.build());
+  }
+
+  private static ImmutableSet<String> bookingIdsOf(
+      final SingleDateDatabaseEvent latestDatabaseEvent) {
+    return latestDatabaseEvent.getBookingsByUnit().values().stream()
+        .map(Booking::getId)
+        .collect(ImmutableSet.toImmutableSet());
+  }
+}
@@ -0,0 +1,73 @@
+package com.rimanware.volcanoisland.database;
+
+import com.rimanware.volcanoisland.database.api.BookingJournal;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Journal using the same one-file-per-date layout and format as FileDateStorage, so both
+ * booking engines can be pointed at the same database folder.
+ */
+public final class FileBookingJournal implements BookingJournal {
+  private static final String ERROR_OCCURRED_WHILE_OPENING_SINGLE_DATE_DATABASE_FILE =
+      "Error occurred while opening SingleDateDatabase file: ";
+  private final String databaseFolderPath;
+  private final ConcurrentHashMap<LocalDate, ObjectOutputStream> outputStreams;
+
+  private FileBookingJournal(final String databaseFolderPath) {
+    this.databaseFolderPath = databaseFolderPath;
+    this.outputStreams = new ConcurrentHashMap<>();
+  }
+
+  public static FileBookingJournal create(final String databaseFolderPath) {
+    return new FileBookingJournal(databaseFolderPath);
+  }
+
+  @Override
+  public void append(final LocalDate date, final SingleDateDatabaseEvent event) {
+    final ObjectOutputStream outputStream =
+        outputStreams.computeIfAbsent(date, this::openOutputStream);
+    // Appends to the same date can race, appends to different dates can't.
+    synchronized (outputStream) {
+      FileDateStorage.writeDateDatabaseEventToStream(event, outputStream);
+    }
+  }
+
+  @Override
+  public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+    final String singleDateDatabaseFilePath = filePathOf(date);
+    try {
+      if (!new File(singleDateDatabaseFilePath).isFile()) {
+        return SingleDateDatabaseEvent.noBooking();
+      }
+      return FileDateStorage.readLastDatabaseEventFromFile(singleDateDatabaseFilePath);
+    } catch (final IOException e) {
+      throw new IllegalStateException(
+          ERROR_OCCURRED_WHILE_OPENING_SINGLE_DATE_DATABASE_FILE + e.toString());
+    }
+  }
+
+  private ObjectOutputStream openOutputStream(final LocalDate date) {
+    final String singleDateDatabaseFilePath = filePathOf(date);
+    try {
+      if (!new File(singleDateDatabaseFilePath).isFile()) {
+        FileDateStorage.initialiseFile(singleDateDatabaseFilePath);
+      }
+      return FileDateStorage.appendingObjectOutputStream(
+          new FileOutputStream(singleDateDatabaseFilePath, true));
+    } catch (final IOException e) {
+      throw new IllegalStateException(
+          ERROR_OCCURRED_WHILE_OPENING_SINGLE_DATE_DATABASE_FILE + e.toString());
+    }
+  }
+
+  private String filePathOf(final LocalDate date) {
+    return databaseFolderPath + "/" + date.toString() + ".data";
+  }
+}
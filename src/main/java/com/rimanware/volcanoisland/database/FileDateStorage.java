@@ -0,0 +1,579 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.database.api.DateStorage;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * One file per date in the database folder, named after the date, holding the Java serialized
+ * events of the date one after the other. The file is only created once the date is opened, so
+ * that dates never used don't cost a file.
+ *
+ * <p>With async writes, events are written through an {@link AsynchronousFileChannel} and their
+ * writers are told once written, instead of blocking a thread of the IO dispatcher on every write.
+ */
+public final class FileDateStorage implements DateStorage {
+  private static final String
+      ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT_TO_OBJECT_OUTPUT_STREAM =
+          "Error occurred while writing DateDatabaseEvent to ObjectOutputStream: ";
+  private static final String SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE =
+      "SingleDateDatabase file not properly initialized or is corrupted. "
+          + "File should contain at least one event. "
+          + "File should be initialized with NoBooking DateDatabaseEvent.";
+  private final String databaseFolderPath;
+  private final boolean asyncWrites;
+
+  private FileDateStorage(final String databaseFolderPath, final boolean asyncWrites) {
+    this.databaseFolderPath = databaseFolderPath;
+    this.asyncWrites = asyncWrites;
+  }
+
+  public static FileDateStorage create(final String databaseFolderPath) {
+    return new FileDateStorage(databaseFolderPath, false);
+  }
+
+  public static FileDateStorage create(
+      final String databaseFolderPath, final boolean asyncWrites) {
+    return new FileDateStorage(databaseFolderPath, asyncWrites);
+  }
+
+  /** Reads the whole file of the date, NoBooking if the file doesn't exist. */
+  @Override
+  public SingleDateDatabaseEvent readLatest(final LocalDate date) throws IOException {
+    final String singleDateDatabaseFilePath = filePathOf(date);
+    if (!new File(singleDateDatabaseFilePath).isFile()) {
+      return SingleDateDatabaseEvent.noBooking();
+    } else {
+      return readLastDatabaseEventFromFile(singleDateDatabaseFilePath);
+    }
+  }
+
+  /** Keeps the file open for appending until the store is closed. */
+  @Override
+  public DateStore open(final LocalDate date) throws IOException {
+    final String singleDateDatabaseFilePath = filePathOf(date);
+    if (!new File(singleDateDatabaseFilePath).isFile()) {
+      initialiseFile(singleDateDatabaseFilePath);
+    }
+    return asyncWrites
+        ? AsyncFileDateStore.create(singleDateDatabaseFilePath)
+        : FileDateStore.create(singleDateDatabaseFilePath);
+  }
+
+  @Override
+  public boolean writesWithoutBlocking() {
+    return asyncWrites;
+  }
+
+  /** Nothing is kept open, each date store closes its own file. */
+  @Override
+  public void close() {}
+
+  private String filePathOf(final LocalDate date) {
+    return databaseFolderPath + "/" + date.toString() + ".data";
+  }
+
+  @Override
+  public String toString() {
+    return "FileDateStorage{"
+        + "databaseFolderPath='"
+        + databaseFolderPath
+        + '\''
+        + ", asyncWrites="
+        + asyncWrites
+        + '}';
+  }
+
+  /**
+   * Create file with NoBooking event written first (mainly to write header of ObjectOutputStream
+   * for the first time to avoid getting java.io.StreamCorruptedException on opening the file with
+   * ObjectInputStream).
+   *
+   * @param dateDatabaseFilePath File path used to create the file
+   * @throws IOException
+   */
+  public static void initialiseFile(final String dateDatabaseFilePath) throws IOException {
+    final File dateDatabaseFile = new File(dateDatabaseFilePath);
+    // Create Parent directories if directories are not already created
+    dateDatabaseFile.getParentFile().mkdirs();
+    final ObjectOutputStream objectOutputStream =
+        new ObjectOutputStream(new FileOutputStream(dateDatabaseFile));
+    objectOutputStream.writeObject(SingleDateDatabaseEvent.noBooking());
+    objectOutputStream.close();
+  }
+
+  /**
+   * Appends the event to the date database file, initialising the file first if it doesn't exist.
+   * Opens and closes the file, meant for writers that don't keep it open such as a standby.
+   */
+  public static void appendDatabaseEventToFile(
+      final String dateDatabaseFilePath, final SingleDateDatabaseEvent singleDateDatabaseEvent)
+      throws IOException {
+    if (!new File(dateDatabaseFilePath).isFile()) {
+      initialiseFile(dateDatabaseFilePath);
+    }
+    try (final ObjectOutputStream outputStream =
+        appendingObjectOutputStream(new FileOutputStream(dateDatabaseFilePath, true))) {
+      writeDateDatabaseEventToStream(singleDateDatabaseEvent, outputStream);
+    }
+  }
+
+  /** Object output stream writing after the header of an initialised file. */
+  public static ObjectOutputStream appendingObjectOutputStream(final OutputStream outputStream)
+      throws IOException {
+    return new ObjectOutputStream(outputStream) {
+      // This is overridden to allow for appending of new object at end of file
+      protected void writeStreamHeader() throws IOException {
+        reset();
+      }
+    };
+  }
+
+  public static SingleDateDatabaseEvent readLastDatabaseEventFromFile(
+      final String dateDatabaseFilePath) throws IOException {
+    try (final ObjectInputStream objectInputStream =
+        new ObjectInputStream(new FileInputStream(dateDatabaseFilePath))) {
+      return readLastDatabaseEventFromStream(objectInputStream);
+    }
+  }
+
+  public static SingleDateDatabaseEvent readLastDatabaseEventFromStream(
+      final ObjectInputStream objectInputStream) throws IOException {
+    boolean endReached = false;
+    SingleDateDatabaseEvent singleDateDatabaseEvent = null;
+    while (!endReached) {
+      try {
+        singleDateDatabaseEvent = (SingleDateDatabaseEvent) objectInputStream.readObject();
+      } catch (final EOFException e) {
+        endReached = true;
+      } catch (final ClassNotFoundException e) {
+        e.printStackTrace();
+        throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
+      }
+    }
+    if (singleDateDatabaseEvent == null)
+      throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
+    return singleDateDatabaseEvent;
+  }
+
+  public static ImmutableList<SingleDateDatabaseEvent> loadAllDatabaseEventFromStream(
+      final ObjectInputStream objectInputStream) throws IOException {
+    boolean endReached = false;
+    final ImmutableList.Builder<SingleDateDatabaseEvent> singleDateDatabaseEvents =
+        ImmutableList.builder();
+    while (!endReached) {
+      try {
+        singleDateDatabaseEvents.add((SingleDateDatabaseEvent) objectInputStream.readObject());
+      } catch (final EOFException e) {
+        endReached = true;
+      } catch (final ClassNotFoundException e) {
+        e.printStackTrace();
+        throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
+      }
+    }
+    return singleDateDatabaseEvents.build();
+  }
+
+  public static void writeDateDatabaseEventToStream(
+      final SingleDateDatabaseEvent singleDateDatabaseEvent,
+      final ObjectOutputStream outputStream) {
+    try {
+      outputStream.writeObject(singleDateDatabaseEvent);
+      outputStream.flush();
+    } catch (final IOException e) {
+      throw new IllegalStateException(
+          ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT_TO_OBJECT_OUTPUT_STREAM + e.toString());
+    }
+  }
+
+  /** Writes the event alone to a new file, then moves it over the date file. */
+  private static void replaceFileByEvent(
+      final String dateDatabaseFilePath, final SingleDateDatabaseEvent event) throws IOException {
+    final String snapshotFilePath = dateDatabaseFilePath + ".snapshot";
+    try (final FileOutputStream snapshotOutputStream = new FileOutputStream(snapshotFilePath);
+        final ObjectOutputStream objectOutputStream =
+            new ObjectOutputStream(snapshotOutputStream)) {
+      objectOutputStream.writeObject(event);
+      objectOutputStream.flush();
+      snapshotOutputStream.getFD().sync();
+    }
+    Files.move(
+        Paths.get(snapshotFilePath),
+        Paths.get(dateDatabaseFilePath),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static ImmutableList<SingleDateDatabaseEvent> loadAllDatabaseEventFromFile(
+      final String dateDatabaseFilePath) throws IOException {
+    try (final ObjectInputStream objectInputStream =
+        new ObjectInputStream(new FileInputStream(dateDatabaseFilePath))) {
+      return loadAllDatabaseEventFromStream(objectInputStream);
+    }
+  }
+
+  /** Mutable as the file gets reopened by a snapshot. */
+  private static final class FileDateStore implements DateStore {
+    private final String singleDateDatabaseFilePath;
+    private FileOutputStream fileOutputStream;
+    private ObjectOutputStream outputStream;
+
+    private FileDateStore(final String singleDateDatabaseFilePath) throws IOException {
+      this.singleDateDatabaseFilePath = singleDateDatabaseFilePath;
+      openForAppending();
+    }
+
+    static FileDateStore create(final String singleDateDatabaseFilePath) throws IOException {
+      return new FileDateStore(singleDateDatabaseFilePath);
+    }
+
+    private void openForAppending() throws IOException {
+      fileOutputStream = new FileOutputStream(singleDateDatabaseFilePath, true);
+      outputStream = appendingObjectOutputStream(fileOutputStream);
+    }
+
+    @Override
+    public void append(final SingleDateDatabaseEvent event) {
+      writeDateDatabaseEventToStream(event, outputStream);
+    }
+
+    @Override
+    public void appendAll(final ImmutableList<SingleDateDatabaseEvent> events)
+        throws IOException {
+      for (final SingleDateDatabaseEvent event : events) {
+        outputStream.writeObject(event);
+      }
+      outputStream.flush();
+    }
+
+    @Override
+    public ImmutableList<SingleDateDatabaseEvent> history() throws IOException {
+      return loadAllDatabaseEventFromFile(singleDateDatabaseFilePath);
+    }
+
+    @Override
+    public void snapshot(final SingleDateDatabaseEvent latestEvent) throws IOException {
+      outputStream.close();
+      replaceFileByEvent(singleDateDatabaseFilePath, latestEvent);
+      openForAppending();
+    }
+
+    @Override
+    public void sync() throws IOException {
+      fileOutputStream.getFD().sync();
+    }
+
+    @Override
+    public Optional<String> getFilePath() {
+      return Optional.of(singleDateDatabaseFilePath);
+    }
+
+    @Override
+    public void close() throws IOException {
+      outputStream.close();
+    }
+
+    @Override
+    public String toString() {
+      return "FileDateStore{"
+          + "singleDateDatabaseFilePath='"
+          + singleDateDatabaseFilePath
+          + '\''
+          + '}';
+    }
+  }
+
+  /**
+   * Serializes events in the calling thread and writes them with one write in flight at a time:
+   * events appended meanwhile are queued and written together by the next write. Callbacks are
+   * called in append order by the thread completing the write, before the next write starts.
+   *
+   * <p>Reading the history, snapshotting, syncing and closing wait for the queued writes.
+   *
+   * <p>A failed write may leave a hole or a partial batch at the end of the file, which recovery
+   * can't read past. Every queued and later append fails with the same error instead of being
+   * written after it and acknowledged.
+   */
+  private static final class AsyncFileDateStore implements DateStore {
+    private final String singleDateDatabaseFilePath;
+    // Reopened by a snapshot, once no write is in flight
+    private volatile AsynchronousFileChannel channel;
+    // Guarded by this
+    private final ArrayDeque<PendingWrite> queuedWrites = new ArrayDeque<>();
+    private boolean writing = false;
+    private long position;
+    private Optional<IOException> failure = Optional.empty();
+
+    private AsyncFileDateStore(final String singleDateDatabaseFilePath) throws IOException {
+      this.singleDateDatabaseFilePath = singleDateDatabaseFilePath;
+      openForAppending();
+    }
+
+    static AsyncFileDateStore create(final String singleDateDatabaseFilePath)
+        throws IOException {
+      return new AsyncFileDateStore(singleDateDatabaseFilePath);
+    }
+
+    private void openForAppending() throws IOException {
+      channel =
+          AsynchronousFileChannel.open(
+              Paths.get(singleDateDatabaseFilePath), StandardOpenOption.WRITE);
+      synchronized (this) {
+        position = channel.size();
+      }
+    }
+
+    /** Blocks until written, like the other stores. */
+    @Override
+    public void append(final SingleDateDatabaseEvent event) throws IOException {
+      appendAll(ImmutableList.of(event));
+    }
+
+    /** Blocks until written, like the other stores. */
+    @Override
+    public void appendAll(final ImmutableList<SingleDateDatabaseEvent> events)
+        throws IOException {
+      appendAllAsync(events, false, maybeFailure -> {});
+      awaitWrites();
+      throwIfFailed();
+    }
+
+    @Override
+    public void appendAllAsync(
+        final ImmutableList<SingleDateDatabaseEvent> events,
+        final boolean sync,
+        final Consumer<Optional<IOException>> onWritten) {
+      final byte[] bytes;
+      try {
+        bytes = serialize(events);
+      } catch (final IOException e) {
+        onWritten.accept(Optional.of(e));
+        return;
+      }
+      final Optional<IOException> previousFailure;
+      synchronized (this) {
+        previousFailure = failure;
+        if (!previousFailure.isPresent()) {
+          queuedWrites.addLast(PendingWrite.create(bytes, sync, onWritten));
+          if (writing) {
+            return;
+          }
+          writing = true;
+        }
+      }
+      if (previousFailure.isPresent()) {
+        onWritten.accept(previousFailure);
+      } else {
+        writeQueued();
+      }
+    }
+
+    /** Same bytes as events appended to an appending object output stream. */
+    private static byte[] serialize(final ImmutableList<SingleDateDatabaseEvent> events)
+        throws IOException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (final ObjectOutputStream outputStream = appendingObjectOutputStream(bytes)) {
+        for (final SingleDateDatabaseEvent event : events) {
+          outputStream.writeObject(event);
+        }
+      }
+      return bytes.toByteArray();
+    }
+
+    private void writeQueued() {
+      final ImmutableList<PendingWrite> batch;
+      final long batchPosition;
+      final int batchSize;
+      final Optional<IOException> previousFailure;
+      synchronized (this) {
+        batch = ImmutableList.copyOf(queuedWrites);
+        queuedWrites.clear();
+        previousFailure = failure;
+        if (batch.isEmpty() || previousFailure.isPresent()) {
+          writing = false;
+          notifyAll();
+          batchPosition = position;
+          batchSize = 0;
+        } else {
+          batchSize =
+              batch.stream().mapToInt(pendingWrite -> pendingWrite.getBytes().length).sum();
+          batchPosition = position;
+          position += batchSize;
+        }
+      }
+      if (previousFailure.isPresent()) {
+        batch.forEach(pendingWrite -> pendingWrite.getOnWritten().accept(previousFailure));
+        return;
+      } else if (batch.isEmpty()) {
+        return;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(batchSize);
+      batch.forEach(pendingWrite -> buffer.put(pendingWrite.getBytes()));
+      buffer.flip();
+      write(buffer, batchPosition, batch);
+    }
+
+    private void write(
+        final ByteBuffer buffer,
+        final long writePosition,
+        final ImmutableList<PendingWrite> batch) {
+      channel.write(
+          buffer,
+          writePosition,
+          null,
+          new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(final Integer written, final Void attachment) {
+              if (buffer.hasRemaining()) {
+                write(buffer, writePosition + written, batch);
+              } else if (batch.stream().anyMatch(PendingWrite::isSync)) {
+                try {
+                  channel.force(false);
+                  written(batch, Optional.empty());
+                } catch (final IOException e) {
+                  written(batch, Optional.of(e));
+                }
+              } else {
+                written(batch, Optional.empty());
+              }
+            }
+
+            @Override
+            public void failed(final Throwable cause, final Void attachment) {
+              written(
+                  batch,
+                  Optional.of(
+                      cause instanceof IOException ? (IOException) cause : new IOException(cause)));
+            }
+          });
+    }
+
+    private void written(
+        final ImmutableList<PendingWrite> batch, final Optional<IOException> maybeFailure) {
+      if (maybeFailure.isPresent()) {
+        synchronized (this) {
+          failure = maybeFailure;
+        }
+      }
+      batch.forEach(pendingWrite -> pendingWrite.getOnWritten().accept(maybeFailure));
+      writeQueued();
+    }
+
+    private synchronized void awaitWrites() throws IOException {
+      try {
+        while (writing) {
+          wait();
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for writes");
+      }
+    }
+
+    private synchronized void throwIfFailed() throws IOException {
+      if (failure.isPresent()) {
+        throw new IOException("An earlier write failed", failure.get());
+      }
+    }
+
+    @Override
+    public ImmutableList<SingleDateDatabaseEvent> history() throws IOException {
+      awaitWrites();
+      return loadAllDatabaseEventFromFile(singleDateDatabaseFilePath);
+    }
+
+    @Override
+    public void snapshot(final SingleDateDatabaseEvent latestEvent) throws IOException {
+      awaitWrites();
+      throwIfFailed();
+      channel.close();
+      replaceFileByEvent(singleDateDatabaseFilePath, latestEvent);
+      openForAppending();
+    }
+
+    @Override
+    public void sync() throws IOException {
+      awaitWrites();
+      throwIfFailed();
+      channel.force(false);
+    }
+
+    @Override
+    public Optional<String> getFilePath() {
+      return Optional.of(singleDateDatabaseFilePath);
+    }
+
+    @Override
+    public void close() throws IOException {
+      awaitWrites();
+      channel.close();
+    }
+
+    @Override
+    public String toString() {
+      return "AsyncFileDateStore{"
+          + "singleDateDatabaseFilePath='"
+          + singleDateDatabaseFilePath
+          + '\''
+          + '}';
+    }
+  }
+
+  private static final class PendingWrite {
+    private final byte[] bytes;
+    private final boolean sync;
+    private final Consumer<Optional<IOException>> onWritten;
+
+    private PendingWrite(
+        final byte[] bytes, final boolean sync, final Consumer<Optional<IOException>> onWritten) {
+      this.bytes = bytes;
+      this.sync = sync;
+      this.onWritten = onWritten;
+    }
+
+    static PendingWrite create(
+        final byte[] bytes, final boolean sync, final Consumer<Optional<IOException>> onWritten) {
+      return new PendingWrite(bytes, sync, onWritten);
+    }
+
+    byte[] getBytes() {
+      return bytes;
+    }
+
+    boolean isSync() {
+      return sync;
+    }
+
+    Consumer<Optional<IOException>> getOnWritten() {
+      return onWritten;
+    }
+
+    @Override
+    public String toString() {
+      return "PendingWrite{" + "bytes=" + bytes.length + ", sync=" + sync + '}';
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.rimanware.volcanoisland.database;
+
+import com.rimanware.volcanoisland.database.api.BookingJournal;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class InMemoryBookingJournal implements BookingJournal {
+  private final ConcurrentHashMap<LocalDate, SingleDateDatabaseEvent> latestEvents;
+
+  private InMemoryBookingJournal() {
+    this.latestEvents = new ConcurrentHashMap<>();
+  }
+
+  public static InMemoryBookingJournal create() {
+    return new InMemoryBookingJournal();
+  }
+
+  @Override
+  public void append(final LocalDate date, final SingleDateDatabaseEvent event) {
+    latestEvents.put(date, event);
+  }
+
+  @Override
+  public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+    return latestEvents.getOrDefault(date, SingleDateDatabaseEvent.noBooking());
+  }
+}
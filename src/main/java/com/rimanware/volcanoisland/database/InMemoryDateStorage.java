@@ -0,0 +1,98 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.database.api.DateStorage;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Keeps the events of every date in memory, nothing survives the process. Events aren't
+ * serialized, appending and reading the latest event are constant time. Meant for tests and for
+ * benchmarking the databases without storage costs.
+ */
+public final class InMemoryDateStorage implements DateStorage {
+  private final ConcurrentHashMap<LocalDate, ConcurrentLinkedDeque<SingleDateDatabaseEvent>>
+      eventsByDate;
+
+  private InMemoryDateStorage() {
+    this.eventsByDate = new ConcurrentHashMap<>();
+  }
+
+  public static InMemoryDateStorage create() {
+    return new InMemoryDateStorage();
+  }
+
+  @Override
+  public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+    final ConcurrentLinkedDeque<SingleDateDatabaseEvent> events = eventsByDate.get(date);
+    final SingleDateDatabaseEvent latestEvent = events == null ? null : events.peekLast();
+    return latestEvent == null ? SingleDateDatabaseEvent.noBooking() : latestEvent;
+  }
+
+  /** Kept across openings, a reactivated date finds the events of its previous activations. */
+  @Override
+  public DateStore open(final LocalDate date) {
+    return InMemoryDateStore.create(
+        eventsByDate.computeIfAbsent(date, events -> new ConcurrentLinkedDeque<>()));
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public String toString() {
+    return "InMemoryDateStorage{" + "dates=" + eventsByDate.size() + '}';
+  }
+
+  private static final class InMemoryDateStore implements DateStore {
+    private final ConcurrentLinkedDeque<SingleDateDatabaseEvent> events;
+
+    private InMemoryDateStore(final ConcurrentLinkedDeque<SingleDateDatabaseEvent> events) {
+      this.events = events;
+    }
+
+    static InMemoryDateStore create(final ConcurrentLinkedDeque<SingleDateDatabaseEvent> events) {
+      return new InMemoryDateStore(events);
+    }
+
+    @Override
+    public void append(final SingleDateDatabaseEvent event) {
+      events.addLast(event);
+    }
+
+    @Override
+    public ImmutableList<SingleDateDatabaseEvent> history() {
+      return ImmutableList.copyOf(events);
+    }
+
+    /** Readers of the latest event never see the history empty. */
+    @Override
+    public void snapshot(final SingleDateDatabaseEvent latestEvent) {
+      events.addLast(latestEvent);
+      while (events.size() > 1) {
+        events.pollFirst();
+      }
+    }
+
+    @Override
+    public void sync() {}
+
+    @Override
+    public Optional<String> getFilePath() {
+      return Optional.empty();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String toString() {
+      return "InMemoryDateStore{" + "events=" + events.size() + '}';
+    }
+  }
+}
@@ -0,0 +1,360 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.rimanware.volcanoisland.database.api.DateStorage;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Every date of the database in one embedded RocksDB (LSM tree) in the rocksdb sub folder of the
+ * database folder. Events are keyed by date then sequence number, so the latest event of a date is
+ * a single seek instead of reading the whole date. Dates booked by a booking are indexed by
+ * booking id.
+ *
+ * <p>An event and its index changes are written in one atomic write batch. Batches of concurrent
+ * dates are group committed to the write-ahead log by RocksDB, sync-writes syncs the log.
+ *
+ * <p>Events are Java serialized like in the files, but aren't replicated.
+ */
+public final class RocksDbDateStorage implements DateStorage {
+  private static final String ROCKSDB_FOLDER = "rocksdb";
+  private static final String EVENT_PREFIX = "event/";
+  private static final String BOOKING_PREFIX = "booking/";
+  // Sorts after any sequence number
+  private static final String END_OF_DATE = "~";
+  private static final String STORAGE_CLOSED = "RocksDB date storage is closed";
+  private final String rocksDbFolderPath;
+  private final Options options;
+  private final WriteOptions writeOptions;
+  private final RocksDB db;
+  // Native handles must not be used once closed, operations hold the read lock
+  private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private boolean closed = false;
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  private RocksDbDateStorage(final String rocksDbFolderPath) throws IOException {
+    this.rocksDbFolderPath = rocksDbFolderPath;
+    new File(rocksDbFolderPath).mkdirs();
+    this.options = new Options().setCreateIfMissing(true);
+    this.writeOptions = new WriteOptions();
+    try {
+      this.db = RocksDB.open(options, rocksDbFolderPath);
+    } catch (final RocksDBException e) {
+      options.close();
+      writeOptions.close();
+      throw new IOException("Could not open " + rocksDbFolderPath, e);
+    }
+  }
+
+  /** Opens, or creates, the RocksDB of the database folder. Only one storage can open it. */
+  public static RocksDbDateStorage create(final String databaseFolderPath) throws IOException {
+    return new RocksDbDateStorage(databaseFolderPath + "/" + ROCKSDB_FOLDER);
+  }
+
+  @Override
+  public SingleDateDatabaseEvent readLatest(final LocalDate date) throws IOException {
+    return withDb(
+        rocksDb -> latestEntryOf(rocksDb, date).map(Entry::getEvent))
+        .orElse(SingleDateDatabaseEvent.noBooking());
+  }
+
+  @Override
+  public DateStore open(final LocalDate date) throws IOException {
+    final Optional<Entry> maybeLatestEntry = withDb(rocksDb -> latestEntryOf(rocksDb, date));
+    return RocksDbDateStore.create(
+        this,
+        date,
+        maybeLatestEntry.map(Entry::getSequenceNr).orElse(0L),
+        maybeLatestEntry.map(Entry::getEvent).orElse(SingleDateDatabaseEvent.noBooking()));
+  }
+
+  /** @return dates currently booked by the booking, from the booking id index. */
+  public ImmutableSet<LocalDate> datesOf(final String bookingId) throws IOException {
+    final String prefix = BOOKING_PREFIX + bookingId + "/";
+    return withDb(
+        rocksDb -> {
+          final ImmutableSet.Builder<LocalDate> dates = ImmutableSet.builder();
+          try (final RocksIterator iterator = rocksDb.newIterator()) {
+            for (iterator.seek(bytesOf(prefix)); iterator.isValid(); iterator.next()) {
+              final String key = stringOf(iterator.key());
+              if (!key.startsWith(prefix)) {
+                break;
+              }
+              dates.add(LocalDate.parse(key.substring(prefix.length())));
+            }
+          }
+          return dates.build();
+        });
+  }
+
+  @Override
+  public void close() {
+    closeLock.writeLock().lock();
+    try {
+      if (!closed) {
+        closed = true;
+        db.close();
+        writeOptions.close();
+        options.close();
+      }
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RocksDbDateStorage{" + "rocksDbFolderPath='" + rocksDbFolderPath + '\'' + '}';
+  }
+
+  private <T> T withDb(final RocksDbFunction<T> function) throws IOException {
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new IOException(STORAGE_CLOSED);
+      }
+      return function.apply(db);
+    } catch (final RocksDBException e) {
+      throw new IOException(e);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+  }
+
+  private void write(final WriteBatch writeBatch) throws IOException {
+    withDb(
+        rocksDb -> {
+          rocksDb.write(writeOptions, writeBatch);
+          return null;
+        });
+  }
+
+  private static Optional<Entry> latestEntryOf(final RocksDB rocksDb, final LocalDate date)
+      throws IOException {
+    final String prefix = eventPrefixOf(date);
+    try (final RocksIterator iterator = rocksDb.newIterator()) {
+      iterator.seekForPrev(bytesOf(prefix + END_OF_DATE));
+      if (!iterator.isValid() || !stringOf(iterator.key()).startsWith(prefix)) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          Entry.create(
+              Long.parseLong(stringOf(iterator.key()).substring(prefix.length())),
+              deserialize(iterator.value())));
+    }
+  }
+
+  private static String eventPrefixOf(final LocalDate date) {
+    return EVENT_PREFIX + date.toString() + "/";
+  }
+
+  /** Zero padded so that keys sort in sequence number order. */
+  private static String eventKeyOf(final LocalDate date, final long sequenceNr) {
+    return eventPrefixOf(date) + String.format("%019d", sequenceNr);
+  }
+
+  private static String bookingKeyOf(final String bookingId, final LocalDate date) {
+    return BOOKING_PREFIX + bookingId + "/" + date.toString();
+  }
+
+  private static ImmutableSet<String> bookingIdsOf(final SingleDateDatabaseEvent event) {
+    return event.getBookingsByUnit().values().stream()
+        .map(Booking::getId)
+        .collect(ImmutableSet.toImmutableSet());
+  }
+
+  private static byte[] bytesOf(final String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String stringOf(final byte[] key) {
+    return new String(key, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] serialize(final SingleDateDatabaseEvent event) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes)) {
+      objectOutputStream.writeObject(event);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static SingleDateDatabaseEvent deserialize(final byte[] bytes) throws IOException {
+    try (final ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (SingleDateDatabaseEvent) objectInputStream.readObject();
+    } catch (final ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface RocksDbFunction<T> {
+    T apply(RocksDB rocksDb) throws RocksDBException, IOException;
+  }
+
+  private static final class Entry {
+    private final long sequenceNr;
+    private final SingleDateDatabaseEvent event;
+
+    private Entry(final long sequenceNr, final SingleDateDatabaseEvent event) {
+      this.sequenceNr = sequenceNr;
+      this.event = event;
+    }
+
+    static Entry create(final long sequenceNr, final SingleDateDatabaseEvent event) {
+      return new Entry(sequenceNr, event);
+    }
+
+    long getSequenceNr() {
+      return sequenceNr;
+    }
+
+    SingleDateDatabaseEvent getEvent() {
+      return event;
+    }
+  }
+
+  /** Keeps the latest sequence number and event of the date, the store being its only writer. */
+  private static final class RocksDbDateStore implements DateStore {
+    private final RocksDbDateStorage storage;
+    private final LocalDate date;
+    private long latestSequenceNr;
+    private SingleDateDatabaseEvent latestEvent;
+
+    private RocksDbDateStore(
+        final RocksDbDateStorage storage,
+        final LocalDate date,
+        final long latestSequenceNr,
+        final SingleDateDatabaseEvent latestEvent) {
+      this.storage = storage;
+      this.date = date;
+      this.latestSequenceNr = latestSequenceNr;
+      this.latestEvent = latestEvent;
+    }
+
+    static RocksDbDateStore create(
+        final RocksDbDateStorage storage,
+        final LocalDate date,
+        final long latestSequenceNr,
+        final SingleDateDatabaseEvent latestEvent) {
+      return new RocksDbDateStore(storage, date, latestSequenceNr, latestEvent);
+    }
+
+    /** The event and the booking id index changes it implies are written atomically. */
+    @Override
+    public void append(final SingleDateDatabaseEvent event) throws IOException {
+      append(event, batch -> {});
+    }
+
+    private void append(
+        final SingleDateDatabaseEvent event, final RocksDbBatchWriter additionalWrites)
+        throws IOException {
+      final ImmutableSet<String> previousBookingIds = bookingIdsOf(latestEvent);
+      final ImmutableSet<String> bookingIds = bookingIdsOf(event);
+      try (final WriteBatch writeBatch = new WriteBatch()) {
+        writeBatch.put(bytesOf(eventKeyOf(date, latestSequenceNr + 1)), serialize(event));
+        for (final String bookingId : Sets.difference(previousBookingIds, bookingIds)) {
+          writeBatch.delete(bytesOf(bookingKeyOf(bookingId, date)));
+        }
+        for (final String bookingId : Sets.difference(bookingIds, previousBookingIds)) {
+          writeBatch.put(bytesOf(bookingKeyOf(bookingId, date)), new byte[0]);
+        }
+        additionalWrites.write(writeBatch);
+        storage.write(writeBatch);
+      } catch (final RocksDBException e) {
+        throw new IOException(e);
+      }
+      latestSequenceNr++;
+      latestEvent = event;
+    }
+
+    @Override
+    public ImmutableList<SingleDateDatabaseEvent> history() throws IOException {
+      final String prefix = eventPrefixOf(date);
+      return storage.withDb(
+          rocksDb -> {
+            final ImmutableList.Builder<SingleDateDatabaseEvent> events = ImmutableList.builder();
+            try (final RocksIterator iterator = rocksDb.newIterator()) {
+              for (iterator.seek(bytesOf(prefix)); iterator.isValid(); iterator.next()) {
+                if (!stringOf(iterator.key()).startsWith(prefix)) {
+                  break;
+                }
+                events.add(deserialize(iterator.value()));
+              }
+            }
+            return events.build();
+          });
+    }
+
+    /** Appends the event and deletes every previous one of the date in the same batch. */
+    @Override
+    public void snapshot(final SingleDateDatabaseEvent latestEvent) throws IOException {
+      final long previousSequenceNr = latestSequenceNr;
+      append(
+          latestEvent,
+          batch ->
+              batch.deleteRange(
+                  bytesOf(eventKeyOf(date, 0)), bytesOf(eventKeyOf(date, previousSequenceNr + 1))));
+    }
+
+    @Override
+    public void sync() throws IOException {
+      storage.withDb(
+          rocksDb -> {
+            rocksDb.syncWal();
+            return null;
+          });
+    }
+
+    @Override
+    public Optional<String> getFilePath() {
+      return Optional.empty();
+    }
+
+    /** The storage stays open, it is shared by every date of the database. */
+    @Override
+    public void close() {}
+
+    @Override
+    public String toString() {
+      return "RocksDbDateStore{"
+          + "date="
+          + date
+          + ", latestSequenceNr="
+          + latestSequenceNr
+          + ", latestEvent="
+          + latestEvent
+          + '}';
+    }
+  }
+
+  @FunctionalInterface
+  private interface RocksDbBatchWriter {
+    void write(WriteBatch writeBatch) throws RocksDBException;
+  }
+}
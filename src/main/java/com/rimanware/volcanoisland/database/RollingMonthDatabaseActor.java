@@ -1,48 +1,157 @@
 package com.rimanware.volcanoisland.database;
 
 import akka.actor.ActorRef;
+import akka.actor.DeadLetter;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
-import akka.event.Logging;
-import akka.event.LoggingAdapter;
+import akka.actor.StashOverflowException;
+import akka.pattern.PatternsCS;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.rimanware.volcanoisland.business.api.BookingConstraints;
 import com.rimanware.volcanoisland.common.DateValidator;
-import com.rimanware.volcanoisland.common.LoggingReceiveActor;
+import com.rimanware.volcanoisland.common.LoggingReceiveActorWithStash;
 import com.rimanware.volcanoisland.common.Tuple;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.api.DateStorage;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.rimanware.volcanoisland.metrics.MetricsRegistry;
+import com.typesafe.config.Config;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
-public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
+public final class RollingMonthDatabaseActor extends LoggingReceiveActorWithStash {
 
   private static final String SINGLE_DATE_DATABASE_MANAGER_ACTOR =
       "SingleDateDatabaseManagerActor-";
+  public static final String RECOVERY_DISPATCHER = "volcano-island.recovery-dispatcher";
+  public static final String ROLLING_MONTH_DATABASE_MAILBOX =
+      "volcano-island.rolling-month-database-mailbox";
+  public static final String ACTIVATIONS_METRIC = "database.activations";
+  public static final String PASSIVATIONS_METRIC = "database.passivations";
+  private static final int RECOVERY_BATCH_SIZE = 64;
+  private static final String RECOVERY_ATTEMPTS = "volcano-island.recovery-attempts";
+  private static final String STORAGE_CONFIG = "volcano-island.single-date-database.storage";
+  private static final String ASYNC_WRITES = "volcano-island.single-date-database.async-writes";
+  private static final String FILE_STORAGE = "file";
+  private static final String IN_MEMORY_STORAGE = "in-memory";
+  private static final String ROCKSDB_STORAGE = "rocksdb";
+  private static final String ERROR_OCCURRED_WHILE_RECOVERING_DATABASE =
+      "Error occurred while recovering database";
 
-  private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
-  private final Optional<String> databaseFolderPath;
+  private final DateStorage storage;
   private final BookingConstraints bookingConstraints;
-  private final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps;
+  private final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps;
+  private final MetricsRegistry metricsRegistry;
+  private final int capacity;
+  private final int recoveryAttempts;
+  private final Optional<LocalDate> maybeStartDate;
+  // Published by the date writers, availabilities are answered from it
+  private final WindowAvailability windowAvailability = WindowAvailability.create();
 
   private RollingMonthDatabaseActor(
       final Optional<String> databaseFolderPath,
       final BookingConstraints bookingConstraints,
-      final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps) {
-    this.databaseFolderPath = databaseFolderPath;
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps) {
+    this.storage = storageOf(getContext().getSystem().settings().config(), databaseFolderPath);
     this.bookingConstraints = bookingConstraints;
     this.singleDateDatabaseActorProps = singleDateDatabaseActorProps;
+    this.metricsRegistry = Metrics.METRICS.get(getContext().getSystem());
+    this.capacity =
+        getContext().getSystem().settings().config().getInt(SingleDateDatabaseActor.CAPACITY);
+    this.recoveryAttempts =
+        getContext().getSystem().settings().config().getInt(RECOVERY_ATTEMPTS);
+    this.maybeStartDate = Optional.empty();
+  }
+
+  /**
+   * Database of a cluster sharded property. Entities are created by the first message sent to them
+   * so it starts on its own, and its folder is derived from its entity id (the actor name).
+   */
+  private RollingMonthDatabaseActor(
+      final Function<String, Optional<String>> databaseFolderPathOfEntityId,
+      final BookingConstraints bookingConstraints,
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps,
+      final LocalDate startDate) {
+    this.storage =
+        storageOf(
+            getContext().getSystem().settings().config(),
+            databaseFolderPathOfEntityId.apply(entityIdOf(getSelf().path().name())));
+    this.bookingConstraints = bookingConstraints;
+    this.singleDateDatabaseActorProps = singleDateDatabaseActorProps;
+    this.metricsRegistry = Metrics.METRICS.get(getContext().getSystem());
+    this.capacity =
+        getContext().getSystem().settings().config().getInt(SingleDateDatabaseActor.CAPACITY);
+    this.recoveryAttempts =
+        getContext().getSystem().settings().config().getInt(RECOVERY_ATTEMPTS);
+    this.maybeStartDate = Optional.of(startDate);
+  }
+
+  /**
+   * The storage backend selected in config, in memory whatever the backend without database
+   * folder.
+   */
+  private static DateStorage storageOf(
+      final Config config, final Optional<String> maybeDatabaseFolderPath) {
+    final String backend = config.getString(STORAGE_CONFIG);
+    switch (backend) {
+      case FILE_STORAGE:
+        final boolean asyncWrites = config.getBoolean(ASYNC_WRITES);
+        return maybeDatabaseFolderPath
+            .<DateStorage>map(
+                databaseFolderPath -> FileDateStorage.create(databaseFolderPath, asyncWrites))
+            .orElseGet(InMemoryDateStorage::create);
+      case IN_MEMORY_STORAGE:
+        return InMemoryDateStorage.create();
+      case ROCKSDB_STORAGE:
+        return maybeDatabaseFolderPath
+            .<DateStorage>map(RollingMonthDatabaseActor::openRocksDb)
+            .orElseGet(InMemoryDateStorage::create);
+      default:
+        throw new IllegalArgumentException("Unknown " + STORAGE_CONFIG + ": " + backend);
+    }
+  }
+
+  private static DateStorage openRocksDb(final String databaseFolderPath) {
+    try {
+      return RocksDbDateStorage.create(databaseFolderPath);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String entityIdOf(final String actorName) {
+    try {
+      // Cluster sharding URL encodes entity ids into actor names
+      return URLDecoder.decode(actorName, StandardCharsets.UTF_8.name());
+    } catch (final UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   private static RollingMonthDatabaseActor createInMemory(
       final BookingConstraints bookingConstraints,
-      final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps) {
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps) {
     return new RollingMonthDatabaseActor(
         Optional.empty(), bookingConstraints, singleDateDatabaseActorProps);
   }
@@ -50,55 +159,237 @@ public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
   private static RollingMonthDatabaseActor create(
       final String databaseFolderPath,
       final BookingConstraints bookingConstraints,
-      final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps) {
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps) {
     return new RollingMonthDatabaseActor(
         Optional.of(databaseFolderPath), bookingConstraints, singleDateDatabaseActorProps);
   }
 
   public static Props propsInMemory(
       final BookingConstraints bookingConstraints,
-      final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps) {
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps) {
     return Props.create(
         RollingMonthDatabaseActor.class,
         () ->
             RollingMonthDatabaseActor.createInMemory(
-                bookingConstraints, singleDateDatabaseActorProps));
+                bookingConstraints, singleDateDatabaseActorProps))
+        .withMailbox(ROLLING_MONTH_DATABASE_MAILBOX);
   }
 
   public static Props props(
       final String databaseFolderPath,
       final BookingConstraints bookingConstraints,
-      final BiFunction<LocalDate, Optional<String>, Props> singleDateDatabaseActorProps) {
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps) {
     return Props.create(
         RollingMonthDatabaseActor.class,
         () ->
             RollingMonthDatabaseActor.create(
-                databaseFolderPath, bookingConstraints, singleDateDatabaseActorProps));
+                databaseFolderPath, bookingConstraints, singleDateDatabaseActorProps))
+        .withMailbox(ROLLING_MONTH_DATABASE_MAILBOX);
+  }
+
+  /**
+   * Props of the database of a cluster sharded property, started with the given date on creation.
+   *
+   * @param databaseFolderPathOfEntityId folder of the database files given the entity id, in
+   *     memory database if empty
+   */
+  public static Props entityProps(
+      final Function<String, Optional<String>> databaseFolderPathOfEntityId,
+      final BookingConstraints bookingConstraints,
+      final BiFunction<LocalDate, DateStorage, Props> singleDateDatabaseActorProps,
+      final LocalDate startDate) {
+    return Props.create(
+        RollingMonthDatabaseActor.class,
+        () ->
+            new RollingMonthDatabaseActor(
+                databaseFolderPathOfEntityId,
+                bookingConstraints,
+                singleDateDatabaseActorProps,
+                startDate))
+        .withMailbox(ROLLING_MONTH_DATABASE_MAILBOX);
+  }
+
+  /**
+   * Runs once every date of the database is stopped, none uses the storage anymore. Requests still
+   * stashed go to dead letters.
+   */
+  @Override
+  public void postStop() {
+    try {
+      storage.close();
+    } catch (final IOException e) {
+      log.error(e, "Error occurred while closing database");
+    } finally {
+      super.postStop();
+    }
+  }
+
+  @Override
+  public void preStart() {
+    // Runs before the first message is processed, which is stashed until recovered like any other
+    maybeStartDate.ifPresent(startDate -> start(startDate, 1));
+  }
+
+  /**
+   * A failed recovery is attempted again from scratch, the requests stashed meanwhile being put
+   * back in the mailbox to be stashed again. The database stops once out of attempts.
+   */
+  @Override
+  public void postRestart(final Throwable reason) throws Exception {
+    if (reason instanceof RecoveryFailedException) {
+      final RecoveryFailedException recoveryFailed = (RecoveryFailedException) reason;
+      if (recoveryFailed.getAttempt() < recoveryAttempts) {
+        start(recoveryFailed.getCurrentDate(), recoveryFailed.getAttempt() + 1);
+      } else {
+        log.error(reason, "Stopping database after {} failed recoveries", recoveryAttempts);
+        getContext().stop(self());
+      }
+    } else {
+      super.postRestart(reason);
+    }
+  }
+
+  private void start(final LocalDate currentDate, final int attempt) {
+    final ImmutableList<LocalDate> reservableDays =
+        bookingConstraints.generateAllReservableDays(currentDate);
+
+    // Read the latest event of every date on the recovery dispatcher, so that dates recover in
+    // parallel without blocking the default dispatcher. Dates are read in batches to keep the
+    // number of messages, and of copies of the recovered events, low on large reservation
+    // windows. No date actor is created until the date is used. Outcomes of a previous attempt
+    // are told apart by the id of the recovery.
+    final UUID recoveryId = UUID.randomUUID();
+    final Executor recoveryDispatcher =
+        getContext().getSystem().dispatchers().lookup(RECOVERY_DISPATCHER);
+    Lists.partition(reservableDays, RECOVERY_BATCH_SIZE)
+        .forEach(
+            dates ->
+                PatternsCS.pipe(
+                        CompletableFuture.supplyAsync(
+                                () -> recoverLatestDatabaseEvents(dates), recoveryDispatcher)
+                            .handle(
+                                (latestDatabaseEvents, throwable) ->
+                                    throwable == null
+                                        ? DatesRecovered.create(recoveryId, latestDatabaseEvents)
+                                        : RecoveryFailed.create(recoveryId, throwable)),
+                        getContext().dispatcher())
+                    .to(self()));
+
+    getContext()
+        .become(
+            recovering(
+                currentDate, attempt, recoveryId, reservableDays.size(), ImmutableMap.of()));
   }
 
   private Receive inactive() {
     return receiveBuilder()
+        .match(RollingMonthDatabaseCommand.Start.class, start -> start(start.getDate(), 1))
         .match(
-            RollingMonthDatabaseCommand.Start.class,
-            start -> {
-              final LocalDate currentDate = start.getDate();
-              final ImmutableList<LocalDate> reservableDays =
-                  bookingConstraints.generateAllReservableDays(currentDate);
+            RollingMonthDatabaseCommand.GetStatus.class,
+            getStatus ->
+                sender().tell(RollingMonthDatabaseResponse.status(0, 0, false), self()))
+        .matchAny(o -> log.info("received unknown message {}", o))
+        .build();
+  }
 
-              // Create all singleDateDatabaseManagerActors one for each day.
-              final ImmutableMap<String, ActorRef> dateToSingleDateDatabaseManagerActor =
-                  createAllSingleDateDatabaseManagerActors(reservableDays);
+  /**
+   * Waits for every date to be recovered. Requests received meanwhile are stashed and replayed in
+   * order once the whole database is ready, those past the stash capacity are dropped to dead
+   * letters.
+   */
+  private Receive recovering(
+      final LocalDate currentDate,
+      final int attempt,
+      final UUID recoveryId,
+      final int totalDates,
+      final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents) {
+    return receiveBuilder()
+        .match(
+            DatesRecovered.class,
+            datesRecovered -> !datesRecovered.getRecoveryId().equals(recoveryId),
+            datesRecovered -> log.info("Ignoring dates of a failed recovery"))
+        .match(
+            DatesRecovered.class,
+            datesRecovered -> {
+              final ImmutableMap<LocalDate, SingleDateDatabaseEvent> newLatestDatabaseEvents =
+                  ImmutableMap.<LocalDate, SingleDateDatabaseEvent>builder()
+                      .putAll(latestDatabaseEvents)
+                      .putAll(datesRecovered.getLatestDatabaseEvents())
+                      .build();
+              log.info(
+                  "Recovered {}/{} date databases", newLatestDatabaseEvents.size(), totalDates);
 
-              getContext().become(started(currentDate, dateToSingleDateDatabaseManagerActor));
+              if (newLatestDatabaseEvents.size() == totalDates) {
+                log.info("Database is ready");
+                windowAvailability.publish(
+                    newLatestDatabaseEvents.entrySet().stream()
+                        .collect(
+                            ImmutableMap.toImmutableMap(
+                                Map.Entry::getKey,
+                                entry -> entry.getValue().remainingCapacity(capacity))));
+                getContext()
+                    .become(
+                        started(
+                            currentDate,
+                            DateSummaries.create(newLatestDatabaseEvents),
+                            ImmutableMap.of()));
+                unstashAll();
+              } else {
+                getContext()
+                    .become(
+                        recovering(
+                            currentDate,
+                            attempt,
+                            recoveryId,
+                            totalDates,
+                            newLatestDatabaseEvents));
+              }
+            })
+        .match(
+            RecoveryFailed.class,
+            recoveryFailed -> recoveryFailed.getRecoveryId().equals(recoveryId),
+            recoveryFailed -> {
+              // Restarts the actor, see postRestart
+              throw new RecoveryFailedException(currentDate, attempt, recoveryFailed.getCause());
+            })
+        .match(RecoveryFailed.class, recoveryFailed -> log.info("Ignoring a failed recovery"))
+        .match(
+            RollingMonthDatabaseCommand.GetStatus.class,
+            getStatus ->
+                sender()
+                    .tell(
+                        RollingMonthDatabaseResponse.status(
+                            latestDatabaseEvents.size(), totalDates, false),
+                        self()))
+        .matchAny(
+            message -> {
+              try {
+                stash();
+              } catch (final StashOverflowException e) {
+                getContext()
+                    .getSystem()
+                    .deadLetters()
+                    .tell(new DeadLetter(message, sender(), self()), sender());
+              }
             })
-        .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
+  /**
+   * Every date has a summary (its latest event) and is either active, with its own
+   * SingleDateDatabaseManagerActor tree answering for it, or passivated, in which case requests
+   * that can be answered from the summary are answered here. A passivated date gets activated with
+   * its summary on the first request that has to change it.
+   *
+   * <p>Nothing here visits every date of the reservation window: broadcasts only reach the active
+   * dates and the dates held by the targeted booking, and availabilities of passivated dates are
+   * answered in a single message.
+   */
   // TODO: Make this support date rolling
   private Receive started(
       final LocalDate currentDate,
-      final ImmutableMap<String, ActorRef> dateToSingleDateDatabaseManagerActor) {
+      final DateSummaries summaries,
+      final ImmutableMap<LocalDate, ActorRef> activeDates) {
     return receiveBuilder()
         .match(
             SingleDateDatabaseCommand.Book.class,
@@ -107,16 +398,46 @@ public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
                     book.getDate(),
                     book,
                     sender(),
-                    dateToSingleDateDatabaseManagerActor,
-                    currentDate))
+                    currentDate,
+                    summaries,
+                    activeDates,
+                    latestDatabaseEvent ->
+                        latestDatabaseEvent.remainingCapacity(capacity) == 0
+                            ? Optional.of(SingleDateDatabaseResponse.isBooked(book.getDate()))
+                            : Optional.empty()))
+        .match(
+            SingleDateDatabaseCommand.BookAndCommit.class,
+            bookAndCommit ->
+                forwardToIntendedDateDatabaseElseReplyToSender(
+                    bookAndCommit.getDate(),
+                    bookAndCommit,
+                    sender(),
+                    currentDate,
+                    summaries,
+                    activeDates,
+                    latestDatabaseEvent ->
+                        latestDatabaseEvent.remainingCapacity(capacity) == 0
+                            ? Optional.of(
+                                SingleDateDatabaseResponse.isBooked(bookAndCommit.getDate()))
+                            : Optional.empty()))
         .match(
             SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
-              // broadcasting to all dates databases
-              dateToSingleDateDatabaseManagerActor
-                  .values()
-                  .forEach(actor -> actor.forward(cancelBooking, getContext()));
-            })
+            cancelBooking ->
+                // Only the active dates and the dates held by the booking can be cancelled
+                broadcast(
+                    cancelBooking,
+                    UtilityFunctions.combine(
+                        activeDates.keySet(), summaries.datesBookedBy(cancelBooking.bookingId)),
+                    sender(),
+                    currentDate,
+                    summaries,
+                    activeDates,
+                    (date, latestDatabaseEvent) ->
+                        latestDatabaseEvent.isBookedBy(cancelBooking.bookingId)
+                            ? Optional.empty()
+                            : Optional.of(
+                                SingleDateDatabaseResponse
+                                    .doesntQualifyForCancellationConfirmation(date))))
         .match(
             SingleDateDatabaseCommand.UpdateBooking.class,
             updateBooking -> {
@@ -125,56 +446,121 @@ public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
 
               sender().tell(outOfRangeErrors, self());
 
-              // broadcasting to all dates databases
-              dateToSingleDateDatabaseManagerActor
-                  .values()
-                  .forEach(actor -> actor.forward(updateBooking, getContext()));
+              // Only the active dates, the dates held by the booking and the in range dates of the
+              // updated booking can be affected. Passivated dates follow the same rules as a
+              // settled SingleDateDatabaseActor.
+              final Booking updatedBooking = updateBooking.getBooking();
+              final ImmutableSet<LocalDate> outOfRangeDates =
+                  outOfRangeErrors.getRequestedDatesOutOfRange().stream()
+                      .map(RollingMonthDatabaseResponse.RequestedDateOutOfRange::getRequestedDate)
+                      .collect(ImmutableSet.toImmutableSet());
+              final ImmutableSet<LocalDate> inRangeDatesToBook =
+                  UtilityFunctions.generateAllDatesInRange(
+                          updatedBooking.getArrivalDate(), updatedBooking.getDepartureDate())
+                      .stream()
+                      .filter(date -> !outOfRangeDates.contains(date))
+                      .collect(ImmutableSet.toImmutableSet());
+
+              broadcast(
+                  updateBooking,
+                  UtilityFunctions.combine(
+                      UtilityFunctions.combine(
+                          activeDates.keySet(), summaries.datesBookedBy(updatedBooking.getId())),
+                      inRangeDatesToBook),
+                  sender(),
+                  currentDate,
+                  summaries,
+                  activeDates,
+                  (date, latestDatabaseEvent) -> {
+                    if (latestDatabaseEvent.isBookedBy(updatedBooking.getId())
+                        || (latestDatabaseEvent.remainingCapacity(capacity) > 0
+                            && updatedBooking.within(date))) {
+                      return Optional.empty();
+                    } else if (updatedBooking.within(date)) {
+                      return Optional.of(SingleDateDatabaseResponse.isBooked(date));
+                    } else {
+                      return Optional.of(
+                          SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date));
+                    }
+                  });
             })
         .match(
             SingleDateDatabaseCommand.Commit.class,
             commit ->
-                forwardToIntendedDateDatabaseElseReplyToSender(
+                forwardToActiveDateDatabaseElseReplyToSender(
                     commit.getDate(),
                     commit,
                     sender(),
-                    dateToSingleDateDatabaseManagerActor,
-                    currentDate))
+                    currentDate,
+                    activeDates,
+                    SingleDateDatabaseResponse.transactionExpired(commit.getDate())))
         .match(
             SingleDateDatabaseCommand.Revert.class,
             revert ->
-                forwardToIntendedDateDatabaseElseReplyToSender(
+                forwardToActiveDateDatabaseElseReplyToSender(
                     revert.getDate(),
                     revert,
                     sender(),
-                    dateToSingleDateDatabaseManagerActor,
-                    currentDate))
+                    currentDate,
+                    activeDates,
+                    SingleDateDatabaseResponse.revertConfirmation(revert.getDate())))
         .match(
             SingleDateDatabaseCommand.GetAvailability.class,
-            getAvailability -> {
-              forwardToIntendedDateDatabaseElseReplyToSender(
-                  getAvailability.getDate(),
-                  getAvailability,
-                  sender(),
-                  dateToSingleDateDatabaseManagerActor,
-                  currentDate);
-            })
+            getAvailability ->
+                forwardToIntendedDateDatabaseElseReplyToSender(
+                    getAvailability.getDate(),
+                    getAvailability,
+                    sender(),
+                    currentDate,
+                    summaries,
+                    activeDates,
+                    latestDatabaseEvent -> {
+                      final int remainingCapacity = latestDatabaseEvent.remainingCapacity(capacity);
+                      return Optional.of(
+                          remainingCapacity == 0
+                              ? SingleDateDatabaseResponse.isBooked(getAvailability.getDate())
+                              : SingleDateDatabaseResponse.isAvailable(
+                                  getAvailability.getDate(), remainingCapacity));
+                    }))
         .match(
-            RollingMonthDatabaseCommand.GetQueryableDates.class,
-            request -> {
-              sender()
-                  .tell(
-                      RollingMonthDatabaseResponse.queryableDates(
-                          dateToSingleDateDatabaseManagerActor.keySet().stream()
-                              .map(LocalDate::parse)
-                              .collect(ImmutableSet.toImmutableSet())),
-                      self());
+            RollingMonthDatabaseCommand.GetAvailabilities.class,
+            getAvailabilities -> summarizeAvailabilities(getAvailabilities.getDates()))
+        .match(
+            RollingMonthDatabaseCommand.GetAllAvailabilities.class,
+            getAllAvailabilities -> summarizeAvailabilities(summaries.getDates()))
+        .match(
+            SingleDateDatabaseManagerActor.Passivated.class,
+            passivated -> {
+              final LocalDate date = passivated.getDate();
+              if (sender().equals(activeDates.get(date))) {
+                metricsRegistry.increment(PASSIVATIONS_METRIC);
+                // Nothing will be routed to it anymore, it can stop once it handed back what was
+                // already sent to it.
+                sender()
+                    .tell(
+                        SingleDateDatabaseManagerActor.SingleDateDatabaseManagerCommand
+                            .passivationAcknowledged(),
+                        self());
+                getContext()
+                    .become(
+                        started(
+                            currentDate,
+                            summaries.update(date, passivated.getLatestDatabaseEvent()),
+                            UtilityFunctions.removeFromImmutableMap(activeDates, date)));
+              }
             })
+        .match(
+            RollingMonthDatabaseCommand.GetStatus.class,
+            getStatus ->
+                sender()
+                    .tell(
+                        RollingMonthDatabaseResponse.status(
+                            summaries.size(), summaries.size(), true),
+                        self()))
         .match(
             RollingMonthDatabaseCommand.Deactivate.class,
             deactivate -> {
-              dateToSingleDateDatabaseManagerActor
-                  .values()
-                  .forEach(actor -> actor.tell(PoisonPill.getInstance(), self()));
+              activeDates.values().forEach(actor -> actor.tell(PoisonPill.getInstance(), self()));
               getContext().become(inactive());
             })
         .matchAny(o -> log.info("received unknown message {}", o))
@@ -185,26 +571,151 @@ public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
       final LocalDate date,
       final Message msg,
       final ActorRef sender,
-      final ImmutableMap<String, ActorRef> dateToSingleDateDatabaseManagerActor,
-      final LocalDate currentDate) {
+      final LocalDate currentDate,
+      final DateSummaries summaries,
+      final ImmutableMap<LocalDate, ActorRef> activeDates,
+      final Function<SingleDateDatabaseEvent, Optional<Object>> answerFromSummary) {
 
     final DateValidator.DateValidation validation =
         DateValidator.isInValidRange(date, currentDate, bookingConstraints);
 
     if (validation instanceof DateValidator.Valid) {
-      final ActorRef destination = singleDateDatabaseOf(dateToSingleDateDatabaseManagerActor, date);
-      destination.forward(msg, getContext());
+      final ImmutableMap<LocalDate, ActorRef> newActiveDates =
+          forwardOrAnswerFromSummary(
+              date, msg, sender, summaries, activeDates, answerFromSummary);
+      getContext().become(started(currentDate, summaries, newActiveDates));
     } else {
       final DateValidator.Invalid invalid = (DateValidator.Invalid) validation;
       sender.tell(RollingMonthDatabaseResponse.outOfRange(date, invalid.getReason()), self());
     }
   }
 
-  private ActorRef singleDateDatabaseOf(
-      final ImmutableMap<String, ActorRef> dateToSingleDateDatabaseManagerActor,
-      final LocalDate date) {
-    return Optional.ofNullable(dateToSingleDateDatabaseManagerActor.get(date.toString()))
-        .orElseThrow(() -> singleDateDatabaseActorReferenceNotFoundFor(date));
+  /**
+   * Commit and Revert only make sense for active dates. A passivated date has no transaction left,
+   * the sender gets the answer it would have got from a date that reaped it.
+   */
+  private <Message> void forwardToActiveDateDatabaseElseReplyToSender(
+      final LocalDate date,
+      final Message msg,
+      final ActorRef sender,
+      final LocalDate currentDate,
+      final ImmutableMap<LocalDate, ActorRef> activeDates,
+      final Object answerWhenPassivated) {
+
+    final DateValidator.DateValidation validation =
+        DateValidator.isInValidRange(date, currentDate, bookingConstraints);
+
+    if (validation instanceof DateValidator.Valid) {
+      final ActorRef destination = activeDates.get(date);
+      if (destination != null) {
+        destination.forward(msg, getContext());
+      } else {
+        sender.tell(answerWhenPassivated, self());
+      }
+    } else {
+      final DateValidator.Invalid invalid = (DateValidator.Invalid) validation;
+      sender.tell(RollingMonthDatabaseResponse.outOfRange(date, invalid.getReason()), self());
+    }
+  }
+
+  /**
+   * Tells the sender which dates will answer before sending the message to them, the other dates
+   * of the reservation window are known not to be affected.
+   */
+  private <Message> void broadcast(
+      final Message msg,
+      final ImmutableSet<LocalDate> recipientDates,
+      final ActorRef sender,
+      final LocalDate currentDate,
+      final DateSummaries summaries,
+      final ImmutableMap<LocalDate, ActorRef> activeDates,
+      final BiFunction<LocalDate, SingleDateDatabaseEvent, Optional<Object>> answerFromSummary) {
+    sender.tell(RollingMonthDatabaseResponse.broadcastRecipients(recipientDates), self());
+
+    ImmutableMap<LocalDate, ActorRef> newActiveDates = activeDates;
+    for (final LocalDate date : recipientDates) {
+      newActiveDates =
+          forwardOrAnswerFromSummary(
+              date,
+              msg,
+              sender,
+              summaries,
+              newActiveDates,
+              latestDatabaseEvent -> answerFromSummary.apply(date, latestDatabaseEvent));
+    }
+    getContext().become(started(currentDate, summaries, newActiveDates));
+  }
+
+  /**
+   * Answers every date from a single snapshot of the window, a point in time view that doesn't mix
+   * dates read before and after a commit, without asking the active dates.
+   */
+  private void summarizeAvailabilities(final ImmutableSet<LocalDate> dates) {
+    sender()
+        .tell(
+            RollingMonthDatabaseResponse.summarizedAvailabilities(
+                windowAvailability.read().availableDates(dates)),
+            self());
+  }
+
+  /** @return active dates, including the date if it had to be activated to handle the message. */
+  private <Message> ImmutableMap<LocalDate, ActorRef> forwardOrAnswerFromSummary(
+      final LocalDate date,
+      final Message msg,
+      final ActorRef sender,
+      final DateSummaries summaries,
+      final ImmutableMap<LocalDate, ActorRef> activeDates,
+      final Function<SingleDateDatabaseEvent, Optional<Object>> answerFromSummary) {
+    final ActorRef activeDestination = activeDates.get(date);
+    if (activeDestination != null) {
+      activeDestination.tell(msg, sender);
+      return activeDates;
+    }
+
+    final SingleDateDatabaseEvent latestDatabaseEvent =
+        summaries.get(date).orElseThrow(() -> singleDateDatabaseActorReferenceNotFoundFor(date));
+    final Optional<Object> maybeAnswer = answerFromSummary.apply(latestDatabaseEvent);
+    if (maybeAnswer.isPresent()) {
+      sender.tell(maybeAnswer.get(), self());
+      return activeDates;
+    } else {
+      final ActorRef destination = activate(date, latestDatabaseEvent);
+      destination.tell(msg, sender);
+      return UtilityFunctions.putInImmutableMap(activeDates, date, destination);
+    }
+  }
+
+  private ActorRef activate(
+      final LocalDate date, final SingleDateDatabaseEvent latestDatabaseEvent) {
+    metricsRegistry.increment(ACTIVATIONS_METRIC);
+    final ActorRef singleDateDatabaseManagerActor =
+        getContext()
+            .actorOf(
+                singleDateDatabaseActorProps
+                    .apply(date, storage)
+                    .withMailbox(SingleDateDatabaseManagerActor.BOUNDED_DATABASE_MAILBOX),
+                // A previous activation of the same date may still be stopping
+                SINGLE_DATE_DATABASE_MANAGER_ACTOR + date.toString() + "-" + UUID.randomUUID());
+    singleDateDatabaseManagerActor.tell(
+        SingleDateDatabaseManagerActor.SingleDateDatabaseManagerCommand.start(
+            latestDatabaseEvent, windowAvailability),
+        self());
+    return singleDateDatabaseManagerActor;
+  }
+
+  private ImmutableMap<LocalDate, SingleDateDatabaseEvent> recoverLatestDatabaseEvents(
+      final List<LocalDate> dates) {
+    return dates.stream()
+        .collect(ImmutableMap.toImmutableMap(date -> date, this::recoverLatestDatabaseEvent));
+  }
+
+  private SingleDateDatabaseEvent recoverLatestDatabaseEvent(final LocalDate date) {
+    try {
+      return storage.readLatest(date);
+    } catch (final IOException e) {
+      throw new IllegalStateException(
+          ERROR_OCCURRED_WHILE_RECOVERING_DATABASE + " " + date + ": " + e.toString());
+    }
   }
 
   private IllegalStateException singleDateDatabaseActorReferenceNotFoundFor(final LocalDate date) {
@@ -237,25 +748,93 @@ public final class RollingMonthDatabaseActor extends LoggingReceiveActor {
             .collect(ImmutableList.toImmutableList()));
   }
 
-  private ImmutableMap<String, ActorRef> createAllSingleDateDatabaseManagerActors(
-      final ImmutableList<LocalDate> reservableDays) {
-    return reservableDays.stream()
-        .map(
-            day -> {
-              final ActorRef newSingleDateDatabaseActor =
-                  getContext()
-                      .actorOf(
-                          singleDateDatabaseActorProps.apply(day, databaseFolderPath),
-                          SINGLE_DATE_DATABASE_MANAGER_ACTOR + day.toString());
-              newSingleDateDatabaseActor.tell(
-                  SingleDateDatabaseManagerActor.SingleDateDatabaseManagerCommand.start(), self());
-              return Tuple.create(day.toString(), newSingleDateDatabaseActor);
-            })
-        .collect(ImmutableMap.toImmutableMap(Tuple::getLeft, Tuple::getRight));
-  }
-
   @Override
   public Receive createReceive() {
     return inactive();
   }
+
+  static final class DatesRecovered {
+    private final UUID recoveryId;
+    private final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents;
+
+    private DatesRecovered(
+        final UUID recoveryId,
+        final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents) {
+      this.recoveryId = recoveryId;
+      this.latestDatabaseEvents = latestDatabaseEvents;
+    }
+
+    public static DatesRecovered create(
+        final UUID recoveryId,
+        final ImmutableMap<LocalDate, SingleDateDatabaseEvent> latestDatabaseEvents) {
+      return new DatesRecovered(recoveryId, latestDatabaseEvents);
+    }
+
+    @Override
+    public String toString() {
+      return "DatesRecovered{"
+          + "recoveryId="
+          + recoveryId
+          + ", latestDatabaseEvents="
+          + latestDatabaseEvents
+          + '}';
+    }
+
+    public UUID getRecoveryId() {
+      return recoveryId;
+    }
+
+    public ImmutableMap<LocalDate, SingleDateDatabaseEvent> getLatestDatabaseEvents() {
+      return latestDatabaseEvents;
+    }
+  }
+
+  static final class RecoveryFailed {
+    private final UUID recoveryId;
+    private final Throwable cause;
+
+    private RecoveryFailed(final UUID recoveryId, final Throwable cause) {
+      this.recoveryId = recoveryId;
+      this.cause = cause;
+    }
+
+    public static RecoveryFailed create(final UUID recoveryId, final Throwable cause) {
+      return new RecoveryFailed(recoveryId, cause);
+    }
+
+    @Override
+    public String toString() {
+      return "RecoveryFailed{" + "recoveryId=" + recoveryId + ", cause=" + cause + '}';
+    }
+
+    public UUID getRecoveryId() {
+      return recoveryId;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+  }
+
+  /** Carries what the restarted actor needs to attempt the recovery again. */
+  private static final class RecoveryFailedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    private final LocalDate currentDate;
+    private final int attempt;
+
+    private RecoveryFailedException(
+        final LocalDate currentDate, final int attempt, final Throwable cause) {
+      super(ERROR_OCCURRED_WHILE_RECOVERING_DATABASE, cause);
+      this.currentDate = currentDate;
+      this.attempt = attempt;
+    }
+
+    public LocalDate getCurrentDate() {
+      return currentDate;
+    }
+
+    public int getAttempt() {
+      return attempt;
+    }
+  }
 }
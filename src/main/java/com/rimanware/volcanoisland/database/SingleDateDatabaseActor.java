@@ -1,567 +1,747 @@
 package com.rimanware.volcanoisland.database;
 
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import com.google.common.collect.ImmutableList;
 import com.rimanware.volcanoisland.common.LoggingReceiveActor;
-import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.api.DateStorage;
+import com.rimanware.volcanoisland.database.api.DateStore;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
 import com.rimanware.volcanoisland.database.models.Booking;
 import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.rimanware.volcanoisland.metrics.MetricsRegistry;
+import com.typesafe.config.Config;
+import scala.concurrent.duration.FiniteDuration;
 
-import java.io.*;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Function;
 
 public final class SingleDateDatabaseActor extends LoggingReceiveActor {
-  private static final String
-      ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT_TO_OBJECT_OUTPUT_STREAM =
-          "Error occurred while writing DateDatabaseEvent to ObjectOutputStream: ";
-  private static final String SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE =
-      "SingleDateDatabase file not properly initialized or is corrupted. "
-          + "File should contain at least one event. "
-          + "File should be initialized with NoBooking DateDatabaseEvent.";
-  private static final String SINGLE_DATE_DATABASE_FILE_DOESN_T_EXIST_NEEDS_TO_BE_CREATED =
-      "SingleDateDatabase file doesn't exist. Needs to be created";
+  private static final String ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT =
+      "Error occurred while writing DateDatabaseEvent: ";
+  private static final String TRANSACTION_TIMEOUT =
+      "volcano-island.single-date-database.transaction-timeout";
+  private static final String SYNC_WRITES = "volcano-island.single-date-database.sync-writes";
+  private static final String SNAPSHOT_ON_PASSIVATION =
+      "volcano-island.single-date-database.snapshot-on-passivation";
+  private static final String COALESCE_WRITES =
+      "volcano-island.single-date-database.coalesce-writes";
+  private static final String MAX_WRITE_BATCH_SIZE =
+      "volcano-island.single-date-database.max-write-batch-size";
+  public static final String CAPACITY = "volcano-island.single-date-database.capacity";
+  public static final String REAPED_TRANSACTIONS_METRIC = "database.reaped-transactions";
   private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
   private final LocalDate date;
-  private final Receive initialBehaviour;
-  private final ObjectOutputStream outputStream;
-  private final Supplier<ObjectInputStream> inputStreamSupplier;
+  private final FiniteDuration transactionTimeout;
+  private final boolean syncWrites;
+  private final boolean snapshotOnPassivation;
+  private final boolean asyncWrites;
+  private final boolean coalesceWrites;
+  private final int maxWriteBatchSize;
+  private final MetricsRegistry metricsRegistry;
+  private final DateInventory initialInventory;
+  private final DateStore store;
   private final ActorRef readReplica;
+  private final WindowAvailability windowAvailability;
+  // Only changed when writing asynchronously, passivating would lose the replies of the writes
+  private int writesInFlight = 0;
+  // Only filled when coalescing writes, until the next Flush
+  private final List<EventWrite> unflushedWrites = new ArrayList<>();
 
   private SingleDateDatabaseActor(
       final LocalDate date,
+      final DateStorage storage,
       final SingleDateDatabaseEvent latestDatabaseEvent,
-      final ObjectOutputStream outputStream,
-      final Supplier<ObjectInputStream> inputStreamSupplier,
-      final ActorRef readReplica) {
+      final ActorRef readReplica,
+      final WindowAvailability windowAvailability)
+      throws IOException {
     this.date = date;
-    if (latestDatabaseEvent instanceof SingleDateDatabaseEvent.Booked) {
-      final SingleDateDatabaseEvent.Booked booked =
-          (SingleDateDatabaseEvent.Booked) latestDatabaseEvent;
-      this.initialBehaviour = booked(booked.getBooking());
-      // Inform read replica latest booked state read from stream
-      readReplica.tell(
-          SingleDateDatabaseCommand.book(booked.getBooking(), date), ActorRef.noSender());
-    } else {
-      this.initialBehaviour = available();
-    }
-    this.outputStream = outputStream;
-    this.inputStreamSupplier = inputStreamSupplier;
+    final Config config = getContext().getSystem().settings().config();
+    this.transactionTimeout =
+        FiniteDuration.fromNanos(config.getDuration(TRANSACTION_TIMEOUT).toNanos());
+    this.syncWrites = config.getBoolean(SYNC_WRITES);
+    this.snapshotOnPassivation = config.getBoolean(SNAPSHOT_ON_PASSIVATION);
+    this.metricsRegistry = Metrics.METRICS.get(getContext().getSystem());
+    this.initialInventory = DateInventory.create(config.getInt(CAPACITY), latestDatabaseEvent);
+    this.asyncWrites = storage.writesWithoutBlocking();
+    this.coalesceWrites = config.getBoolean(COALESCE_WRITES);
+    this.maxWriteBatchSize = config.getInt(MAX_WRITE_BATCH_SIZE);
+    this.store = storage.open(date);
     this.readReplica = readReplica;
+    this.windowAvailability = windowAvailability;
   }
 
   private static SingleDateDatabaseActor create(
       final LocalDate date,
+      final DateStorage storage,
       final SingleDateDatabaseEvent latestDatabaseEvent,
-      final ObjectOutputStream outputStream,
-      final Supplier<ObjectInputStream> inputStreamSupplier,
-      final ActorRef readReplica) {
+      final ActorRef readReplica,
+      final WindowAvailability windowAvailability)
+      throws IOException {
     return new SingleDateDatabaseActor(
-        date, latestDatabaseEvent, outputStream, inputStreamSupplier, readReplica);
+        date, storage, latestDatabaseEvent, readReplica, windowAvailability);
   }
 
+  /**
+   * Writer of the date whose latest event was already recovered from the storage, see {@link
+   * DateStorage#readLatest(LocalDate)}. Opens the date in the storage, which may block on IO.
+   *
+   * @param windowAvailability where the remaining capacity of the date is published as it changes
+   */
   public static Props props(
       final LocalDate date,
+      final DateStorage storage,
       final SingleDateDatabaseEvent latestDatabaseEvent,
-      final OutputStream outputStream,
-      final Supplier<InputStream> inputStreamSupplier,
-      final ActorRef readReplica) {
+      final ActorRef readReplica,
+      final WindowAvailability windowAvailability) {
     return Props.create(
         SingleDateDatabaseActor.class,
         () ->
             SingleDateDatabaseActor.create(
-                date,
-                latestDatabaseEvent,
-                new ObjectOutputStream(outputStream) {
-                  // This is overridden to allow for appending of new object at end of file
-                  protected void writeStreamHeader() throws IOException {
-                    reset();
-                  }
-                },
-                () -> {
-                  try {
-                    return new ObjectInputStream(inputStreamSupplier.get());
-                  } catch (final IOException e) {
-                    throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
-                  }
-                },
-                readReplica));
+                date, storage, latestDatabaseEvent, readReplica, windowAvailability));
   }
 
-  public static Props props(
-      final LocalDate date, final String databaseFolderPath, final ActorRef readReplica)
-      throws IOException {
-    final String singleDateDatabaseFilePath = databaseFolderPath + "/" + date.toString() + ".data";
-
-    final File singleDateDatabaseFile = new File(singleDateDatabaseFilePath);
-
-    final SingleDateDatabaseEvent latestDatabaseEvent;
-    if (!singleDateDatabaseFile.isFile()) {
-      initialiseFile(singleDateDatabaseFilePath);
-      latestDatabaseEvent = SingleDateDatabaseEvent.noBooking();
-    } else {
-      latestDatabaseEvent = readLastDatabaseEventFromFile(singleDateDatabaseFilePath);
-    }
-
-    return props(
-        date,
-        latestDatabaseEvent,
-        new FileOutputStream(singleDateDatabaseFilePath, true),
-        () -> {
-          try {
-            return new FileInputStream(singleDateDatabaseFilePath);
-          } catch (final FileNotFoundException e) {
-            throw new IllegalStateException(
-                SINGLE_DATE_DATABASE_FILE_DOESN_T_EXIST_NEEDS_TO_BE_CREATED);
-          }
-        },
-        readReplica);
+  @Override
+  public Receive createReceive() {
+    return inventory(initialInventory);
   }
 
-  public static Props inMemoryProps(final LocalDate date, final ActorRef readReplica) {
-
-    final SingleDateDatabaseEvent latestDatabaseEvent = SingleDateDatabaseEvent.noBooking();
-
-    return props(
-        date,
-        latestDatabaseEvent,
-        new ByteArrayOutputStream(),
-        () -> new ByteArrayInputStream("".getBytes()),
-        readReplica);
+  @Override
+  public void postStop() throws IOException {
+    // Release the file handle, a passivated date shouldn't hold any
+    store.close();
   }
 
   /**
-   * Create file with NoBooking event written first (mainly to write header of ObjectOutputStream
-   * for the first time to avoid getting java.io.StreamCorruptedException on opening the file with
-   * ObjectInputStream).
-   *
-   * @param dateDatabaseFilePath File path used to create the file
-   * @throws IOException
+   * Appends the event to the store, then replies to the sender and publishes the event on the
+   * event stream, for replication. Only events of file backed stores are published. When
+   * coalescing writes, the event is only appended on the next Flush, together with the events of
+   * the commands processed until then.
    */
-  public static void initialiseFile(final String dateDatabaseFilePath) throws IOException {
-    final File dateDatabaseFile = new File(dateDatabaseFilePath);
-    // Create Parent directories if directories are not already created
-    dateDatabaseFile.getParentFile().mkdirs();
-    final ObjectOutputStream objectOutputStream =
-        new ObjectOutputStream(new FileOutputStream(dateDatabaseFile));
-    objectOutputStream.writeObject(SingleDateDatabaseEvent.noBooking());
-    objectOutputStream.close();
-  }
-
-  public static SingleDateDatabaseEvent readLastDatabaseEventFromFile(
-      final String dateDatabaseFilePath) throws IOException {
-    return readLastDatabaseEventFromStream(
-        new ObjectInputStream(new FileInputStream(dateDatabaseFilePath)));
+  private void writeThenReply(
+      final SingleDateDatabaseEvent singleDateDatabaseEvent,
+      final ActorRef sender,
+      final SingleDateDatabaseResponse reply) {
+    final EventWrite eventWrite = EventWrite.create(singleDateDatabaseEvent, sender, reply);
+    if (!coalesceWrites) {
+      write(ImmutableList.of(eventWrite));
+    } else {
+      if (unflushedWrites.isEmpty()) {
+        // Queued after the commands already in the mailbox, which join the batch
+        self().tell(Flush.INSTANCE, self());
+      }
+      unflushedWrites.add(eventWrite);
+      if (unflushedWrites.size() >= maxWriteBatchSize) {
+        flush();
+      }
+    }
   }
 
-  public static SingleDateDatabaseEvent readLastDatabaseEventFromStream(
-      final ObjectInputStream objectInputStream) throws IOException {
-    boolean endReached = false;
-    SingleDateDatabaseEvent singleDateDatabaseEvent = null;
-    while (!endReached) {
-      try {
-        singleDateDatabaseEvent = (SingleDateDatabaseEvent) objectInputStream.readObject();
-      } catch (final EOFException e) {
-        endReached = true;
-      } catch (final ClassNotFoundException e) {
-        e.printStackTrace();
-        throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
-      }
+  private void flush() {
+    if (!unflushedWrites.isEmpty()) {
+      final ImmutableList<EventWrite> batch = ImmutableList.copyOf(unflushedWrites);
+      unflushedWrites.clear();
+      write(batch);
     }
-    if (singleDateDatabaseEvent == null)
-      throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
-    return singleDateDatabaseEvent;
   }
 
-  public static ImmutableList<SingleDateDatabaseEvent> loadAllDatabaseEventFromStream(
-      final ObjectInputStream objectInputStream) throws IOException {
-    boolean endReached = false;
-    final ImmutableList.Builder<SingleDateDatabaseEvent> singleDateDatabaseEvents =
-        ImmutableList.builder();
-    while (!endReached) {
+  /**
+   * Appends the events with a single write (and sync), then replies. When the storage writes
+   * without blocking, replies once the store tells EventsAppended.
+   */
+  private void write(final ImmutableList<EventWrite> batch) {
+    final ImmutableList<SingleDateDatabaseEvent> events =
+        batch.stream().map(EventWrite::getEvent).collect(ImmutableList.toImmutableList());
+    if (asyncWrites) {
+      final ActorRef self = self();
+      writesInFlight++;
+      store.appendAllAsync(
+          events,
+          syncWrites,
+          maybeFailure ->
+              self.tell(
+                  maybeFailure
+                      .<Object>map(WriteFailed::create)
+                      .orElseGet(() -> EventsAppended.create(batch)),
+                  ActorRef.noSender()));
+    } else {
       try {
-        singleDateDatabaseEvents.add((SingleDateDatabaseEvent) objectInputStream.readObject());
-      } catch (final EOFException e) {
-        endReached = true;
-      } catch (final ClassNotFoundException e) {
-        e.printStackTrace();
-        throw new IllegalStateException(SINGLE_DATE_DATABASE_CORRUPTED_ERROR_MESSAGE);
+        store.appendAll(events);
+        if (syncWrites) {
+          store.sync();
+        }
+      } catch (final IOException e) {
+        throw new IllegalStateException(
+            ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT + e.toString());
       }
+      batch.forEach(this::written);
     }
-    return singleDateDatabaseEvents.build();
   }
 
-  public static void writeDateDatabaseEventToStream(
-      final SingleDateDatabaseEvent singleDateDatabaseEvent,
-      final ObjectOutputStream outputStream) {
-    try {
-      outputStream.writeObject(singleDateDatabaseEvent);
-      outputStream.flush();
-    } catch (final IOException e) {
-      throw new IllegalStateException(
-          ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT_TO_OBJECT_OUTPUT_STREAM + e.toString());
-    }
+  private void written(final EventWrite eventWrite) {
+    store
+        .getFilePath()
+        .ifPresent(
+            filePath ->
+                getContext()
+                    .getSystem()
+                    .eventStream()
+                    .publish(EventWritten.create(filePath, eventWrite.getEvent())));
+    eventWrite.getSender().tell(eventWrite.getReply(), self());
   }
 
-  @Override
-  public Receive createReceive() {
-    return initialBehaviour;
+  /** Replies ReadyToPassivate with the latest event and stops, only possible when settled. */
+  private void passivate(final SingleDateDatabaseEvent latestDatabaseEvent) throws IOException {
+    if (snapshotOnPassivation) {
+      // The next activation, and recovery, only has the latest event to read
+      store.snapshot(latestDatabaseEvent);
+    }
+    sender().tell(ReadyToPassivate.create(latestDatabaseEvent), self());
+    getContext().stop(self());
   }
 
-  private Receive booked(final Booking booking) {
+  private Receive inventory(final DateInventory inventory) {
     return receiveBuilder()
-        // Cancellation will write to disk right away, no need to transactional operation
         .match(
-            SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
+            SingleDateDatabaseCommand.Book.class,
+            book -> {
               final ActorRef sender = sender();
-              if (booking.getId().equals(cancelBooking.bookingId)) {
-
-                log.info("Cancelling : Booking id {}", cancelBooking.bookingId);
-
-                // Inform read replica of state change
-                readReplica.tell(cancelBooking, self());
-
-                // Write to disk
-                writeDateDatabaseEventToStream(SingleDateDatabaseEvent.noBooking(), outputStream);
-
-                // Reply to requester
-                sender.tell(
-                    SingleDateDatabaseResponse.cancellationConfirmation(booking, date), self());
-                getContext().become(available());
+              final Booking booking = book.getBooking();
+              final OptionalInt maybeFreeUnit = inventory.nextFreeUnit();
+              if (isHeldBy(inventory, booking.getId()) || !maybeFreeUnit.isPresent()) {
+                log.info("Date is already booked.");
+                sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
               } else {
-                // Reply to requester
+                log.info("Booking unit {} : {}", maybeFreeUnit.getAsInt(), booking);
+
+                final SingleDateDatabaseResponse.BookingConfirmation bookingConfirmation =
+                    SingleDateDatabaseResponse.bookingConfirmation(booking, date);
+
+                // The unit is held until the transaction ends, published before replying so that
+                // readers of the window never see a confirmed date as available
+                begin(
+                    inventory,
+                    transactionId ->
+                        DateInventory.Transaction.claim(
+                            transactionId,
+                            booking,
+                            sender,
+                            maybeFreeUnit.getAsInt(),
+                            scheduleTransactionTimeout(transactionId)));
+
+                // Reply to requester that we awaiting a transaction commit to persist this change
                 sender.tell(
-                    SingleDateDatabaseResponse.doesntQualifyForCancellationConfirmation(date),
+                    SingleDateDatabaseResponse.probatoryBookingConfirmation(
+                        bookingConfirmation, self()),
                     self());
               }
             })
+        .match(
+            SingleDateDatabaseCommand.BookAndCommit.class,
+            bookAndCommit -> {
+              final ActorRef sender = sender();
+              final Booking booking = bookAndCommit.getBooking();
+              final OptionalInt maybeFreeUnit = inventory.nextFreeUnit();
+              if (isHeldBy(inventory, booking.getId()) || !maybeFreeUnit.isPresent()) {
+                log.info("Date is already booked.");
+                sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
+              } else {
+                log.info("Booking and persisting unit {} : {}", maybeFreeUnit.getAsInt(), booking);
+
+                final DateInventory newInventory =
+                    inventory.book(maybeFreeUnit.getAsInt(), booking);
+
+                // Inform read replica of state change, then write to disk and reply to requester
+                tellRemainingCapacity(newInventory);
+                writeThenReply(
+                    newInventory.toDatabaseEvent(),
+                    sender,
+                    SingleDateDatabaseResponse.bookingConfirmation(booking, date));
+                getContext().become(inventory(newInventory));
+              }
+            })
         .match(
             SingleDateDatabaseCommand.UpdateBooking.class,
             updateBooking -> {
               final ActorRef sender = sender();
-              // if current booking matches the id of booking to update
-              if (updateBooking.getBooking().getId().equals(booking.getId())) {
+              final Booking booking = updateBooking.getBooking();
+              final Optional<Map.Entry<Integer, Booking>> maybeCommittedUnit =
+                  inventory.committedUnitOf(booking.getId());
+              final OptionalInt maybeFreeUnit = inventory.nextFreeUnit();
+
+              if (inventory.transactionOf(booking.getId()).isPresent()) {
+                // The booking is already being changed on this date, it is locked until then.
+                replyNotUpdatable(sender, booking);
+              } else if (maybeCommittedUnit.isPresent()) {
+                final int unit = maybeCommittedUnit.get().getKey();
 
                 // Reply to requester that we awaiting a transaction commit to persist this change
                 sender.tell(
-                    SingleDateDatabaseResponse.probatoryUpdateConfirmation(true, date), self());
-
-                // if date of this database is within the reservation period
-                if (updateBooking.getBooking().within(date)) {
+                    SingleDateDatabaseResponse.probatoryUpdateConfirmation(true, date, self()),
+                    self());
 
-                  // Override current Booking. Read Replica doesn't need to be informed because this
-                  // is simply an override.
-                  getContext()
-                      .become(
-                          transactionalBooked(Optional.of(booking), updateBooking.getBooking()),
-                          false);
+                if (booking.within(date)) {
+                  // Override the booking of its unit. Read Replica doesn't need to be informed
+                  // because the remaining capacity doesn't change.
+                  begin(
+                      inventory,
+                      transactionId ->
+                          DateInventory.Transaction.override(
+                              transactionId,
+                              booking,
+                              sender,
+                              unit,
+                              scheduleTransactionTimeout(transactionId)));
                 } else {
-
-                  // Delete current booking as it is no longer valid for this day.
-                  getContext().become(transactionalAvailable(booking), false);
+                  // Give the unit back on commit as the booking is no longer valid for this day.
+                  begin(
+                      inventory,
+                      transactionId ->
+                          DateInventory.Transaction.release(
+                              transactionId,
+                              booking.getId(),
+                              sender,
+                              unit,
+                              scheduleTransactionTimeout(transactionId)));
                 }
-              } else {
-                if (updateBooking.getBooking().within(date)) {
-
-                  // This date is booked by another user, inform sender
-                  sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-                } else {
+              } else if (booking.within(date) && maybeFreeUnit.isPresent()) {
+                begin(
+                    inventory,
+                    transactionId ->
+                        DateInventory.Transaction.claim(
+                            transactionId,
+                            booking,
+                            sender,
+                            maybeFreeUnit.getAsInt(),
+                            scheduleTransactionTimeout(transactionId)));
 
-                  // Reply to requester that this date doesn't qualify for an update (not within old
-                  // and updated date ranges )
-                  sender.tell(
-                      SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date), self());
-                }
+                // Reply to requester that we awaiting a transaction commit to persist this change
+                sender.tell(
+                    SingleDateDatabaseResponse.probatoryUpdateConfirmation(false, date, self()),
+                    self());
+              } else {
+                replyNotUpdatable(sender, booking);
               }
             })
+        // Cancellation will write to disk right away, no need to transactional operation
         .match(
-            SingleDateDatabaseCommand.Book.class,
-            book -> {
-              log.info("Date is already booked.");
-              sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .match(
-            SingleDateDatabaseCommand.RequestHistory.class,
-            msg -> {
-              final ActorRef sender = sender();
-              sender.tell(
-                  SingleDateDatabaseResponse.history(
-                      loadAllDatabaseEventFromStream(inputStreamSupplier.get())),
-                  self());
-            })
-        .match(
-            SingleDateDatabaseCommand.GetAvailability.class,
-            msg -> {
+            SingleDateDatabaseCommand.CancelBooking.class,
+            cancelBooking -> {
               final ActorRef sender = sender();
-              sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .matchAny(o -> log.info("received unknown message {}", o))
-        .build();
-  }
+              final Optional<Map.Entry<Integer, Booking>> maybeCommittedUnit =
+                  inventory.committedUnitOf(cancelBooking.bookingId);
+              // Can't cancel while the booking is in a transaction on this date
+              if (maybeCommittedUnit.isPresent()
+                  && !inventory.transactionOf(cancelBooking.bookingId).isPresent()) {
 
-  private Receive transactionalBooked(
-      final Optional<Booking> maybePreviousBooking, final Booking booking) {
-    return receiveBuilder()
-        .match(
-            SingleDateDatabaseCommand.Commit.class,
-            commit -> {
-              // Commit in memory change to disk if commit message is intended for this date
-              if (commit.getDate().equals(date)) {
-                final ActorRef sender = sender();
-                log.info("Persisting : {}", booking);
+                log.info("Cancelling : Booking id {}", cancelBooking.bookingId);
 
-                // Writing booking to disk
-                writeDateDatabaseEventToStream(
-                    SingleDateDatabaseEvent.booked(booking), outputStream);
+                final DateInventory newInventory =
+                    inventory.cancel(maybeCommittedUnit.get().getKey());
 
+                // Inform read replica of state change
+                tellRemainingCapacity(newInventory);
+
+                // Write to disk, then reply to requester
+                writeThenReply(
+                    newInventory.toDatabaseEvent(),
+                    sender,
+                    SingleDateDatabaseResponse.cancellationConfirmation(
+                        maybeCommittedUnit.get().getValue(), date));
+                getContext().become(inventory(newInventory));
+              } else {
                 // Reply to requester
-                sender.tell(SingleDateDatabaseResponse.commitConfirmation(date), self());
-                getContext().become(booked(booking), true);
+                sender.tell(
+                    SingleDateDatabaseResponse.doesntQualifyForCancellationConfirmation(date),
+                    self());
               }
             })
         .match(
-            SingleDateDatabaseCommand.Revert.class,
-            revert -> {
-              if (revert.getDate().equals(date)) {
-                final ActorRef sender = sender();
-                log.info("Reverting : Booking id {}", booking.getId());
-
-                // If there is no previous booking that got overridden then we need to inform read
-                // replica
-                // that we are undoing that booking and that the date is available
-                if (!maybePreviousBooking.isPresent()) {
-                  readReplica.tell(SingleDateDatabaseCommand.cancel(booking.getId()), self());
+            SingleDateDatabaseCommand.Commit.class,
+            commit -> {
+              final ActorRef sender = sender();
+              final Optional<DateInventory.Transaction> maybeTransaction =
+                  transactionOwnedBy(inventory, commit.getBookingId(), sender);
+              // Commit in memory change to disk if commit message is intended for this date
+              if (commit.getDate().equals(date) && maybeTransaction.isPresent()) {
+                final DateInventory.Transaction transaction = maybeTransaction.get();
+                transaction.getTimeout().cancel();
+                log.info("Persisting : {}", transaction);
+
+                final DateInventory newInventory = inventory.commit(transaction);
+
+                // Writing the units to disk, then replying
+                if (transaction.getBooking().isPresent()) {
+                  writeThenReply(
+                      newInventory.toDatabaseEvent(),
+                      sender,
+                      SingleDateDatabaseResponse.commitConfirmation(date));
+                } else {
+                  // Inform read replica of state change. We are informing the replica at this
+                  // stage because the transaction has ended and we want to let other user book.
+                  tellRemainingCapacity(newInventory);
+                  writeThenReply(
+                      newInventory.toDatabaseEvent(),
+                      sender,
+                      SingleDateDatabaseResponse.dateAvailableConfirmation(date));
                 }
-
-                // Reply to requester
-                sender.tell(SingleDateDatabaseResponse.revertConfirmation(date), self());
-
-                // Revert Actor state
-                getContext().unbecome();
+                getContext().become(inventory(newInventory));
+              } else {
+                // Reaped, or the booking opened another transaction since. Committing it would
+                // complete a change the requester doesn't know about, the requester is told its
+                // own change is lost.
+                sender.tell(
+                    SingleDateDatabaseResponse.transactionExpired(commit.getDate()), self());
               }
             })
         .match(
-            SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
-              // Reply to requester
-              sender()
-                  .tell(
-                      SingleDateDatabaseResponse.doesntQualifyForCancellationConfirmation(date),
-                      self());
-            })
-        .match(
-            SingleDateDatabaseCommand.UpdateBooking.class,
-            updateBooking -> {
-              if (updateBooking.getBooking().within(date)) {
-                // This date is booked by another user, inform sender
-                sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-              } else {
-                sender()
-                    .tell(
-                        SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date),
-                        self());
+            SingleDateDatabaseCommand.Revert.class,
+            revert -> {
+              final ActorRef sender = sender();
+              final Optional<DateInventory.Transaction> maybeTransaction =
+                  transactionOwnedBy(inventory, revert.getBookingId(), sender);
+              // Whether reverted now or reaped before, nothing is held for the requester anymore
+              sender.tell(SingleDateDatabaseResponse.revertConfirmation(revert.getDate()), self());
+              if (revert.getDate().equals(date) && maybeTransaction.isPresent()) {
+                maybeTransaction.get().getTimeout().cancel();
+                revert(inventory, maybeTransaction.get());
               }
             })
         .match(
-            SingleDateDatabaseCommand.Book.class,
-            book -> {
-              log.info("Date is already booked.");
-              sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
+            TransactionTimedOut.class,
+            // Nothing to do if the transaction got committed or reverted right before its deadline
+            transactionTimedOut ->
+                inventory
+                    .transactionWithId(transactionTimedOut.getTransactionId())
+                    .ifPresent(
+                        transaction -> {
+                          reap(transaction.getTransactionId());
+                          revert(inventory, transaction);
+                        }))
         .match(
             SingleDateDatabaseCommand.RequestHistory.class,
             msg -> {
               final ActorRef sender = sender();
-
-              final ImmutableList<SingleDateDatabaseEvent> history =
-                  UtilityFunctions.addToImmutableList(
-                      loadAllDatabaseEventFromStream(inputStreamSupplier.get()),
-                      SingleDateDatabaseEvent.booked(booking));
-
-              sender.tell(SingleDateDatabaseResponse.history(history), self());
+              log.info("Requested History of Booking.");
+              sender.tell(SingleDateDatabaseResponse.history(store.history()), self());
             })
         .match(
             SingleDateDatabaseCommand.GetAvailability.class,
             msg -> {
               final ActorRef sender = sender();
-              sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .matchAny(o -> log.info("received unknown message {}", o))
-        .build();
-  }
-
-  private Receive available() {
-    return receiveBuilder()
-        .match(
-            SingleDateDatabaseCommand.Book.class,
-            book -> {
-              final ActorRef sender = sender();
-              log.info("Booking : {}", book.getBooking());
-
-              // inform read replica of state change, date is now booked
-              readReplica.tell(book, self());
-
-              final SingleDateDatabaseResponse.BookingConfirmation bookingConfirmation =
-                  SingleDateDatabaseResponse.bookingConfirmation(book.getBooking(), date);
-
-              // Reply to requester that we awaiting a transaction commit to persist this change
-              sender.tell(
-                  SingleDateDatabaseResponse.probatoryBookingConfirmation(bookingConfirmation),
-                  self());
-
-              getContext().become(transactionalBooked(Optional.empty(), book.getBooking()), false);
-            })
-        .match(
-            SingleDateDatabaseCommand.UpdateBooking.class,
-            updateBooking -> {
-              final ActorRef sender = sender();
-              // if date of this database is within the reservation period book it
-              if (updateBooking.getBooking().within(date)) {
-                // inform read replica of state change
-                readReplica.tell(
-                    SingleDateDatabaseCommand.book(updateBooking.getBooking(), date), self());
-
-                // Reply to requester that we awaiting a transaction commit to persist this change
+              // Units held by open transactions aren't available, to prevent other users from
+              // booking them until the transaction is committed or reverted.
+              final int remainingCapacity = inventory.remainingCapacity();
+              if (remainingCapacity > 0) {
                 sender.tell(
-                    SingleDateDatabaseResponse.probatoryUpdateConfirmation(false, date), self());
-
-                getContext()
-                    .become(
-                        transactionalBooked(Optional.empty(), updateBooking.getBooking()), false);
+                    SingleDateDatabaseResponse.isAvailable(date, remainingCapacity), self());
               } else {
-                // Reply to requester that this date doesn't qualify for an update
-                sender.tell(
-                    SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date), self());
+                sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
               }
             })
+        .match(Flush.class, flush -> flush())
         .match(
-            SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
-              sender()
-                  .tell(
-                      SingleDateDatabaseResponse.doesntQualifyForCancellationConfirmation(date),
-                      self());
+            EventsAppended.class,
+            eventsAppended -> {
+              writesInFlight--;
+              eventsAppended.getBatch().forEach(this::written);
             })
         .match(
-            SingleDateDatabaseCommand.RequestHistory.class,
-            msg -> {
-              final ActorRef sender = sender();
-              log.info("Requested History of Booking.");
-              sender.tell(
-                  SingleDateDatabaseResponse.history(
-                      loadAllDatabaseEventFromStream(inputStreamSupplier.get())),
-                  self());
+            WriteFailed.class,
+            writeFailed -> {
+              throw new IllegalStateException(
+                  ERROR_OCCURRED_WHILE_WRITING_DATE_DATABASE_EVENT + writeFailed.getCause());
             })
         .match(
-            SingleDateDatabaseCommand.GetAvailability.class,
-            msg -> {
-              final ActorRef sender = sender();
-              log.info("Requested Availability.");
-              sender.tell(SingleDateDatabaseResponse.isAvailable(date), self());
+            Passivate.class,
+            passivate -> {
+              if (inventory.hasOpenTransactions()
+                  || writesInFlight > 0
+                  || !unflushedWrites.isEmpty()) {
+                // Can't passivate with an open transaction, the commit or revert would be lost,
+                // nor with a write not done yet, its reply would be
+                sender().tell(PassivationRefused.INSTANCE, self());
+              } else {
+                passivate(inventory.toDatabaseEvent());
+              }
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
-  private Receive transactionalAvailable(final Booking previousBooking) {
-    return receiveBuilder()
-        .match(
-            SingleDateDatabaseCommand.Commit.class,
-            commit -> {
-              if (commit.getDate().equals(date)) {
-                final ActorRef sender = sender();
-                log.info("Persisting date as available");
+  private static Optional<DateInventory.Transaction> transactionOwnedBy(
+      final DateInventory inventory, final String bookingId, final ActorRef owner) {
+    return inventory
+        .transactionOf(bookingId)
+        .filter(transaction -> transaction.getOwner().equals(owner));
+  }
 
-                // Inform read replica of state change. We are informing the replica at this stage
-                // because the transaction has ended and we want to let other user book.
-                readReplica.tell(SingleDateDatabaseCommand.cancel(previousBooking.getId()), self());
+  private static boolean isHeldBy(final DateInventory inventory, final String bookingId) {
+    return inventory.committedUnitOf(bookingId).isPresent()
+        || inventory.transactionOf(bookingId).isPresent();
+  }
 
-                // Writing to disk
-                writeDateDatabaseEventToStream(SingleDateDatabaseEvent.noBooking(), outputStream);
+  private void replyNotUpdatable(final ActorRef sender, final Booking booking) {
+    if (booking.within(date)) {
+      // No unit left for this booking on this date, inform sender
+      sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
+    } else {
+      // Reply to requester that this date doesn't qualify for an update (not within old and
+      // updated date ranges)
+      sender.tell(SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date), self());
+    }
+  }
 
-                // Reply to requester
-                sender.tell(SingleDateDatabaseResponse.dateAvailableConfirmation(date), self());
-                getContext().become(available(), true);
-              }
-            })
-        .match(
-            SingleDateDatabaseCommand.Revert.class,
-            revert -> {
-              if (revert.getDate().equals(date)) {
-                final ActorRef sender = sender();
-                log.info("Reverting to previous booking");
+  /**
+   * Opens a transaction until Commit or Revert is received. If neither arrives before
+   * transaction-timeout (request handler died or message got lost), the transaction is reverted by
+   * the scheduled TransactionTimedOut so that the unit doesn't stay locked forever.
+   */
+  private void begin(
+      final DateInventory inventory,
+      final Function<String, DateInventory.Transaction> transactionOfId) {
+    final DateInventory.Transaction transaction =
+        transactionOfId.apply(UUID.randomUUID().toString());
+    final DateInventory newInventory = inventory.begin(transaction);
+    if (transaction.claimsUnit()) {
+      tellRemainingCapacity(newInventory);
+    }
+    getContext().become(inventory(newInventory));
+  }
 
-                // No need inform replica, as this date used to be booked. When in transactional
-                // state we are also booked.
-                // Read replica is already in the right state.
+  private void revert(final DateInventory inventory, final DateInventory.Transaction transaction) {
+    log.info("Reverting : {}", transaction);
+    final DateInventory newInventory = inventory.revert(transaction);
+    // Overrides and releases kept their unit during the transaction, only a claimed unit is given
+    // back to the read replica.
+    if (transaction.claimsUnit()) {
+      tellRemainingCapacity(newInventory);
+    }
+    getContext().become(inventory(newInventory));
+  }
 
-                // Reply to requester
-                sender.tell(SingleDateDatabaseResponse.revertConfirmation(date), self());
+  private void tellRemainingCapacity(final DateInventory inventory) {
+    // Published before anything else is processed, readers of the window see it right away
+    windowAvailability.publish(date, inventory.remainingCapacity());
+    readReplica.tell(
+        SingleDateDatabaseReadReplicaActor.RemainingCapacityChanged.create(
+            inventory.remainingCapacity()),
+        self());
+  }
 
-                // Revert Actor state
-                getContext().unbecome();
-              }
-            })
-        .match(
-            SingleDateDatabaseCommand.Book.class,
-            book -> {
+  private Cancellable scheduleTransactionTimeout(final String transactionId) {
+    return getContext()
+        .getSystem()
+        .scheduler()
+        .scheduleOnce(
+            transactionTimeout,
+            self(),
+            TransactionTimedOut.create(transactionId),
+            getContext().dispatcher(),
+            self());
+  }
 
-              // Date is available but in transaction mode. To prevent other users from booking this
-              // will remain booked until the transaction is committed or reverted.
-              sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .match(
-            SingleDateDatabaseCommand.UpdateBooking.class,
-            updateBooking -> {
-              if (updateBooking.getBooking().within(date)) {
-                // Date is available but in transaction mode. To prevent other users from booking
-                // this will remain booked until the transaction is committed or reverted.
-                sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-              } else {
-                sender()
-                    .tell(
-                        SingleDateDatabaseResponse.doesntQualifyForUpdateConfirmation(date),
-                        self());
-              }
-            })
-        .match(
-            SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
-              // We can't cancel while in transactional state
-              sender()
-                  .tell(
-                      SingleDateDatabaseResponse.doesntQualifyForCancellationConfirmation(date),
-                      self());
-            })
-        .match(
-            SingleDateDatabaseCommand.RequestHistory.class,
-            msg -> {
-              final ActorRef sender = sender();
+  private void reap(final String transactionId) {
+    log.warning("Reverting transaction {} as it was neither committed nor reverted", transactionId);
+    metricsRegistry.increment(REAPED_TRANSACTIONS_METRIC);
+  }
 
-              final ImmutableList<SingleDateDatabaseEvent> history =
-                  UtilityFunctions.addToImmutableList(
-                      loadAllDatabaseEventFromStream(inputStreamSupplier.get()),
-                      SingleDateDatabaseEvent.noBooking());
+  static final class TransactionTimedOut {
+    private final String transactionId;
 
-              sender.tell(SingleDateDatabaseResponse.history(history), self());
-            })
-        .match(
-            SingleDateDatabaseCommand.GetAvailability.class,
-            msg -> {
-              final ActorRef sender = sender();
-              log.info(
-                  "Date is available but in transaction mode. "
-                      + "To prevent other users from booking this will remain booked until the transaction is committed or reverted.");
-              sender.tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .matchAny(o -> log.info("received unknown message {}", o))
-        .build();
+    private TransactionTimedOut(final String transactionId) {
+      this.transactionId = transactionId;
+    }
+
+    public static TransactionTimedOut create(final String transactionId) {
+      return new TransactionTimedOut(transactionId);
+    }
+
+    @Override
+    public String toString() {
+      return "TransactionTimedOut{" + "transactionId='" + transactionId + '\'' + '}';
+    }
+
+    public String getTransactionId() {
+      return transactionId;
+    }
+  }
+
+  /** Event to append, with the reply to send once written. */
+  static final class EventWrite {
+    private final SingleDateDatabaseEvent event;
+    private final ActorRef sender;
+    private final SingleDateDatabaseResponse reply;
+
+    private EventWrite(
+        final SingleDateDatabaseEvent event,
+        final ActorRef sender,
+        final SingleDateDatabaseResponse reply) {
+      this.event = event;
+      this.sender = sender;
+      this.reply = reply;
+    }
+
+    public static EventWrite create(
+        final SingleDateDatabaseEvent event,
+        final ActorRef sender,
+        final SingleDateDatabaseResponse reply) {
+      return new EventWrite(event, sender, reply);
+    }
+
+    @Override
+    public String toString() {
+      return "EventWrite{" + "event=" + event + ", sender=" + sender + ", reply=" + reply + '}';
+    }
+
+    public SingleDateDatabaseEvent getEvent() {
+      return event;
+    }
+
+    public ActorRef getSender() {
+      return sender;
+    }
+
+    public SingleDateDatabaseResponse getReply() {
+      return reply;
+    }
+  }
+
+  /** Told by the store once events appended asynchronously are written. */
+  static final class EventsAppended {
+    private final ImmutableList<EventWrite> batch;
+
+    private EventsAppended(final ImmutableList<EventWrite> batch) {
+      this.batch = batch;
+    }
+
+    public static EventsAppended create(final ImmutableList<EventWrite> batch) {
+      return new EventsAppended(batch);
+    }
+
+    @Override
+    public String toString() {
+      return "EventsAppended{" + "batch=" + batch + '}';
+    }
+
+    public ImmutableList<EventWrite> getBatch() {
+      return batch;
+    }
+  }
+
+  enum Flush {
+    INSTANCE;
+
+    Flush() {}
+
+    @Override
+    public String toString() {
+      return "Flush{}";
+    }
+  }
+
+  static final class WriteFailed {
+    private final IOException cause;
+
+    private WriteFailed(final IOException cause) {
+      this.cause = cause;
+    }
+
+    public static WriteFailed create(final IOException cause) {
+      return new WriteFailed(cause);
+    }
+
+    @Override
+    public String toString() {
+      return "WriteFailed{" + "cause=" + cause + '}';
+    }
+
+    public IOException getCause() {
+      return cause;
+    }
+  }
+
+  enum Passivate {
+    INSTANCE;
+
+    Passivate() {}
+
+    @Override
+    public String toString() {
+      return "Passivate{}";
+    }
+  }
+
+  enum PassivationRefused {
+    INSTANCE;
+
+    PassivationRefused() {}
+
+    @Override
+    public String toString() {
+      return "PassivationRefused{}";
+    }
+  }
+
+  static final class ReadyToPassivate {
+    private final SingleDateDatabaseEvent latestDatabaseEvent;
+
+    private ReadyToPassivate(final SingleDateDatabaseEvent latestDatabaseEvent) {
+      this.latestDatabaseEvent = latestDatabaseEvent;
+    }
+
+    public static ReadyToPassivate create(final SingleDateDatabaseEvent latestDatabaseEvent) {
+      return new ReadyToPassivate(latestDatabaseEvent);
+    }
+
+    @Override
+    public String toString() {
+      return "ReadyToPassivate{" + "latestDatabaseEvent=" + latestDatabaseEvent + '}';
+    }
+
+    public SingleDateDatabaseEvent getLatestDatabaseEvent() {
+      return latestDatabaseEvent;
+    }
+  }
+
+  /** Published on the event stream of the system once an event is written to a date file. */
+  public static final class EventWritten {
+    private final String filePath;
+    private final SingleDateDatabaseEvent event;
+
+    private EventWritten(final String filePath, final SingleDateDatabaseEvent event) {
+      this.filePath = filePath;
+      this.event = event;
+    }
+
+    public static EventWritten create(
+        final String filePath, final SingleDateDatabaseEvent event) {
+      return new EventWritten(filePath, event);
+    }
+
+    @Override
+    public String toString() {
+      return "EventWritten{" + "filePath='" + filePath + '\'' + ", event=" + event + '}';
+    }
+
+    public String getFilePath() {
+      return filePath;
+    }
+
+    public SingleDateDatabaseEvent getEvent() {
+      return event;
+    }
   }
 }
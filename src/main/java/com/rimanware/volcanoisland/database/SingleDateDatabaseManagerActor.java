@@ -3,17 +3,24 @@ package com.rimanware.volcanoisland.database;
 import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
+import akka.dispatch.Dispatchers;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import com.google.common.collect.ImmutableList;
 import com.rimanware.volcanoisland.common.LoggingReceiveActor;
+import com.rimanware.volcanoisland.common.Tuple;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.api.DateStorage;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.typesafe.config.Config;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
-import java.io.IOException;
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.Comparator;
 import java.util.UUID;
 
 public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
@@ -21,37 +28,59 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
   private static final String READ_REPLICA_SINGLE_DATE_DATABASE = "ReadReplicaSingleDateDatabase-";
   private static final String WRITE_SINGLE_DATE_DATABASE = "WriteSingleDateDatabase-";
   private static final String IO_DISPATCHER = "akka.actor.blocking-io-dispatcher";
+  private static final String MAX_PENDING_BOOK_REQUESTS =
+      "volcano-island.single-date-database.max-pending-book-requests";
+  private static final String ELECTION_WINDOW =
+      "volcano-island.single-date-database.election-window";
+  private static final String MAX_ELECTION_BATCH_SIZE =
+      "volcano-island.single-date-database.max-election-batch-size";
+  private static final String ELECTION_TIMEOUT =
+      "volcano-island.single-date-database.election-timeout";
+  public static final String BOUNDED_DATABASE_MAILBOX = "volcano-island.bounded-database-mailbox";
+  private static final String PASSIVATE_AFTER =
+      "volcano-island.single-date-database.passivate-after";
   private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
   private final LocalDate date;
-  private final Optional<String> maybeDatabaseFolderPath;
-
-  private SingleDateDatabaseManagerActor(
-      final LocalDate date, final Optional<String> maybeDatabaseFolderPath) {
-    this.maybeDatabaseFolderPath = maybeDatabaseFolderPath;
+  private final DateStorage storage;
+  private final int maxPendingBookRequests;
+  private final FiniteDuration electionWindow;
+  private final int maxElectionBatchSize;
+  private final FiniteDuration electionTimeout;
+  private final FiniteDuration passivateAfter;
+  private final int capacity;
+  private final String writerDispatcher;
+  // Changes every time a window closes, telling stale CloseElectionWindow and ElectionTimedOut
+  // timers apart
+  private long electionWindowId = 0;
+
+  private SingleDateDatabaseManagerActor(final LocalDate date, final DateStorage storage) {
+    this.storage = storage;
     this.date = date;
+    final Config config = getContext().getSystem().settings().config();
+    this.maxPendingBookRequests = config.getInt(MAX_PENDING_BOOK_REQUESTS);
+    this.electionWindow =
+        FiniteDuration.fromNanos(config.getDuration(ELECTION_WINDOW).toNanos());
+    this.maxElectionBatchSize = config.getInt(MAX_ELECTION_BATCH_SIZE);
+    this.electionTimeout =
+        FiniteDuration.fromNanos(config.getDuration(ELECTION_TIMEOUT).toNanos());
+    this.passivateAfter =
+        FiniteDuration.fromNanos(config.getDuration(PASSIVATE_AFTER).toNanos());
+    this.capacity = config.getInt(SingleDateDatabaseActor.CAPACITY);
+    // A writer only blocks on its writes if its storage does
+    this.writerDispatcher =
+        storage.writesWithoutBlocking() ? Dispatchers.DefaultDispatcherId() : IO_DISPATCHER;
   }
 
   private static SingleDateDatabaseManagerActor create(
-      final LocalDate date, final Optional<String> maybeDatabaseFolderPath) {
-    return new SingleDateDatabaseManagerActor(date, maybeDatabaseFolderPath);
+      final LocalDate date, final DateStorage storage) {
+    return new SingleDateDatabaseManagerActor(date, storage);
   }
 
-  public static Props props(final LocalDate date, final Optional<String> maybeDatabaseFolderPath) {
+  /** @param storage storage of the database the date belongs to, shared with the other dates */
+  public static Props props(final LocalDate date, final DateStorage storage) {
     return Props.create(
         SingleDateDatabaseManagerActor.class,
-        () -> SingleDateDatabaseManagerActor.create(date, maybeDatabaseFolderPath));
-  }
-
-  private static Props getWriteSingleDateDatabaseProps(
-      final Optional<String> maybeDatabaseFolderPath,
-      final LocalDate date,
-      final ActorRef readReplicaActor)
-      throws IOException {
-    if (maybeDatabaseFolderPath.isPresent()) {
-      return SingleDateDatabaseActor.props(date, maybeDatabaseFolderPath.get(), readReplicaActor);
-    } else {
-      return SingleDateDatabaseActor.inMemoryProps(date, readReplicaActor);
-    }
+        () -> SingleDateDatabaseManagerActor.create(date, storage));
   }
 
   private Receive inactive() {
@@ -62,36 +91,178 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
               final ActorRef readReplicaActor =
                   getContext()
                       .actorOf(
-                          SingleDateDatabaseReadReplicaActor.props(date),
+                          SingleDateDatabaseReadReplicaActor.props(
+                                  date, start.getLatestDatabaseEvent().remainingCapacity(capacity))
+                              .withMailbox(BOUNDED_DATABASE_MAILBOX),
                           READ_REPLICA_SINGLE_DATE_DATABASE + date.toString());
+              // The latest event was recovered by the parent, the writer doesn't read its file.
               final ActorRef writeReadActor =
                   getContext()
                       .actorOf(
-                          getWriteSingleDateDatabaseProps(
-                                  maybeDatabaseFolderPath, date, readReplicaActor)
-                              .withDispatcher(IO_DISPATCHER),
+                          SingleDateDatabaseActor.props(
+                                  date,
+                                  storage,
+                                  start.getLatestDatabaseEvent(),
+                                  readReplicaActor,
+                                  start.getWindowAvailability())
+                              .withDispatcher(writerDispatcher)
+                              .withMailbox(BOUNDED_DATABASE_MAILBOX),
                           WRITE_SINGLE_DATE_DATABASE + date.toString());
-              getContext().become(started(ImmutableList.of(), writeReadActor, readReplicaActor));
+
+              // Passivate once nothing happened on this date for a while
+              getContext().setReceiveTimeout(passivateAfter);
+              getContext()
+                  .become(
+                      started(
+                          ImmutableList.of(),
+                          ImmutableList.of(),
+                          writeReadActor,
+                          readReplicaActor));
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
+  /**
+   * Waits for the writer to confirm it has no open transaction. Everything received meanwhile is
+   * held back: replayed here if the writer refuses, handed back to the parent if it accepts.
+   */
+  private Receive awaitingWriterPassivation(
+      final ActorRef writeReadActor,
+      final ActorRef readReplicaActor,
+      final ImmutableList<Tuple<Object, ActorRef>> bufferedMessages) {
+    return receiveBuilder()
+        .match(
+            SingleDateDatabaseActor.PassivationRefused.class,
+            passivationRefused -> {
+              getContext()
+                  .become(
+                      started(
+                          ImmutableList.of(),
+                          ImmutableList.of(),
+                          writeReadActor,
+                          readReplicaActor));
+              bufferedMessages.forEach(
+                  message -> self().tell(message.getLeft(), message.getRight()));
+            })
+        .match(
+            SingleDateDatabaseActor.ReadyToPassivate.class,
+            readyToPassivate -> {
+              getContext().setReceiveTimeout(Duration.Undefined());
+              getContext()
+                  .getParent()
+                  .tell(
+                      SingleDateDatabaseManagerResponse.passivated(
+                          date, readyToPassivate.getLatestDatabaseEvent()),
+                      self());
+              getContext().become(passivating());
+              bufferedMessages.forEach(
+                  message -> getContext().getParent().tell(message.getLeft(), message.getRight()));
+            })
+        .match(ReceiveTimeout.class, receiveTimeout -> {})
+        .match(CloseElectionWindow.class, closeElectionWindow -> {})
+        .match(ElectionTimedOut.class, electionTimedOut -> {})
+        .matchAny(
+            message ->
+                getContext()
+                    .become(
+                        awaitingWriterPassivation(
+                            writeReadActor,
+                            readReplicaActor,
+                            UtilityFunctions.addToImmutableList(
+                                bufferedMessages, Tuple.create(message, sender())))))
+        .build();
+  }
+
+  /**
+   * The writer is stopped and the parent was told so. Messages the parent routed here before it
+   * knew are handed back to it, until it acknowledges, after which nothing else can come in.
+   */
+  private Receive passivating() {
+    return receiveBuilder()
+        .match(PassivationAcknowledged.class, acknowledged -> getContext().stop(self()))
+        .match(
+            SingleDateDatabaseCommand.class,
+            command -> getContext().getParent().forward(command, getContext()))
+        .matchAny(o -> log.info("received unknown message while passivating {}", o))
+        .build();
+  }
+
   private Receive started(
-      final ImmutableList<Request> requests,
+      final ImmutableList<Request> pendingRequests,
+      final ImmutableList<Request> electingRequests,
       final ActorRef writeReadActor,
       final ActorRef readReplicaActor) {
     return receiveBuilder()
         .match(
             SingleDateDatabaseCommand.Book.class,
             book -> {
-              // Store request before asking the read replica if date is available,
-              // this is an optimisation to reduce load on the writer database.
+              if (pendingRequests.size() + electingRequests.size() >= maxPendingBookRequests) {
+                // Shed the request instead of letting the queue grow. The date may well have units
+                // left, the requester is told to retry rather than that the date is booked.
+                sender().tell(SingleDateDatabaseResponse.overloaded(date), self());
+                return;
+              }
+
+              // Store request and gather it with the other requests of the current election
+              // window, the whole window is resolved with a single read replica availability
+              // check. This is an optimisation to reduce load on the read replica and the writer
+              // database under contention.
               final Request request = Request.create(sender(), book);
-              final ImmutableList<Request> newRequests =
-                  UtilityFunctions.addToImmutableList(requests, request);
-              readReplicaActor.tell(SingleDateDatabaseCommand.getAvailability(date), self());
-              getContext().become(started(newRequests, writeReadActor, readReplicaActor));
+              final ImmutableList<Request> newPendingRequests =
+                  UtilityFunctions.addToImmutableList(pendingRequests, request);
+
+              if (!electingRequests.isEmpty()) {
+                // An election is already in progress, the window will be closed once resolved.
+                getContext()
+                    .become(
+                        started(
+                            newPendingRequests,
+                            electingRequests,
+                            writeReadActor,
+                            readReplicaActor));
+              } else if (electionWindow.length() == 0
+                  || newPendingRequests.size() >= maxElectionBatchSize) {
+                startElection(newPendingRequests, writeReadActor, readReplicaActor);
+              } else {
+                if (pendingRequests.isEmpty()) {
+                  // First request of the window
+                  getContext()
+                      .getSystem()
+                      .scheduler()
+                      .scheduleOnce(
+                          electionWindow,
+                          self(),
+                          CloseElectionWindow.create(electionWindowId),
+                          getContext().dispatcher(),
+                          self());
+                }
+                getContext()
+                    .become(
+                        started(
+                            newPendingRequests,
+                            electingRequests,
+                            writeReadActor,
+                            readReplicaActor));
+              }
+            })
+        .match(
+            CloseElectionWindow.class,
+            closeElectionWindow -> {
+              // The window may have been closed already because it was full, the timer then
+              // belongs to a previous window and must not close the current one early.
+              if (closeElectionWindow.getWindowId() == electionWindowId
+                  && electingRequests.isEmpty()
+                  && !pendingRequests.isEmpty()) {
+                startElection(pendingRequests, writeReadActor, readReplicaActor);
+              }
+            })
+        .match(
+            SingleDateDatabaseCommand.BookAndCommit.class,
+            bookAndCommit -> {
+              // Single date bookings don't contend with other dates, there is nothing to elect.
+              // The writer rejects them itself if the date is booked.
+              writeReadActor.forward(bookAndCommit, getContext());
             })
         .match(
             SingleDateDatabaseCommand.UpdateBooking.class,
@@ -125,37 +296,64 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
         .match(
             SingleDateDatabaseResponse.IsAvailable.class,
             isAvailable -> {
-              // The readReplica replied that the date is available hence we will forward only
-              // the first booking requests to database writer for persistence.
-              requests.stream()
-                  .findFirst()
-                  .ifPresent(
-                      (request ->
-                          writeReadActor.tell(request.getBookingRequest(), request.getSender())));
-
-              // Reject the remaining requests as the first one was elected for booking.
-              requests.stream()
-                  .skip(1)
+              // The readReplica replied that the date has units left hence we will forward only
+              // as many elected booking requests to database writer for persistence.
+              final ImmutableList<Request> electedRequests =
+                  elect(electingRequests, isAvailable.getRemainingCapacity());
+              electedRequests.forEach(
+                  electedRequest ->
+                      writeReadActor.tell(
+                          electedRequest.getBookingRequest(), electedRequest.getSender()));
+
+              // Reject the remaining requests as there is no unit left for them.
+              electingRequests.stream()
+                  .filter(request -> !electedRequests.contains(request))
                   .forEach(
                       request ->
                           request
                               .getSender()
                               .tell(SingleDateDatabaseResponse.isBooked(date), self()));
 
-              // Update actor state by flushing all requests as they've been handled.
-              getContext().become(started(ImmutableList.of(), writeReadActor, readReplicaActor));
+              closeElection(pendingRequests, writeReadActor, readReplicaActor);
             })
         .match(
             SingleDateDatabaseResponse.IsBooked.class,
-            isAvailable -> {
+            isBooked -> {
 
               // Reject all requests as date is already booked.
-              requests.forEach(
+              electingRequests.forEach(
                   request ->
                       request.getSender().tell(SingleDateDatabaseResponse.isBooked(date), self()));
 
-              // Update actor state by flushing all requests as they've been handled.
-              getContext().become(started(ImmutableList.of(), writeReadActor, readReplicaActor));
+              closeElection(pendingRequests, writeReadActor, readReplicaActor);
+            })
+        .match(
+            ElectionTimedOut.class,
+            electionTimedOut -> {
+              // The read replica didn't answer (message lost), the requests are shed like when
+              // too many of them are pending instead of holding them, and the date, forever.
+              if (electionTimedOut.getElectionId() == electionWindowId
+                  && !electingRequests.isEmpty()) {
+                log.warning("Availability check of {} timed out", date);
+                electingRequests.forEach(
+                    request ->
+                        request
+                            .getSender()
+                            .tell(SingleDateDatabaseResponse.overloaded(date), self()));
+                closeElection(pendingRequests, writeReadActor, readReplicaActor);
+              }
+            })
+        .match(
+            ReceiveTimeout.class,
+            receiveTimeout -> {
+              // Idle, unless a Book election is still being resolved
+              if (pendingRequests.isEmpty() && electingRequests.isEmpty()) {
+                writeReadActor.tell(SingleDateDatabaseActor.Passivate.INSTANCE, self());
+                getContext()
+                    .become(
+                        awaitingWriterPassivation(
+                            writeReadActor, readReplicaActor, ImmutableList.of()));
+              }
             })
         .match(
             Deactivate.class,
@@ -169,19 +367,144 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
         .build();
   }
 
+  private void startElection(
+      final ImmutableList<Request> requests,
+      final ActorRef writeReadActor,
+      final ActorRef readReplicaActor) {
+    electionWindowId++;
+    readReplicaActor.tell(SingleDateDatabaseCommand.getAvailability(date), self());
+    getContext()
+        .getSystem()
+        .scheduler()
+        .scheduleOnce(
+            electionTimeout,
+            self(),
+            ElectionTimedOut.create(electionWindowId),
+            getContext().dispatcher(),
+            self());
+    getContext().become(started(ImmutableList.of(), requests, writeReadActor, readReplicaActor));
+  }
+
+  private void closeElection(
+      final ImmutableList<Request> pendingRequests,
+      final ActorRef writeReadActor,
+      final ActorRef readReplicaActor) {
+    if (pendingRequests.isEmpty()) {
+      getContext()
+          .become(
+              started(ImmutableList.of(), ImmutableList.of(), writeReadActor, readReplicaActor));
+    } else {
+      // Requests that came in during the election already waited at least one round trip to the
+      // read replica, elect among them right away.
+      startElection(pendingRequests, writeReadActor, readReplicaActor);
+    }
+  }
+
+  /**
+   * Elects the requests with the lowest booking ids, as many as there are units left. Every date
+   * manager picks the same winners among the same requests, so overlapping multi-day bookings
+   * racing in the same window don't end up each winning some of the dates and all being reverted.
+   */
+  private static ImmutableList<Request> elect(
+      final ImmutableList<Request> requests, final int remainingCapacity) {
+    return requests.stream()
+        .sorted(Comparator.comparing(request -> request.getBookingRequest().getBooking().getId()))
+        .limit(remainingCapacity)
+        .collect(ImmutableList.toImmutableList());
+  }
+
   @Override
   public Receive createReceive() {
     return inactive();
   }
 
-  enum Start implements SingleDateDatabaseManagerCommand {
+  static final class Start implements SingleDateDatabaseManagerCommand {
+    private final SingleDateDatabaseEvent latestDatabaseEvent;
+    private final WindowAvailability windowAvailability;
+
+    private Start(
+        final SingleDateDatabaseEvent latestDatabaseEvent,
+        final WindowAvailability windowAvailability) {
+      this.latestDatabaseEvent = latestDatabaseEvent;
+      this.windowAvailability = windowAvailability;
+    }
+
+    public static Start create(
+        final SingleDateDatabaseEvent latestDatabaseEvent,
+        final WindowAvailability windowAvailability) {
+      return new Start(latestDatabaseEvent, windowAvailability);
+    }
+
+    @Override
+    public String toString() {
+      return "Start{"
+          + "latestDatabaseEvent="
+          + latestDatabaseEvent
+          + ", windowAvailability="
+          + windowAvailability
+          + '}';
+    }
+
+    public SingleDateDatabaseEvent getLatestDatabaseEvent() {
+      return latestDatabaseEvent;
+    }
+
+    public WindowAvailability getWindowAvailability() {
+      return windowAvailability;
+    }
+  }
+
+  enum PassivationAcknowledged implements SingleDateDatabaseManagerCommand {
     INSTANCE;
 
-    Start() {}
+    PassivationAcknowledged() {}
+
+    @Override
+    public String toString() {
+      return "PassivationAcknowledged{}";
+    }
+  }
+
+  static final class CloseElectionWindow {
+    private final long windowId;
+
+    private CloseElectionWindow(final long windowId) {
+      this.windowId = windowId;
+    }
+
+    public static CloseElectionWindow create(final long windowId) {
+      return new CloseElectionWindow(windowId);
+    }
+
+    public long getWindowId() {
+      return windowId;
+    }
 
     @Override
     public String toString() {
-      return "Start{}";
+      return "CloseElectionWindow{" + "windowId=" + windowId + '}';
+    }
+  }
+
+  /** Sent when an election started, if it is still unresolved by then the read replica is late. */
+  static final class ElectionTimedOut {
+    private final long electionId;
+
+    private ElectionTimedOut(final long electionId) {
+      this.electionId = electionId;
+    }
+
+    public static ElectionTimedOut create(final long electionId) {
+      return new ElectionTimedOut(electionId);
+    }
+
+    public long getElectionId() {
+      return electionId;
+    }
+
+    @Override
+    public String toString() {
+      return "ElectionTimedOut{" + "electionId=" + electionId + '}';
     }
   }
 
@@ -198,8 +521,14 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
 
   public interface SingleDateDatabaseManagerCommand {
 
-    static Start start() {
-      return Start.INSTANCE;
+    static Start start(
+        final SingleDateDatabaseEvent latestDatabaseEvent,
+        final WindowAvailability windowAvailability) {
+      return Start.create(latestDatabaseEvent, windowAvailability);
+    }
+
+    static PassivationAcknowledged passivationAcknowledged() {
+      return PassivationAcknowledged.INSTANCE;
     }
 
     static Deactivate deactivate() {
@@ -207,6 +536,46 @@ public final class SingleDateDatabaseManagerActor extends LoggingReceiveActor {
     }
   }
 
+  public interface SingleDateDatabaseManagerResponse {
+
+    static Passivated passivated(
+        final LocalDate date, final SingleDateDatabaseEvent latestDatabaseEvent) {
+      return Passivated.create(date, latestDatabaseEvent);
+    }
+  }
+
+  /**
+   * Sent to the parent once the writer is stopped, the latest event becomes the summary the parent
+   * answers from until the date is activated again.
+   */
+  static final class Passivated implements SingleDateDatabaseManagerResponse {
+    private final LocalDate date;
+    private final SingleDateDatabaseEvent latestDatabaseEvent;
+
+    private Passivated(final LocalDate date, final SingleDateDatabaseEvent latestDatabaseEvent) {
+      this.date = date;
+      this.latestDatabaseEvent = latestDatabaseEvent;
+    }
+
+    public static Passivated create(
+        final LocalDate date, final SingleDateDatabaseEvent latestDatabaseEvent) {
+      return new Passivated(date, latestDatabaseEvent);
+    }
+
+    @Override
+    public String toString() {
+      return "Passivated{" + "date=" + date + ", latestDatabaseEvent=" + latestDatabaseEvent + '}';
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    public SingleDateDatabaseEvent getLatestDatabaseEvent() {
+      return latestDatabaseEvent;
+    }
+  }
+
   static final class Request {
     private final String id;
     private final ActorRef sender;
@@ -10,48 +10,46 @@ import java.time.LocalDate;
 public final class SingleDateDatabaseReadReplicaActor extends LoggingReceiveActor {
 
   private final LocalDate date;
+  private final int initialRemainingCapacity;
 
-  private SingleDateDatabaseReadReplicaActor(final LocalDate date) {
+  private SingleDateDatabaseReadReplicaActor(
+      final LocalDate date, final int initialRemainingCapacity) {
     this.date = date;
+    this.initialRemainingCapacity = initialRemainingCapacity;
   }
 
-  private static SingleDateDatabaseReadReplicaActor create(final LocalDate date) {
-    return new SingleDateDatabaseReadReplicaActor(date);
+  private static SingleDateDatabaseReadReplicaActor create(
+      final LocalDate date, final int initialRemainingCapacity) {
+    return new SingleDateDatabaseReadReplicaActor(date, initialRemainingCapacity);
   }
 
-  public static Props props(final LocalDate date) {
+  /**
+   * @param initialRemainingCapacity remaining capacity of the latest event the writer database
+   *     starts from, the writer informs of every change after that.
+   */
+  public static Props props(final LocalDate date, final int initialRemainingCapacity) {
     return Props.create(
         SingleDateDatabaseReadReplicaActor.class,
-        () -> SingleDateDatabaseReadReplicaActor.create(date));
+        () -> SingleDateDatabaseReadReplicaActor.create(date, initialRemainingCapacity));
   }
 
-  private Receive booked() {
+  private Receive withRemainingCapacity(final int remainingCapacity) {
     return receiveBuilder()
         .match(
-            SingleDateDatabaseCommand.CancelBooking.class,
-            cancelBooking -> {
-              getContext().become(available());
-            })
-        .match(
-            SingleDateDatabaseCommand.GetAvailability.class,
-            msg -> {
-              sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
-            })
-        .matchAny(o -> log.info("received unknown message {}", o))
-        .build();
-  }
-
-  private Receive available() {
-    return receiveBuilder()
-        .match(
-            SingleDateDatabaseCommand.Book.class,
-            book -> {
-              getContext().become(booked());
-            })
+            RemainingCapacityChanged.class,
+            remainingCapacityChanged ->
+                getContext()
+                    .become(
+                        withRemainingCapacity(remainingCapacityChanged.getRemainingCapacity())))
         .match(
             SingleDateDatabaseCommand.GetAvailability.class,
             msg -> {
-              sender().tell(SingleDateDatabaseResponse.isAvailable(date), self());
+              if (remainingCapacity > 0) {
+                sender()
+                    .tell(SingleDateDatabaseResponse.isAvailable(date, remainingCapacity), self());
+              } else {
+                sender().tell(SingleDateDatabaseResponse.isBooked(date), self());
+              }
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
@@ -59,7 +57,28 @@ public final class SingleDateDatabaseReadReplicaActor extends LoggingReceiveActo
 
   @Override
   public Receive createReceive() {
-    // Defaults to available as the writer database will inform it eventually of initial state
-    return available();
+    return withRemainingCapacity(initialRemainingCapacity);
+  }
+
+  /** Sent by the writer database each time a unit is claimed or released. */
+  static final class RemainingCapacityChanged {
+    private final int remainingCapacity;
+
+    private RemainingCapacityChanged(final int remainingCapacity) {
+      this.remainingCapacity = remainingCapacity;
+    }
+
+    public static RemainingCapacityChanged create(final int remainingCapacity) {
+      return new RemainingCapacityChanged(remainingCapacity);
+    }
+
+    @Override
+    public String toString() {
+      return "RemainingCapacityChanged{" + "remainingCapacity=" + remainingCapacity + '}';
+    }
+
+    public int getRemainingCapacity() {
+      return remainingCapacity;
+    }
   }
 }
@@ -0,0 +1,43 @@
+package com.rimanware.volcanoisland.database;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest availability snapshot of the reservation window of a database. Date writers publish the
+ * remaining capacity of their date as it changes, copying the snapshot on write, so a reader gets
+ * a consistent view of the whole window with a single volatile read instead of asking every date.
+ */
+public final class WindowAvailability {
+  private final AtomicReference<AvailabilitySnapshot> latest;
+
+  private WindowAvailability(final AvailabilitySnapshot initialSnapshot) {
+    this.latest = new AtomicReference<>(initialSnapshot);
+  }
+
+  /** Empty until the database is recovered. */
+  public static WindowAvailability create() {
+    return new WindowAvailability(AvailabilitySnapshot.EMPTY);
+  }
+
+  public AvailabilitySnapshot read() {
+    return latest.get();
+  }
+
+  /** Replaces the whole window, once recovered. */
+  void publish(final ImmutableMap<LocalDate, Integer> remainingCapacityByDate) {
+    latest.updateAndGet(snapshot -> snapshot.replace(remainingCapacityByDate));
+  }
+
+  /** Writers of different dates may publish concurrently, retried until applied to the latest. */
+  void publish(final LocalDate date, final int remainingCapacity) {
+    latest.updateAndGet(snapshot -> snapshot.update(date, remainingCapacity));
+  }
+
+  @Override
+  public String toString() {
+    return "WindowAvailability{" + "version=" + read().getVersion() + '}';
+  }
+}
@@ -0,0 +1,13 @@
+package com.rimanware.volcanoisland.database.api;
+
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.time.LocalDate;
+
+/** Append-only log of date database events, one stream per date. */
+public interface BookingJournal {
+  void append(LocalDate date, SingleDateDatabaseEvent event);
+
+  /** @return latest event appended for the given date, NoBooking if there is none. */
+  SingleDateDatabaseEvent readLatest(LocalDate date);
+}
@@ -0,0 +1,30 @@
+package com.rimanware.volcanoisland.database.api;
+
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Storage backend of one database, one append-only stream of events per date. Implementations
+ * must allow reading the latest event of a date while another date is being written. Closed by
+ * its database once every date is stopped.
+ */
+public interface DateStorage extends Closeable {
+  /**
+   * @return latest event appended for the given date, NoBooking if there is none. May block on IO.
+   */
+  SingleDateDatabaseEvent readLatest(LocalDate date) throws IOException;
+
+  /** Opens the events of the date for its single writer, creating them if needed. */
+  DateStore open(LocalDate date) throws IOException;
+
+  /**
+   * @return whether its stores append asynchronously, their writers then don't need a thread of
+   *     the IO dispatcher.
+   */
+  default boolean writesWithoutBlocking() {
+    return false;
+  }
+}
@@ -0,0 +1,58 @@
+package com.rimanware.volcanoisland.database.api;
+
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/** Events of one date, opened by its writer. Not thread safe, a date has a single writer. */
+public interface DateStore extends Closeable {
+  void append(SingleDateDatabaseEvent event) throws IOException;
+
+  /** Appends the events one after the other, flushed once. */
+  default void appendAll(final ImmutableList<SingleDateDatabaseEvent> events) throws IOException {
+    for (final SingleDateDatabaseEvent event : events) {
+      append(event);
+    }
+  }
+
+  /**
+   * Appends the events without blocking the caller if the storage writes without blocking, see
+   * {@link DateStorage#writesWithoutBlocking()}. onWritten is called with the failure, if any, once
+   * the events are written (and synced if asked). Callbacks are called in append order, possibly
+   * from another thread.
+   */
+  default void appendAllAsync(
+      final ImmutableList<SingleDateDatabaseEvent> events,
+      final boolean sync,
+      final Consumer<Optional<IOException>> onWritten) {
+    try {
+      appendAll(events);
+      if (sync) {
+        sync();
+      }
+    } catch (final IOException e) {
+      onWritten.accept(Optional.of(e));
+      return;
+    }
+    onWritten.accept(Optional.empty());
+  }
+
+  /** @return every event still stored for the date, oldest first. */
+  ImmutableList<SingleDateDatabaseEvent> history() throws IOException;
+
+  /** Replaces the history of the date by its latest event. */
+  void snapshot(SingleDateDatabaseEvent latestEvent) throws IOException;
+
+  /** Forces the appended events to durable storage. */
+  void sync() throws IOException;
+
+  /**
+   * @return file holding the events, for backends keeping every date in a file of the database
+   *     folder. Only those events are published for replication.
+   */
+  Optional<String> getFilePath();
+}
@@ -1,8 +1,11 @@
 package com.rimanware.volcanoisland.database.api;
 
+import com.google.common.collect.ImmutableSet;
+
+import java.io.Serializable;
 import java.time.LocalDate;
 
-public interface RollingMonthDatabaseCommand {
+public interface RollingMonthDatabaseCommand extends Serializable {
 
   static RollingMonthDatabaseCommand start(final LocalDate date) {
     return Start.create(date);
@@ -12,18 +15,37 @@ public interface RollingMonthDatabaseCommand {
     return Deactivate.INSTANCE;
   }
 
-  static RollingMonthDatabaseCommand getQueryableDates() {
-    return GetQueryableDates.INSTANCE;
+  static RollingMonthDatabaseCommand getStatus() {
+    return GetStatus.INSTANCE;
+  }
+
+  static RollingMonthDatabaseCommand getAvailabilities(final ImmutableSet<LocalDate> dates) {
+    return GetAvailabilities.create(dates);
+  }
+
+  static RollingMonthDatabaseCommand getAllAvailabilities() {
+    return GetAllAvailabilities.INSTANCE;
+  }
+
+  enum GetAllAvailabilities implements RollingMonthDatabaseCommand {
+    INSTANCE;
+
+    GetAllAvailabilities() {}
+
+    @Override
+    public String toString() {
+      return "GetAllAvailabilities{}";
+    }
   }
 
-  enum GetQueryableDates implements RollingMonthDatabaseCommand {
+  enum GetStatus implements RollingMonthDatabaseCommand {
     INSTANCE;
 
-    GetQueryableDates() {}
+    GetStatus() {}
 
     @Override
     public String toString() {
-      return "GetQueryableDates{}";
+      return "GetStatus{}";
     }
   }
 
@@ -39,6 +61,7 @@ public interface RollingMonthDatabaseCommand {
   }
 
   final class Start implements RollingMonthDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private Start(final LocalDate date) {
@@ -58,4 +81,26 @@ public interface RollingMonthDatabaseCommand {
       return date;
     }
   }
+
+  final class GetAvailabilities implements RollingMonthDatabaseCommand {
+    private static final long serialVersionUID = 1L;
+    private final ImmutableSet<LocalDate> dates;
+
+    private GetAvailabilities(final ImmutableSet<LocalDate> dates) {
+      this.dates = dates;
+    }
+
+    public static GetAvailabilities create(final ImmutableSet<LocalDate> dates) {
+      return new GetAvailabilities(dates);
+    }
+
+    @Override
+    public String toString() {
+      return "GetAvailabilities{" + "dates=" + dates + '}';
+    }
+
+    public ImmutableSet<LocalDate> getDates() {
+      return dates;
+    }
+  }
 }
@@ -1,12 +1,14 @@
 package com.rimanware.volcanoisland.database.api;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.common.DateValidator;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
-public interface RollingMonthDatabaseResponse {
+public interface RollingMonthDatabaseResponse extends Serializable {
   static RequestedDateOutOfRange outOfRange(
       final LocalDate requestedDate, final DateValidator.Invalid.Reason reason) {
     return RequestedDateOutOfRange.create(requestedDate, reason);
@@ -17,11 +19,21 @@ public interface RollingMonthDatabaseResponse {
     return RequestedDatesOutOfRange.create(requestedDatesOutOfRange);
   }
 
-  static QueryableDates queryableDates(final ImmutableSet<LocalDate> queryableDates) {
-    return QueryableDates.create(queryableDates);
+  static Status status(final int recoveredDates, final int totalDates, final boolean ready) {
+    return Status.create(recoveredDates, totalDates, ready);
+  }
+
+  static BroadcastRecipients broadcastRecipients(final ImmutableSet<LocalDate> recipientDates) {
+    return BroadcastRecipients.create(recipientDates);
+  }
+
+  static SummarizedAvailabilities summarizedAvailabilities(
+      final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableDates) {
+    return SummarizedAvailabilities.create(remainingCapacityOfAvailableDates);
   }
 
   final class RequestedDateOutOfRange implements RollingMonthDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate requestedDate;
     private final DateValidator.Invalid.Reason reason;
 
@@ -56,6 +68,7 @@ public interface RollingMonthDatabaseResponse {
   }
 
   final class RequestedDatesOutOfRange implements RollingMonthDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final ImmutableList<RequestedDateOutOfRange> requestedDatesOutOfRange;
 
     private RequestedDatesOutOfRange(
@@ -81,24 +94,100 @@ public interface RollingMonthDatabaseResponse {
     }
   }
 
-  final class QueryableDates implements RollingMonthDatabaseResponse {
-    private final ImmutableSet<LocalDate> queryableDates;
+  final class Status implements RollingMonthDatabaseResponse {
+    private static final long serialVersionUID = 1L;
+    private final int recoveredDates;
+    private final int totalDates;
+    private final boolean ready;
+
+    private Status(final int recoveredDates, final int totalDates, final boolean ready) {
+      this.recoveredDates = recoveredDates;
+      this.totalDates = totalDates;
+      this.ready = ready;
+    }
+
+    public static Status create(
+        final int recoveredDates, final int totalDates, final boolean ready) {
+      return new Status(recoveredDates, totalDates, ready);
+    }
+
+    public int getRecoveredDates() {
+      return recoveredDates;
+    }
+
+    public int getTotalDates() {
+      return totalDates;
+    }
+
+    /** @return true once every date database is recovered and requests are served. */
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public String toString() {
+      return "Status{"
+          + "recoveredDates="
+          + recoveredDates
+          + ", totalDates="
+          + totalDates
+          + ", ready="
+          + ready
+          + '}';
+    }
+  }
+
+  /**
+   * Dates that will answer a broadcast (cancel or update) individually. Dates that can't be
+   * affected by the broadcast don't answer at all, so the sender only waits for these.
+   */
+  final class BroadcastRecipients implements RollingMonthDatabaseResponse {
+    private static final long serialVersionUID = 1L;
+    private final ImmutableSet<LocalDate> recipientDates;
 
-    private QueryableDates(final ImmutableSet<LocalDate> queryableDates) {
-      this.queryableDates = queryableDates;
+    private BroadcastRecipients(final ImmutableSet<LocalDate> recipientDates) {
+      this.recipientDates = recipientDates;
     }
 
-    public static QueryableDates create(final ImmutableSet<LocalDate> queryableDates) {
-      return new QueryableDates(queryableDates);
+    public static BroadcastRecipients create(final ImmutableSet<LocalDate> recipientDates) {
+      return new BroadcastRecipients(recipientDates);
+    }
+
+    public ImmutableSet<LocalDate> getRecipientDates() {
+      return recipientDates;
     }
 
     @Override
     public String toString() {
-      return "QueryableDates{" + "queryableDates=" + queryableDates + '}';
+      return "BroadcastRecipients{" + "recipientDates=" + recipientDates + '}';
     }
+  }
 
-    public ImmutableSet<LocalDate> getQueryableDates() {
-      return queryableDates;
+  /** Availabilities of the requested dates answered in bulk from a snapshot of the window. */
+  final class SummarizedAvailabilities implements RollingMonthDatabaseResponse {
+    private static final long serialVersionUID = 1L;
+    private final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableDates;
+
+    private SummarizedAvailabilities(
+        final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableDates) {
+      this.remainingCapacityOfAvailableDates = remainingCapacityOfAvailableDates;
+    }
+
+    public static SummarizedAvailabilities create(
+        final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableDates) {
+      return new SummarizedAvailabilities(remainingCapacityOfAvailableDates);
+    }
+
+    public ImmutableMap<LocalDate, Integer> getRemainingCapacityOfAvailableDates() {
+      return remainingCapacityOfAvailableDates;
+    }
+
+    @Override
+    public String toString() {
+      return "SummarizedAvailabilities{"
+          + "remainingCapacityOfAvailableDates="
+          + remainingCapacityOfAvailableDates
+          + '}';
     }
   }
 }
@@ -2,9 +2,10 @@ package com.rimanware.volcanoisland.database.api;
 
 import com.rimanware.volcanoisland.database.models.Booking;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
-public interface SingleDateDatabaseCommand {
+public interface SingleDateDatabaseCommand extends Serializable {
   static CancelBooking cancel(final String bookingId) {
     return CancelBooking.create(bookingId);
   }
@@ -13,16 +14,20 @@ public interface SingleDateDatabaseCommand {
     return Book.create(booking, date);
   }
 
+  static BookAndCommit bookAndCommit(final Booking booking, final LocalDate date) {
+    return BookAndCommit.create(booking, date);
+  }
+
   static UpdateBooking update(final Booking booking) {
     return UpdateBooking.create(booking);
   }
 
-  static Commit commit(final LocalDate date) {
-    return Commit.create(date);
+  static Commit commit(final LocalDate date, final String bookingId) {
+    return Commit.create(date, bookingId);
   }
 
-  static Revert revert(final LocalDate date) {
-    return Revert.create(date);
+  static Revert revert(final LocalDate date, final String bookingId) {
+    return Revert.create(date, bookingId);
   }
 
   static RequestHistory history() {
@@ -45,6 +50,7 @@ public interface SingleDateDatabaseCommand {
   }
 
   final class Book implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final Booking booking;
     private final LocalDate date;
 
@@ -71,7 +77,40 @@ public interface SingleDateDatabaseCommand {
     }
   }
 
+  /**
+   * Book for a single date booking: with one date there is no transaction to coordinate, the
+   * booking is written right away and confirmed with a BookingConfirmation once written.
+   */
+  final class BookAndCommit implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
+    private final Booking booking;
+    private final LocalDate date;
+
+    private BookAndCommit(final Booking booking, final LocalDate date) {
+      this.booking = booking;
+      this.date = date;
+    }
+
+    public static BookAndCommit create(final Booking booking, final LocalDate date) {
+      return new BookAndCommit(booking, date);
+    }
+
+    @Override
+    public String toString() {
+      return "BookAndCommit{" + "booking=" + booking + ", date=" + date + '}';
+    }
+
+    public Booking getBooking() {
+      return booking;
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+  }
+
   final class UpdateBooking implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final Booking booking;
 
     private UpdateBooking(final Booking booking) {
@@ -93,6 +132,7 @@ public interface SingleDateDatabaseCommand {
   }
 
   final class CancelBooking implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     public final String bookingId;
 
     private CancelBooking(final String bookingId) {
@@ -109,49 +149,66 @@ public interface SingleDateDatabaseCommand {
     }
   }
 
+  /** Identified by booking id as several bookings can hold a transaction on the same date. */
   final class Commit implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
+    private final String bookingId;
 
-    private Commit(final LocalDate date) {
+    private Commit(final LocalDate date, final String bookingId) {
       this.date = date;
+      this.bookingId = bookingId;
     }
 
-    public static Commit create(final LocalDate date) {
-      return new Commit(date);
+    public static Commit create(final LocalDate date, final String bookingId) {
+      return new Commit(date, bookingId);
     }
 
     @Override
     public String toString() {
-      return "Commit{" + "date=" + date + '}';
+      return "Commit{" + "date=" + date + ", bookingId='" + bookingId + '\'' + '}';
     }
 
     public LocalDate getDate() {
       return date;
     }
+
+    public String getBookingId() {
+      return bookingId;
+    }
   }
 
+  /** Identified by booking id as several bookings can hold a transaction on the same date. */
   final class Revert implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
+    private final String bookingId;
 
-    private Revert(final LocalDate date) {
+    private Revert(final LocalDate date, final String bookingId) {
       this.date = date;
+      this.bookingId = bookingId;
     }
 
-    public static Revert create(final LocalDate date) {
-      return new Revert(date);
+    public static Revert create(final LocalDate date, final String bookingId) {
+      return new Revert(date, bookingId);
     }
 
     @Override
     public String toString() {
-      return "Revert{" + "date=" + date + '}';
+      return "Revert{" + "date=" + date + ", bookingId='" + bookingId + '\'' + '}';
     }
 
     public LocalDate getDate() {
       return date;
     }
+
+    public String getBookingId() {
+      return bookingId;
+    }
   }
 
   final class GetAvailability implements SingleDateDatabaseCommand {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private GetAvailability(final LocalDate date) {
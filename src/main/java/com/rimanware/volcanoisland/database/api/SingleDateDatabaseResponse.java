@@ -1,24 +1,26 @@
 package com.rimanware.volcanoisland.database.api;
 
+import akka.actor.ActorRef;
 import com.google.common.collect.ImmutableList;
 import com.rimanware.volcanoisland.database.models.Booking;
 import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
-public interface SingleDateDatabaseResponse {
+public interface SingleDateDatabaseResponse extends Serializable {
   static History history(final ImmutableList<SingleDateDatabaseEvent> singleDateDatabaseEvents) {
     return History.create(singleDateDatabaseEvents);
   }
 
   static ProbatoryBookingConfirmation probatoryBookingConfirmation(
-      final BookingConfirmation bookingConfirmation) {
-    return ProbatoryBookingConfirmation.create(bookingConfirmation);
+      final BookingConfirmation bookingConfirmation, final ActorRef writer) {
+    return ProbatoryBookingConfirmation.create(bookingConfirmation, writer);
   }
 
   static ProbatoryUpdateConfirmation probatoryUpdateConfirmation(
-      final Boolean overridesPreviousUpdate, final LocalDate date) {
-    return ProbatoryUpdateConfirmation.create(overridesPreviousUpdate, date);
+      final Boolean overridesPreviousUpdate, final LocalDate date, final ActorRef writer) {
+    return ProbatoryUpdateConfirmation.create(overridesPreviousUpdate, date, writer);
   }
 
   static BookingConfirmation bookingConfirmation(final Booking booking, final LocalDate date) {
@@ -44,23 +46,32 @@ public interface SingleDateDatabaseResponse {
     return CancellationConfirmation.create(booking, date);
   }
 
-  static IsAvailable isAvailable(final LocalDate date) {
-    return IsAvailable.create(date);
+  static IsAvailable isAvailable(final LocalDate date, final int remainingCapacity) {
+    return IsAvailable.create(date, remainingCapacity);
   }
 
   static IsBooked isBooked(final LocalDate date) {
     return IsBooked.create(date);
   }
 
+  static Overloaded overloaded(final LocalDate date) {
+    return Overloaded.create(date);
+  }
+
   static CommitConfirmation commitConfirmation(final LocalDate date) {
     return CommitConfirmation.create(date);
   }
 
+  static TransactionExpired transactionExpired(final LocalDate date) {
+    return TransactionExpired.create(date);
+  }
+
   static RevertConfirmation revertConfirmation(final LocalDate date) {
     return RevertConfirmation.create(date);
   }
 
   final class History implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final ImmutableList<SingleDateDatabaseEvent> events;
 
     private History(final ImmutableList<SingleDateDatabaseEvent> events) {
@@ -82,6 +93,7 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class BookingConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final Booking booking;
     private final LocalDate date;
 
@@ -109,6 +121,7 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class DateAvailableConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     public DateAvailableConfirmation(final LocalDate date) {
@@ -129,41 +142,62 @@ public interface SingleDateDatabaseResponse {
     }
   }
 
+  /**
+   * The date is held for the booking until the transaction is committed or reverted, which can be
+   * sent to the writer holding it directly.
+   */
   final class ProbatoryBookingConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final BookingConfirmation bookingConfirmation;
+    private final ActorRef writer;
 
-    private ProbatoryBookingConfirmation(final BookingConfirmation bookingConfirmation) {
+    private ProbatoryBookingConfirmation(
+        final BookingConfirmation bookingConfirmation, final ActorRef writer) {
       this.bookingConfirmation = bookingConfirmation;
+      this.writer = writer;
     }
 
     public static ProbatoryBookingConfirmation create(
-        final BookingConfirmation bookingConfirmation) {
-      return new ProbatoryBookingConfirmation(bookingConfirmation);
+        final BookingConfirmation bookingConfirmation, final ActorRef writer) {
+      return new ProbatoryBookingConfirmation(bookingConfirmation, writer);
     }
 
     @Override
     public String toString() {
-      return "ProbatoryBookingConfirmation{" + "bookingConfirmation=" + bookingConfirmation + '}';
+      return "ProbatoryBookingConfirmation{"
+          + "bookingConfirmation="
+          + bookingConfirmation
+          + ", writer="
+          + writer
+          + '}';
     }
 
     public BookingConfirmation getBookingConfirmation() {
       return bookingConfirmation;
     }
+
+    public ActorRef getWriter() {
+      return writer;
+    }
   }
 
+  /** Same as {@link ProbatoryBookingConfirmation} for a booking update. */
   final class ProbatoryUpdateConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final Boolean overridesPreviousUpdate;
     private final LocalDate date;
+    private final ActorRef writer;
 
     private ProbatoryUpdateConfirmation(
-        final Boolean overridesPreviousUpdate, final LocalDate date) {
+        final Boolean overridesPreviousUpdate, final LocalDate date, final ActorRef writer) {
       this.overridesPreviousUpdate = overridesPreviousUpdate;
       this.date = date;
+      this.writer = writer;
     }
 
     public static ProbatoryUpdateConfirmation create(
-        final Boolean overridesPreviousUpdate, final LocalDate date) {
-      return new ProbatoryUpdateConfirmation(overridesPreviousUpdate, date);
+        final Boolean overridesPreviousUpdate, final LocalDate date, final ActorRef writer) {
+      return new ProbatoryUpdateConfirmation(overridesPreviousUpdate, date, writer);
     }
 
     @Override
@@ -173,6 +207,8 @@ public interface SingleDateDatabaseResponse {
           + overridesPreviousUpdate
           + ", date="
           + date
+          + ", writer="
+          + writer
           + '}';
     }
 
@@ -183,9 +219,14 @@ public interface SingleDateDatabaseResponse {
     public LocalDate getDate() {
       return date;
     }
+
+    public ActorRef getWriter() {
+      return writer;
+    }
   }
 
   final class DoesntQualifyForUpdateConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private DoesntQualifyForUpdateConfirmation(final LocalDate date) {
@@ -207,6 +248,7 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class DoesntQualifyForCancellationConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private DoesntQualifyForCancellationConfirmation(final LocalDate date) {
@@ -228,6 +270,7 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class CancellationConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final Booking booking;
     private final LocalDate date;
 
@@ -255,27 +298,35 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class IsAvailable implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
+    private final int remainingCapacity;
 
-    private IsAvailable(final LocalDate date) {
+    private IsAvailable(final LocalDate date, final int remainingCapacity) {
       this.date = date;
+      this.remainingCapacity = remainingCapacity;
     }
 
-    public static IsAvailable create(final LocalDate date) {
-      return new IsAvailable(date);
+    public static IsAvailable create(final LocalDate date, final int remainingCapacity) {
+      return new IsAvailable(date, remainingCapacity);
     }
 
     @Override
     public String toString() {
-      return "IsAvailable{" + "date=" + date + '}';
+      return "IsAvailable{" + "date=" + date + ", remainingCapacity=" + remainingCapacity + '}';
     }
 
     public LocalDate getDate() {
       return date;
     }
+
+    public int getRemainingCapacity() {
+      return remainingCapacity;
+    }
   }
 
   final class IsBooked implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private IsBooked(final LocalDate date) {
@@ -296,7 +347,60 @@ public interface SingleDateDatabaseResponse {
     }
   }
 
+  /**
+   * The date has too many requests waiting to take another one, or couldn't check its availability
+   * in time: the request was shed without checking whether the date is booked.
+   */
+  final class Overloaded implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
+    private final LocalDate date;
+
+    private Overloaded(final LocalDate date) {
+      this.date = date;
+    }
+
+    public static Overloaded create(final LocalDate date) {
+      return new Overloaded(date);
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    @Override
+    public String toString() {
+      return "Overloaded{" + "date=" + date + '}';
+    }
+  }
+
+  /**
+   * Reply to a Commit whose transaction is no longer open for its sender: it was reverted because
+   * it timed out. Nothing was written for the sender on this date.
+   */
+  final class TransactionExpired implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
+    private final LocalDate date;
+
+    private TransactionExpired(final LocalDate date) {
+      this.date = date;
+    }
+
+    public static TransactionExpired create(final LocalDate date) {
+      return new TransactionExpired(date);
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    @Override
+    public String toString() {
+      return "TransactionExpired{" + "date=" + date + '}';
+    }
+  }
+
   final class RevertConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private RevertConfirmation(final LocalDate date) {
@@ -318,6 +422,7 @@ public interface SingleDateDatabaseResponse {
   }
 
   final class CommitConfirmation implements SingleDateDatabaseResponse {
+    private static final long serialVersionUID = 1L;
     private final LocalDate date;
 
     private CommitConfirmation(final LocalDate date) {
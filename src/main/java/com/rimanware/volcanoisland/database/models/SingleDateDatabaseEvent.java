@@ -1,5 +1,7 @@
 package com.rimanware.volcanoisland.database.models;
 
+import com.google.common.collect.ImmutableSortedMap;
+
 import java.io.Serializable;
 
 public interface SingleDateDatabaseEvent extends Serializable {
@@ -11,17 +13,39 @@ public interface SingleDateDatabaseEvent extends Serializable {
     return NoBooking.INSTANCE;
   }
 
+  static Allocated allocated(final ImmutableSortedMap<Integer, Booking> bookingsByUnit) {
+    return Allocated.create(bookingsByUnit);
+  }
+
+  /** @return bookings holding a unit of the date, keyed by unit. */
+  ImmutableSortedMap<Integer, Booking> getBookingsByUnit();
+
+  default int remainingCapacity(final int capacity) {
+    return Math.max(0, capacity - getBookingsByUnit().size());
+  }
+
+  default boolean isBookedBy(final String bookingId) {
+    return getBookingsByUnit().values().stream()
+        .anyMatch(booking -> booking.getId().equals(bookingId));
+  }
+
   enum NoBooking implements SingleDateDatabaseEvent {
     INSTANCE;
 
     NoBooking() {}
 
+    @Override
+    public ImmutableSortedMap<Integer, Booking> getBookingsByUnit() {
+      return ImmutableSortedMap.of();
+    }
+
     @Override
     public String toString() {
       return "NoBooking{}";
     }
   }
 
+  /** Single unit event, written before dates had a capacity. Read as a booking of unit 0. */
   final class Booked implements SingleDateDatabaseEvent {
     private final Booking booking;
 
@@ -37,9 +61,39 @@ public interface SingleDateDatabaseEvent extends Serializable {
       return booking;
     }
 
+    @Override
+    public ImmutableSortedMap<Integer, Booking> getBookingsByUnit() {
+      return ImmutableSortedMap.of(0, booking);
+    }
+
     @Override
     public String toString() {
       return "Booked{" + "booking=" + booking + '}';
     }
   }
+
+  /** Snapshot of every committed unit assignment of the date. */
+  final class Allocated implements SingleDateDatabaseEvent {
+    // Pinned to the computed id of the events already written
+    private static final long serialVersionUID = -1072095254169122195L;
+    private final ImmutableSortedMap<Integer, Booking> bookingsByUnit;
+
+    private Allocated(final ImmutableSortedMap<Integer, Booking> bookingsByUnit) {
+      this.bookingsByUnit = bookingsByUnit;
+    }
+
+    public static Allocated create(final ImmutableSortedMap<Integer, Booking> bookingsByUnit) {
+      return new Allocated(bookingsByUnit);
+    }
+
+    @Override
+    public ImmutableSortedMap<Integer, Booking> getBookingsByUnit() {
+      return bookingsByUnit;
+    }
+
+    @Override
+    public String toString() {
+      return "Allocated{" + "bookingsByUnit=" + bookingsByUnit + '}';
+    }
+  }
 }
@@ -12,9 +12,14 @@ public enum APIErrorImpl implements APIError {
   MaximumReservableDaysPerBookingError(
       "MAXIMUM_RESERVABLE_DAYS_PER_BOOKING", StatusCodes.BAD_REQUEST),
   BookingIdNotFoundError("BOOKING_ID_NOT_FOUND", StatusCodes.NOT_FOUND),
+  PropertyNotFoundError("PROPERTY_NOT_FOUND", StatusCodes.NOT_FOUND),
   DepartureDateIsBeforeArrivalDateError(
       "DEPARTURE_DATE_IS_BEFORE_ARRIVAL_DATE", StatusCodes.BAD_REQUEST),
-  EndDateIsBeforeStartDateError("END_DATE_IS_BEFORE_START_DATE", StatusCodes.BAD_REQUEST);
+  EndDateIsBeforeStartDateError("END_DATE_IS_BEFORE_START_DATE", StatusCodes.BAD_REQUEST),
+  MalformedBookingError("MALFORMED_BOOKING", StatusCodes.BAD_REQUEST),
+  ServiceUnavailableError("SERVICE_UNAVAILABLE", StatusCodes.SERVICE_UNAVAILABLE),
+  TransactionExpiredError("TRANSACTION_EXPIRED", StatusCodes.SERVICE_UNAVAILABLE),
+  ReadOnlyFollowerError("READ_ONLY_FOLLOWER", StatusCodes.MISDIRECTED_REQUEST);
 
   private final String key;
   private final StatusCode httpStatusCode;
@@ -16,6 +16,9 @@ public enum APIErrorMessagesImpl implements APIErrorMessages {
               put(
                   APIErrorImpl.BookingIdNotFoundError.getKey(),
                   "No booking with the given ID was found.");
+              put(
+                  APIErrorImpl.PropertyNotFoundError.getKey(),
+                  "No property with the given ID can be hosted, the property limit is reached.");
               put(
                   APIErrorImpl.MaximumAheadOfArrivalError.getKey(),
                   "The campsite can be reserved up to 1 month in advance.");
@@ -31,6 +34,18 @@ public enum APIErrorMessagesImpl implements APIErrorMessages {
               put(
                   APIErrorImpl.EndDateIsBeforeStartDateError.getKey(),
                   "The end date can't be before start date.");
+              put(
+                  APIErrorImpl.MalformedBookingError.getKey(),
+                  "A booking needs an email, a fullName, an arrivalDate and a departureDate.");
+              put(
+                  APIErrorImpl.ServiceUnavailableError.getKey(),
+                  "The service is under heavy load. Please try again later.");
+              put(
+                  APIErrorImpl.TransactionExpiredError.getKey(),
+                  "The booking could not be saved in time. Please try again.");
+              put(
+                  APIErrorImpl.ReadOnlyFollowerError.getKey(),
+                  "This instance only serves availabilities, bookings are taken by the primary.");
             }
           }));
 
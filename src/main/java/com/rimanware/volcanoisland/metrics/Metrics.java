@@ -0,0 +1,26 @@
+package com.rimanware.volcanoisland.metrics;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Akka extension giving every actor of a system access to the same {@link MetricsRegistry}:
+ * {@code Metrics.METRICS.get(getContext().getSystem())}.
+ */
+public final class Metrics extends AbstractExtensionId<MetricsRegistry>
+    implements ExtensionIdProvider {
+  public static final Metrics METRICS = new Metrics();
+
+  private Metrics() {}
+
+  @Override
+  public Metrics lookup() {
+    return METRICS;
+  }
+
+  @Override
+  public MetricsRegistry createExtension(final ExtendedActorSystem system) {
+    return MetricsRegistry.create();
+  }
+}
@@ -0,0 +1,36 @@
+package com.rimanware.volcanoisland.metrics;
+
+import akka.actor.Extension;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Named monotonic counters, cheap to increment from any actor or thread. */
+public final class MetricsRegistry implements Extension {
+  private final ConcurrentHashMap<String, LongAdder> counters;
+
+  private MetricsRegistry() {
+    this.counters = new ConcurrentHashMap<>();
+  }
+
+  public static MetricsRegistry create() {
+    return new MetricsRegistry();
+  }
+
+  public void increment(final String counterName) {
+    counters.computeIfAbsent(counterName, name -> new LongAdder()).increment();
+  }
+
+  public long get(final String counterName) {
+    final LongAdder counter = counters.get(counterName);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public ImmutableSortedMap<String, Long> snapshot() {
+    return counters.entrySet().stream()
+        .collect(
+            ImmutableSortedMap.toImmutableSortedMap(
+                String::compareTo, entry -> entry.getKey(), entry -> entry.getValue().sum()));
+  }
+}
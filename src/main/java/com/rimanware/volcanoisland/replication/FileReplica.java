@@ -0,0 +1,37 @@
+package com.rimanware.volcanoisland.replication;
+
+import com.rimanware.volcanoisland.database.FileDateStorage;
+import com.rimanware.volcanoisland.replication.api.Replica;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+
+import java.io.IOException;
+
+/**
+ * Appends every record to the same file in its own database folder, so that the folder can be
+ * served as soon as the standby is promoted: recovery only reads the latest event of each file.
+ */
+final class FileReplica implements Replica {
+  private final String databaseFolderPath;
+
+  private FileReplica(final String databaseFolderPath) {
+    this.databaseFolderPath = databaseFolderPath;
+  }
+
+  static FileReplica create(final String databaseFolderPath) {
+    return new FileReplica(databaseFolderPath);
+  }
+
+  @Override
+  public void apply(final ReplicationProtocol.Record record) throws IOException {
+    FileDateStorage.appendDatabaseEventToFile(
+        databaseFolderPath + "/" + record.getFile(), record.getEvent());
+  }
+
+  @Override
+  public void caughtUp(final ReplicationProtocol.Heartbeat heartbeat) {}
+
+  @Override
+  public String toString() {
+    return "FileReplica{" + "databaseFolderPath='" + databaseFolderPath + '\'' + '}';
+  }
+}
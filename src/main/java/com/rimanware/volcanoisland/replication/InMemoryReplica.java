@@ -0,0 +1,75 @@
+package com.rimanware.volcanoisland.replication;
+
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.replication.api.Replica;
+import com.rimanware.volcanoisland.replication.api.ReplicationLag;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest event of every replicated file in memory. Written by the standby actor and read
+ * concurrently by the routes of a follower, so it is thread safe rather than immutable.
+ *
+ * <p>Staleness is measured against the wall clock of the primary, the clocks of both hosts are
+ * expected to be synchronized.
+ */
+public final class InMemoryReplica implements Replica {
+  private final ConcurrentHashMap<String, SingleDateDatabaseEvent> latestEventByFile =
+      new ConcurrentHashMap<>();
+  private final long createdAtMillis = System.currentTimeMillis();
+  private volatile long lastAppliedSequenceNr = 0;
+  // Zero until the replica caught up for the first time
+  private volatile long caughtUpAtMillis = 0;
+
+  private InMemoryReplica() {}
+
+  public static InMemoryReplica create() {
+    return new InMemoryReplica();
+  }
+
+  @Override
+  public void apply(final ReplicationProtocol.Record record) {
+    latestEventByFile.put(record.getFile(), record.getEvent());
+    lastAppliedSequenceNr = record.getSequenceNr();
+  }
+
+  @Override
+  public void caughtUp(final ReplicationProtocol.Heartbeat heartbeat) {
+    caughtUpAtMillis = heartbeat.getSentAtMillis();
+  }
+
+  /** @param file path relative to the database folder of the primary, with / separators */
+  public Optional<SingleDateDatabaseEvent> latestEventOf(final String file) {
+    return Optional.ofNullable(latestEventByFile.get(file));
+  }
+
+  /**
+   * @return how old the replicated state may be at most, time since creation if the replica never
+   *     caught up.
+   */
+  public Duration getStaleness() {
+    final long caughtUpAt = caughtUpAtMillis;
+    return Duration.ofMillis(
+        Math.max(0, System.currentTimeMillis() - (caughtUpAt == 0 ? createdAtMillis : caughtUpAt)));
+  }
+
+  public ReplicationLag getLag() {
+    return ReplicationLag.create(
+        caughtUpAtMillis != 0, lastAppliedSequenceNr, getStaleness().toMillis());
+  }
+
+  @Override
+  public String toString() {
+    return "InMemoryReplica{"
+        + "files="
+        + latestEventByFile.size()
+        + ", lastAppliedSequenceNr="
+        + lastAppliedSequenceNr
+        + ", caughtUpAtMillis="
+        + caughtUpAtMillis
+        + '}';
+  }
+}
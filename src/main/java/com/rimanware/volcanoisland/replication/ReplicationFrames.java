@@ -0,0 +1,34 @@
+package com.rimanware.volcanoisland.replication;
+
+import akka.util.ByteString;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/** Java serialization of the frames, the same format the date files use for events. */
+final class ReplicationFrames {
+
+  private ReplicationFrames() {}
+
+  static ByteString encode(final ReplicationProtocol frame) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+      outputStream.writeObject(frame);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not encode replication frame " + frame, e);
+    }
+    return ByteString.fromArray(bytes.toByteArray());
+  }
+
+  static ReplicationProtocol decode(final ByteString bytes) {
+    try (final ObjectInputStream inputStream =
+        new ObjectInputStream(bytes.iterator().asInputStream())) {
+      return (ReplicationProtocol) inputStream.readObject();
+    } catch (final IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Could not decode replication frame", e);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.rimanware.volcanoisland.replication;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import com.rimanware.volcanoisland.database.FileDateStorage;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Numbers every event written under the database folder and ships it to the subscribed standbys.
+ * Keeps the latest event of every file, to snapshot standbys too far behind, and the last
+ * log-tail-size records, to let reconnecting standbys catch up from where they stopped. A
+ * heartbeat follows them every heartbeat-interval, for followers to bound their staleness.
+ *
+ * <p>Unlike the database actors, the log and the snapshot are mutable: they change on every write
+ * and never leave this actor.
+ */
+public final class ReplicationPrimaryActor extends AbstractActor {
+  private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+  // Identifies this run of the primary, sequence numbers start over on every run
+  private final String logId = UUID.randomUUID().toString();
+  private final Path databaseFolder;
+  private final int logTailSize;
+  private final FiniteDuration heartbeatInterval;
+  private final ArrayDeque<ReplicationProtocol.Record> logTail = new ArrayDeque<>();
+  private final Map<String, SingleDateDatabaseEvent> latestEventByFile = new HashMap<>();
+  private final Set<ActorRef> standbys = new HashSet<>();
+  private long sequenceNr = 0;
+  private Cancellable heartbeats;
+
+  private ReplicationPrimaryActor(
+      final String databaseFolderPath,
+      final int logTailSize,
+      final FiniteDuration heartbeatInterval) {
+    this.databaseFolder = Paths.get(databaseFolderPath).toAbsolutePath().normalize();
+    this.logTailSize = logTailSize;
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  private static ReplicationPrimaryActor create(
+      final String databaseFolderPath,
+      final int logTailSize,
+      final FiniteDuration heartbeatInterval) {
+    return new ReplicationPrimaryActor(databaseFolderPath, logTailSize, heartbeatInterval);
+  }
+
+  /** Must be started before the databases, so that no write is missed. */
+  public static Props props(
+      final String databaseFolderPath,
+      final int logTailSize,
+      final FiniteDuration heartbeatInterval) {
+    return Props.create(
+        ReplicationPrimaryActor.class,
+        () -> ReplicationPrimaryActor.create(databaseFolderPath, logTailSize, heartbeatInterval));
+  }
+
+  @Override
+  public void preStart() throws IOException {
+    // Subscribe before reading the files, writes done meanwhile are applied over what was read
+    getContext()
+        .getSystem()
+        .eventStream()
+        .subscribe(self(), SingleDateDatabaseActor.EventWritten.class);
+
+    if (Files.isDirectory(databaseFolder)) {
+      try (final Stream<Path> files = Files.walk(databaseFolder)) {
+        for (final Path file :
+            files
+                .filter(path -> path.getFileName().toString().endsWith(".data"))
+                .collect(Collectors.toList())) {
+          latestEventByFile.put(
+              fileOf(file), FileDateStorage.readLastDatabaseEventFromFile(file.toString()));
+        }
+      }
+    }
+    log.info("Replication log {} starts with {} files", logId, latestEventByFile.size());
+
+    heartbeats =
+        getContext()
+            .getSystem()
+            .scheduler()
+            .schedule(
+                heartbeatInterval,
+                heartbeatInterval,
+                self(),
+                HeartbeatTick.INSTANCE,
+                getContext().dispatcher(),
+                self());
+  }
+
+  @Override
+  public void postStop() {
+    if (heartbeats != null) {
+      heartbeats.cancel();
+    }
+  }
+
+  @Override
+  public Receive createReceive() {
+    return receiveBuilder()
+        .match(
+            SingleDateDatabaseActor.EventWritten.class,
+            eventWritten -> {
+              final Path file = Paths.get(eventWritten.getFilePath()).toAbsolutePath().normalize();
+              if (file.startsWith(databaseFolder)) {
+                sequenceNr++;
+                final ReplicationProtocol.Record record =
+                    ReplicationProtocol.record(sequenceNr, fileOf(file), eventWritten.getEvent());
+                latestEventByFile.put(record.getFile(), record.getEvent());
+                logTail.addLast(record);
+                if (logTail.size() > logTailSize) {
+                  logTail.removeFirst();
+                }
+                standbys.forEach(standby -> standby.tell(record, self()));
+              }
+            })
+        .match(
+            ReplicationProtocol.Subscribe.class,
+            subscribe -> {
+              final ActorRef standby = sender();
+              if (canResumeFrom(subscribe)) {
+                log.info("Standby resumes after {}", subscribe.getLastSequenceNr());
+                logTail.stream()
+                    .filter(record -> record.getSequenceNr() > subscribe.getLastSequenceNr())
+                    .forEach(record -> standby.tell(record, self()));
+              } else {
+                log.info(
+                    "Standby at {} is sent a snapshot of {} files at {}",
+                    subscribe.getLastSequenceNr(),
+                    latestEventByFile.size(),
+                    sequenceNr);
+                standby.tell(
+                    ReplicationProtocol.snapshotStart(logId, sequenceNr, latestEventByFile.size()),
+                    self());
+                latestEventByFile.forEach(
+                    (file, event) ->
+                        standby.tell(ReplicationProtocol.record(sequenceNr, file, event), self()));
+              }
+              standby.tell(heartbeat(), self());
+              getContext().watch(standby);
+              standbys.add(standby);
+            })
+        .match(
+            HeartbeatTick.class,
+            heartbeatTick -> {
+              final ReplicationProtocol.Heartbeat heartbeat = heartbeat();
+              standbys.forEach(standby -> standby.tell(heartbeat, self()));
+            })
+        .match(Terminated.class, terminated -> standbys.remove(terminated.getActor()))
+        .matchAny(o -> log.info("received unknown message {}", o))
+        .build();
+  }
+
+  private boolean canResumeFrom(final ReplicationProtocol.Subscribe subscribe) {
+    final long lastSequenceNr = subscribe.getLastSequenceNr();
+    return subscribe.getLogId().filter(logId::equals).isPresent()
+        && lastSequenceNr <= sequenceNr
+        && (lastSequenceNr == sequenceNr
+            || (!logTail.isEmpty() && logTail.peekFirst().getSequenceNr() <= lastSequenceNr + 1));
+  }
+
+  private ReplicationProtocol.Heartbeat heartbeat() {
+    return ReplicationProtocol.heartbeat(sequenceNr, System.currentTimeMillis());
+  }
+
+  /** Path relative to the database folder, with / separators whatever the platform. */
+  private String fileOf(final Path file) {
+    return databaseFolder
+        .relativize(file)
+        .toString()
+        .replace(file.getFileSystem().getSeparator(), "/");
+  }
+
+  enum HeartbeatTick {
+    INSTANCE;
+
+    HeartbeatTick() {}
+
+    @Override
+    public String toString() {
+      return "HeartbeatTick{}";
+    }
+  }
+}
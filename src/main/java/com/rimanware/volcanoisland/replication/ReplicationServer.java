@@ -0,0 +1,57 @@
+package com.rimanware.volcanoisland.replication;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.stream.ActorMaterializer;
+import akka.stream.OverflowStrategy;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Framing;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.Tcp;
+import akka.util.ByteString;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Accepts standby connections. Each connection reads the Subscribe frame of the standby and
+ * streams back whatever the {@link ReplicationPrimaryActor} sends it. A standby that doesn't keep
+ * up overflows its send buffer, which closes the connection: it then reconnects and catches up
+ * from the log tail or a snapshot rather than holding the primary back.
+ */
+public final class ReplicationServer {
+
+  private ReplicationServer() {}
+
+  public static CompletionStage<Tcp.ServerBinding> bind(
+      final ActorSystem system,
+      final ActorRef replicationPrimaryActor,
+      final String interfaceName,
+      final int port,
+      final int sendBufferSize,
+      final int maxFrameSize) {
+    final Flow<ByteString, ByteString, ?> connectionFlow =
+        Framing.simpleFramingProtocol(maxFrameSize)
+            .reversed()
+            .join(
+                Flow.of(ByteString.class)
+                    .map(ReplicationFrames::decode)
+                    .flatMapConcat(
+                        subscribe ->
+                            Source.<ReplicationProtocol>actorRef(
+                                    sendBufferSize, OverflowStrategy.fail())
+                                .mapMaterializedValue(
+                                    standby -> {
+                                      replicationPrimaryActor.tell(subscribe, standby);
+                                      return standby;
+                                    }))
+                    .map(ReplicationFrames::encode));
+
+    final ActorMaterializer materializer = ActorMaterializer.create(system);
+    return Tcp.lookup().get(system)
+        .bind(interfaceName, port)
+        .to(Sink.foreach(connection -> connection.handleWith(connectionFlow, materializer)))
+        .run(materializer);
+  }
+}
@@ -0,0 +1,395 @@
+package com.rimanware.volcanoisland.replication;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.stream.ActorMaterializer;
+import akka.stream.KillSwitches;
+import akka.stream.UniqueKillSwitch;
+import akka.stream.javadsl.Framing;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.Tcp;
+import com.rimanware.volcanoisland.replication.api.Replica;
+import com.rimanware.volcanoisland.replication.api.ReplicationProtocol;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyCommand;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyResponse;
+import scala.PartialFunction;
+import scala.concurrent.duration.FiniteDuration;
+import scala.runtime.BoxedUnit;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Connects to the primary and applies every replicated event to its replica: the files of its own
+ * database folder for a standby, memory for a follower. Reconnects after reconnect-delay whenever
+ * the connection is lost or a sequence number is skipped, resuming from the last applied record.
+ *
+ * <p>The last applied sequence number is only kept in memory, a restarted standby is sent a
+ * snapshot.
+ */
+public final class ReplicationStandbyActor extends AbstractActor {
+  private static final String IO_DISPATCHER = "akka.actor.blocking-io-dispatcher";
+  private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+  private final ActorMaterializer materializer = ActorMaterializer.create(getContext());
+  private final Replica replica;
+  private final String primaryHost;
+  private final int primaryPort;
+  private final FiniteDuration reconnectDelay;
+  private final int maxFrameSize;
+
+  private ReplicationStandbyActor(
+      final Replica replica,
+      final String primaryHost,
+      final int primaryPort,
+      final FiniteDuration reconnectDelay,
+      final int maxFrameSize) {
+    this.replica = replica;
+    this.primaryHost = primaryHost;
+    this.primaryPort = primaryPort;
+    this.reconnectDelay = reconnectDelay;
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  private static ReplicationStandbyActor create(
+      final Replica replica,
+      final String primaryHost,
+      final int primaryPort,
+      final FiniteDuration reconnectDelay,
+      final int maxFrameSize) {
+    return new ReplicationStandbyActor(
+        replica, primaryHost, primaryPort, reconnectDelay, maxFrameSize);
+  }
+
+  /** Writes files, so it runs on the IO dispatcher. */
+  public static Props props(
+      final String databaseFolderPath,
+      final String primaryHost,
+      final int primaryPort,
+      final FiniteDuration reconnectDelay,
+      final int maxFrameSize) {
+    return props(
+            FileReplica.create(databaseFolderPath),
+            primaryHost,
+            primaryPort,
+            reconnectDelay,
+            maxFrameSize)
+        .withDispatcher(IO_DISPATCHER);
+  }
+
+  public static Props props(
+      final Replica replica,
+      final String primaryHost,
+      final int primaryPort,
+      final FiniteDuration reconnectDelay,
+      final int maxFrameSize) {
+    return Props.create(
+        ReplicationStandbyActor.class,
+        () ->
+            ReplicationStandbyActor.create(
+                replica, primaryHost, primaryPort, reconnectDelay, maxFrameSize));
+  }
+
+  @Override
+  public Receive createReceive() {
+    return connected(connect(Optional.empty(), 0), Optional.empty(), 0);
+  }
+
+  private UniqueKillSwitch connect(
+      final Optional<String> maybeLogId, final long lastAppliedSequenceNr) {
+    log.info(
+        "Subscribing to {}:{} after {}", primaryHost, primaryPort, lastAppliedSequenceNr);
+    return Source.<ReplicationProtocol>single(
+            ReplicationProtocol.subscribe(maybeLogId, lastAppliedSequenceNr))
+        // Keeps the connection open once subscribed
+        .concat(Source.<ReplicationProtocol>maybe())
+        .map(ReplicationFrames::encode)
+        .via(
+            Framing.simpleFramingProtocol(maxFrameSize)
+                .join(
+                    Tcp.lookup()
+                        .get(getContext().getSystem())
+                        .outgoingConnection(primaryHost, primaryPort)))
+        .map(ReplicationFrames::decode)
+        .viaMat(KillSwitches.single(), Keep.right())
+        // Acknowledging each frame once applied back-pressures the connection
+        .to(
+            Sink.actorRefWithAck(
+                self(),
+                StreamInit.INSTANCE,
+                Ack.INSTANCE,
+                StreamCompleted.INSTANCE,
+                StreamFailed::create))
+        .run(materializer);
+  }
+
+  private Receive connected(
+      final UniqueKillSwitch killSwitch,
+      final Optional<String> maybeLogId,
+      final long lastAppliedSequenceNr) {
+    return receiveBuilder()
+        .match(
+            ReplicationProtocol.SnapshotStart.class,
+            snapshotStart -> {
+              log.info(
+                  "Receiving snapshot of {} files at {}",
+                  snapshotStart.getRecords(),
+                  snapshotStart.getSequenceNr());
+              getContext()
+                  .become(
+                      snapshotStart.getRecords() == 0
+                          ? connected(
+                              killSwitch,
+                              Optional.of(snapshotStart.getLogId()),
+                              snapshotStart.getSequenceNr())
+                          : receivingSnapshot(
+                              killSwitch,
+                              maybeLogId,
+                              lastAppliedSequenceNr,
+                              snapshotStart,
+                              snapshotStart.getRecords()));
+              sender().tell(Ack.INSTANCE, self());
+            })
+        .match(
+            ReplicationProtocol.Record.class,
+            record -> {
+              if (maybeLogId.isPresent()
+                  && record.getSequenceNr() == lastAppliedSequenceNr + 1) {
+                apply(record);
+                getContext()
+                    .become(connected(killSwitch, maybeLogId, record.getSequenceNr()));
+              } else {
+                resubscribe(killSwitch, maybeLogId, lastAppliedSequenceNr, record);
+              }
+              sender().tell(Ack.INSTANCE, self());
+            })
+        .match(
+            ReplicationProtocol.Heartbeat.class,
+            heartbeat -> {
+              if (maybeLogId.isPresent() && heartbeat.getSequenceNr() == lastAppliedSequenceNr) {
+                replica.caughtUp(heartbeat);
+              }
+              sender().tell(Ack.INSTANCE, self());
+            })
+        .matchAny(
+            o ->
+                connectionLifecycle(killSwitch, maybeLogId, lastAppliedSequenceNr, true)
+                    .apply(o))
+        .build();
+  }
+
+  /**
+   * The position of the snapshot is only taken once all its records are applied, a standby
+   * disconnected in between resubscribes from where it was before.
+   */
+  private Receive receivingSnapshot(
+      final UniqueKillSwitch killSwitch,
+      final Optional<String> maybeLogId,
+      final long lastAppliedSequenceNr,
+      final ReplicationProtocol.SnapshotStart snapshotStart,
+      final int recordsLeft) {
+    return receiveBuilder()
+        .match(
+            ReplicationProtocol.Record.class,
+            record -> {
+              if (record.getSequenceNr() == snapshotStart.getSequenceNr()) {
+                apply(record);
+                getContext()
+                    .become(
+                        recordsLeft == 1
+                            ? connected(
+                                killSwitch,
+                                Optional.of(snapshotStart.getLogId()),
+                                snapshotStart.getSequenceNr())
+                            : receivingSnapshot(
+                                killSwitch,
+                                maybeLogId,
+                                lastAppliedSequenceNr,
+                                snapshotStart,
+                                recordsLeft - 1));
+              } else {
+                resubscribe(killSwitch, maybeLogId, lastAppliedSequenceNr, record);
+              }
+              sender().tell(Ack.INSTANCE, self());
+            })
+        // Not caught up until the last record of the snapshot is applied
+        .match(
+            ReplicationProtocol.Heartbeat.class,
+            heartbeat -> sender().tell(Ack.INSTANCE, self()))
+        .matchAny(
+            o ->
+                connectionLifecycle(killSwitch, maybeLogId, lastAppliedSequenceNr, true)
+                    .apply(o))
+        .build();
+  }
+
+  /** Waits for the connection to be closed, then for reconnect-delay. */
+  private Receive disconnected(
+      final Optional<String> maybeLogId, final long lastAppliedSequenceNr) {
+    return receiveBuilder()
+        // Frames of the closing connection are acknowledged but not applied
+        .match(ReplicationProtocol.class, frame -> sender().tell(Ack.INSTANCE, self()))
+        .match(
+            Reconnect.class,
+            reconnect ->
+                getContext()
+                    .become(
+                        connected(
+                            connect(maybeLogId, lastAppliedSequenceNr),
+                            maybeLogId,
+                            lastAppliedSequenceNr)))
+        .matchAny(
+            o -> connectionLifecycle(null, maybeLogId, lastAppliedSequenceNr, false).apply(o))
+        .build();
+  }
+
+  /** Messages handled the same way whatever the progress of the replication. */
+  private PartialFunction<Object, BoxedUnit> connectionLifecycle(
+      final UniqueKillSwitch killSwitch,
+      final Optional<String> maybeLogId,
+      final long lastAppliedSequenceNr,
+      final boolean connected) {
+    return receiveBuilder()
+        .match(StreamInit.class, streamInit -> sender().tell(Ack.INSTANCE, self()))
+        .match(
+            StreamCompleted.class,
+            streamCompleted -> {
+              if (connected) {
+                log.warning("Connection to the primary closed");
+              }
+              scheduleReconnect();
+              getContext().become(disconnected(maybeLogId, lastAppliedSequenceNr));
+            })
+        .match(
+            StreamFailed.class,
+            streamFailed -> {
+              log.warning("Connection to the primary failed: {}", streamFailed.getCause());
+              scheduleReconnect();
+              getContext().become(disconnected(maybeLogId, lastAppliedSequenceNr));
+            })
+        .match(
+            ReplicationStandbyCommand.Promote.class,
+            promote -> {
+              if (connected) {
+                killSwitch.shutdown();
+              }
+              log.info("Promoted at {}", lastAppliedSequenceNr);
+              sender()
+                  .tell(ReplicationStandbyResponse.promoted(lastAppliedSequenceNr), self());
+              getContext().stop(self());
+            })
+        .match(
+            ReplicationStandbyCommand.GetStatus.class,
+            getStatus ->
+                sender()
+                    .tell(
+                        ReplicationStandbyResponse.status(
+                            maybeLogId, lastAppliedSequenceNr, connected),
+                        self()))
+        .matchAny(o -> log.info("received unknown message {}", o))
+        .build()
+        .onMessage();
+  }
+
+  /** Closes the connection, the standby subscribes again once it is closed. */
+  private void resubscribe(
+      final UniqueKillSwitch killSwitch,
+      final Optional<String> maybeLogId,
+      final long lastAppliedSequenceNr,
+      final ReplicationProtocol.Record record) {
+    log.warning(
+        "Unexpected record {} after {}, resubscribing",
+        record.getSequenceNr(),
+        lastAppliedSequenceNr);
+    killSwitch.shutdown();
+    getContext().become(disconnected(maybeLogId, lastAppliedSequenceNr));
+  }
+
+  private void apply(final ReplicationProtocol.Record record) {
+    try {
+      replica.apply(record);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not apply " + record, e);
+    }
+  }
+
+  private void scheduleReconnect() {
+    getContext()
+        .getSystem()
+        .scheduler()
+        .scheduleOnce(
+            reconnectDelay,
+            self(),
+            Reconnect.INSTANCE,
+            getContext().dispatcher(),
+            self());
+  }
+
+  enum Reconnect {
+    INSTANCE;
+
+    Reconnect() {}
+
+    @Override
+    public String toString() {
+      return "Reconnect{}";
+    }
+  }
+
+  enum StreamInit {
+    INSTANCE;
+
+    StreamInit() {}
+
+    @Override
+    public String toString() {
+      return "StreamInit{}";
+    }
+  }
+
+  enum Ack {
+    INSTANCE;
+
+    Ack() {}
+
+    @Override
+    public String toString() {
+      return "Ack{}";
+    }
+  }
+
+  enum StreamCompleted {
+    INSTANCE;
+
+    StreamCompleted() {}
+
+    @Override
+    public String toString() {
+      return "StreamCompleted{}";
+    }
+  }
+
+  static final class StreamFailed {
+    private final Throwable cause;
+
+    private StreamFailed(final Throwable cause) {
+      this.cause = cause;
+    }
+
+    public static StreamFailed create(final Throwable cause) {
+      return new StreamFailed(cause);
+    }
+
+    @Override
+    public String toString() {
+      return "StreamFailed{" + "cause=" + cause + '}';
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package com.rimanware.volcanoisland.replication.api;
+
+import java.io.IOException;
+
+/** Where a standby applies the records it replicates, in sequence number order. */
+public interface Replica {
+  void apply(ReplicationProtocol.Record record) throws IOException;
+
+  /**
+   * Every record the primary sent before the heartbeat was applied, the replica reflects the
+   * primary as of the time it sent it.
+   */
+  void caughtUp(ReplicationProtocol.Heartbeat heartbeat);
+}
@@ -0,0 +1,52 @@
+package com.rimanware.volcanoisland.replication.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** How far behind the primary a follower is, as served by GET /replication/lag. */
+public final class ReplicationLag {
+  private final boolean caughtUp;
+  private final long lastAppliedSequenceNr;
+  private final long stalenessMillis;
+
+  @JsonCreator
+  private ReplicationLag(
+      @JsonProperty("caughtUp") final boolean caughtUp,
+      @JsonProperty("lastAppliedSequenceNr") final long lastAppliedSequenceNr,
+      @JsonProperty("stalenessMillis") final long stalenessMillis) {
+    this.caughtUp = caughtUp;
+    this.lastAppliedSequenceNr = lastAppliedSequenceNr;
+    this.stalenessMillis = stalenessMillis;
+  }
+
+  public static ReplicationLag create(
+      final boolean caughtUp, final long lastAppliedSequenceNr, final long stalenessMillis) {
+    return new ReplicationLag(caughtUp, lastAppliedSequenceNr, stalenessMillis);
+  }
+
+  @Override
+  public String toString() {
+    return "ReplicationLag{"
+        + "caughtUp="
+        + caughtUp
+        + ", lastAppliedSequenceNr="
+        + lastAppliedSequenceNr
+        + ", stalenessMillis="
+        + stalenessMillis
+        + '}';
+  }
+
+  /** @return whether the follower ever caught up with the primary. */
+  public boolean isCaughtUp() {
+    return caughtUp;
+  }
+
+  public long getLastAppliedSequenceNr() {
+    return lastAppliedSequenceNr;
+  }
+
+  /** @return how old the state served by the follower may be at most. */
+  public long getStalenessMillis() {
+    return stalenessMillis;
+  }
+}
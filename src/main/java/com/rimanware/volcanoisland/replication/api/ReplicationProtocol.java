@@ -0,0 +1,192 @@
+package com.rimanware.volcanoisland.replication.api;
+
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/** Frames exchanged between a standby and its primary over TCP. */
+public interface ReplicationProtocol extends Serializable {
+
+  static Subscribe subscribe(final Optional<String> maybeLogId, final long lastSequenceNr) {
+    return Subscribe.create(maybeLogId, lastSequenceNr);
+  }
+
+  static SnapshotStart snapshotStart(
+      final String logId, final long sequenceNr, final int records) {
+    return SnapshotStart.create(logId, sequenceNr, records);
+  }
+
+  static Record record(
+      final long sequenceNr, final String file, final SingleDateDatabaseEvent event) {
+    return Record.create(sequenceNr, file, event);
+  }
+
+  static Heartbeat heartbeat(final long sequenceNr, final long sentAtMillis) {
+    return Heartbeat.create(sequenceNr, sentAtMillis);
+  }
+
+  /**
+   * First and only frame sent by a standby. The primary answers with the records following
+   * lastSequenceNr when they are still in its log tail, a snapshot followed by new records
+   * otherwise.
+   */
+  final class Subscribe implements ReplicationProtocol {
+    private static final long serialVersionUID = 1L;
+    // Identifies the log of one primary run, empty if the standby never received a record
+    private final String logId;
+    private final long lastSequenceNr;
+
+    private Subscribe(final String logId, final long lastSequenceNr) {
+      this.logId = logId;
+      this.lastSequenceNr = lastSequenceNr;
+    }
+
+    public static Subscribe create(final Optional<String> maybeLogId, final long lastSequenceNr) {
+      return new Subscribe(maybeLogId.orElse(null), lastSequenceNr);
+    }
+
+    @Override
+    public String toString() {
+      return "Subscribe{"
+          + "logId='"
+          + logId
+          + '\''
+          + ", lastSequenceNr="
+          + lastSequenceNr
+          + '}';
+    }
+
+    public Optional<String> getLogId() {
+      return Optional.ofNullable(logId);
+    }
+
+    public long getLastSequenceNr() {
+      return lastSequenceNr;
+    }
+  }
+
+  /**
+   * The latest event of every file follows, as many records all with the given sequence number.
+   * Once they are all applied the standby is at that sequence number of the log.
+   */
+  final class SnapshotStart implements ReplicationProtocol {
+    private static final long serialVersionUID = 1L;
+    private final String logId;
+    private final long sequenceNr;
+    private final int records;
+
+    private SnapshotStart(final String logId, final long sequenceNr, final int records) {
+      this.logId = logId;
+      this.sequenceNr = sequenceNr;
+      this.records = records;
+    }
+
+    public static SnapshotStart create(
+        final String logId, final long sequenceNr, final int records) {
+      return new SnapshotStart(logId, sequenceNr, records);
+    }
+
+    @Override
+    public String toString() {
+      return "SnapshotStart{"
+          + "logId='"
+          + logId
+          + '\''
+          + ", sequenceNr="
+          + sequenceNr
+          + ", records="
+          + records
+          + '}';
+    }
+
+    public String getLogId() {
+      return logId;
+    }
+
+    public long getSequenceNr() {
+      return sequenceNr;
+    }
+
+    public int getRecords() {
+      return records;
+    }
+  }
+
+  /** An event appended to a date file, file being relative to the database folder. */
+  final class Record implements ReplicationProtocol {
+    private static final long serialVersionUID = 1L;
+    private final long sequenceNr;
+    private final String file;
+    private final SingleDateDatabaseEvent event;
+
+    private Record(final long sequenceNr, final String file, final SingleDateDatabaseEvent event) {
+      this.sequenceNr = sequenceNr;
+      this.file = file;
+      this.event = event;
+    }
+
+    public static Record create(
+        final long sequenceNr, final String file, final SingleDateDatabaseEvent event) {
+      return new Record(sequenceNr, file, event);
+    }
+
+    @Override
+    public String toString() {
+      return "Record{"
+          + "sequenceNr="
+          + sequenceNr
+          + ", file='"
+          + file
+          + '\''
+          + ", event="
+          + event
+          + '}';
+    }
+
+    public long getSequenceNr() {
+      return sequenceNr;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public SingleDateDatabaseEvent getEvent() {
+      return event;
+    }
+  }
+
+  /**
+   * Sent by the primary every heartbeat-interval and after answering a subscription. Every record
+   * up to sequenceNr was sent before it, so a standby that applied them all reflects the primary
+   * as of sentAtMillis, the wall clock time of the primary.
+   */
+  final class Heartbeat implements ReplicationProtocol {
+    private static final long serialVersionUID = 1L;
+    private final long sequenceNr;
+    private final long sentAtMillis;
+
+    private Heartbeat(final long sequenceNr, final long sentAtMillis) {
+      this.sequenceNr = sequenceNr;
+      this.sentAtMillis = sentAtMillis;
+    }
+
+    public static Heartbeat create(final long sequenceNr, final long sentAtMillis) {
+      return new Heartbeat(sequenceNr, sentAtMillis);
+    }
+
+    @Override
+    public String toString() {
+      return "Heartbeat{" + "sequenceNr=" + sequenceNr + ", sentAtMillis=" + sentAtMillis + '}';
+    }
+
+    public long getSequenceNr() {
+      return sequenceNr;
+    }
+
+    public long getSentAtMillis() {
+      return sentAtMillis;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.rimanware.volcanoisland.replication.api;
+
+public interface ReplicationStandbyCommand {
+
+  static ReplicationStandbyCommand promote() {
+    return Promote.INSTANCE;
+  }
+
+  static ReplicationStandbyCommand getStatus() {
+    return GetStatus.INSTANCE;
+  }
+
+  /** Stops replicating, the database folder is then ready to be served as a primary. */
+  enum Promote implements ReplicationStandbyCommand {
+    INSTANCE;
+
+    Promote() {}
+
+    @Override
+    public String toString() {
+      return "Promote{}";
+    }
+  }
+
+  enum GetStatus implements ReplicationStandbyCommand {
+    INSTANCE;
+
+    GetStatus() {}
+
+    @Override
+    public String toString() {
+      return "GetStatus{}";
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.rimanware.volcanoisland.replication.api;
+
+import java.util.Optional;
+
+public interface ReplicationStandbyResponse {
+
+  static Status status(
+      final Optional<String> maybeLogId,
+      final long lastAppliedSequenceNr,
+      final boolean connected) {
+    return Status.create(maybeLogId, lastAppliedSequenceNr, connected);
+  }
+
+  static Promoted promoted(final long lastAppliedSequenceNr) {
+    return Promoted.create(lastAppliedSequenceNr);
+  }
+
+  final class Status implements ReplicationStandbyResponse {
+    private final Optional<String> maybeLogId;
+    private final long lastAppliedSequenceNr;
+    private final boolean connected;
+
+    private Status(
+        final Optional<String> maybeLogId,
+        final long lastAppliedSequenceNr,
+        final boolean connected) {
+      this.maybeLogId = maybeLogId;
+      this.lastAppliedSequenceNr = lastAppliedSequenceNr;
+      this.connected = connected;
+    }
+
+    public static Status create(
+        final Optional<String> maybeLogId,
+        final long lastAppliedSequenceNr,
+        final boolean connected) {
+      return new Status(maybeLogId, lastAppliedSequenceNr, connected);
+    }
+
+    @Override
+    public String toString() {
+      return "Status{"
+          + "maybeLogId="
+          + maybeLogId
+          + ", lastAppliedSequenceNr="
+          + lastAppliedSequenceNr
+          + ", connected="
+          + connected
+          + '}';
+    }
+
+    public Optional<String> getLogId() {
+      return maybeLogId;
+    }
+
+    public long getLastAppliedSequenceNr() {
+      return lastAppliedSequenceNr;
+    }
+
+    public boolean isConnected() {
+      return connected;
+    }
+  }
+
+  final class Promoted implements ReplicationStandbyResponse {
+    private final long lastAppliedSequenceNr;
+
+    private Promoted(final long lastAppliedSequenceNr) {
+      this.lastAppliedSequenceNr = lastAppliedSequenceNr;
+    }
+
+    public static Promoted create(final long lastAppliedSequenceNr) {
+      return new Promoted(lastAppliedSequenceNr);
+    }
+
+    @Override
+    public String toString() {
+      return "Promoted{" + "lastAppliedSequenceNr=" + lastAppliedSequenceNr + '}';
+    }
+
+    public long getLastAppliedSequenceNr() {
+      return lastAppliedSequenceNr;
+    }
+  }
+}
@@ -3,7 +3,7 @@ package com.rimanware.volcanoisland.routes;
 import akka.http.javadsl.marshallers.jackson.Jackson;
 import akka.http.javadsl.model.StatusCodes;
 import akka.http.javadsl.server.Route;
-import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.business.api.BookingConstraints;
 import com.rimanware.volcanoisland.common.DateValidator;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
 import com.rimanware.volcanoisland.services.api.AvailabilityService;
@@ -16,17 +16,24 @@ import java.util.function.Function;
 public final class AvailabilitiesRouteProvider extends RouteProviderWithValidation {
   private static final String AVAILABILITIES = "availabilities";
   private final AvailabilityService availabilityService;
+  private final BookingConstraints bookingConstraints;
   private final APIErrorMessages apiErrorMessages;
 
   private AvailabilitiesRouteProvider(
-      final AvailabilityService availabilityService, final APIErrorMessages apiErrorMessages) {
+      final AvailabilityService availabilityService,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages) {
     this.availabilityService = availabilityService;
+    this.bookingConstraints = bookingConstraints;
     this.apiErrorMessages = apiErrorMessages;
   }
 
   public static AvailabilitiesRouteProvider create(
-      final AvailabilityService availabilityService, final APIErrorMessages apiErrorMessages) {
-    return new AvailabilitiesRouteProvider(availabilityService, apiErrorMessages);
+      final AvailabilityService availabilityService,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages) {
+    return new AvailabilitiesRouteProvider(
+        availabilityService, bookingConstraints, apiErrorMessages);
   }
 
   @Override
@@ -70,7 +77,7 @@ public final class AvailabilitiesRouteProvider extends RouteProviderWithValidati
         availabilitiesRequest,
         (request) ->
             DateValidator.availabilitiesDateRangeIsValid(
-                request.getStartDate(), request.getEndDate(), BookingConstraintsImpl.INSTANCE),
+                request.getStartDate(), request.getEndDate(), bookingConstraints),
         requestHandler,
         StatusCodes.OK);
   }
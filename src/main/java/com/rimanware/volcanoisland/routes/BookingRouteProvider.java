@@ -1,14 +1,26 @@
 package com.rimanware.volcanoisland.routes;
 
 import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.ContentType;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpEntity;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
 import akka.http.javadsl.model.StatusCode;
 import akka.http.javadsl.model.StatusCodes;
 import akka.http.javadsl.server.PathMatchers;
 import akka.http.javadsl.server.Route;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.rimanware.volcanoisland.business.api.BookingConstraints;
 import com.rimanware.volcanoisland.common.DateValidator;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
 import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.batch.BatchBookingPipeline;
 import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
 import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
 import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
@@ -18,24 +30,33 @@ import java.util.function.Function;
 
 public final class BookingRouteProvider extends RouteProviderWithValidation {
   private static final String BOOKINGS = "bookings";
+  private static final String BATCH = "batch";
+  private static final ContentType NDJSON =
+      MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8).toContentType();
+  private static final ObjectWriter BATCH_RESULT_WRITER = new ObjectMapper().writer();
   private final BookingService bookingService;
+  private final BatchBookingPipeline batchBookingPipeline;
   private final BookingConstraints bookingConstraints;
   private final APIErrorMessages apiErrorMessages;
 
   private BookingRouteProvider(
       final BookingService bookingService,
+      final BatchBookingPipeline batchBookingPipeline,
       final BookingConstraints bookingConstraints,
       final APIErrorMessages apiErrorMessages) {
     this.bookingService = bookingService;
+    this.batchBookingPipeline = batchBookingPipeline;
     this.bookingConstraints = bookingConstraints;
     this.apiErrorMessages = apiErrorMessages;
   }
 
   public static BookingRouteProvider create(
       final BookingService bookingService,
+      final BatchBookingPipeline batchBookingPipeline,
       final BookingConstraints bookingConstraints,
       final APIErrorMessages apiErrorMessages) {
-    return new BookingRouteProvider(bookingService, bookingConstraints, apiErrorMessages);
+    return new BookingRouteProvider(
+        bookingService, batchBookingPipeline, bookingConstraints, apiErrorMessages);
   }
 
   @Override
@@ -61,6 +82,10 @@ public final class BookingRouteProvider extends RouteProviderWithValidation {
                                             bookingRequest,
                                             bookingService::createBooking,
                                             StatusCodes.CREATED)))),
+                // Create many, streamed
+                path(
+                    BATCH,
+                    () -> post(() -> extractRequestEntity(this::getBatchBookingRoute))),
                 // Update & Delete
                 path(
                     PathMatchers.segment(),
@@ -86,6 +111,33 @@ public final class BookingRouteProvider extends RouteProviderWithValidation {
                                                 response, StatusCodes.OK)))))));
   }
 
+  /**
+   * Bookings are read from a JSON array or from newline delimited JSON objects, their results are
+   * streamed back the same way as they complete, in the order of the batch.
+   */
+  private Route getBatchBookingRoute(final HttpEntity batch) {
+    final boolean newlineDelimited = batch.getContentType().mediaType().equals(NDJSON.mediaType());
+    final Source<ByteString, ?> results =
+        batch
+            .getDataBytes()
+            .via(batchBookingPipeline.flow())
+            .map(result -> ByteString.fromArray(BATCH_RESULT_WRITER.writeValueAsBytes(result)));
+    return complete(
+        newlineDelimited
+            ? HttpResponse.create()
+                .withEntity(
+                    HttpEntities.create(
+                        NDJSON, results.map(result -> result.concat(ByteString.fromString("\n")))))
+            : HttpResponse.create()
+                .withEntity(
+                    HttpEntities.create(
+                        ContentTypes.APPLICATION_JSON,
+                        results.intersperse(
+                            ByteString.fromString("["),
+                            ByteString.fromString(","),
+                            ByteString.fromString("]")))));
+  }
+
   private Route getBookingRoute(
       final BookingRequest bookingRequest,
       final Function<BookingRequest, CompletionStage<RequestHandlerResponse>> requestHandler,
@@ -0,0 +1,43 @@
+package com.rimanware.volcanoisland.routes;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.server.AllDirectives;
+import akka.http.javadsl.server.Route;
+import com.rimanware.volcanoisland.routes.api.RouteProvider;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * /live answers as long as the process serves HTTP, /ready only once the application is ready to
+ * take traffic (database recovered and warmed up) and until it starts shutting down.
+ */
+public final class HealthRouteProvider extends AllDirectives implements RouteProvider {
+  private static final String LIVE = "live";
+  private static final String READY = "ready";
+  private final BooleanSupplier ready;
+
+  private HealthRouteProvider(final BooleanSupplier ready) {
+    this.ready = ready;
+  }
+
+  public static HealthRouteProvider create(final BooleanSupplier ready) {
+    return new HealthRouteProvider(ready);
+  }
+
+  @Override
+  public Route getRoutes() {
+    return route(
+        path(LIVE, () -> get(() -> complete(StatusCodes.OK))),
+        path(
+            READY,
+            () ->
+                get(
+                    // Evaluated per request rather than once when the route is built
+                    () ->
+                        extractRequest(
+                            request ->
+                                ready.getAsBoolean()
+                                    ? complete(StatusCodes.OK)
+                                    : complete(StatusCodes.SERVICE_UNAVAILABLE)))));
+  }
+}
@@ -0,0 +1,27 @@
+package com.rimanware.volcanoisland.routes;
+
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.server.AllDirectives;
+import akka.http.javadsl.server.Route;
+import com.rimanware.volcanoisland.metrics.MetricsRegistry;
+import com.rimanware.volcanoisland.routes.api.RouteProvider;
+
+public final class MetricsRouteProvider extends AllDirectives implements RouteProvider {
+  private static final String METRICS = "metrics";
+  private final MetricsRegistry metricsRegistry;
+
+  private MetricsRouteProvider(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+  }
+
+  public static MetricsRouteProvider create(final MetricsRegistry metricsRegistry) {
+    return new MetricsRouteProvider(metricsRegistry);
+  }
+
+  @Override
+  public Route getRoutes() {
+    return path(
+        METRICS,
+        () -> get(() -> completeOK(metricsRegistry.snapshot(), Jackson.marshaller())));
+  }
+}
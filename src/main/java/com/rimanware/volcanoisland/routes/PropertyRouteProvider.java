@@ -0,0 +1,76 @@
+package com.rimanware.volcanoisland.routes;
+
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.server.AllDirectives;
+import akka.http.javadsl.server.PathMatchers;
+import akka.http.javadsl.server.Route;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.routes.api.RouteProvider;
+import com.rimanware.volcanoisland.services.models.responses.SimpleError;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the routes of the provisioned properties under /properties/{propertyId}. The routes of a
+ * property, and whatever they are built on, are created on its first request and kept afterward.
+ * Requests for any other property are answered with PropertyNotFoundError, without creating
+ * anything.
+ */
+public final class PropertyRouteProvider extends AllDirectives implements RouteProvider {
+  private static final String PROPERTIES = "properties";
+  // Property ids are used as actor names and folder names
+  private static final Pattern PROPERTY_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+  private final Function<String, Route> propertyRoutes;
+  private final ImmutableSet<String> propertyIds;
+  private final APIErrorMessages apiErrorMessages;
+  private final ConcurrentHashMap<String, Route> routesByPropertyId;
+
+  private PropertyRouteProvider(
+      final Function<String, Route> propertyRoutes,
+      final ImmutableSet<String> propertyIds,
+      final APIErrorMessages apiErrorMessages) {
+    this.propertyRoutes = propertyRoutes;
+    this.propertyIds = propertyIds;
+    this.apiErrorMessages = apiErrorMessages;
+    this.routesByPropertyId = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @param propertyRoutes creates the routes of a property given its id, called once per id.
+   * @param propertyIds ids of the provisioned properties, the only ones served
+   */
+  public static PropertyRouteProvider create(
+      final Function<String, Route> propertyRoutes,
+      final ImmutableSet<String> propertyIds,
+      final APIErrorMessages apiErrorMessages) {
+    propertyIds.stream()
+        .filter(propertyId -> !PROPERTY_ID.matcher(propertyId).matches())
+        .findFirst()
+        .ifPresent(
+            propertyId -> {
+              throw new IllegalArgumentException("Invalid property id: " + propertyId);
+            });
+    return new PropertyRouteProvider(propertyRoutes, propertyIds, apiErrorMessages);
+  }
+
+  @Override
+  public Route getRoutes() {
+    return pathPrefix(
+        PROPERTIES,
+        () ->
+            pathPrefix(
+                PathMatchers.segment(PROPERTY_ID),
+                propertyId ->
+                    propertyIds.contains(propertyId)
+                        ? routesByPropertyId.computeIfAbsent(propertyId, propertyRoutes)
+                        : complete(
+                            APIErrorImpl.PropertyNotFoundError.getHttpStatusCode(),
+                            SimpleError.create(
+                                APIErrorImpl.PropertyNotFoundError, apiErrorMessages),
+                            Jackson.marshaller())));
+  }
+}
@@ -0,0 +1,39 @@
+package com.rimanware.volcanoisland.routes;
+
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.server.AllDirectives;
+import akka.http.javadsl.server.Route;
+import com.rimanware.volcanoisland.replication.api.ReplicationLag;
+import com.rimanware.volcanoisland.routes.api.RouteProvider;
+
+import java.util.function.Supplier;
+
+/** GET /replication/lag reports how far behind the primary a follower is. */
+public final class ReplicationLagRouteProvider extends AllDirectives implements RouteProvider {
+  private static final String REPLICATION = "replication";
+  private static final String LAG = "lag";
+  private final Supplier<ReplicationLag> lag;
+
+  private ReplicationLagRouteProvider(final Supplier<ReplicationLag> lag) {
+    this.lag = lag;
+  }
+
+  public static ReplicationLagRouteProvider create(final Supplier<ReplicationLag> lag) {
+    return new ReplicationLagRouteProvider(lag);
+  }
+
+  @Override
+  public Route getRoutes() {
+    return pathPrefix(
+        REPLICATION,
+        () ->
+            path(
+                LAG,
+                () ->
+                    get(
+                        // Evaluated per request rather than once when the route is built
+                        () ->
+                            extractRequest(
+                                request -> completeOK(lag.get(), Jackson.marshaller())))));
+  }
+}
@@ -0,0 +1,58 @@
+package com.rimanware.volcanoisland.routes;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.server.AllDirectives;
+import akka.http.javadsl.server.Route;
+import com.rimanware.volcanoisland.routes.api.RouteProvider;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Routes of a standby: POST /replication/promote promotes it, then every other request is served
+ * by the routes of the promoted database. Promoting again answers once the first promotion is
+ * done.
+ */
+public final class ReplicationRouteProvider extends AllDirectives implements RouteProvider {
+  private static final String REPLICATION = "replication";
+  private static final String PROMOTE = "promote";
+  private final Supplier<CompletionStage<Route>> promote;
+  private Optional<CompletionStage<Route>> maybePromotedRoute = Optional.empty();
+
+  private ReplicationRouteProvider(final Supplier<CompletionStage<Route>> promote) {
+    this.promote = promote;
+  }
+
+  /** @param promote promotes the standby, completes with the routes of its database */
+  public static ReplicationRouteProvider create(final Supplier<CompletionStage<Route>> promote) {
+    return new ReplicationRouteProvider(promote);
+  }
+
+  private synchronized CompletionStage<Route> promote() {
+    if (!maybePromotedRoute.isPresent()) {
+      maybePromotedRoute = Optional.of(promote.get());
+    }
+    return maybePromotedRoute.get();
+  }
+
+  private synchronized Optional<Route> promotedRoute() {
+    return maybePromotedRoute
+        .map(promotedRoute -> promotedRoute.toCompletableFuture().getNow(null))
+        .map(Optional::ofNullable)
+        .orElse(Optional.empty());
+  }
+
+  @Override
+  public Route getRoutes() {
+    return route(
+        pathPrefix(
+            REPLICATION,
+            () ->
+                path(
+                    PROMOTE,
+                    () -> post(() -> onSuccess(this::promote, route -> complete(StatusCodes.OK))))),
+        // Evaluated per request, nothing but promotion is served until promoted
+        extractRequestContext(context -> promotedRoute().orElseGet(this::reject)));
+  }
+}
@@ -3,6 +3,7 @@ package com.rimanware.volcanoisland.routes;
 import akka.http.javadsl.marshallers.jackson.Jackson;
 import akka.http.javadsl.model.StatusCode;
 import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.RawHeader;
 import akka.http.javadsl.server.AllDirectives;
 import akka.http.javadsl.server.Route;
 import com.rimanware.volcanoisland.common.DateValidator;
@@ -16,6 +17,7 @@ import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 
 public abstract class RouteProviderWithValidation extends AllDirectives implements RouteProvider {
+  private static final String RETRY_AFTER = "Retry-After";
 
   public abstract APIErrorMessages getAPIErrorMessages();
 
@@ -49,6 +51,17 @@ public abstract class RouteProviderWithValidation extends AllDirectives implemen
     if (result instanceof RequestHandlerResponse.Success) {
       final RequestHandlerResponse.Success success = (RequestHandlerResponse.Success) result;
       return complete(successStatusCode, success.getResponse(), Jackson.marshaller());
+    } else if (result instanceof RequestHandlerResponse.Failure.ServiceUnavailable) {
+      final RequestHandlerResponse.Failure.ServiceUnavailable unavailable =
+          (RequestHandlerResponse.Failure.ServiceUnavailable) result;
+      return respondWithHeader(
+          RawHeader.create(
+              RETRY_AFTER, String.valueOf(Math.max(1, unavailable.getRetryAfter().getSeconds()))),
+          () ->
+              complete(
+                  unavailable.getHttpStatusCode(),
+                  unavailable.getResponse(),
+                  Jackson.marshaller()));
     } else if (result instanceof RequestHandlerResponse.Failure) {
       final RequestHandlerResponse.Failure failure = (RequestHandlerResponse.Failure) result;
       return complete(failure.getHttpStatusCode(), failure.getResponse(), Jackson.marshaller());
@@ -4,38 +4,63 @@ import akka.actor.ActorRef;
 import akka.util.Timeout;
 import com.rimanware.volcanoisland.services.api.AvailabilityService;
 import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
 import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
 
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 
 import static akka.pattern.PatternsCS.ask;
 
 public final class AvailabilityServiceImpl implements AvailabilityService {
   private final ActorRef availabilityRequestHandlerDispatcherActor;
+  private final Optional<ActorRef> maybeDatabase;
   private final Timeout timeout;
 
   private AvailabilityServiceImpl(
-      final ActorRef availabilityRequestHandlerDispatcherActor, final Timeout timeout) {
+      final ActorRef availabilityRequestHandlerDispatcherActor,
+      final Optional<ActorRef> maybeDatabase,
+      final Timeout timeout) {
     this.availabilityRequestHandlerDispatcherActor = availabilityRequestHandlerDispatcherActor;
+    this.maybeDatabase = maybeDatabase;
     this.timeout = timeout;
   }
 
   public static AvailabilityServiceImpl create(
       final ActorRef availabilityRequestHandlerDispatcherActor, final Timeout timeout) {
-    return new AvailabilityServiceImpl(availabilityRequestHandlerDispatcherActor, timeout);
+    return new AvailabilityServiceImpl(
+        availabilityRequestHandlerDispatcherActor, Optional.empty(), timeout);
+  }
+
+  /** Same dispatcher, requests handled against the given database instead of its default one. */
+  public AvailabilityServiceImpl forDatabase(final ActorRef database) {
+    return new AvailabilityServiceImpl(
+        availabilityRequestHandlerDispatcherActor, Optional.of(database), timeout);
   }
 
   @Override
   public CompletionStage<RequestHandlerResponse> getAvailabilities(
       final AvailabilitiesRequest.DateRange availabilitiesRequest) {
 
-    return ask(availabilityRequestHandlerDispatcherActor, availabilitiesRequest, timeout)
+    return ask(
+            availabilityRequestHandlerDispatcherActor,
+            toDispatcherMessage(availabilitiesRequest),
+            timeout)
         .thenApply((RequestHandlerResponse.class::cast));
   }
 
   @Override
   public CompletionStage<RequestHandlerResponse> getAvailabilities() {
-    return ask(availabilityRequestHandlerDispatcherActor, AvailabilitiesRequest.empty(), timeout)
+    return ask(
+            availabilityRequestHandlerDispatcherActor,
+            toDispatcherMessage(AvailabilitiesRequest.empty()),
+            timeout)
         .thenApply((RequestHandlerResponse.class::cast));
   }
+
+  private Object toDispatcherMessage(final Object request) {
+    return maybeDatabase
+        .<Object>map(database -> RequestHandlerCommand.dispatch(request, database))
+        .orElse(request);
+  }
 }
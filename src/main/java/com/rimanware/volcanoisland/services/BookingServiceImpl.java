@@ -5,8 +5,10 @@ import akka.util.Timeout;
 import com.rimanware.volcanoisland.services.api.BookingService;
 import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
 import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
 import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
 
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 
 import static akka.pattern.PatternsCS.ask;
@@ -15,16 +17,19 @@ public final class BookingServiceImpl implements BookingService {
   private final ActorRef createBookingRequestHandlerDispatcherActor;
   private final ActorRef updateBookingRequestHandlerDispatcherActor;
   private final ActorRef deleteBookingRequestHandlerDispatcherActor;
+  private final Optional<ActorRef> maybeDatabase;
   private final Timeout timeout;
 
   private BookingServiceImpl(
       final ActorRef createBookingRequestHandlerDispatcherActor,
       final ActorRef updateBookingRequestHandlerDispatcherActor,
       final ActorRef deleteBookingRequestHandlerDispatcherActor,
+      final Optional<ActorRef> maybeDatabase,
       final Timeout timeout) {
     this.createBookingRequestHandlerDispatcherActor = createBookingRequestHandlerDispatcherActor;
     this.updateBookingRequestHandlerDispatcherActor = updateBookingRequestHandlerDispatcherActor;
     this.deleteBookingRequestHandlerDispatcherActor = deleteBookingRequestHandlerDispatcherActor;
+    this.maybeDatabase = maybeDatabase;
     this.timeout = timeout;
   }
 
@@ -37,26 +42,49 @@ public final class BookingServiceImpl implements BookingService {
         createBookingRequestHandlerDispatcherActor,
         updateBookingRequestHandlerDispatcherActor,
         deleteBookingRequestHandlerDispatcherActor,
+        Optional.empty(),
+        timeout);
+  }
+
+  /** Same dispatchers, requests handled against the given database instead of the default one. */
+  public BookingServiceImpl forDatabase(final ActorRef database) {
+    return new BookingServiceImpl(
+        createBookingRequestHandlerDispatcherActor,
+        updateBookingRequestHandlerDispatcherActor,
+        deleteBookingRequestHandlerDispatcherActor,
+        Optional.of(database),
         timeout);
   }
 
   @Override
   public CompletionStage<RequestHandlerResponse> createBooking(
       final BookingRequest bookingRequest) {
-    return ask(createBookingRequestHandlerDispatcherActor, bookingRequest, timeout)
+    return ask(
+            createBookingRequestHandlerDispatcherActor,
+            toDispatcherMessage(bookingRequest),
+            timeout)
         .thenApply((RequestHandlerResponse.class::cast));
   }
 
   @Override
   public CompletionStage<RequestHandlerResponse> updateBooking(
       final UpdateBookingRequest updateBookingRequest) {
-    return ask(updateBookingRequestHandlerDispatcherActor, updateBookingRequest, timeout)
+    return ask(
+            updateBookingRequestHandlerDispatcherActor,
+            toDispatcherMessage(updateBookingRequest),
+            timeout)
         .thenApply((RequestHandlerResponse.class::cast));
   }
 
   @Override
   public CompletionStage<RequestHandlerResponse> deleteBooking(final String id) {
-    return ask(deleteBookingRequestHandlerDispatcherActor, id, timeout)
+    return ask(deleteBookingRequestHandlerDispatcherActor, toDispatcherMessage(id), timeout)
         .thenApply((RequestHandlerResponse.class::cast));
   }
+
+  private Object toDispatcherMessage(final Object request) {
+    return maybeDatabase
+        .<Object>map(database -> RequestHandlerCommand.dispatch(request, database))
+        .orElse(request);
+  }
 }
@@ -0,0 +1,107 @@
+package com.rimanware.volcanoisland.services.admission;
+
+import com.rimanware.volcanoisland.services.admission.api.ConcurrencyLimiter;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Additive increase, multiplicative decrease concurrency limiter. The limit grows by one each time
+ * a request completes fast while the limiter is busy, and backs off when a request is slow or gets
+ * dropped.
+ */
+public final class AIMDConcurrencyLimiter implements ConcurrencyLimiter {
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long latencyThresholdInNanos;
+  private double limit;
+  private int inFlight;
+
+  private AIMDConcurrencyLimiter(
+      final int initialLimit,
+      final int minLimit,
+      final int maxLimit,
+      final double backoffRatio,
+      final Duration latencyThreshold) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdInNanos = latencyThreshold.toNanos();
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.inFlight = 0;
+  }
+
+  public static AIMDConcurrencyLimiter create(
+      final int initialLimit,
+      final int minLimit,
+      final int maxLimit,
+      final double backoffRatio,
+      final Duration latencyThreshold) {
+    return new AIMDConcurrencyLimiter(
+        initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold);
+  }
+
+  public static AIMDConcurrencyLimiter fromConfig(final Config config) {
+    return create(
+        config.getInt("initial-limit"),
+        config.getInt("min-limit"),
+        config.getInt("max-limit"),
+        config.getDouble("backoff-ratio"),
+        config.getDuration("latency-threshold"));
+  }
+
+  @Override
+  public synchronized Optional<Permit> tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return Optional.empty();
+    }
+    inFlight++;
+    return Optional.of(new AIMDPermit(System.nanoTime()));
+  }
+
+  @Override
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  @Override
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  private synchronized void release(final long latencyInNanos, final boolean dropped) {
+    if (dropped || latencyInNanos > latencyThresholdInNanos) {
+      limit = Math.max(minLimit, limit * backoffRatio);
+    } else if (inFlight * 2 >= limit) {
+      // Only grow when we are actually using the limit, otherwise it would grow without bound
+      // during quiet periods.
+      limit = Math.min(maxLimit, limit + 1);
+    }
+    inFlight--;
+  }
+
+  @Override
+  public String toString() {
+    return "AIMDConcurrencyLimiter{" + "limit=" + getLimit() + ", inFlight=" + getInFlight() + '}';
+  }
+
+  private final class AIMDPermit implements Permit {
+    private final long startTimeInNanos;
+
+    private AIMDPermit(final long startTimeInNanos) {
+      this.startTimeInNanos = startTimeInNanos;
+    }
+
+    @Override
+    public void onSuccess() {
+      release(System.nanoTime() - startTimeInNanos, false);
+    }
+
+    @Override
+    public void onDropped() {
+      release(System.nanoTime() - startTimeInNanos, true);
+    }
+  }
+}
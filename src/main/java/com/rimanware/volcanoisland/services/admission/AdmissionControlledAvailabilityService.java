@@ -0,0 +1,37 @@
+package com.rimanware.volcanoisland.services.admission;
+
+import com.rimanware.volcanoisland.services.api.AvailabilityService;
+import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+
+import java.util.concurrent.CompletionStage;
+
+public final class AdmissionControlledAvailabilityService implements AvailabilityService {
+  private final AvailabilityService availabilityService;
+  private final AdmissionController admissionController;
+
+  private AdmissionControlledAvailabilityService(
+      final AvailabilityService availabilityService,
+      final AdmissionController admissionController) {
+    this.availabilityService = availabilityService;
+    this.admissionController = admissionController;
+  }
+
+  public static AdmissionControlledAvailabilityService create(
+      final AvailabilityService availabilityService,
+      final AdmissionController admissionController) {
+    return new AdmissionControlledAvailabilityService(availabilityService, admissionController);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities(
+      final AvailabilitiesRequest.DateRange availabilitiesRequest) {
+    return admissionController.admit(
+        () -> availabilityService.getAvailabilities(availabilitiesRequest));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities() {
+    return admissionController.admit(availabilityService::getAvailabilities);
+  }
+}
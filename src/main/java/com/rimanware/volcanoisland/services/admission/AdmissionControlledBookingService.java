@@ -0,0 +1,41 @@
+package com.rimanware.volcanoisland.services.admission;
+
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+
+import java.util.concurrent.CompletionStage;
+
+public final class AdmissionControlledBookingService implements BookingService {
+  private final BookingService bookingService;
+  private final AdmissionController admissionController;
+
+  private AdmissionControlledBookingService(
+      final BookingService bookingService, final AdmissionController admissionController) {
+    this.bookingService = bookingService;
+    this.admissionController = admissionController;
+  }
+
+  public static AdmissionControlledBookingService create(
+      final BookingService bookingService, final AdmissionController admissionController) {
+    return new AdmissionControlledBookingService(bookingService, admissionController);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> createBooking(
+      final BookingRequest bookingRequest) {
+    return admissionController.admit(() -> bookingService.createBooking(bookingRequest));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> updateBooking(
+      final UpdateBookingRequest updateBookingRequest) {
+    return admissionController.admit(() -> bookingService.updateBooking(updateBookingRequest));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> deleteBooking(final String id) {
+    return admissionController.admit(() -> bookingService.deleteBooking(id));
+  }
+}
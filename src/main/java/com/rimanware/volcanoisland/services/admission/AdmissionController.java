@@ -0,0 +1,69 @@
+package com.rimanware.volcanoisland.services.admission;
+
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.services.admission.api.ConcurrencyLimiter;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Gates calls to a service behind a concurrency limiter. Calls that don't get a permit are
+ * rejected right away with a 503 instead of queuing up until the ask timeout fires.
+ */
+public final class AdmissionController {
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final RequestHandlerResponse.Failure.ServiceUnavailable serviceUnavailable;
+
+  private AdmissionController(
+      final ConcurrencyLimiter concurrencyLimiter,
+      final Duration retryAfter,
+      final APIErrorMessages apiErrorMessages) {
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.serviceUnavailable =
+        RequestHandlerResponse.Failure.unavailable(retryAfter, apiErrorMessages);
+  }
+
+  public static AdmissionController create(
+      final ConcurrencyLimiter concurrencyLimiter,
+      final Duration retryAfter,
+      final APIErrorMessages apiErrorMessages) {
+    return new AdmissionController(concurrencyLimiter, retryAfter, apiErrorMessages);
+  }
+
+  public CompletionStage<RequestHandlerResponse> admit(
+      final Supplier<CompletionStage<RequestHandlerResponse>> request) {
+    final Optional<ConcurrencyLimiter.Permit> maybePermit = concurrencyLimiter.tryAcquire();
+    if (!maybePermit.isPresent()) {
+      return CompletableFuture.completedFuture(serviceUnavailable);
+    }
+
+    final ConcurrencyLimiter.Permit permit = maybePermit.get();
+    final CompletionStage<RequestHandlerResponse> response;
+    try {
+      response = request.get();
+    } catch (final RuntimeException e) {
+      // The request never started, its permit would otherwise never be given back.
+      permit.onDropped();
+      return CompletableFuture.completedFuture(serviceUnavailable);
+    }
+    return response.handle(
+        (result, throwable) -> {
+          if (throwable != null) {
+            // Most likely an ask timeout, the system is saturated.
+            permit.onDropped();
+            return serviceUnavailable;
+          } else {
+            permit.onSuccess();
+            return result;
+          }
+        });
+  }
+
+  public ConcurrencyLimiter getConcurrencyLimiter() {
+    return concurrencyLimiter;
+  }
+}
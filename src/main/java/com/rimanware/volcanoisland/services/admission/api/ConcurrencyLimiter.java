@@ -0,0 +1,21 @@
+package com.rimanware.volcanoisland.services.admission.api;
+
+import java.util.Optional;
+
+public interface ConcurrencyLimiter {
+
+  /** @return a permit if the request can be processed right now, else empty. */
+  Optional<Permit> tryAcquire();
+
+  int getLimit();
+
+  int getInFlight();
+
+  interface Permit {
+    /** The request completed, its latency is used to adjust the limit. */
+    void onSuccess();
+
+    /** The request timed out or failed because of overload, the limit needs to back off. */
+    void onDropped();
+  }
+}
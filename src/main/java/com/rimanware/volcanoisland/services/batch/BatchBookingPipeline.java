@@ -0,0 +1,166 @@
+package com.rimanware.volcanoisland.services.batch;
+
+import akka.NotUsed;
+import akka.http.javadsl.model.StatusCodes;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.JsonFraming;
+import akka.util.ByteString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.rimanware.volcanoisland.common.DateValidator;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
+import com.rimanware.volcanoisland.errors.api.APIError;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.responses.BatchBookingResult;
+import com.rimanware.volcanoisland.services.models.responses.SimpleError;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Books the bookings of a batch as they are read, up to parallelism at a time, and emits their
+ * results in the order of the batch. A booking waits for the bookings before it in the batch that
+ * share one of its dates, so the database receives the requests of a date in the order of the
+ * batch and the first booking of a date gets it, instead of racing the others for it.
+ */
+public final class BatchBookingPipeline {
+  private static final ObjectReader BOOKING_REQUEST_READER =
+      new ObjectMapper().readerFor(BookingRequest.class);
+  private final BookingService bookingService;
+  private final BookingConstraints bookingConstraints;
+  private final APIErrorMessages apiErrorMessages;
+  private final int parallelism;
+  private final int maximumBookingSize;
+
+  private BatchBookingPipeline(
+      final BookingService bookingService,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final int parallelism,
+      final int maximumBookingSize) {
+    this.bookingService = bookingService;
+    this.bookingConstraints = bookingConstraints;
+    this.apiErrorMessages = apiErrorMessages;
+    this.parallelism = parallelism;
+    this.maximumBookingSize = maximumBookingSize;
+  }
+
+  public static BatchBookingPipeline create(
+      final BookingService bookingService,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final int parallelism,
+      final int maximumBookingSize) {
+    return new BatchBookingPipeline(
+        bookingService, bookingConstraints, apiErrorMessages, parallelism, maximumBookingSize);
+  }
+
+  public static BatchBookingPipeline fromConfig(
+      final BookingService bookingService,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final Config config) {
+    return create(
+        bookingService,
+        bookingConstraints,
+        apiErrorMessages,
+        config.getInt("parallelism"),
+        config.getBytes("maximum-booking-size").intValue());
+  }
+
+  /**
+   * @return reads the bookings of a JSON array or of newline delimited JSON objects, a new flow
+   *     for every batch as it keeps track of the dates of the batch
+   */
+  public Flow<ByteString, BatchBookingResult, NotUsed> flow() {
+    final Map<LocalDate, CompletionStage<BatchBookingResult>> latestBookingByDate = new HashMap<>();
+    return Flow.of(ByteString.class)
+        .via(JsonFraming.objectScanner(maximumBookingSize))
+        .zipWithIndex()
+        .mapAsync(
+            parallelism,
+            indexedBooking ->
+                book(
+                    (Long) indexedBooking.second(),
+                    indexedBooking.first(),
+                    latestBookingByDate));
+  }
+
+  private CompletionStage<BatchBookingResult> book(
+      final long index,
+      final ByteString booking,
+      final Map<LocalDate, CompletionStage<BatchBookingResult>> latestBookingByDate) {
+    final BookingRequest bookingRequest;
+    try {
+      bookingRequest = BOOKING_REQUEST_READER.readValue(booking.toArray());
+    } catch (final IOException e) {
+      return CompletableFuture.completedFuture(failed(index, APIErrorImpl.MalformedBookingError));
+    }
+    if (bookingRequest.getEmail() == null
+        || bookingRequest.getFullName() == null
+        || bookingRequest.getArrivalDate() == null
+        || bookingRequest.getDepartureDate() == null) {
+      return CompletableFuture.completedFuture(failed(index, APIErrorImpl.MalformedBookingError));
+    }
+
+    final DateValidator.DateValidation validation =
+        DateValidator.bookingDateRangeIsValid(
+            bookingRequest.getArrivalDate(), bookingRequest.getDepartureDate(), bookingConstraints);
+    if (validation instanceof DateValidator.Invalid) {
+      return CompletableFuture.completedFuture(
+          failed(index, ((DateValidator.Invalid) validation).getReason().getApiError()));
+    }
+
+    // Results never fail, a booking waits for the previous ones whatever their outcome
+    final ImmutableSet<LocalDate> dates =
+        UtilityFunctions.generateAllDatesInRange(
+            bookingRequest.getArrivalDate(), bookingRequest.getDepartureDate());
+    final CompletionStage<BatchBookingResult> result =
+        CompletableFuture.allOf(
+                dates.stream()
+                    .map(latestBookingByDate::get)
+                    .filter(Objects::nonNull)
+                    .map(CompletionStage::toCompletableFuture)
+                    .toArray(CompletableFuture[]::new))
+            .thenCompose(previousBookingsDone -> bookingService.createBooking(bookingRequest))
+            .handle(
+                (response, throwable) ->
+                    throwable == null
+                        ? succeededOrFailed(index, response)
+                        : failed(index, APIErrorImpl.ServiceUnavailableError));
+    dates.forEach(date -> latestBookingByDate.put(date, result));
+    return result;
+  }
+
+  private BatchBookingResult succeededOrFailed(
+      final long index, final RequestHandlerResponse response) {
+    if (response instanceof RequestHandlerResponse.Failure) {
+      return BatchBookingResult.create(
+          index,
+          ((RequestHandlerResponse.Failure) response).getHttpStatusCode().intValue(),
+          response.getResponse());
+    } else {
+      return BatchBookingResult.create(
+          index, StatusCodes.CREATED.intValue(), response.getResponse());
+    }
+  }
+
+  private BatchBookingResult failed(final long index, final APIError error) {
+    return BatchBookingResult.create(
+        index,
+        error.getHttpStatusCode().intValue(),
+        SimpleError.create(error, apiErrorMessages));
+  }
+}
@@ -0,0 +1,120 @@
+package com.rimanware.volcanoisland.services.follower;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.replication.InMemoryReplica;
+import com.rimanware.volcanoisland.services.api.AvailabilityService;
+import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.rimanware.volcanoisland.services.models.responses.Availability;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Answers availabilities from the date files replicated in memory, without involving any actor.
+ * Requests are answered 503 while the replica is staler than maxStaleness, so that a follower
+ * never serves a view older than that.
+ */
+public final class FollowerAvailabilityService implements AvailabilityService {
+  private final InMemoryReplica replica;
+  // Folder of the property files, relative to the database folder of the primary
+  private final String folder;
+  private final ImmutableSet<LocalDate> reservableDates;
+  private final int capacity;
+  private final Duration maxStaleness;
+  private final RequestHandlerResponse.Failure.ServiceUnavailable serviceUnavailable;
+
+  private FollowerAvailabilityService(
+      final InMemoryReplica replica,
+      final String folder,
+      final ImmutableSet<LocalDate> reservableDates,
+      final int capacity,
+      final Duration maxStaleness,
+      final RequestHandlerResponse.Failure.ServiceUnavailable serviceUnavailable) {
+    this.replica = replica;
+    this.folder = folder;
+    this.reservableDates = reservableDates;
+    this.capacity = capacity;
+    this.maxStaleness = maxStaleness;
+    this.serviceUnavailable = serviceUnavailable;
+  }
+
+  /** Serves the default property, whose date files are at the root of the database folder. */
+  public static FollowerAvailabilityService create(
+      final InMemoryReplica replica,
+      final LocalDate currentDate,
+      final BookingConstraints bookingConstraints,
+      final int capacity,
+      final Duration maxStaleness,
+      final Duration retryAfter,
+      final APIErrorMessages apiErrorMessages) {
+    return new FollowerAvailabilityService(
+        replica,
+        "",
+        ImmutableSet.copyOf(bookingConstraints.generateAllReservableDays(currentDate)),
+        capacity,
+        maxStaleness,
+        RequestHandlerResponse.Failure.unavailable(retryAfter, apiErrorMessages));
+  }
+
+  /**
+   * Same replica, availabilities of the property whose date files are in the given folder.
+   *
+   * @param propertyFolder relative to the database folder of the primary
+   */
+  public FollowerAvailabilityService forFolder(final String propertyFolder) {
+    return new FollowerAvailabilityService(
+        replica,
+        propertyFolder + "/",
+        reservableDates,
+        capacity,
+        maxStaleness,
+        serviceUnavailable);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities(
+      final AvailabilitiesRequest.DateRange availabilitiesRequest) {
+    return CompletableFuture.completedFuture(
+        availabilities(
+            UtilityFunctions.generateAllDatesInRange(
+                availabilitiesRequest.getStartDate(), availabilitiesRequest.getEndDate())));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities() {
+    return CompletableFuture.completedFuture(availabilities(reservableDates));
+  }
+
+  /** Dates outside the reservation window are not available, like on the primary. */
+  private RequestHandlerResponse availabilities(final Collection<LocalDate> datesToQuery) {
+    if (replica.getStaleness().compareTo(maxStaleness) > 0) {
+      return serviceUnavailable;
+    }
+    return RequestHandlerResponse.Success.succeeded(
+        Availabilities.create(
+            datesToQuery.stream()
+                .filter(reservableDates::contains)
+                .sorted()
+                .map(date -> Availability.create(date, remainingCapacityOf(date)))
+                .filter(availability -> availability.getRemainingCapacity() > 0)
+                .collect(ImmutableList.toImmutableList())));
+  }
+
+  /** A date without file was never booked. */
+  private int remainingCapacityOf(final LocalDate date) {
+    return replica
+        .latestEventOf(folder + date.toString() + ".data")
+        .map(latestDatabaseEvent -> latestDatabaseEvent.remainingCapacity(capacity))
+        .orElse(SingleDateDatabaseEvent.noBooking().remainingCapacity(capacity));
+  }
+}
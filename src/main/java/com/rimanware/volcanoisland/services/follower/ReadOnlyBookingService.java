@@ -0,0 +1,46 @@
+package com.rimanware.volcanoisland.services.follower;
+
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bookings of a follower: every write is answered with ReadOnlyFollowerError (421), clients or
+ * the load balancer are expected to send them to the primary.
+ */
+public final class ReadOnlyBookingService implements BookingService {
+  private final RequestHandlerResponse.Failure.SingleFailure readOnly;
+
+  private ReadOnlyBookingService(final APIErrorMessages apiErrorMessages) {
+    this.readOnly =
+        RequestHandlerResponse.Failure.failed(
+            APIErrorImpl.ReadOnlyFollowerError, apiErrorMessages);
+  }
+
+  public static ReadOnlyBookingService create(final APIErrorMessages apiErrorMessages) {
+    return new ReadOnlyBookingService(apiErrorMessages);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> createBooking(
+      final BookingRequest bookingRequest) {
+    return CompletableFuture.completedFuture(readOnly);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> updateBooking(
+      final UpdateBookingRequest updateBookingRequest) {
+    return CompletableFuture.completedFuture(readOnly);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> deleteBooking(final String id) {
+    return CompletableFuture.completedFuture(readOnly);
+  }
+}
@@ -16,16 +16,26 @@ public final class Availability {
   @JsonSerialize(using = LocalDateSerializer.class)
   private final LocalDate availableDate;
 
+  private final int remainingCapacity;
+
   @JsonCreator
-  private Availability(@JsonProperty("availableDate") final LocalDate availableDate) {
+  private Availability(
+      @JsonProperty("availableDate") final LocalDate availableDate,
+      @JsonProperty("remainingCapacity") final int remainingCapacity) {
     this.availableDate = availableDate;
+    this.remainingCapacity = remainingCapacity;
   }
 
-  public static Availability create(final LocalDate availableDate) {
-    return new Availability(availableDate);
+  public static Availability create(final LocalDate availableDate, final int remainingCapacity) {
+    return new Availability(availableDate, remainingCapacity);
   }
 
   public LocalDate getAvailableDate() {
     return availableDate;
   }
+
+  /** @return number of units that can still be booked on the date. */
+  public int getRemainingCapacity() {
+    return remainingCapacity;
+  }
 }
@@ -0,0 +1,53 @@
+package com.rimanware.volcanoisland.services.models.responses;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one booking of a batch: its position in the batch, the status and body the booking
+ * would have been answered with by POST /bookings.
+ */
+public final class BatchBookingResult {
+  private final long index;
+  private final int status;
+  private final Object response;
+
+  @JsonCreator
+  private BatchBookingResult(
+      @JsonProperty("index") final long index,
+      @JsonProperty("status") final int status,
+      @JsonProperty("response") final Object response) {
+    this.index = index;
+    this.status = status;
+    this.response = response;
+  }
+
+  public static BatchBookingResult create(
+      final long index, final int status, final Object response) {
+    return new BatchBookingResult(index, status, response);
+  }
+
+  public long getIndex() {
+    return index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public Object getResponse() {
+    return response;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchBookingResult{"
+        + "index="
+        + index
+        + ", status="
+        + status
+        + ", response="
+        + response
+        + '}';
+  }
+}
@@ -0,0 +1,398 @@
+package com.rimanware.volcanoisland.services.optimistic;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.rimanware.volcanoisland.common.DateValidator;
+import com.rimanware.volcanoisland.common.Tuple;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.database.api.BookingJournal;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.services.api.AvailabilityService;
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.rimanware.volcanoisland.services.models.responses.Availability;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import com.rimanware.volcanoisland.services.requesthandlers.common.RequestHandlerHelper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * In-process booking engine where every reservable date is an AtomicReference slot holding the
+ * booking of that date (null when available).
+ *
+ * <p>A request claims all of its dates with compare-and-set in ascending date order, so two
+ * requests contending for the same dates always meet on the earliest one first and can't livelock.
+ * If a slot was changed by someone else, every slot claimed so far is rolled back and the request
+ * fails. Once all slots are claimed the new state of each date is appended to the journal.
+ *
+ * <p>This is an alternative to the actor based engine (RollingMonthDatabaseActor) exposing the same
+ * services, it trades the multi-hop two-phase commit for a few CAS instructions.
+ */
+public final class OptimisticBookingEngine implements BookingService, AvailabilityService {
+  private final LocalDate currentDate;
+  private final BookingConstraints bookingConstraints;
+  private final APIErrorMessages apiErrorMessages;
+  private final BookingJournal bookingJournal;
+  private final ImmutableSortedMap<LocalDate, AtomicReference<Booking>> slots;
+
+  private OptimisticBookingEngine(
+      final LocalDate currentDate,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final BookingJournal bookingJournal,
+      final ImmutableSortedMap<LocalDate, AtomicReference<Booking>> slots) {
+    this.currentDate = currentDate;
+    this.bookingConstraints = bookingConstraints;
+    this.apiErrorMessages = apiErrorMessages;
+    this.bookingJournal = bookingJournal;
+    this.slots = slots;
+  }
+
+  /** Creates the engine and recovers the latest state of every reservable date from journal. */
+  public static OptimisticBookingEngine create(
+      final LocalDate currentDate,
+      final BookingConstraints bookingConstraints,
+      final APIErrorMessages apiErrorMessages,
+      final BookingJournal bookingJournal) {
+    final ImmutableSortedMap<LocalDate, AtomicReference<Booking>> slots =
+        bookingConstraints.generateAllReservableDays(currentDate).stream()
+            .collect(
+                ImmutableSortedMap.toImmutableSortedMap(
+                    LocalDate::compareTo,
+                    date -> date,
+                    date -> new AtomicReference<>(recoverBooking(bookingJournal, date))));
+    return new OptimisticBookingEngine(
+        currentDate, bookingConstraints, apiErrorMessages, bookingJournal, slots);
+  }
+
+  private static Booking recoverBooking(final BookingJournal bookingJournal, final LocalDate date) {
+    // This engine has a single unit per date, only the first unit of the actor engine is kept
+    final SingleDateDatabaseEvent latestEvent = bookingJournal.readLatest(date);
+    return latestEvent.getBookingsByUnit().values().stream().findFirst().orElse(null);
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> createBooking(
+      final BookingRequest bookingRequest) {
+    return completed(() -> book(Booking.fromBookingRequest(bookingRequest)));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> updateBooking(
+      final UpdateBookingRequest updateBookingRequest) {
+    return completed(() -> update(Booking.fromUpdateRequest(updateBookingRequest)));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> deleteBooking(final String id) {
+    return completed(() -> delete(id));
+  }
+
+  /** Journal failures fail the returned stage, like an ask would, instead of throwing. */
+  private static CompletionStage<RequestHandlerResponse> completed(
+      final Supplier<RequestHandlerResponse> response) {
+    try {
+      return CompletableFuture.completedFuture(response.get());
+    } catch (final RuntimeException e) {
+      final CompletableFuture<RequestHandlerResponse> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities(
+      final AvailabilitiesRequest.DateRange availabilitiesRequest) {
+    return CompletableFuture.completedFuture(
+        availabilities(
+            UtilityFunctions.generateAllDatesInRange(
+                availabilitiesRequest.getStartDate(), availabilitiesRequest.getEndDate())));
+  }
+
+  @Override
+  public CompletionStage<RequestHandlerResponse> getAvailabilities() {
+    return CompletableFuture.completedFuture(availabilities(slots.keySet()));
+  }
+
+  private RequestHandlerResponse book(final Booking booking) {
+    final ImmutableSortedSet<LocalDate> datesToBook =
+        ImmutableSortedSet.copyOf(
+            UtilityFunctions.generateAllDatesInRange(
+                booking.getArrivalDate(), booking.getDepartureDate()));
+
+    final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates =
+        outOfRangeDates(datesToBook);
+    if (!outOfRangeDates.isEmpty()) {
+      return failure(booking, datesToBook, outOfRangeDates, Optional.empty());
+    }
+
+    final ImmutableList<SlotChange> changes =
+        datesToBook.stream()
+            .map(date -> SlotChange.create(date, null, booking))
+            .collect(ImmutableList.toImmutableList());
+
+    final Optional<LocalDate> conflictingDate = claimAll(changes);
+    if (!conflictingDate.isPresent()) {
+      return RequestHandlerResponse.Success.succeeded(BookingConfirmation.create(booking.getId()));
+    } else {
+      return failure(booking, datesToBook, ImmutableList.of(), conflictingDate);
+    }
+  }
+
+  private RequestHandlerResponse update(final Booking updatedBooking) {
+    while (true) {
+      final ImmutableMap<LocalDate, Booking> previousBookings = bookingsOf(updatedBooking.getId());
+      if (previousBookings.isEmpty()) {
+        return RequestHandlerResponse.Failure.failed(
+            APIErrorImpl.BookingIdNotFoundError, apiErrorMessages);
+      }
+
+      final ImmutableSortedSet<LocalDate> datesToBook =
+          ImmutableSortedSet.copyOf(
+              UtilityFunctions.generateAllDatesInRange(
+                  updatedBooking.getArrivalDate(), updatedBooking.getDepartureDate()));
+
+      final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates =
+          outOfRangeDates(datesToBook);
+      if (!outOfRangeDates.isEmpty()) {
+        return failure(updatedBooking, datesToBook, outOfRangeDates, Optional.empty());
+      }
+
+      final ImmutableList<SlotChange> changes =
+          ImmutableSortedSet.<LocalDate>naturalOrder()
+              .addAll(previousBookings.keySet())
+              .addAll(datesToBook)
+              .build()
+              .stream()
+              .map(
+                  date ->
+                      SlotChange.create(
+                          date,
+                          previousBookings.get(date),
+                          datesToBook.contains(date) ? updatedBooking : null))
+              .collect(ImmutableList.toImmutableList());
+
+      if (!claimAll(changes).isPresent()) {
+        return RequestHandlerResponse.Success.succeeded(
+            BookingConfirmation.create(updatedBooking.getId()));
+      } else if (!alreadyBookedDates(updatedBooking, datesToBook).isEmpty()) {
+        return failure(updatedBooking, datesToBook, ImmutableList.of(), Optional.empty());
+      }
+      // Else the booking itself got modified concurrently, retry with a fresh view.
+    }
+  }
+
+  private RequestHandlerResponse delete(final String bookingId) {
+    while (true) {
+      final ImmutableMap<LocalDate, Booking> previousBookings = bookingsOf(bookingId);
+      if (previousBookings.isEmpty()) {
+        return RequestHandlerResponse.Failure.failed(
+            APIErrorImpl.BookingIdNotFoundError, apiErrorMessages);
+      }
+
+      final ImmutableList<SlotChange> changes =
+          previousBookings.entrySet().stream()
+              .map(entry -> SlotChange.create(entry.getKey(), entry.getValue(), null))
+              .collect(ImmutableList.toImmutableList());
+
+      if (!claimAll(changes).isPresent()) {
+        return RequestHandlerResponse.Success.succeeded(BookingConfirmation.create(bookingId));
+      }
+      // The booking got modified concurrently, retry with a fresh view.
+    }
+  }
+
+  private RequestHandlerResponse availabilities(final Collection<LocalDate> datesToQuery) {
+    return RequestHandlerResponse.Success.succeeded(
+        Availabilities.create(
+            datesToQuery.stream()
+                .filter(slots::containsKey)
+                .filter(date -> slots.get(date).get() == null)
+                .sorted()
+                .map(date -> Availability.create(date, 1))
+                .collect(ImmutableList.toImmutableList())));
+  }
+
+  /**
+   * Applies all changes with compare-and-set in ascending date order (changes must be sorted).
+   * Rolls back on the first conflict, else journals the changes. If the journal fails, the changes
+   * are rolled back too and the dates already journaled get their rolled back state appended, so
+   * the request doesn't keep the dates in memory nor get partially recovered.
+   *
+   * @return the date of the conflict, empty if every change was applied
+   */
+  private Optional<LocalDate> claimAll(final ImmutableList<SlotChange> changes) {
+    final List<SlotChange> appliedChanges = new ArrayList<>(changes.size());
+    for (final SlotChange change : changes) {
+      final AtomicReference<Booking> slot = slots.get(change.getDate());
+      if (slot != null && slot.compareAndSet(change.getExpected(), change.getReplacement())) {
+        appliedChanges.add(change);
+      } else {
+        rollBack(appliedChanges);
+        return Optional.of(change.getDate());
+      }
+    }
+
+    final List<LocalDate> journaledDates = new ArrayList<>(changes.size());
+    try {
+      for (final SlotChange change : changes) {
+        journal(change.getDate());
+        journaledDates.add(change.getDate());
+      }
+    } catch (final RuntimeException e) {
+      rollBack(appliedChanges);
+      journaledDates.forEach(
+          date -> {
+            try {
+              journal(date);
+            } catch (final RuntimeException compensationFailure) {
+              e.addSuppressed(compensationFailure);
+            }
+          });
+      throw e;
+    }
+    return Optional.empty();
+  }
+
+  /** Rolls back in reverse order, nobody else can have touched a slot we own. */
+  private void rollBack(final List<SlotChange> appliedChanges) {
+    for (int i = appliedChanges.size() - 1; i >= 0; i--) {
+      final SlotChange appliedChange = appliedChanges.get(i);
+      slots
+          .get(appliedChange.getDate())
+          .compareAndSet(appliedChange.getReplacement(), appliedChange.getExpected());
+    }
+  }
+
+  /**
+   * Appends the current state of the slot rather than the change itself. Appends of the same date
+   * are serialized, so the last entry of a date always reflects the latest slot state even if
+   * concurrent requests journal out of order.
+   */
+  private void journal(final LocalDate date) {
+    final AtomicReference<Booking> slot = slots.get(date);
+    synchronized (slot) {
+      final Booking booking = slot.get();
+      bookingJournal.append(
+          date,
+          booking == null
+              ? SingleDateDatabaseEvent.noBooking()
+              : SingleDateDatabaseEvent.booked(booking));
+    }
+  }
+
+  private ImmutableMap<LocalDate, Booking> bookingsOf(final String bookingId) {
+    return slots.entrySet().stream()
+        .map(entry -> Tuple.create(entry.getKey(), entry.getValue().get()))
+        .filter(tuple -> tuple.getRight() != null && tuple.getRight().getId().equals(bookingId))
+        .collect(ImmutableMap.toImmutableMap(Tuple::getLeft, Tuple::getRight));
+  }
+
+  private ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates(
+      final ImmutableSet<LocalDate> dates) {
+    return dates.stream()
+        .map(
+            date ->
+                Tuple.create(
+                    date, DateValidator.isInValidRange(date, currentDate, bookingConstraints)))
+        .filter(tuple -> tuple.getRight() instanceof DateValidator.Invalid)
+        .map(
+            tuple ->
+                RollingMonthDatabaseResponse.outOfRange(
+                    tuple.getLeft(), ((DateValidator.Invalid) tuple.getRight()).getReason()))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private ImmutableList<LocalDate> alreadyBookedDates(
+      final Booking booking, final ImmutableSet<LocalDate> dates) {
+    return dates.stream()
+        .filter(slots::containsKey)
+        .filter(
+            date -> {
+              final Booking currentBooking = slots.get(date).get();
+              return currentBooking != null && !currentBooking.getId().equals(booking.getId());
+            })
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * @param conflictingDate date a claim conflicted on, reported booked even if the booking holding
+   *     it was rolled back since, the request failed because of it
+   */
+  private RequestHandlerResponse failure(
+      final Booking booking,
+      final ImmutableSet<LocalDate> dates,
+      final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates,
+      final Optional<LocalDate> conflictingDate) {
+    final ImmutableList<LocalDate> alreadyBookedDates =
+        ImmutableSortedSet.<LocalDate>naturalOrder()
+            .addAll(alreadyBookedDates(booking, dates))
+            .addAll(conflictingDate.map(ImmutableSet::of).orElse(ImmutableSet.of()))
+            .build()
+            .asList();
+    return RequestHandlerHelper.collectAllFailures(
+        alreadyBookedDates, outOfRangeDates, apiErrorMessages);
+  }
+
+  private static final class SlotChange {
+    private final LocalDate date;
+    private final Booking expected;
+    private final Booking replacement;
+
+    private SlotChange(final LocalDate date, final Booking expected, final Booking replacement) {
+      this.date = date;
+      this.expected = expected;
+      this.replacement = replacement;
+    }
+
+    public static SlotChange create(
+        final LocalDate date, final Booking expected, final Booking replacement) {
+      return new SlotChange(date, expected, replacement);
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    public Booking getExpected() {
+      return expected;
+    }
+
+    public Booking getReplacement() {
+      return replacement;
+    }
+
+    @Override
+    public String toString() {
+      return "SlotChange{"
+          + "date="
+          + date
+          + ", expected="
+          + Objects.toString(expected)
+          + ", replacement="
+          + Objects.toString(replacement)
+          + '}';
+    }
+  }
+}
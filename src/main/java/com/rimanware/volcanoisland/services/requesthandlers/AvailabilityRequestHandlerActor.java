@@ -3,11 +3,10 @@ package com.rimanware.volcanoisland.services.requesthandlers;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableMap;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
-import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
 import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
@@ -20,6 +19,7 @@ import com.rimanware.volcanoisland.services.requesthandlers.common.ResponseColle
 import com.rimanware.volcanoisland.services.requesthandlers.common.SenderProvider;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 public final class AvailabilityRequestHandlerActor
     extends RequestHandlerActor<AvailabilityRequestHandlerActor.AvailabilityRequestState> {
@@ -27,14 +27,19 @@ public final class AvailabilityRequestHandlerActor
   private final ActorRef database;
 
   private AvailabilityRequestHandlerActor(
-      final AvailabilitiesRequest availabilitiesRequest, final ActorRef database) {
+      final AvailabilitiesRequest availabilitiesRequest,
+      final APIErrorMessages apiErrorMessages,
+      final ActorRef database) {
+    super(apiErrorMessages);
     this.availabilitiesRequest = availabilitiesRequest;
     this.database = database;
   }
 
   public static AvailabilityRequestHandlerActor create(
-      final AvailabilitiesRequest availabilitiesRequest, final ActorRef database) {
-    return new AvailabilityRequestHandlerActor(availabilitiesRequest, database);
+      final AvailabilitiesRequest availabilitiesRequest,
+      final APIErrorMessages apiErrorMessages,
+      final ActorRef database) {
+    return new AvailabilityRequestHandlerActor(availabilitiesRequest, apiErrorMessages, database);
   }
 
   public static Props props(
@@ -43,7 +48,9 @@ public final class AvailabilityRequestHandlerActor
       final ActorRef database) {
     return Props.create(
         AvailabilityRequestHandlerActor.class,
-        () -> AvailabilityRequestHandlerActor.create(availabilitiesRequest, database));
+        () ->
+            AvailabilityRequestHandlerActor.create(
+                availabilitiesRequest, apiErrorMessages, database));
   }
 
   @Override
@@ -61,46 +68,33 @@ public final class AvailabilityRequestHandlerActor
               if (availabilitiesRequest instanceof AvailabilitiesRequest.DateRange) {
                 final AvailabilitiesRequest.DateRange dateRange =
                     (AvailabilitiesRequest.DateRange) availabilitiesRequest;
-                final ImmutableSet<LocalDate> daysToQuery =
-                    UtilityFunctions.generateAllDatesInRange(
-                        dateRange.getStartDate(), dateRange.getEndDate());
-                requestAllDatesThenTransitionToCollectingState(sender, daysToQuery);
+                database.tell(
+                    RollingMonthDatabaseCommand.getAvailabilities(
+                        UtilityFunctions.generateAllDatesInRange(
+                            dateRange.getStartDate(), dateRange.getEndDate())),
+                    self());
               } else {
-                database.tell(RollingMonthDatabaseCommand.getQueryableDates(), self());
-                getContext().become(waitingForNumberOfQueryableDates(sender));
+                database.tell(RollingMonthDatabaseCommand.getAllAvailabilities(), self());
               }
+              getContext().become(waitingForSummarizedAvailabilities(sender));
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
-  private Receive waitingForNumberOfQueryableDates(final ActorRef originalSender) {
+  private Receive waitingForSummarizedAvailabilities(final ActorRef originalSender) {
     return receiveBuilder()
         .match(
-            RollingMonthDatabaseResponse.QueryableDates.class,
-            queryableDates -> {
-              requestAllDatesThenTransitionToCollectingState(
-                  originalSender, queryableDates.getQueryableDates());
-            })
+            RollingMonthDatabaseResponse.SummarizedAvailabilities.class,
+            summarizedAvailabilities ->
+                handleResult(
+                    AvailabilityRequestState.empty(originalSender)
+                        .addAvailableLocalDates(
+                            summarizedAvailabilities.getRemainingCapacityOfAvailableDates())))
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
-  private void requestAllDatesThenTransitionToCollectingState(
-      final ActorRef originalSender, final ImmutableSet<LocalDate> queryableDates) {
-    queryableDates.forEach(
-        day -> database.tell(SingleDateDatabaseCommand.getAvailability(day), self()));
-
-    getContext()
-        .become(
-            collectingResponses(
-                ResponseCollector.empty(
-                    queryableDates.stream()
-                        .map(LocalDate::toString)
-                        .collect(ImmutableSet.toImmutableSet())),
-                AvailabilityRequestState.empty(originalSender)));
-  }
-
   @Override
   protected Receive collectingResponses(
       final ResponseCollector<String> currentResponseCollector,
@@ -115,7 +109,8 @@ public final class AvailabilityRequestHandlerActor
               final ResponseCollector<String> newResponseCollector =
                   currentResponseCollector.collect(availableDateAsString);
               final AvailabilityRequestState newAvailabilityRequestState =
-                  currentAvailabilityRequestState.addAvailableLocalDate(availableDate);
+                  currentAvailabilityRequestState.addAvailableLocalDate(
+                      availableDate, isAvailable.getRemainingCapacity());
 
               nextStateOrCompleteRequest(newResponseCollector, newAvailabilityRequestState);
             })
@@ -150,42 +145,50 @@ public final class AvailabilityRequestHandlerActor
       final AvailabilityRequestHandlerActor.AvailabilityRequestState availabilityRequestState) {
     return RequestHandlerResponse.Success.succeeded(
         Availabilities.create(
-            availabilityRequestState.getAvailableLocalDates().stream()
-                .sorted()
-                .map(Availability::create)
+            availabilityRequestState.getRemainingCapacityOfAvailableLocalDates().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> Availability.create(entry.getKey(), entry.getValue()))
                 .collect(ImmutableList.toImmutableList())));
   }
 
   protected static class AvailabilityRequestState implements SenderProvider {
-    private final ImmutableList<LocalDate> availableLocalDates;
+    private final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableLocalDates;
     private final ActorRef sender;
 
     private AvailabilityRequestState(
-        final ImmutableList<LocalDate> availableLocalDates, final ActorRef sender) {
-      this.availableLocalDates = availableLocalDates;
+        final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableLocalDates,
+        final ActorRef sender) {
+      this.remainingCapacityOfAvailableLocalDates = remainingCapacityOfAvailableLocalDates;
       this.sender = sender;
     }
 
     public static AvailabilityRequestState empty(final ActorRef sender) {
-      return create(ImmutableList.of(), sender);
+      return create(ImmutableMap.of(), sender);
     }
 
     private static AvailabilityRequestState create(
-        final ImmutableList<LocalDate> availableLocalDates, final ActorRef sender) {
-      return new AvailabilityRequestState(availableLocalDates, sender);
+        final ImmutableMap<LocalDate, Integer> remainingCapacityOfAvailableLocalDates,
+        final ActorRef sender) {
+      return new AvailabilityRequestState(remainingCapacityOfAvailableLocalDates, sender);
     }
 
     public AvailabilityRequestState addAvailableLocalDates(
-        final ImmutableList<LocalDate> newAvailableLocalDates) {
-      return create(UtilityFunctions.combine(availableLocalDates, newAvailableLocalDates), sender);
+        final ImmutableMap<LocalDate, Integer> newRemainingCapacityOfAvailableLocalDates) {
+      return create(
+          ImmutableMap.<LocalDate, Integer>builder()
+              .putAll(remainingCapacityOfAvailableLocalDates)
+              .putAll(newRemainingCapacityOfAvailableLocalDates)
+              .build(),
+          sender);
     }
 
-    public AvailabilityRequestState addAvailableLocalDate(final LocalDate newAvailableLocalDate) {
-      return addAvailableLocalDates(ImmutableList.of(newAvailableLocalDate));
+    public AvailabilityRequestState addAvailableLocalDate(
+        final LocalDate newAvailableLocalDate, final int remainingCapacity) {
+      return addAvailableLocalDates(ImmutableMap.of(newAvailableLocalDate, remainingCapacity));
     }
 
-    public ImmutableList<LocalDate> getAvailableLocalDates() {
-      return availableLocalDates;
+    public ImmutableMap<LocalDate, Integer> getRemainingCapacityOfAvailableLocalDates() {
+      return remainingCapacityOfAvailableLocalDates;
     }
 
     @Override
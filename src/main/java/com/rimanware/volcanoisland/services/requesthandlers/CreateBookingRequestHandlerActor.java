@@ -4,12 +4,14 @@ import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
 import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
 import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
 import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
@@ -25,7 +27,6 @@ import static com.rimanware.volcanoisland.services.requesthandlers.common.Reques
 
 public final class CreateBookingRequestHandlerActor
     extends RequestHandlerActor<BookingRequestState> {
-  private final APIErrorMessages apiErrorMessages;
   private final BookingRequest bookingRequest;
   private final ActorRef database;
 
@@ -33,7 +34,7 @@ public final class CreateBookingRequestHandlerActor
       final BookingRequest bookingRequest,
       final APIErrorMessages apiErrorMessages,
       final ActorRef database) {
-    this.apiErrorMessages = apiErrorMessages;
+    super(apiErrorMessages);
     this.bookingRequest = bookingRequest;
     this.database = database;
   }
@@ -54,9 +55,13 @@ public final class CreateBookingRequestHandlerActor
         () -> CreateBookingRequestHandlerActor.create(bookingRequest, apiErrorMessages, database));
   }
 
-  private static ImmutableList<LocalDate> datesToRollBack(
+  private ImmutableMap<LocalDate, ActorRef> transactionParticipants(
       final BookingRequestState bookingRequestState) {
-    return bookingRequestState.getNewlyBookedDates();
+    return bookingRequestState.getTransactionParticipants(database);
+  }
+
+  private static String bookingIdToSettle(final BookingRequestState bookingRequestState) {
+    return bookingRequestState.getBooking().getId();
   }
 
   @Override
@@ -75,8 +80,8 @@ public final class CreateBookingRequestHandlerActor
                       bookingRequest.getArrivalDate(), bookingRequest.getDepartureDate());
 
               final Booking booking = Booking.fromBookingRequest(bookingRequest);
-              daysToBook.forEach(
-                  day -> database.tell(SingleDateDatabaseCommand.book(booking, day), self()));
+              final BookingRequestState initialState = BookingRequestState.empty(booking, sender);
+              acquireOrProbeNextDates(initialState, initialState);
 
               final ImmutableSet<String> expectedDateCreateResponses =
                   daysToBook.stream()
@@ -87,7 +92,7 @@ public final class CreateBookingRequestHandlerActor
                   .become(
                       collectingResponses(
                           ResponseCollector.empty(expectedDateCreateResponses),
-                          BookingRequestState.empty(booking, sender)));
+                          initialState));
             })
         .matchAny(o -> log.info("received unknown message"))
         .build();
@@ -107,13 +112,37 @@ public final class CreateBookingRequestHandlerActor
               final ResponseCollector<String> newResponseCollector =
                   currentResponseCollector.collect(bookedDateAsString);
               final BookingRequestState newCreateBookingRequestState =
-                  currentCreateBookingRequestState.addNewlyBookedDate(bookedDate);
+                  currentCreateBookingRequestState.addNewlyBookedDate(
+                      bookedDate, bookingConfirmation.getWriter());
+
+              acquireOrProbeNextDates(
+                  currentCreateBookingRequestState, newCreateBookingRequestState);
+              nextStateOrCompleteRequestWithRollback(
+                  newResponseCollector,
+                  currentCreateBookingRequestState,
+                  newCreateBookingRequestState,
+                  this::transactionParticipants,
+                  CreateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
+            })
+        .match(
+            SingleDateDatabaseResponse.BookingConfirmation.class,
+            bookingConfirmation -> {
+              // Reply to BookAndCommit, the date is already written
+              final LocalDate bookedDate = bookingConfirmation.getDate();
+
+              final ResponseCollector<String> newResponseCollector =
+                  currentResponseCollector.collect(bookedDate.toString());
+              final BookingRequestState newCreateBookingRequestState =
+                  currentCreateBookingRequestState.addCommittedDate(bookedDate);
 
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentCreateBookingRequestState,
                   newCreateBookingRequestState,
-                  CreateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  CreateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .match(
             SingleDateDatabaseResponse.IsBooked.class,
@@ -126,11 +155,37 @@ public final class CreateBookingRequestHandlerActor
               final BookingRequestState newCreateBookingRequestState =
                   currentCreateBookingRequestState.addAlreadyBookedDate(isBookedDate);
 
+              acquireOrProbeNextDates(
+                  currentCreateBookingRequestState, newCreateBookingRequestState);
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentCreateBookingRequestState,
                   newCreateBookingRequestState,
-                  CreateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  CreateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
+            })
+        .match(
+            SingleDateDatabaseResponse.Overloaded.class,
+            overloaded -> {
+              if (currentCreateBookingRequestState.hasFailed()) {
+                // Reply to a probe sent after the booking failed, the date is left unreported.
+                nextStateOrCompleteRequestWithRollback(
+                    currentResponseCollector.collect(overloaded.getDate().toString()),
+                    currentCreateBookingRequestState,
+                    currentCreateBookingRequestState,
+                    this::transactionParticipants,
+                    CreateBookingRequestHandlerActor::bookingIdToSettle,
+                    BookingRequestState::hasFailed);
+              } else {
+                // Dates are acquired one at a time, no other date is pending. The request is shed
+                // like the admission control would have, the client retries it later.
+                failWithRollback(
+                    currentCreateBookingRequestState,
+                    transactionParticipants(currentCreateBookingRequestState),
+                    bookingIdToSettle(currentCreateBookingRequestState),
+                    RequestHandlerResponse.Failure.unavailable(retryAfter, apiErrorMessages));
+              }
             })
         .match(
             RollingMonthDatabaseResponse.RequestedDateOutOfRange.class,
@@ -143,16 +198,98 @@ public final class CreateBookingRequestHandlerActor
               final BookingRequestState newCreateBookingRequestState =
                   currentCreateBookingRequestState.addOutOfRangeDate(requestedDateOutOfRange);
 
+              acquireOrProbeNextDates(
+                  currentCreateBookingRequestState, newCreateBookingRequestState);
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentCreateBookingRequestState,
                   newCreateBookingRequestState,
-                  CreateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  CreateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
+            })
+        .match(
+            SingleDateDatabaseResponse.IsAvailable.class,
+            isAvailable -> {
+              // Reply to a probe sent after the booking failed, nothing to book or report.
+              final ResponseCollector<String> newResponseCollector =
+                  currentResponseCollector.collect(isAvailable.getDate().toString());
+
+              nextStateOrCompleteRequestWithRollback(
+                  newResponseCollector,
+                  currentCreateBookingRequestState,
+                  currentCreateBookingRequestState,
+                  this::transactionParticipants,
+                  CreateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .matchAny(o -> log.info("received unknown message"))
         .build();
   }
 
+  /**
+   * Dates are acquired one at a time in ascending order. Two overlapping bookings therefore always
+   * contend on their earliest common date first and the loser stops there, instead of each winning
+   * some of the dates and both being reverted. Once the booking failed, the remaining dates are
+   * only probed on the read replicas (no probatory booking) so the response still lists every
+   * unavailable date. A single date booking has no other date to coordinate with, it is booked and
+   * written in one step.
+   */
+  private void acquireOrProbeNextDates(
+      final BookingRequestState previousState, final BookingRequestState newState) {
+    final ImmutableList<LocalDate> remainingDates = remainingDates(newState);
+    if (newState.hasFailed()) {
+      if (!previousState.hasFailed()) {
+        remainingDates.forEach(
+            day -> database.tell(SingleDateDatabaseCommand.getAvailability(day), self()));
+      }
+    } else {
+      remainingDates.stream()
+          .findFirst()
+          .ifPresent(
+              day ->
+                  database.tell(
+                      isSingleDate()
+                          ? SingleDateDatabaseCommand.bookAndCommit(newState.getBooking(), day)
+                          : SingleDateDatabaseCommand.book(newState.getBooking(), day),
+                      self()));
+    }
+  }
+
+  private ImmutableList<LocalDate> remainingDates(final BookingRequestState bookingRequestState) {
+    final ImmutableSet<LocalDate> handledDates =
+        ImmutableSet.<LocalDate>builder()
+            .addAll(bookingRequestState.getNewlyBookedDates())
+            .addAll(bookingRequestState.getCommittedDates())
+            .addAll(bookingRequestState.getAlreadyBookedDates())
+            .addAll(
+                bookingRequestState.getOutOfRangeDates().stream()
+                    .map(RollingMonthDatabaseResponse.RequestedDateOutOfRange::getRequestedDate)
+                    .iterator())
+            .build();
+    return UtilityFunctions.generateAllDatesInRange(
+            bookingRequest.getArrivalDate(), bookingRequest.getDepartureDate())
+        .stream()
+        .sorted()
+        .filter(day -> !handledDates.contains(day))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private boolean isSingleDate() {
+    return bookingRequest.getArrivalDate().equals(bookingRequest.getDepartureDate());
+  }
+
+  /** The dates that did commit are cancelled, the booking is saved whole or not at all. */
+  @Override
+  protected RequestHandlerResponse createExpiredTransactionResponse(
+      final BookingRequestState createBookingRequestState,
+      final ImmutableSet<LocalDate> expiredDates) {
+    database.tell(
+        SingleDateDatabaseCommand.cancel(createBookingRequestState.getBooking().getId()), self());
+    return RequestHandlerResponse.Failure.failed(
+        APIErrorImpl.TransactionExpiredError, apiErrorMessages);
+  }
+
   @Override
   protected RequestHandlerResponse createResponse(
       final BookingRequestState createBookingRequestState) {
@@ -5,7 +5,6 @@ import akka.actor.Props;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
-import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
@@ -22,13 +21,12 @@ import java.time.LocalDate;
 
 public final class DeleteBookingRequestHandlerActor
     extends RequestHandlerActor<DeleteBookingRequestHandlerActor.DeleteRequestState> {
-  private final APIErrorMessages apiErrorMessages;
   private final String bookingId;
   private final ActorRef database;
 
   private DeleteBookingRequestHandlerActor(
       final String bookingId, final APIErrorMessages apiErrorMessages, final ActorRef database) {
-    this.apiErrorMessages = apiErrorMessages;
+    super(apiErrorMessages);
     this.bookingId = bookingId;
     this.database = database;
   }
@@ -56,30 +54,43 @@ public final class DeleteBookingRequestHandlerActor
             RequestHandlerCommand.Process.class,
             book -> {
               final ActorRef sender = sender();
-              database.tell(RollingMonthDatabaseCommand.getQueryableDates(), self());
-              getContext().become(waitingForQueryableDates(sender));
+              database.tell(SingleDateDatabaseCommand.cancel(bookingId), self());
+              getContext().become(waitingForBroadcastRecipients(sender, ImmutableList.of()));
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
-  private Receive waitingForQueryableDates(final ActorRef originalSender) {
+  private Receive waitingForBroadcastRecipients(
+      final ActorRef originalSender, final ImmutableList<Object> bufferedResponses) {
     return receiveBuilder()
         .match(
-            RollingMonthDatabaseResponse.QueryableDates.class,
-            queryableDates -> {
-              database.tell(SingleDateDatabaseCommand.cancel(bookingId), self());
-
-              getContext()
-                  .become(
-                      collectingResponses(
-                          ResponseCollector.empty(
-                              queryableDates.getQueryableDates().stream()
-                                  .map(LocalDate::toString)
-                                  .collect(ImmutableSet.toImmutableSet())),
-                          DeleteRequestState.empty(originalSender)));
+            RollingMonthDatabaseResponse.BroadcastRecipients.class,
+            broadcastRecipients -> {
+              final DeleteRequestState deleteRequestState =
+                  DeleteRequestState.empty(originalSender);
+              if (broadcastRecipients.getRecipientDates().isEmpty()) {
+                handleResult(deleteRequestState);
+              } else {
+                getContext()
+                    .become(
+                        collectingResponses(
+                            ResponseCollector.empty(
+                                broadcastRecipients.getRecipientDates().stream()
+                                    .map(LocalDate::toString)
+                                    .collect(ImmutableSet.toImmutableSet())),
+                            deleteRequestState));
+                bufferedResponses.forEach(response -> self().tell(response, sender()));
+              }
             })
-        .matchAny(o -> log.info("received unknown message"))
+        .matchAny(
+            response ->
+                // Dates may answer before the recipients reach us
+                getContext()
+                    .become(
+                        waitingForBroadcastRecipients(
+                            originalSender,
+                            UtilityFunctions.addToImmutableList(bufferedResponses, response))))
         .build();
   }
 
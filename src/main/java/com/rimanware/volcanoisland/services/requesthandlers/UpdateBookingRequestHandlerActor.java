@@ -3,9 +3,9 @@ package com.rimanware.volcanoisland.services.requesthandlers;
 import akka.actor.ActorRef;
 import akka.actor.Props;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
-import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
@@ -25,7 +25,6 @@ import java.time.LocalDate;
 
 public final class UpdateBookingRequestHandlerActor
     extends RequestHandlerActor<BookingRequestState> {
-  private final APIErrorMessages apiErrorMessages;
   private final UpdateBookingRequest updateRequest;
   private final ActorRef database;
 
@@ -33,7 +32,7 @@ public final class UpdateBookingRequestHandlerActor
       final UpdateBookingRequest updateRequest,
       final APIErrorMessages apiErrorMessages,
       final ActorRef database) {
-    this.apiErrorMessages = apiErrorMessages;
+    super(apiErrorMessages);
     this.updateRequest = updateRequest;
     this.database = database;
   }
@@ -56,9 +55,13 @@ public final class UpdateBookingRequestHandlerActor
                 updateBookingRequest, apiErrorMessages, database));
   }
 
-  private static ImmutableList<LocalDate> datesToRollBack(
+  private ImmutableMap<LocalDate, ActorRef> transactionParticipants(
       final BookingRequestState bookingRequestState) {
-    return bookingRequestState.getNewlyBookedDates();
+    return bookingRequestState.getTransactionParticipants(database);
+  }
+
+  private static String bookingIdToSettle(final BookingRequestState bookingRequestState) {
+    return bookingRequestState.getBooking().getId();
   }
 
   @Override
@@ -72,21 +75,24 @@ public final class UpdateBookingRequestHandlerActor
             RequestHandlerCommand.Process.class,
             book -> {
               final ActorRef sender = sender();
-              database.tell(RollingMonthDatabaseCommand.getQueryableDates(), self());
-              getContext().become(waitingForQueryableDates(sender));
+              final Booking updatedBooking = Booking.fromUpdateRequest(updateRequest);
+              database.tell(SingleDateDatabaseCommand.update(updatedBooking), self());
+              getContext()
+                  .become(
+                      waitingForBroadcastRecipients(sender, updatedBooking, ImmutableList.of()));
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
-  private Receive waitingForQueryableDates(final ActorRef originalSender) {
+  private Receive waitingForBroadcastRecipients(
+      final ActorRef originalSender,
+      final Booking updatedBooking,
+      final ImmutableList<Object> bufferedResponses) {
     return receiveBuilder()
         .match(
-            RollingMonthDatabaseResponse.QueryableDates.class,
-            queryableDates -> {
-              final Booking updatedBooking = Booking.fromUpdateRequest(updateRequest);
-              database.tell(SingleDateDatabaseCommand.update(updatedBooking), self());
-
+            RollingMonthDatabaseResponse.BroadcastRecipients.class,
+            broadcastRecipients -> {
               final ImmutableSet<String> daysToBookAsString =
                   UtilityFunctions.generateAllDatesInRange(
                           updatedBooking.getArrivalDate(), updatedBooking.getDepartureDate())
@@ -96,7 +102,7 @@ public final class UpdateBookingRequestHandlerActor
 
               final ImmutableSet<String> expectedDateUpdateResponses =
                   UtilityFunctions.combine(
-                      queryableDates.getQueryableDates().stream()
+                      broadcastRecipients.getRecipientDates().stream()
                           .map(LocalDate::toString)
                           .collect(ImmutableSet.toImmutableSet()),
                       daysToBookAsString);
@@ -106,8 +112,17 @@ public final class UpdateBookingRequestHandlerActor
                       collectingResponses(
                           ResponseCollector.empty(expectedDateUpdateResponses),
                           BookingRequestState.empty(updatedBooking, originalSender)));
+              bufferedResponses.forEach(response -> self().tell(response, sender()));
             })
-        .matchAny(o -> log.info("received unknown message {}", o))
+        .matchAny(
+            response ->
+                // Out of range errors and dates may answer before the recipients reach us
+                getContext()
+                    .become(
+                        waitingForBroadcastRecipients(
+                            originalSender,
+                            updatedBooking,
+                            UtilityFunctions.addToImmutableList(bufferedResponses, response))))
         .build();
   }
 
@@ -126,15 +141,17 @@ public final class UpdateBookingRequestHandlerActor
                   currentResponseCollector.collect(updatedDateAsString);
               final BookingRequestState newUpdateBookingRequestState =
                   currentUpdateBookingRequestState
-                      .addNewlyBookedDate(updatedDate)
+                      .addNewlyBookedDate(updatedDate, probatoryUpdateConfirmation.getWriter())
                       .foundBookingToBeUpdated(
                           probatoryUpdateConfirmation.getOverridesPreviousUpdate());
 
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentUpdateBookingRequestState,
                   newUpdateBookingRequestState,
-                  UpdateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  UpdateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .match(
             SingleDateDatabaseResponse.IsBooked.class,
@@ -149,9 +166,11 @@ public final class UpdateBookingRequestHandlerActor
 
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentUpdateBookingRequestState,
                   newUpdateBookingRequestState,
-                  UpdateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  UpdateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .match(
             RollingMonthDatabaseResponse.RequestedDatesOutOfRange.class,
@@ -174,9 +193,11 @@ public final class UpdateBookingRequestHandlerActor
 
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
+                  currentUpdateBookingRequestState,
                   newUpdateBookingRequestState,
-                  UpdateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  this::transactionParticipants,
+                  UpdateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .match(
             SingleDateDatabaseResponse.DoesntQualifyForUpdateConfirmation.class,
@@ -189,17 +210,30 @@ public final class UpdateBookingRequestHandlerActor
               final ResponseCollector<String> newResponseCollector =
                   currentResponseCollector.collect(notQualifyingUpdateConfirmationDateAsString);
 
-              nextStateOrCompleteRequest(newResponseCollector, currentUpdateBookingRequestState);
               nextStateOrCompleteRequestWithRollback(
                   newResponseCollector,
                   currentUpdateBookingRequestState,
-                  UpdateBookingRequestHandlerActor::datesToRollBack,
-                  database);
+                  currentUpdateBookingRequestState,
+                  this::transactionParticipants,
+                  UpdateBookingRequestHandlerActor::bookingIdToSettle,
+                  BookingRequestState::hasFailed);
             })
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
 
+  /**
+   * The dates that did commit keep the update. Sending the same update again converges: those
+   * dates are overridden with the same booking, the expired ones are updated.
+   */
+  @Override
+  protected RequestHandlerResponse createExpiredTransactionResponse(
+      final BookingRequestState updateBookingRequestState,
+      final ImmutableSet<LocalDate> expiredDates) {
+    return RequestHandlerResponse.Failure.failed(
+        APIErrorImpl.TransactionExpiredError, apiErrorMessages);
+  }
+
   @Override
   protected RequestHandlerResponse createResponse(
       final BookingRequestState updateBookingRequestState) {
@@ -1,10 +1,16 @@
 package com.rimanware.volcanoisland.services.requesthandlers.api;
 
+import akka.actor.ActorRef;
+
 public interface RequestHandlerCommand {
   static Process process() {
     return Process.INSTANCE;
   }
 
+  static Dispatch dispatch(final Object request, final ActorRef database) {
+    return Dispatch.create(request, database);
+  }
+
   enum Process implements RequestHandlerCommand {
     INSTANCE;
 
@@ -15,4 +21,35 @@ public interface RequestHandlerCommand {
       return "Process{}";
     }
   }
+
+  /**
+   * Request to be handled against the given database rather than the default database of the
+   * dispatcher, so that one dispatcher can serve every property.
+   */
+  final class Dispatch implements RequestHandlerCommand {
+    private final Object request;
+    private final ActorRef database;
+
+    private Dispatch(final Object request, final ActorRef database) {
+      this.request = request;
+      this.database = database;
+    }
+
+    public static Dispatch create(final Object request, final ActorRef database) {
+      return new Dispatch(request, database);
+    }
+
+    @Override
+    public String toString() {
+      return "Dispatch{" + "request=" + request + ", database=" + database + '}';
+    }
+
+    public Object getRequest() {
+      return request;
+    }
+
+    public ActorRef getDatabase() {
+      return database;
+    }
+  }
 }
@@ -2,6 +2,7 @@ package com.rimanware.volcanoisland.services.requesthandlers.api;
 
 import akka.http.javadsl.model.StatusCode;
 import akka.http.scaladsl.model.StatusCodes;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
 import com.rimanware.volcanoisland.errors.api.APIError;
 import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
 import com.rimanware.volcanoisland.services.models.responses.Availabilities;
@@ -9,6 +10,8 @@ import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation
 import com.rimanware.volcanoisland.services.models.responses.DateErrors;
 import com.rimanware.volcanoisland.services.models.responses.SimpleError;
 
+import java.time.Duration;
+
 public interface RequestHandlerResponse {
   Object getResponse();
 
@@ -81,6 +84,11 @@ public interface RequestHandlerResponse {
       return SingleFailure.create(error, errorMessages);
     }
 
+    static ServiceUnavailable unavailable(
+        final Duration retryAfter, final APIErrorMessages errorMessages) {
+      return ServiceUnavailable.create(retryAfter, errorMessages);
+    }
+
     @Override
     Object getResponse();
 
@@ -147,5 +155,41 @@ public interface RequestHandlerResponse {
         return "SingleFailure{" + "error=" + error + ", httpStatusCode=" + httpStatusCode + '}';
       }
     }
+
+    /** The request was shed (or timed out) because the service is overloaded. */
+    final class ServiceUnavailable implements Failure {
+      private final SimpleError error;
+      private final Duration retryAfter;
+
+      private ServiceUnavailable(final SimpleError error, final Duration retryAfter) {
+        this.error = error;
+        this.retryAfter = retryAfter;
+      }
+
+      public static ServiceUnavailable create(
+          final Duration retryAfter, final APIErrorMessages errorMessages) {
+        return new ServiceUnavailable(
+            SimpleError.create(APIErrorImpl.ServiceUnavailableError, errorMessages), retryAfter);
+      }
+
+      @Override
+      public Object getResponse() {
+        return error;
+      }
+
+      @Override
+      public StatusCode getHttpStatusCode() {
+        return APIErrorImpl.ServiceUnavailableError.getHttpStatusCode();
+      }
+
+      public Duration getRetryAfter() {
+        return retryAfter;
+      }
+
+      @Override
+      public String toString() {
+        return "ServiceUnavailable{" + "error=" + error + ", retryAfter=" + retryAfter + '}';
+      }
+    }
   }
 }
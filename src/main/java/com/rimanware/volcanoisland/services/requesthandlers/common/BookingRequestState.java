@@ -2,6 +2,7 @@ package com.rimanware.volcanoisland.services.requesthandlers.common;
 
 import akka.actor.ActorRef;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.rimanware.volcanoisland.common.UtilityFunctions;
 import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
 import com.rimanware.volcanoisland.database.models.Booking;
@@ -10,6 +11,10 @@ import java.time.LocalDate;
 
 public final class BookingRequestState implements SenderProvider {
   private final ImmutableList<LocalDate> newlyBookedDates;
+  // Writers holding newly booked dates, to settle their transactions directly
+  private final ImmutableMap<LocalDate, ActorRef> writersOfNewlyBookedDates;
+  // Booked without a transaction, nothing to commit or revert
+  private final ImmutableList<LocalDate> committedDates;
   private final ImmutableList<LocalDate> alreadyBookedDates;
   private final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates;
   private final Boolean foundBookingToBeUpdated;
@@ -18,12 +23,16 @@ public final class BookingRequestState implements SenderProvider {
 
   private BookingRequestState(
       final ImmutableList<LocalDate> newlyBookedDates,
+      final ImmutableMap<LocalDate, ActorRef> writersOfNewlyBookedDates,
+      final ImmutableList<LocalDate> committedDates,
       final ImmutableList<LocalDate> alreadyBookedDates,
       final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates,
       final Boolean foundBookingToBeUpdated,
       final Booking booking,
       final ActorRef sender) {
     this.newlyBookedDates = newlyBookedDates;
+    this.writersOfNewlyBookedDates = writersOfNewlyBookedDates;
+    this.committedDates = committedDates;
     this.alreadyBookedDates = alreadyBookedDates;
     this.outOfRangeDates = outOfRangeDates;
     this.foundBookingToBeUpdated = foundBookingToBeUpdated;
@@ -33,6 +42,8 @@ public final class BookingRequestState implements SenderProvider {
 
   public static BookingRequestState create(
       final ImmutableList<LocalDate> newlyBookedDates,
+      final ImmutableMap<LocalDate, ActorRef> writersOfNewlyBookedDates,
+      final ImmutableList<LocalDate> committedDates,
       final ImmutableList<LocalDate> alreadyBookedDates,
       final ImmutableList<RollingMonthDatabaseResponse.RequestedDateOutOfRange> outOfRangeDates,
       final Boolean foundBookingToBeUpdated,
@@ -40,6 +51,8 @@ public final class BookingRequestState implements SenderProvider {
       final ActorRef sender) {
     return new BookingRequestState(
         newlyBookedDates,
+        writersOfNewlyBookedDates,
+        committedDates,
         alreadyBookedDates,
         outOfRangeDates,
         foundBookingToBeUpdated,
@@ -49,13 +62,22 @@ public final class BookingRequestState implements SenderProvider {
 
   public static BookingRequestState empty(final Booking booking, final ActorRef sender) {
     return BookingRequestState.create(
-        ImmutableList.of(), ImmutableList.of(), ImmutableList.of(), false, booking, sender);
+        ImmutableList.of(),
+        ImmutableMap.of(),
+        ImmutableList.of(),
+        ImmutableList.of(),
+        ImmutableList.of(),
+        false,
+        booking,
+        sender);
   }
 
   public BookingRequestState addNewlyBookedDates(
       final ImmutableList<LocalDate> newNewlyBookedDates) {
     return BookingRequestState.create(
         UtilityFunctions.combine(newlyBookedDates, newNewlyBookedDates),
+        writersOfNewlyBookedDates,
+        committedDates,
         alreadyBookedDates,
         outOfRangeDates,
         foundBookingToBeUpdated,
@@ -67,10 +89,39 @@ public final class BookingRequestState implements SenderProvider {
     return addNewlyBookedDates(ImmutableList.of(newNewlyBookedDates));
   }
 
+  /** @param writer writer holding the date on probation, see getTransactionParticipants */
+  public BookingRequestState addNewlyBookedDate(
+      final LocalDate newNewlyBookedDate, final ActorRef writer) {
+    return BookingRequestState.create(
+        UtilityFunctions.addToImmutableList(newlyBookedDates, newNewlyBookedDate),
+        UtilityFunctions.putInImmutableMap(writersOfNewlyBookedDates, newNewlyBookedDate, writer),
+        committedDates,
+        alreadyBookedDates,
+        outOfRangeDates,
+        foundBookingToBeUpdated,
+        booking,
+        sender);
+  }
+
+  /** Date booked and written in one step, see SingleDateDatabaseCommand.BookAndCommit. */
+  public BookingRequestState addCommittedDate(final LocalDate committedDate) {
+    return BookingRequestState.create(
+        newlyBookedDates,
+        writersOfNewlyBookedDates,
+        UtilityFunctions.addToImmutableList(committedDates, committedDate),
+        alreadyBookedDates,
+        outOfRangeDates,
+        foundBookingToBeUpdated,
+        booking,
+        sender);
+  }
+
   public BookingRequestState addAlreadyBookedDates(
       final ImmutableList<LocalDate> newAlreadyBookedDates) {
     return BookingRequestState.create(
         newlyBookedDates,
+        writersOfNewlyBookedDates,
+        committedDates,
         UtilityFunctions.combine(alreadyBookedDates, newAlreadyBookedDates),
         outOfRangeDates,
         foundBookingToBeUpdated,
@@ -87,6 +138,8 @@ public final class BookingRequestState implements SenderProvider {
           newOutOfRangeDates) {
     return BookingRequestState.create(
         newlyBookedDates,
+        writersOfNewlyBookedDates,
+        committedDates,
         alreadyBookedDates,
         UtilityFunctions.combine(outOfRangeDates, newOutOfRangeDates),
         foundBookingToBeUpdated,
@@ -102,6 +155,8 @@ public final class BookingRequestState implements SenderProvider {
   public BookingRequestState foundBookingToBeUpdated(final Boolean found) {
     return BookingRequestState.create(
         newlyBookedDates,
+        writersOfNewlyBookedDates,
+        committedDates,
         alreadyBookedDates,
         outOfRangeDates,
         foundBookingToBeUpdated || found,
@@ -113,6 +168,27 @@ public final class BookingRequestState implements SenderProvider {
     return newlyBookedDates;
   }
 
+  /**
+   * @return actor to commit or revert each newly booked date with: the writer holding it, else
+   *     the database, which routes to the writer.
+   */
+  public ImmutableMap<LocalDate, ActorRef> getTransactionParticipants(final ActorRef database) {
+    return newlyBookedDates.stream()
+        .distinct()
+        .collect(
+            ImmutableMap.toImmutableMap(
+                date -> date, date -> writersOfNewlyBookedDates.getOrDefault(date, database)));
+  }
+
+  /** @return whether a date is already booked or out of range, which fails the request. */
+  public Boolean hasFailed() {
+    return !alreadyBookedDates.isEmpty() || !outOfRangeDates.isEmpty();
+  }
+
+  public ImmutableList<LocalDate> getCommittedDates() {
+    return committedDates;
+  }
+
   public ImmutableList<LocalDate> getAlreadyBookedDates() {
     return alreadyBookedDates;
   }
@@ -2,16 +2,69 @@ package com.rimanware.volcanoisland.services.requesthandlers.common;
 
 import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
-import com.google.common.collect.ImmutableList;
+import akka.actor.ReceiveTimeout;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.rimanware.volcanoisland.common.LoggingReceiveActor;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
 import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.errors.api.APIErrorMessages;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
 import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import com.typesafe.config.Config;
+import scala.PartialFunction;
+import scala.concurrent.duration.FiniteDuration;
+import scala.runtime.BoxedUnit;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Map;
 import java.util.function.Function;
 
 public abstract class RequestHandlerActor<RequestState extends SenderProvider>
     extends LoggingReceiveActor {
+  private static final String IDLE_TIMEOUT = "volcano-island.request-handlers.idle-timeout";
+  private static final String RETRY_AFTER = "volcano-island.admission-control.retry-after";
+  protected final APIErrorMessages apiErrorMessages;
+  protected final Duration retryAfter;
+  private final FiniteDuration idleTimeout;
+  // Sender of the request, known once it is processed
+  private ActorRef requester = ActorRef.noSender();
+
+  protected RequestHandlerActor(final APIErrorMessages apiErrorMessages) {
+    this.apiErrorMessages = apiErrorMessages;
+    final Config config = getContext().getSystem().settings().config();
+    this.retryAfter = config.getDuration(RETRY_AFTER);
+    this.idleTimeout = FiniteDuration.fromNanos(config.getDuration(IDLE_TIMEOUT).toNanos());
+  }
+
+  @Override
+  public void preStart() {
+    getContext().setReceiveTimeout(idleTimeout);
+  }
+
+  /**
+   * A database answer that never comes (request lost) would leave the handler waiting forever and
+   * the requester until the ask times out. The requester is told to retry instead, dates held on
+   * probation are released by the transaction timeout.
+   */
+  @Override
+  public void aroundReceive(final PartialFunction<Object, BoxedUnit> receive, final Object msg) {
+    if (msg instanceof ReceiveTimeout) {
+      log.warning("No answer from the database within {}, giving up the request", idleTimeout);
+      if (requester != ActorRef.noSender()) {
+        requester.tell(
+            RequestHandlerResponse.Failure.unavailable(retryAfter, apiErrorMessages), self());
+      }
+      getContext().stop(self());
+    } else {
+      if (msg instanceof RequestHandlerCommand.Process) {
+        requester = sender();
+      }
+      super.aroundReceive(receive, msg);
+    }
+  }
 
   protected abstract Receive collectingResponses(
       final ResponseCollector<String> currentResponseCollector,
@@ -26,50 +79,177 @@ public abstract class RequestHandlerActor<RequestState extends SenderProvider>
     }
   }
 
+  /**
+   * Once failure is certain, the dates held on probation are reverted right away, and so is every
+   * date confirmed afterwards as it arrives, instead of being held until the last response. The
+   * sender is still answered once every response is collected, to report every failing date.
+   *
+   * @param previousRequestState state before the response being handled
+   * @param transactionParticipantsExtractor dates held on probation, with the actor to commit or
+   *     revert each of them with
+   * @param failureExtractor whether the request is certain to fail, whatever the responses left
+   */
   protected final void nextStateOrCompleteRequestWithRollback(
       final ResponseCollector<String> newResponseCollector,
+      final RequestState previousRequestState,
       final RequestState requestState,
-      final Function<RequestState, ImmutableList<LocalDate>> rollBackDatesExtractor,
-      final ActorRef database) {
+      final Function<RequestState, ImmutableMap<LocalDate, ActorRef>>
+          transactionParticipantsExtractor,
+      final Function<RequestState, String> bookingIdExtractor,
+      final Function<RequestState, Boolean> failureExtractor) {
+    // Every participant of a failed state was reverted when that state was reached
+    final ImmutableMap<LocalDate, ActorRef> transactionParticipants =
+        failureExtractor.apply(previousRequestState)
+            ? withoutParticipantsOf(
+                transactionParticipantsExtractor.apply(requestState),
+                transactionParticipantsExtractor.apply(previousRequestState))
+            : transactionParticipantsExtractor.apply(requestState);
     if (newResponseCollector.collectedAllResponses()) {
       handleResultWithRollBackOnFailure(
-          requestState, rollBackDatesExtractor.apply(requestState), database);
+          requestState, transactionParticipants, bookingIdExtractor.apply(requestState));
     } else {
+      if (failureExtractor.apply(requestState)) {
+        revert(transactionParticipants, bookingIdExtractor.apply(requestState));
+      }
       getContext().become(collectingResponses(newResponseCollector, requestState));
     }
   }
 
+  /**
+   * Fails the request right away, without waiting for the responses left, reverting the dates
+   * held on probation.
+   */
+  protected final void failWithRollback(
+      final RequestState requestState,
+      final ImmutableMap<LocalDate, ActorRef> transactionParticipants,
+      final String bookingId,
+      final RequestHandlerResponse.Failure failure) {
+    revert(transactionParticipants, bookingId);
+    respondToSenderAndTerminate(requestState, failure);
+  }
+
+  private static ImmutableMap<LocalDate, ActorRef> withoutParticipantsOf(
+      final ImmutableMap<LocalDate, ActorRef> transactionParticipants,
+      final ImmutableMap<LocalDate, ActorRef> settledTransactionParticipants) {
+    return transactionParticipants.entrySet().stream()
+        .filter(participant -> !settledTransactionParticipants.containsKey(participant.getKey()))
+        .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
   protected final void handleResult(final RequestState requestState) {
     final RequestHandlerResponse response = createResponse(requestState);
     respondToSenderAndTerminate(requestState, response);
   }
 
+  /** Writers are told directly, skipping the database and the date manager. */
   private void handleResultWithRollBackOnFailure(
       final RequestState requestState,
-      final ImmutableList<LocalDate> dateToRollback,
-      final ActorRef database) {
+      final ImmutableMap<LocalDate, ActorRef> transactionParticipants,
+      final String bookingId) {
     final RequestHandlerResponse response = createResponse(requestState);
 
-    // Save or Rollback newly booked dates depending if it's failure or not
-    persistOrRollbackResult(response, dateToRollback, database);
+    if (response instanceof RequestHandlerResponse.Failure || transactionParticipants.isEmpty()) {
+      // Rollback updated dates and inform sender of failure
+      revert(transactionParticipants, bookingId);
+      respondToSenderAndTerminate(requestState, response);
+    } else {
+      // Commit all changes, the sender is answered once they are written
+      transactionParticipants.forEach(
+          (date, participant) ->
+              participant.tell(SingleDateDatabaseCommand.commit(date, bookingId), self()));
+      getContext()
+          .become(
+              committing(
+                  requestState, response, transactionParticipants.keySet(), ImmutableSet.of()));
+    }
+  }
 
-    // Inform sender of failure
-    respondToSenderAndTerminate(requestState, response);
+  /**
+   * Waits for every date to confirm its commit. A date refuses it if its transaction was reaped in
+   * the meantime, the request then didn't fully succeed even if the other dates committed.
+   */
+  private Receive committing(
+      final RequestState requestState,
+      final RequestHandlerResponse response,
+      final ImmutableSet<LocalDate> uncommittedDates,
+      final ImmutableSet<LocalDate> expiredDates) {
+    return receiveBuilder()
+        .match(
+            SingleDateDatabaseResponse.CommitConfirmation.class,
+            commitConfirmation ->
+                settle(
+                    requestState,
+                    response,
+                    uncommittedDates,
+                    expiredDates,
+                    commitConfirmation.getDate(),
+                    false))
+        .match(
+            SingleDateDatabaseResponse.DateAvailableConfirmation.class,
+            dateAvailableConfirmation ->
+                settle(
+                    requestState,
+                    response,
+                    uncommittedDates,
+                    expiredDates,
+                    dateAvailableConfirmation.getDate(),
+                    false))
+        .match(
+            SingleDateDatabaseResponse.TransactionExpired.class,
+            transactionExpired ->
+                settle(
+                    requestState,
+                    response,
+                    uncommittedDates,
+                    expiredDates,
+                    transactionExpired.getDate(),
+                    true))
+        .matchAny(o -> log.info("received unknown message while committing {}", o))
+        .build();
   }
 
-  private void persistOrRollbackResult(
+  private void settle(
+      final RequestState requestState,
       final RequestHandlerResponse response,
-      final ImmutableList<LocalDate> dateToRollback,
-      final ActorRef database) {
-    if (response instanceof RequestHandlerResponse.Failure) {
-      // Rollback updated dates
-      dateToRollback.forEach(date -> database.tell(SingleDateDatabaseCommand.revert(date), self()));
+      final ImmutableSet<LocalDate> uncommittedDates,
+      final ImmutableSet<LocalDate> expiredDates,
+      final LocalDate settledDate,
+      final boolean expired) {
+    final ImmutableSet<LocalDate> newUncommittedDates =
+        uncommittedDates.stream()
+            .filter(date -> !date.equals(settledDate))
+            .collect(ImmutableSet.toImmutableSet());
+    final ImmutableSet<LocalDate> newExpiredDates =
+        expired ? UtilityFunctions.addToImmutableSet(expiredDates, settledDate) : expiredDates;
+    if (!newUncommittedDates.isEmpty()) {
+      getContext()
+          .become(committing(requestState, response, newUncommittedDates, newExpiredDates));
+    } else if (newExpiredDates.isEmpty()) {
+      respondToSenderAndTerminate(requestState, response);
     } else {
-      // Commit all changes
-      dateToRollback.forEach(date -> database.tell(SingleDateDatabaseCommand.commit(date), self()));
+      respondToSenderAndTerminate(
+          requestState, createExpiredTransactionResponse(requestState, newExpiredDates));
     }
   }
 
+  /**
+   * Response once every commit was answered, some of them refused because their transaction
+   * expired. Only requests settling transactions get there.
+   *
+   * @param expiredDates dates whose change was lost, the other dates of the request committed
+   */
+  protected RequestHandlerResponse createExpiredTransactionResponse(
+      final RequestState requestState, final ImmutableSet<LocalDate> expiredDates) {
+    throw new IllegalStateException("No transaction to settle");
+  }
+
+  private void revert(
+      final ImmutableMap<LocalDate, ActorRef> transactionParticipants, final String bookingId) {
+    transactionParticipants.forEach(
+        (date, participant) ->
+            participant.tell(SingleDateDatabaseCommand.revert(date, bookingId), self()));
+  }
+
   private void respondToSenderAndTerminate(
       final RequestState requestState, final RequestHandlerResponse response) {
     // Send response to sender
@@ -60,19 +60,23 @@ public final class RequestHandlerDispatcherActor<Request> extends LoggingReceive
         requestType);
   }
 
+  private void dispatch(final Request request, final ActorRef requestDatabase) {
+    final ActorRef newRequestHandlerActor =
+        getContext()
+            .actorOf(
+                requestHandlerActorProps.apply(request, apiErrorMessages, requestDatabase),
+                requestHandlerActorNameGenerator.get());
+    newRequestHandlerActor.forward(RequestHandlerCommand.process(), getContext());
+  }
+
   @Override
   public Receive createReceive() {
     return receiveBuilder()
+        .match(requestType, request -> dispatch(request, database))
         .match(
-            requestType,
-            request -> {
-              final ActorRef newRequestHandlerActor =
-                  getContext()
-                      .actorOf(
-                          requestHandlerActorProps.apply(request, apiErrorMessages, database),
-                          requestHandlerActorNameGenerator.get());
-              newRequestHandlerActor.forward(RequestHandlerCommand.process(), getContext());
-            })
+            RequestHandlerCommand.Dispatch.class,
+            dispatch -> requestType.isInstance(dispatch.getRequest()),
+            dispatch -> dispatch(requestType.cast(dispatch.getRequest()), dispatch.getDatabase()))
         .matchAny(o -> log.info("received unknown message {}", o))
         .build();
   }
@@ -0,0 +1,89 @@
+package com.rimanware.volcanoisland.startup;
+
+import akka.Done;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.PatternsCS;
+import akka.util.Timeout;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+public final class DatabaseReadiness {
+
+  private DatabaseReadiness() {}
+
+  /**
+   * @return completes once every date database of the rolling month database is recovered. An
+   *     unanswered status, the database not being reachable yet (e.g. cluster still forming), is
+   *     asked again. Fails if the database is still not ready after readinessTimeout.
+   */
+  public static CompletionStage<Done> awaitReady(
+      final ActorSystem system,
+      final ActorRef rollingMonthDatabaseActor,
+      final FiniteDuration pollInterval,
+      final Timeout timeout,
+      final FiniteDuration readinessTimeout) {
+    return awaitReady(
+        system,
+        rollingMonthDatabaseActor,
+        pollInterval,
+        timeout,
+        readinessTimeout,
+        System.nanoTime() + readinessTimeout.toNanos());
+  }
+
+  private static CompletionStage<Done> awaitReady(
+      final ActorSystem system,
+      final ActorRef rollingMonthDatabaseActor,
+      final FiniteDuration pollInterval,
+      final Timeout timeout,
+      final FiniteDuration readinessTimeout,
+      final long deadline) {
+    return PatternsCS.ask(
+            rollingMonthDatabaseActor, RollingMonthDatabaseCommand.getStatus(), timeout)
+        .thenApply(RollingMonthDatabaseResponse.Status.class::cast)
+        .handle(
+            (status, throwable) -> {
+              if (throwable == null && status.isReady()) {
+                return CompletableFuture.completedFuture(Done.getInstance());
+              } else if (System.nanoTime() - deadline >= 0) {
+                final CompletableFuture<Done> notReady = new CompletableFuture<>();
+                notReady.completeExceptionally(
+                    new IllegalStateException(
+                        "Database not ready after " + readinessTimeout, throwable));
+                return notReady;
+              } else {
+                if (throwable != null) {
+                  system
+                      .log()
+                      .warning("Database didn't answer its status, asking again: {}", throwable);
+                } else {
+                  system
+                      .log()
+                      .info(
+                          "Waiting for database recovery {}/{}",
+                          status.getRecoveredDates(),
+                          status.getTotalDates());
+                }
+                return PatternsCS.after(
+                    pollInterval,
+                    system.scheduler(),
+                    system.dispatcher(),
+                    () ->
+                        awaitReady(
+                            system,
+                            rollingMonthDatabaseActor,
+                            pollInterval,
+                            timeout,
+                            readinessTimeout,
+                            deadline));
+              }
+            })
+        .thenCompose(Function.identity());
+  }
+}
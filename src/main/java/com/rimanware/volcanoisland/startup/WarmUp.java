@@ -0,0 +1,117 @@
+package com.rimanware.volcanoisland.startup;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.server.Route;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Runs synthetic create, update, availability and cancel requests through a route without any
+ * network involved, so that the JIT compiles the hot paths before real traffic comes in. Should be
+ * run against a throwaway in-memory instance, never the one serving real bookings.
+ */
+public final class WarmUp {
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private final Flow<HttpRequest, HttpResponse, NotUsed> routeFlow;
+  private final Materializer materializer;
+  private final ImmutableList<LocalDate> reservableDays;
+
+  private WarmUp(
+      final Flow<HttpRequest, HttpResponse, NotUsed> routeFlow,
+      final Materializer materializer,
+      final ImmutableList<LocalDate> reservableDays) {
+    this.routeFlow = routeFlow;
+    this.materializer = materializer;
+    this.reservableDays = reservableDays;
+  }
+
+  public static CompletionStage<Done> run(
+      final Route route,
+      final ActorSystem system,
+      final Materializer materializer,
+      final ImmutableList<LocalDate> reservableDays,
+      final int iterations,
+      final int parallelism) {
+    if (iterations <= 0 || reservableDays.isEmpty()) {
+      return CompletableFuture.completedFuture(Done.getInstance());
+    }
+    final WarmUp warmUp =
+        new WarmUp(route.flow(system, materializer), materializer, reservableDays);
+    return Source.range(0, iterations - 1)
+        .mapAsyncUnordered(parallelism, warmUp::iteration)
+        .runWith(Sink.ignore(), materializer);
+  }
+
+  private CompletionStage<Done> iteration(final int iteration) {
+    final LocalDate date = reservableDays.get(iteration % reservableDays.size());
+    return run(
+            HttpRequest.POST("/bookings")
+                .withEntity(MediaTypes.APPLICATION_JSON.toContentType(), bookingJson(date)))
+        .thenCompose(
+            response -> {
+              if (response.status().equals(StatusCodes.CREATED)) {
+                return Jackson.unmarshaller(BookingConfirmation.class)
+                    .unmarshal(response.entity(), materializer)
+                    .thenCompose(bookingConfirmation -> exerciseBooking(date, bookingConfirmation));
+              } else {
+                response.discardEntityBytes(materializer);
+                return CompletableFuture.completedFuture(Done.getInstance());
+              }
+            });
+  }
+
+  private CompletionStage<Done> exerciseBooking(
+      final LocalDate date, final BookingConfirmation bookingConfirmation) {
+    final String bookingPath = "/bookings/" + bookingConfirmation.getBookingConfirmationId();
+    return runAndDiscard(
+            HttpRequest.PUT(bookingPath)
+                .withEntity(MediaTypes.APPLICATION_JSON.toContentType(), bookingJson(date)))
+        .thenCompose(
+            done ->
+                runAndDiscard(
+                    HttpRequest.GET("/availabilities")
+                        .withEntity(
+                            MediaTypes.APPLICATION_JSON.toContentType(),
+                            "{\"startDate\":\""
+                                + reservableDays.get(0).format(DATE_FORMATTER)
+                                + "\",\"endDate\":\""
+                                + reservableDays
+                                    .get(reservableDays.size() - 1)
+                                    .format(DATE_FORMATTER)
+                                + "\"}")))
+        .thenCompose(done -> runAndDiscard(HttpRequest.DELETE(bookingPath)));
+  }
+
+  private CompletionStage<HttpResponse> run(final HttpRequest request) {
+    return Source.single(request).via(routeFlow).runWith(Sink.head(), materializer);
+  }
+
+  private CompletionStage<Done> runAndDiscard(final HttpRequest request) {
+    return run(request)
+        .thenCompose(response -> response.discardEntityBytes(materializer).completionStage());
+  }
+
+  private static String bookingJson(final LocalDate date) {
+    return "{\"fullName\":\"Warm Up\",\"email\":\"warm.up@volcano.island\",\"arrivalDate\":\""
+        + date.format(DATE_FORMATTER)
+        + "\",\"departureDate\":\""
+        + date.format(DATE_FORMATTER)
+        + "\"}";
+  }
+}
@@ -22,6 +22,9 @@ import com.rimanware.volcanoisland.routes.ConcatRouteProvider;
 import com.rimanware.volcanoisland.routes.api.RouteProvider;
 import com.rimanware.volcanoisland.services.AvailabilityServiceImpl;
 import com.rimanware.volcanoisland.services.BookingServiceImpl;
+import com.rimanware.volcanoisland.services.api.AvailabilityService;
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.batch.BatchBookingPipeline;
 import com.rimanware.volcanoisland.services.models.responses.Availabilities;
 import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
 import com.rimanware.volcanoisland.services.requesthandlers.dispatchers.RequestHandlerDispatcherActorFactory;
@@ -51,6 +54,11 @@ public abstract class RoutesTester extends JUnitRouteTest {
   protected ActorRef deleteBookingRequestHandlerDispatcherActor;
   protected ActorRef availabilityRequestHandlerDispatcherActor;
 
+  /** Constraints the database and the routes are created with, override to test other windows. */
+  protected BookingConstraints getBookingConstraints() {
+    return bookingConstraints;
+  }
+
   @Before
   public void initialize() {
     // In Memory
@@ -58,7 +66,7 @@ public abstract class RoutesTester extends JUnitRouteTest {
         system()
             .actorOf(
                 RollingMonthDatabaseActor.propsInMemory(
-                    BookingConstraintsImpl.INSTANCE, SingleDateDatabaseManagerActor::props),
+                    getBookingConstraints(), SingleDateDatabaseManagerActor::props),
                 "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
 
     initializeRoutes(rollingMonthDatabaseActor);
@@ -99,19 +107,30 @@ public abstract class RoutesTester extends JUnitRouteTest {
                     rollingMonthDatabaseActor, apiErrorMessages),
                 "AvailabilityRequestHandlerDispatcherActor-" + UUID.randomUUID().toString());
 
+    initializeRoutes(
+        AvailabilityServiceImpl.create(availabilityRequestHandlerDispatcherActor, timeout),
+        BookingServiceImpl.create(
+            createBookingRequestHandlerDispatcherActor,
+            updateBookingRequestHandlerDispatcherActor,
+            deleteBookingRequestHandlerDispatcherActor,
+            timeout));
+  }
+
+  public void initializeRoutes(
+      final AvailabilityService availabilityService, final BookingService bookingService) {
     final RouteProvider availabilitiesRouteProvider =
         AvailabilitiesRouteProvider.create(
-            AvailabilityServiceImpl.create(availabilityRequestHandlerDispatcherActor, timeout),
-            apiErrorMessages);
+            availabilityService, getBookingConstraints(), apiErrorMessages);
 
     final RouteProvider bookingRouteProvider =
         BookingRouteProvider.create(
-            BookingServiceImpl.create(
-                createBookingRequestHandlerDispatcherActor,
-                updateBookingRequestHandlerDispatcherActor,
-                deleteBookingRequestHandlerDispatcherActor,
-                timeout),
-            bookingConstraints,
+            bookingService,
+            BatchBookingPipeline.fromConfig(
+                bookingService,
+                getBookingConstraints(),
+                apiErrorMessages,
+                system().settings().config().getConfig("volcano-island.batch-bookings")),
+            getBookingConstraints(),
             apiErrorMessages);
 
     volcanoIslandApp =
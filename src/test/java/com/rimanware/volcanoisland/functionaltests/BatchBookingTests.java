@@ -0,0 +1,109 @@
+package com.rimanware.volcanoisland.functionaltests;
+
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.MediaTypes;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRouteResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.errors.APIErrorImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+public final class BatchBookingTests extends RoutesTester {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void batchShouldBookInOrderGivenJsonArray() throws IOException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+
+    final TestRouteResult result =
+        volcanoIslandApp
+            .run(
+                HttpRequest.POST("/bookings/batch")
+                    .withEntity(
+                        ContentTypes.APPLICATION_JSON,
+                        "["
+                            + booking(arrivalDate, departureDate)
+                            + ","
+                            + booking(arrivalDate.plusDays(1), departureDate)
+                            + ","
+                            + booking(arrivalDate, arrivalDate.plusDays(3))
+                            + "]"))
+            .assertStatusCode(StatusCodes.OK)
+            .assertContentType(ContentTypes.APPLICATION_JSON);
+
+    final JsonNode results = objectMapper.readTree(result.entityString());
+    Assert.assertEquals(3, results.size());
+    for (int index = 0; index < results.size(); index++) {
+      Assert.assertEquals(index, results.get(index).get("index").asInt());
+    }
+    // The first booking of the dates gets them, whatever the parallelism
+    Assert.assertEquals(201, results.get(0).get("status").asInt());
+    Assert.assertTrue(results.get(0).get("response").has("bookingConfirmationId"));
+    Assert.assertEquals(400, results.get(1).get("status").asInt());
+    Assert.assertTrue(results.get(1).get("response").has("dateErrors"));
+    Assert.assertEquals(400, results.get(2).get("status").asInt());
+    Assert.assertEquals(
+        apiErrorMessages.getErrorMessage(APIErrorImpl.MaximumReservableDaysPerBookingError),
+        results.get(2).get("response").get("error").asText());
+
+    Assert.assertTrue(
+        "The dates should be booked",
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().isEmpty());
+  }
+
+  @Test
+  public void batchShouldAnswerEveryBookingGivenNewlineDelimitedJson() throws IOException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+
+    final TestRouteResult result =
+        volcanoIslandApp
+            .run(
+                HttpRequest.POST("/bookings/batch")
+                    .withEntity(
+                        MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8)
+                            .toContentType(),
+                        booking(arrivalDate, arrivalDate)
+                            + "\n"
+                            + "{\"email\":\"bassam.riman@gmail.com\"}\n"
+                            + booking(arrivalDate.plusDays(1), arrivalDate.plusDays(2))
+                            + "\n"))
+            .assertStatusCode(StatusCodes.OK);
+
+    final ImmutableList<String> lines = ImmutableList.copyOf(result.entityString().split("\n"));
+    Assert.assertEquals(3, lines.size());
+    Assert.assertEquals(201, objectMapper.readTree(lines.get(0)).get("status").asInt());
+    final JsonNode malformed = objectMapper.readTree(lines.get(1));
+    Assert.assertEquals(400, malformed.get("status").asInt());
+    Assert.assertEquals(
+        apiErrorMessages.getErrorMessage(APIErrorImpl.MalformedBookingError),
+        malformed.get("response").get("error").asText());
+    Assert.assertEquals(201, objectMapper.readTree(lines.get(2)).get("status").asInt());
+
+    Assert.assertTrue(
+        "The dates should be booked",
+        getAvailabilities(arrivalDate, arrivalDate.plusDays(2)).getAvailabilities().isEmpty());
+  }
+
+  private static String booking(final LocalDate arrivalDate, final LocalDate departureDate) {
+    return "{\"fullName\":\"Bassam Riman\","
+        + "\"email\":\"bassam.riman@gmail.com\","
+        + "\"arrivalDate\":\""
+        + arrivalDate.format(dateFormatter)
+        + "\","
+        + "\"departureDate\":\""
+        + departureDate.format(dateFormatter)
+        + "\"}";
+  }
+}
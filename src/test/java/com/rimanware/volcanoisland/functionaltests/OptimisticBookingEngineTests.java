@@ -0,0 +1,226 @@
+package com.rimanware.volcanoisland.functionaltests;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRouteResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.InMemoryBookingJournal;
+import com.rimanware.volcanoisland.database.api.BookingJournal;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.services.models.requests.AvailabilitiesRequest;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.rimanware.volcanoisland.services.optimistic.OptimisticBookingEngine;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class OptimisticBookingEngineTests extends RoutesTester {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private InMemoryBookingJournal bookingJournal;
+
+  @Override
+  public void initialize() {
+    bookingJournal = InMemoryBookingJournal.create();
+    initializeEngine();
+  }
+
+  private void initializeEngine() {
+    final OptimisticBookingEngine engine =
+        OptimisticBookingEngine.create(
+            currentDate, bookingConstraints, apiErrorMessages, bookingJournal);
+    initializeRoutes(engine, engine);
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // No actors involved
+  }
+
+  @Test
+  public void createBookingShouldFailGivenOverlappingBooking() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+
+    create(arrivalDate.plusDays(2), arrivalDate.plusDays(3))
+        .assertStatusCode(StatusCodes.BAD_REQUEST);
+
+    // The conflicting request must not leave any date claimed behind
+    Assert.assertEquals(
+        "Non overlapping date of the rejected booking should be available",
+        1,
+        getAvailabilities(arrivalDate.plusDays(3), arrivalDate.plusDays(3))
+            .getAvailabilities()
+            .size());
+  }
+
+  @Test
+  public void deleteBookingShouldReleaseDates() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final BookingConfirmation bookingConfirmation =
+        getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+
+    volcanoIslandApp
+        .run(HttpRequest.DELETE("/bookings/" + bookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+    volcanoIslandApp
+        .run(HttpRequest.DELETE("/bookings/" + bookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.NOT_FOUND);
+
+    Assert.assertEquals(
+        "Dates of the canceled booking should be available",
+        3,
+        getAvailabilities(arrivalDate, arrivalDate.plusDays(2)).getAvailabilities().size());
+  }
+
+  @Test
+  public void bookingsShouldBeRecoveredFromJournal() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+
+    // Restart the engine on top of the same journal
+    initializeEngine();
+
+    Assert.assertTrue(
+        "Recovered booking dates should not be available",
+        getAvailabilities(arrivalDate, arrivalDate.plusDays(2)).getAvailabilities().isEmpty());
+  }
+
+  @Test
+  public void onlyOneOfConcurrentOverlappingBookingsShouldSucceed()
+      throws ExecutionException, InterruptedException, IOException {
+    final LocalDate startDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate);
+    final ExecutorService executorService = Executors.newFixedThreadPool(8);
+    final List<TestRouteResult> results = new ArrayList<>();
+    try {
+      // Every request overlaps with every other one
+      final List<Future<TestRouteResult>> overlappingResults =
+          IntStream.range(0, 32)
+              .mapToObj(
+                  i ->
+                      executorService.submit(
+                          () -> create(startDate.plusDays(i % 3), startDate.plusDays(2))))
+              .collect(Collectors.toList());
+      for (final Future<TestRouteResult> result : overlappingResults) {
+        results.add(result.get());
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    int created = 0;
+    for (final TestRouteResult result : results) {
+      if (result.response().status().equals(StatusCodes.CREATED)) {
+        created++;
+      } else {
+        // Even when the date it conflicted on was released since
+        Assert.assertTrue(
+            "A rejected booking should report a booked date",
+            objectMapper.readTree(result.entityString()).get("dateErrors").size() > 0);
+      }
+    }
+    Assert.assertEquals("Exactly one of the overlapping bookings should succeed", 1, created);
+
+    final Availabilities availabilities =
+        getAvailabilities(startDate.plusDays(2), startDate.plusDays(2));
+    Assert.assertTrue(
+        "Date shared by all the bookings should not be available",
+        availabilities.getAvailabilities().isEmpty());
+  }
+
+  @Test
+  public void journalFailuresShouldFailTheRequest() {
+    final OptimisticBookingEngine engine =
+        OptimisticBookingEngine.create(
+            currentDate,
+            bookingConstraints,
+            apiErrorMessages,
+            new BookingJournal() {
+              @Override
+              public void append(final LocalDate date, final SingleDateDatabaseEvent event) {
+                throw new IllegalStateException("Disk full");
+              }
+
+              @Override
+              public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+                return SingleDateDatabaseEvent.noBooking();
+              }
+            });
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+
+    final CompletableFuture<RequestHandlerResponse> response =
+        engine
+            .createBooking(
+                BookingRequest.create(
+                    "bassam.riman@gmail.com", "Bassam Riman", arrivalDate, arrivalDate))
+            .toCompletableFuture();
+
+    Assert.assertTrue(response.isCompletedExceptionally());
+  }
+
+  @Test
+  public void journalFailuresShouldReleaseTheClaimedDates() throws Exception {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+    final InMemoryBookingJournal journal = InMemoryBookingJournal.create();
+    final BookingJournal failingOnSecondDate =
+        new BookingJournal() {
+          @Override
+          public void append(final LocalDate date, final SingleDateDatabaseEvent event) {
+            if (date.equals(arrivalDate.plusDays(1))) {
+              throw new IllegalStateException("Disk full");
+            }
+            journal.append(date, event);
+          }
+
+          @Override
+          public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+            return journal.readLatest(date);
+          }
+        };
+    final OptimisticBookingEngine engine =
+        OptimisticBookingEngine.create(
+            currentDate, bookingConstraints, apiErrorMessages, failingOnSecondDate);
+
+    Assert.assertTrue(
+        engine
+            .createBooking(
+                BookingRequest.create(
+                    "bassam.riman@gmail.com", "Bassam Riman", arrivalDate, departureDate))
+            .toCompletableFuture()
+            .isCompletedExceptionally());
+
+    final RequestHandlerResponse availabilities =
+        engine
+            .getAvailabilities(AvailabilitiesRequest.DateRange.create(arrivalDate, departureDate))
+            .toCompletableFuture()
+            .get();
+    Assert.assertEquals(
+        "Dates of the failed booking should be available",
+        3,
+        ((Availabilities) availabilities.getResponse()).getAvailabilities().size());
+    Assert.assertTrue(
+        "Journaled date of the failed booking should be compensated",
+        journal.readLatest(arrivalDate).getBookingsByUnit().isEmpty());
+  }
+}
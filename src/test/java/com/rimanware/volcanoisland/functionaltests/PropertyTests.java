@@ -0,0 +1,69 @@
+package com.rimanware.volcanoisland.functionaltests;
+
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.StatusCodes;
+import com.rimanware.volcanoisland.VolcanoIslandApp;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public final class PropertyTests extends RoutesTester {
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString("volcano-island.properties.ids = [north, south]");
+  }
+
+  @Override
+  public void initialize() {
+    // Whole application, default property and /properties routes, in memory
+    volcanoIslandApp =
+        testRoute(VolcanoIslandApp.initialize(currentDate, system(), Optional.empty()).getRoute());
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // Actors are created by VolcanoIslandApp, they live as long as the actor system
+  }
+
+  @Test
+  public void provisionedPropertiesShouldBeBookedIndependently() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(1);
+
+    volcanoIslandApp
+        .run(createRequest(arrivalDate, departureDate).withUri("/properties/north/bookings"))
+        .assertStatusCode(StatusCodes.CREATED);
+    volcanoIslandApp
+        .run(createRequest(arrivalDate, departureDate).withUri("/properties/north/bookings"))
+        .assertStatusCode(StatusCodes.BAD_REQUEST);
+
+    // Same dates are still free on the other property and on the default one
+    volcanoIslandApp
+        .run(createRequest(arrivalDate, departureDate).withUri("/properties/south/bookings"))
+        .assertStatusCode(StatusCodes.CREATED);
+    Assert.assertEquals(
+        2, getAvailabilities(arrivalDate, departureDate).getAvailabilities().size());
+    Assert.assertTrue(
+        volcanoIslandApp
+            .run(
+                getAvailabilitiesRequest(arrivalDate, departureDate)
+                    .withUri("/properties/north/availabilities"))
+            .assertStatusCode(StatusCodes.OK)
+            .entity(Jackson.unmarshaller(Availabilities.class))
+            .getAvailabilities()
+            .isEmpty());
+
+    // Only provisioned properties are served
+    volcanoIslandApp
+        .run(createRequest(arrivalDate, departureDate).withUri("/properties/east/bookings"))
+        .assertStatusCode(StatusCodes.NOT_FOUND);
+  }
+}
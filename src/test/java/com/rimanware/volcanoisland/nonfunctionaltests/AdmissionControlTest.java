@@ -0,0 +1,129 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRouteResult;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.services.AvailabilityServiceImpl;
+import com.rimanware.volcanoisland.services.admission.AIMDConcurrencyLimiter;
+import com.rimanware.volcanoisland.services.admission.AdmissionControlledBookingService;
+import com.rimanware.volcanoisland.services.admission.AdmissionController;
+import com.rimanware.volcanoisland.services.admission.api.ConcurrencyLimiter;
+import com.rimanware.volcanoisland.services.api.BookingService;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+public class AdmissionControlTest extends RoutesTester {
+
+  @Test
+  public void limitShouldGrowWhenBusyAndBackOffWhenDropped() {
+    final AIMDConcurrencyLimiter limiter =
+        AIMDConcurrencyLimiter.create(2, 1, 4, 0.5, Duration.ofSeconds(10));
+
+    final ConcurrencyLimiter.Permit first = limiter.tryAcquire().get();
+    final ConcurrencyLimiter.Permit second = limiter.tryAcquire().get();
+    Assert.assertFalse("The limit should be reached", limiter.tryAcquire().isPresent());
+
+    // Fast while the limit is in use
+    first.onSuccess();
+    Assert.assertEquals(3, limiter.getLimit());
+    Assert.assertEquals(1, limiter.getInFlight());
+
+    second.onDropped();
+    Assert.assertEquals(1, limiter.getLimit());
+    Assert.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void limitShouldBackOffWhenSlow() {
+    final AIMDConcurrencyLimiter limiter =
+        AIMDConcurrencyLimiter.create(4, 1, 4, 0.5, Duration.ZERO);
+
+    limiter.tryAcquire().get().onSuccess();
+
+    Assert.assertEquals(2, limiter.getLimit());
+    Assert.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void requestsPastTheLimitShouldBeAnsweredServiceUnavailable() {
+    final AIMDConcurrencyLimiter limiter =
+        AIMDConcurrencyLimiter.create(1, 1, 1, 0.5, Duration.ofSeconds(10));
+    final BookingService bookingService =
+        AdmissionControlledBookingService.create(
+            new PendingBookingService(new CompletableFuture<>()),
+            AdmissionController.create(limiter, Duration.ofSeconds(2), apiErrorMessages));
+    initializeRoutes(
+        AvailabilityServiceImpl.create(availabilityRequestHandlerDispatcherActor, timeout),
+        bookingService);
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+
+    // Holds the only permit, it never completes
+    final CompletionStage<RequestHandlerResponse> admitted = bookingService.deleteBooking("1");
+
+    final TestRouteResult rejected =
+        create(arrivalDate, arrivalDate).assertStatusCode(StatusCodes.SERVICE_UNAVAILABLE);
+    Assert.assertEquals("2", rejected.response().getHeader("Retry-After").get().value());
+    Assert.assertFalse(admitted.toCompletableFuture().isDone());
+  }
+
+  @Test
+  public void permitShouldBeReleasedWhenRequestFails() {
+    final AIMDConcurrencyLimiter limiter =
+        AIMDConcurrencyLimiter.create(1, 1, 1, 0.5, Duration.ofSeconds(10));
+    final AdmissionController admissionController =
+        AdmissionController.create(limiter, Duration.ofSeconds(1), apiErrorMessages);
+
+    final RequestHandlerResponse thrown =
+        admissionController
+            .admit(
+                () -> {
+                  throw new IllegalStateException("Request could not be sent");
+                })
+            .toCompletableFuture()
+            .join();
+    Assert.assertTrue(thrown instanceof RequestHandlerResponse.Failure.ServiceUnavailable);
+    Assert.assertEquals(0, limiter.getInFlight());
+
+    final CompletableFuture<RequestHandlerResponse> failedRequest = new CompletableFuture<>();
+    failedRequest.completeExceptionally(new IllegalStateException("Ask timed out"));
+    final RequestHandlerResponse failed =
+        admissionController.admit(() -> failedRequest).toCompletableFuture().join();
+    Assert.assertTrue(failed instanceof RequestHandlerResponse.Failure.ServiceUnavailable);
+    Assert.assertEquals(0, limiter.getInFlight());
+  }
+
+  /** Every request completes along with the given future. */
+  private static final class PendingBookingService implements BookingService {
+    private final CompletionStage<RequestHandlerResponse> response;
+
+    private PendingBookingService(final CompletionStage<RequestHandlerResponse> response) {
+      this.response = response;
+    }
+
+    @Override
+    public CompletionStage<RequestHandlerResponse> createBooking(
+        final BookingRequest bookingRequest) {
+      return response;
+    }
+
+    @Override
+    public CompletionStage<RequestHandlerResponse> updateBooking(
+        final UpdateBookingRequest updateBookingRequest) {
+      return response;
+    }
+
+    @Override
+    public CompletionStage<RequestHandlerResponse> deleteBooking(final String id) {
+      return response;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.FileDateStorage;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class AsyncWritesTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.async-writes = on\n"
+            + "volcano-island.single-date-database.sync-writes = on");
+  }
+
+  @Override
+  public void initialize() {
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    initializeRoutes(rollingMonthDatabaseActor);
+  }
+
+  @Test
+  public void eventsWrittenAsynchronouslyShouldBeReadableAndRecovered() throws IOException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit eventsWritten = new TestKit(system());
+    system()
+        .eventStream()
+        .subscribe(eventsWritten.getRef(), SingleDateDatabaseActor.EventWritten.class);
+
+    final BookingConfirmation bookingConfirmation =
+        getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+    eventsWritten.receiveN(3);
+    volcanoIslandApp
+        .run(HttpRequest.DELETE("/bookings/" + bookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+    final BookingConfirmation rebookingConfirmation =
+        getBookingConfirmation(arrivalDate, arrivalDate);
+    // Cancellations are confirmed once written, only the commit of the new booking is pending
+    eventsWritten.receiveN(4);
+
+    // Each event is appended after the previous one, readable by the blocking reader
+    final ImmutableList<SingleDateDatabaseEvent> history = history(arrivalDate);
+    Assert.assertEquals(4, history.size());
+    Assert.assertTrue(history.get(1).isBookedBy(bookingConfirmation.getBookingConfirmationId()));
+    Assert.assertTrue(history.get(3).isBookedBy(rebookingConfirmation.getBookingConfirmationId()));
+
+    // Restart the database on the same folder
+    final TestKit watcher = new TestKit(system());
+    watcher.watch(rollingMonthDatabaseActor);
+    cleanUpActors();
+    watcher.expectTerminated(rollingMonthDatabaseActor);
+    initialize();
+
+    Assert.assertTrue(
+        "Recovered booking date should not be available",
+        getAvailabilities(arrivalDate, arrivalDate).getAvailabilities().isEmpty());
+    Assert.assertEquals(
+        2,
+        getAvailabilities(arrivalDate.plusDays(1), arrivalDate.plusDays(2))
+            .getAvailabilities()
+            .size());
+  }
+
+  private ImmutableList<SingleDateDatabaseEvent> history(final LocalDate date)
+      throws IOException {
+    try (final DateStore store = FileDateStorage.create(testDataBasePath).open(date)) {
+      return store.history();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.InMemoryDateStorage;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.WindowAvailability;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+public class BookAndCommitTest extends RoutesTester {
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString("volcano-island.single-date-database.capacity = 1");
+  }
+
+  @Test
+  public void singleDateBookingShouldBeWrittenWithoutTransaction() throws IOException {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final InMemoryDateStorage storage = InMemoryDateStorage.create();
+    final TestKit readReplica = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef writer =
+        system()
+            .actorOf(
+                SingleDateDatabaseActor.props(
+                    date,
+                    storage,
+                    SingleDateDatabaseEvent.noBooking(),
+                    readReplica.getRef(),
+                    WindowAvailability.create()));
+
+    final Booking booking = Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date);
+    writer.tell(SingleDateDatabaseCommand.bookAndCommit(booking, date), requester.getRef());
+
+    // Confirmed once written, no commit needed
+    final SingleDateDatabaseResponse.BookingConfirmation bookingConfirmation =
+        requester.expectMsgClass(SingleDateDatabaseResponse.BookingConfirmation.class);
+    Assert.assertEquals(booking.getId(), bookingConfirmation.getBooking().getId());
+    final ImmutableList<SingleDateDatabaseEvent> history = storage.open(date).history();
+    Assert.assertEquals(1, history.size());
+    Assert.assertTrue(history.get(0).isBookedBy(booking.getId()));
+
+    // The only unit is taken
+    final Booking otherBooking =
+        Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date);
+    writer.tell(SingleDateDatabaseCommand.bookAndCommit(otherBooking, date), requester.getRef());
+    requester.expectMsgClass(SingleDateDatabaseResponse.IsBooked.class);
+  }
+}
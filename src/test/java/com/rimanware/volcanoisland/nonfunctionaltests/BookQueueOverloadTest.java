@@ -0,0 +1,37 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRouteResult;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class BookQueueOverloadTest extends RoutesTester {
+
+  @Override
+  public Config additionalConfig() {
+    // Every Book request is past the bound of the queue
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.max-pending-book-requests = 0");
+  }
+
+  @Test
+  public void shedBookRequestsShouldBeAnsweredServiceUnavailable() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(1);
+
+    final TestRouteResult result =
+        create(arrivalDate, departureDate).assertStatusCode(StatusCodes.SERVICE_UNAVAILABLE);
+    Assert.assertTrue(result.response().getHeader("Retry-After").isPresent());
+
+    Assert.assertEquals(
+        "Shed requests should leave the dates available",
+        2,
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().size());
+  }
+}
@@ -0,0 +1,64 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.services.models.responses.Availability;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class CapacityTest extends RoutesTester {
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString("volcano-island.single-date-database.capacity = 2");
+  }
+
+  @Test
+  public void datesShouldBeBookableUntilNoUnitIsLeft() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(1);
+
+    assertRemainingCapacity(arrivalDate, departureDate, 2);
+
+    final BookingConfirmation firstBookingConfirmation =
+        getBookingConfirmation(arrivalDate, departureDate);
+    assertRemainingCapacity(arrivalDate, departureDate, 1);
+
+    getBookingConfirmation(arrivalDate, departureDate);
+    Assert.assertTrue(
+        "Dates without unit left should not be available",
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().isEmpty());
+    create(arrivalDate, departureDate).assertStatusCode(StatusCodes.BAD_REQUEST);
+
+    // Cancelling gives the units back
+    volcanoIslandApp
+        .run(
+            HttpRequest.DELETE("/bookings/" + firstBookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+    assertRemainingCapacity(arrivalDate, departureDate, 1);
+
+    getBookingConfirmation(arrivalDate, departureDate);
+    create(arrivalDate, departureDate).assertStatusCode(StatusCodes.BAD_REQUEST);
+  }
+
+  private void assertRemainingCapacity(
+      final LocalDate arrivalDate, final LocalDate departureDate, final int remainingCapacity) {
+    final List<Availability> availabilities =
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities();
+    Assert.assertEquals(2, availabilities.size());
+    availabilities.forEach(
+        availability ->
+            Assert.assertEquals(
+                "Unexpected remaining capacity on " + availability.getAvailableDate(),
+                remainingCapacity,
+                availability.getRemainingCapacity()));
+  }
+}
@@ -0,0 +1,122 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorSystem;
+import akka.cluster.Cluster;
+import akka.cluster.MemberStatus;
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRoute;
+import com.rimanware.volcanoisland.VolcanoIslandApp;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.compat.java8.FutureConverters;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/** Two nodes of one cluster, serving the same property databases whichever node is asked. */
+public final class ClusterShardingTest extends RoutesTester {
+
+  private ActorSystem otherNode;
+  private TestRoute otherNodeApp;
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "akka.actor.provider = cluster\n"
+            + "akka.remote.netty.tcp.hostname = 127.0.0.1\n"
+            + "akka.remote.netty.tcp.port = 0\n"
+            + "volcano-island.cluster.enabled = on\n"
+            + "volcano-island.cluster.number-of-shards = 10\n"
+            + "volcano-island.properties.ids = [north, south, east, west]");
+  }
+
+  @Override
+  public void initialize() {
+    otherNode = ActorSystem.create(system().name(), system().settings().config());
+    Cluster.lookup().get(system()).join(Cluster.lookup().get(system()).selfAddress());
+    Cluster.lookup().get(otherNode).join(Cluster.lookup().get(system()).selfAddress());
+    awaitMembersUp(2);
+
+    final VolcanoIslandApp.Instance instance =
+        VolcanoIslandApp.initialize(currentDate, system(), Optional.empty());
+    final VolcanoIslandApp.Instance otherNodeInstance =
+        VolcanoIslandApp.initialize(currentDate, otherNode, Optional.empty());
+    // The shard coordinator is started and the default property is allocated and recovered
+    // through each node before the first request, as the application does before binding
+    instance.getDatabaseReady().toCompletableFuture().join();
+    otherNodeInstance.getDatabaseReady().toCompletableFuture().join();
+    volcanoIslandApp = testRoute(instance.getRoute());
+    otherNodeApp = testRoute(otherNodeInstance.getRoute());
+  }
+
+  /** Allocating the shard of a property for the first time takes a few round trips. */
+  @Override
+  public FiniteDuration awaitDuration() {
+    return FiniteDuration.apply(10, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // Actors are created by VolcanoIslandApp, they live as long as the actor systems
+    FutureConverters.toJava(otherNode.terminate()).toCompletableFuture().join();
+  }
+
+  @Test
+  public void bookingsShouldBeSeenFromEveryNode() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(1);
+
+    // Default property
+    volcanoIslandApp
+        .run(createRequest(arrivalDate, departureDate))
+        .assertStatusCode(StatusCodes.CREATED);
+    otherNodeApp
+        .run(createRequest(arrivalDate, departureDate))
+        .assertStatusCode(StatusCodes.BAD_REQUEST);
+
+    // Properties, each one hosted by whichever node its shard was allocated to
+    for (final String propertyId : new String[] {"north", "south", "east", "west"}) {
+      final String uri = "/properties/" + propertyId;
+      otherNodeApp
+          .run(createRequest(arrivalDate, departureDate).withUri(uri + "/bookings"))
+          .assertStatusCode(StatusCodes.CREATED);
+      volcanoIslandApp
+          .run(createRequest(arrivalDate, departureDate).withUri(uri + "/bookings"))
+          .assertStatusCode(StatusCodes.BAD_REQUEST);
+      Assert.assertTrue(
+          volcanoIslandApp
+              .run(
+                  getAvailabilitiesRequest(arrivalDate, departureDate)
+                      .withUri(uri + "/availabilities"))
+              .assertStatusCode(StatusCodes.OK)
+              .entity(Jackson.unmarshaller(Availabilities.class))
+              .getAvailabilities()
+              .isEmpty());
+    }
+  }
+
+  private void awaitMembersUp(final int members) {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (StreamSupport.stream(
+                Cluster.lookup().get(system()).state().getMembers().spliterator(), false)
+            .filter(member -> member.status().equals(MemberStatus.up()))
+            .count()
+        < members) {
+      Assert.assertTrue("Cluster didn't form in time", System.nanoTime() < deadline);
+      try {
+        Thread.sleep(50);
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
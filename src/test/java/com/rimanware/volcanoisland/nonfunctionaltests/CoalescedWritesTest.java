@@ -0,0 +1,156 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.InMemoryDateStorage;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.WindowAvailability;
+import com.rimanware.volcanoisland.database.api.DateStorage;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescedWritesTest extends RoutesTester {
+  private static final int BOOKINGS = 4;
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.coalesce-writes = on\n"
+            + "volcano-island.single-date-database.capacity = "
+            + BOOKINGS);
+  }
+
+  @Test
+  public void commitsWaitingInTheMailboxShouldBeWrittenTogether()
+      throws InterruptedException, IOException {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final RecordingDateStorage storage = new RecordingDateStorage();
+    final TestKit readReplica = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef writer =
+        system()
+            .actorOf(
+                SingleDateDatabaseActor.props(
+                    date,
+                    storage,
+                    SingleDateDatabaseEvent.noBooking(),
+                    readReplica.getRef(),
+                    WindowAvailability.create()));
+
+    final ImmutableList.Builder<String> bookingIds = ImmutableList.builder();
+    for (int i = 0; i < BOOKINGS; i++) {
+      final Booking booking = Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date);
+      bookingIds.add(booking.getId());
+      writer.tell(SingleDateDatabaseCommand.book(booking, date), requester.getRef());
+      requester.expectMsgClass(SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class);
+    }
+
+    // The first commit is written on its own, the others wait in the mailbox meanwhile
+    writer.tell(
+        SingleDateDatabaseCommand.commit(date, bookingIds.build().get(0)), requester.getRef());
+    Assert.assertTrue(storage.firstWriteStarted.await(5, TimeUnit.SECONDS));
+    bookingIds.build().stream()
+        .skip(1)
+        .forEach(
+            bookingId ->
+                writer.tell(SingleDateDatabaseCommand.commit(date, bookingId), requester.getRef()));
+    storage.firstWriteReleased.countDown();
+
+    for (int i = 0; i < BOOKINGS; i++) {
+      requester.expectMsgClass(SingleDateDatabaseResponse.CommitConfirmation.class);
+    }
+    Assert.assertEquals(
+        ImmutableList.of(1, BOOKINGS - 1), ImmutableList.copyOf(storage.batchSizes));
+
+    final ImmutableList<SingleDateDatabaseEvent> history = storage.inMemory.open(date).history();
+    Assert.assertEquals(BOOKINGS, history.size());
+    bookingIds
+        .build()
+        .forEach(bookingId -> Assert.assertTrue(history.get(BOOKINGS - 1).isBookedBy(bookingId)));
+  }
+
+  /** In memory storage recording the size of each write, blocking the first until released. */
+  private static final class RecordingDateStorage implements DateStorage {
+    private final InMemoryDateStorage inMemory = InMemoryDateStorage.create();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+
+    @Override
+    public SingleDateDatabaseEvent readLatest(final LocalDate date) {
+      return inMemory.readLatest(date);
+    }
+
+    @Override
+    public DateStore open(final LocalDate date) {
+      final DateStore store = inMemory.open(date);
+      return new DateStore() {
+        @Override
+        public void append(final SingleDateDatabaseEvent event) throws IOException {
+          appendAll(ImmutableList.of(event));
+        }
+
+        @Override
+        public void appendAll(final ImmutableList<SingleDateDatabaseEvent> events)
+            throws IOException {
+          if (batchSizes.isEmpty()) {
+            firstWriteStarted.countDown();
+            try {
+              firstWriteReleased.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+          batchSizes.add(events.size());
+          store.appendAll(events);
+        }
+
+        @Override
+        public ImmutableList<SingleDateDatabaseEvent> history() throws IOException {
+          return store.history();
+        }
+
+        @Override
+        public void snapshot(final SingleDateDatabaseEvent latestEvent) throws IOException {
+          store.snapshot(latestEvent);
+        }
+
+        @Override
+        public void sync() throws IOException {
+          store.sync();
+        }
+
+        @Override
+        public Optional<String> getFilePath() {
+          return store.getFilePath();
+        }
+
+        @Override
+        public void close() throws IOException {
+          store.close();
+        }
+      };
+    }
+
+    @Override
+    public void close() {}
+  }
+}
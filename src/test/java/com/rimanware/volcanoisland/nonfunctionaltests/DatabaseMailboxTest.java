@@ -0,0 +1,156 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DatabaseMailboxTest extends RoutesTester {
+  private static final String SMALL_DATABASE_MAILBOX = "volcano-island.small-database-mailbox";
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.bounded-database-mailbox.priority = on\n"
+            + SMALL_DATABASE_MAILBOX
+            + " {\n"
+            + "  mailbox-type = \"com.rimanware.volcanoisland.database.DatabaseMailbox\"\n"
+            + "  mailbox-capacity = 2\n"
+            + "  priority = on\n"
+            + "}");
+  }
+
+  @Test
+  public void transactionCompletionsShouldOvertakeWaitingRequests() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit probe = new TestKit(system());
+    final CountDownLatch released = new CountDownLatch(1);
+    final ActorRef recorder =
+        system()
+            .actorOf(
+                RecorderActor.props(probe.getRef(), released)
+                    .withMailbox(SingleDateDatabaseManagerActor.BOUNDED_DATABASE_MAILBOX));
+
+    // Everything after the first message waits in the mailbox until released
+    recorder.tell("first", ActorRef.noSender());
+    probe.expectMsg("first");
+    final SingleDateDatabaseCommand.GetAvailability firstAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.GetAvailability secondAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.Commit commit = SingleDateDatabaseCommand.commit(date, "1");
+    final SingleDateDatabaseCommand.Revert revert = SingleDateDatabaseCommand.revert(date, "2");
+    final SingleDateDatabaseCommand.CancelBooking cancel = SingleDateDatabaseCommand.cancel("3");
+    recorder.tell(firstAvailability, ActorRef.noSender());
+    recorder.tell(commit, ActorRef.noSender());
+    recorder.tell(secondAvailability, ActorRef.noSender());
+    recorder.tell(revert, ActorRef.noSender());
+    recorder.tell(cancel, ActorRef.noSender());
+    released.countDown();
+
+    // Transaction completions first, each priority in arrival order
+    probe.expectMsgEquals(commit);
+    probe.expectMsgEquals(revert);
+    probe.expectMsgEquals(cancel);
+    probe.expectMsgEquals(firstAvailability);
+    probe.expectMsgEquals(secondAvailability);
+  }
+
+  @Test
+  public void fullMailboxShouldOnlyShedRequestsOfRequestHandlers() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit probe = new TestKit(system());
+    final TestKit requestHandler = new TestKit(system());
+    final CountDownLatch released = new CountDownLatch(1);
+    final ActorRef recorder =
+        system()
+            .actorOf(
+                RecorderActor.props(probe.getRef(), released).withMailbox(SMALL_DATABASE_MAILBOX));
+    // Child of the same parent, like the date manager of a writer and its read replica
+    final ActorRef sibling =
+        system().actorOf(RecorderActor.props(probe.getRef(), new CountDownLatch(0)));
+
+    recorder.tell("first", ActorRef.noSender());
+    probe.expectMsg("first");
+    final SingleDateDatabaseCommand.GetAvailability firstAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.GetAvailability secondAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.GetAvailability droppedAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.GetAvailability siblingAvailability =
+        SingleDateDatabaseCommand.getAvailability(date);
+    final SingleDateDatabaseCommand.Commit commit = SingleDateDatabaseCommand.commit(date, "1");
+    final SingleDateDatabaseCommand.Revert revert = SingleDateDatabaseCommand.revert(date, "2");
+    final SingleDateDatabaseCommand.CancelBooking cancel = SingleDateDatabaseCommand.cancel("3");
+    recorder.tell(firstAvailability, requestHandler.getRef());
+    recorder.tell(secondAvailability, requestHandler.getRef());
+    recorder.tell(droppedAvailability, requestHandler.getRef());
+    recorder.tell(siblingAvailability, sibling);
+    recorder.tell(commit, ActorRef.noSender());
+    recorder.tell(revert, ActorRef.noSender());
+    recorder.tell(cancel, ActorRef.noSender());
+    // Sent by the actor to itself, like timers and write outcomes
+    recorder.tell("self", recorder);
+    released.countDown();
+
+    // Past capacity, only the third request of the request handler is shed and answered
+    Assert.assertEquals(
+        date, requestHandler.expectMsgClass(SingleDateDatabaseResponse.Overloaded.class).getDate());
+    probe.expectMsgEquals(commit);
+    probe.expectMsgEquals(revert);
+    probe.expectMsgEquals(cancel);
+    probe.expectMsgEquals(firstAvailability);
+    probe.expectMsgEquals(secondAvailability);
+    probe.expectMsgEquals(siblingAvailability);
+    probe.expectMsgEquals("self");
+    probe.expectNoMsg(FiniteDuration.apply(200, TimeUnit.MILLISECONDS));
+
+    // Dequeued requests free their place
+    recorder.tell(droppedAvailability, requestHandler.getRef());
+    probe.expectMsgEquals(droppedAvailability);
+  }
+
+  /** Forwards every message to the probe, blocking after the first until released. */
+  private static final class RecorderActor extends AbstractActor {
+    private final ActorRef probe;
+    private final CountDownLatch released;
+
+    private RecorderActor(final ActorRef probe, final CountDownLatch released) {
+      this.probe = probe;
+      this.released = released;
+    }
+
+    static Props props(final ActorRef probe, final CountDownLatch released) {
+      return Props.create(RecorderActor.class, () -> new RecorderActor(probe, released));
+    }
+
+    @Override
+    public Receive createReceive() {
+      return receiveBuilder()
+          .matchEquals(
+              "first",
+              first -> {
+                probe.tell(first, self());
+                released.await(5, TimeUnit.SECONDS);
+              })
+          .matchAny(message -> probe.tell(message, self()))
+          .build();
+    }
+  }
+}
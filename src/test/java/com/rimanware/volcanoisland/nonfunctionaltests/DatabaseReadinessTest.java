@@ -0,0 +1,85 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.Done;
+import akka.testkit.javadsl.TestKit;
+import akka.util.Timeout;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import com.rimanware.volcanoisland.startup.DatabaseReadiness;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class DatabaseReadinessTest extends RoutesTester {
+  private static final FiniteDuration POLL_INTERVAL =
+      FiniteDuration.apply(10, TimeUnit.MILLISECONDS);
+  private static final Timeout ASK_TIMEOUT =
+      Timeout.durationToTimeout(FiniteDuration.apply(200, TimeUnit.MILLISECONDS));
+
+  @Test
+  public void readinessShouldCompleteGivenRecoveredDatabase()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Assert.assertEquals(
+        Done.getInstance(),
+        DatabaseReadiness.awaitReady(
+                system(),
+                rollingMonthDatabaseActor,
+                POLL_INTERVAL,
+                ASK_TIMEOUT,
+                FiniteDuration.apply(10, TimeUnit.SECONDS))
+            .toCompletableFuture()
+            .get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void readinessShouldAskAgainGivenUnansweredStatus() {
+    final TestKit database = new TestKit(system());
+    final CompletableFuture<Done> ready =
+        DatabaseReadiness.awaitReady(
+                system(),
+                database.getRef(),
+                POLL_INTERVAL,
+                ASK_TIMEOUT,
+                FiniteDuration.apply(10, TimeUnit.SECONDS))
+            .toCompletableFuture();
+
+    // Not reachable yet, then still recovering, then ready
+    database.expectMsgClass(RollingMonthDatabaseCommand.GetStatus.class);
+    database.expectMsgClass(RollingMonthDatabaseCommand.GetStatus.class);
+    database.reply(RollingMonthDatabaseResponse.Status.create(1, 2, false));
+    database.expectMsgClass(RollingMonthDatabaseCommand.GetStatus.class);
+    Assert.assertFalse("Database isn't ready yet", ready.isDone());
+    database.reply(RollingMonthDatabaseResponse.Status.create(2, 2, true));
+
+    database.awaitCond(ready::isDone);
+    Assert.assertFalse(ready.isCompletedExceptionally());
+  }
+
+  @Test
+  public void readinessShouldFailGivenDatabaseNeverAnswers() throws InterruptedException {
+    final TestKit database = new TestKit(system());
+    final CompletableFuture<Done> ready =
+        DatabaseReadiness.awaitReady(
+                system(),
+                database.getRef(),
+                POLL_INTERVAL,
+                ASK_TIMEOUT,
+                FiniteDuration.apply(500, TimeUnit.MILLISECONDS))
+            .toCompletableFuture();
+
+    try {
+      ready.get(10, TimeUnit.SECONDS);
+      Assert.fail("Startup should fail once out of time");
+    } catch (final ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    } catch (final TimeoutException e) {
+      Assert.fail("Readiness should give up by its timeout");
+    }
+  }
+}
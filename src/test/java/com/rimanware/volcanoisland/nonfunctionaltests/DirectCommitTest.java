@@ -0,0 +1,97 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class DirectCommitTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+  private TestKit databaseMessages;
+
+  @Override
+  public void initialize() {
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    // Request handlers talk to the database through a spy
+    databaseMessages = new TestKit(system());
+    initializeRoutes(
+        system()
+            .actorOf(
+                SpyActor.props(rollingMonthDatabaseActor, databaseMessages.getRef()),
+                "SpyActor-" + UUID.randomUUID().toString()));
+  }
+
+  @Test
+  public void transactionsShouldBeCommittedWithoutGoingThroughTheDatabase() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit eventsWritten = new TestKit(system());
+    system()
+        .eventStream()
+        .subscribe(eventsWritten.getRef(), SingleDateDatabaseActor.EventWritten.class);
+
+    getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+    // The three dates are committed
+    eventsWritten.receiveN(3);
+
+    databaseMessages
+        .receiveWhile(Duration.create(500, TimeUnit.MILLISECONDS), message -> message)
+        .forEach(
+            message ->
+                Assert.assertFalse(
+                    "Commit should be sent to the writer directly: " + message,
+                    message instanceof SingleDateDatabaseCommand.Commit));
+    Assert.assertTrue(
+        "Booked dates should not be available",
+        getAvailabilities(arrivalDate, arrivalDate.plusDays(2)).getAvailabilities().isEmpty());
+  }
+
+  /** Forwards every message to the database, reporting it to the probe. */
+  private static final class SpyActor extends AbstractActor {
+    private final ActorRef database;
+    private final ActorRef probe;
+
+    private SpyActor(final ActorRef database, final ActorRef probe) {
+      this.database = database;
+      this.probe = probe;
+    }
+
+    static Props props(final ActorRef database, final ActorRef probe) {
+      return Props.create(SpyActor.class, () -> new SpyActor(database, probe));
+    }
+
+    @Override
+    public Receive createReceive() {
+      return receiveBuilder()
+          .matchAny(
+              message -> {
+                probe.tell(message, ActorRef.noSender());
+                database.forward(message, getContext());
+              })
+          .build();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+public class ElectionWindowTest extends RoutesTester {
+  private static final int REQUESTS = 5;
+  private static final FiniteDuration ELECTION_WINDOW = Duration.create(2, TimeUnit.SECONDS);
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.election-window = "
+            + ELECTION_WINDOW.toMillis()
+            + "ms\n"
+            + "volcano-island.single-date-database.max-election-batch-size = "
+            + REQUESTS
+            + "\n"
+            + "volcano-island.single-date-database.capacity = 2");
+  }
+
+  @Test
+  public void concurrentBookRequestsShouldElectTheLowestBookingIds() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+
+    final ImmutableList<Booking> bookings = bookings(date, REQUESTS);
+    final ImmutableList<TestKit> requesters = book(date, bookings);
+
+    // A full window is elected right away, the two lowest ids get the two units
+    final ImmutableList<Booking> byId =
+        bookings.stream()
+            .sorted(Comparator.comparing(Booking::getId))
+            .collect(ImmutableList.toImmutableList());
+    for (int i = 0; i < REQUESTS; i++) {
+      final TestKit requester = requesters.get(bookings.indexOf(byId.get(i)));
+      if (i < 2) {
+        requester.expectMsgClass(SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class);
+      } else {
+        requester.expectMsgClass(SingleDateDatabaseResponse.IsBooked.class);
+      }
+    }
+  }
+
+  @Test
+  public void timerOfAWindowClosedWhenFullShouldNotCloseTheNextWindow() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final FiniteDuration halfWindow = Duration.create(ELECTION_WINDOW.toMillis() / 2, "ms");
+
+    // The first window is closed right away as it is full, its timer keeps running
+    book(date, bookings(date, REQUESTS))
+        .forEach(
+            requester ->
+                requester.expectMsgAnyClassOf(
+                    SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class,
+                    SingleDateDatabaseResponse.IsBooked.class));
+    final TestKit clock = new TestKit(system());
+    clock.expectNoMsg(halfWindow);
+
+    // Opens the next window, the timer of the first one fires half way through it
+    final TestKit requester = book(date, bookings(date, 1)).get(0);
+    requester.expectNoMsg(
+        Duration.create(ELECTION_WINDOW.toMillis() * 3 / 4, TimeUnit.MILLISECONDS));
+    requester.expectMsgAnyClassOf(
+        halfWindow,
+        SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class,
+        SingleDateDatabaseResponse.IsBooked.class);
+  }
+
+  private static ImmutableList<Booking> bookings(final LocalDate date, final int count) {
+    final ImmutableList.Builder<Booking> bookings = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      bookings.add(Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date));
+    }
+    return bookings.build();
+  }
+
+  private ImmutableList<TestKit> book(final LocalDate date, final ImmutableList<Booking> bookings) {
+    return bookings.stream()
+        .map(
+            booking -> {
+              final TestKit requester = new TestKit(system());
+              rollingMonthDatabaseActor.tell(
+                  SingleDateDatabaseCommand.book(booking, date), requester.getRef());
+              return requester;
+            })
+        .collect(ImmutableList.toImmutableList());
+  }
+}
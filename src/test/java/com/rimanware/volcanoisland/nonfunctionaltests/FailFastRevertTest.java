@@ -0,0 +1,73 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.models.requests.UpdateBookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.UpdateBookingRequestHandlerActor;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+public class FailFastRevertTest extends RoutesTester {
+  private static final FiniteDuration NO_MESSAGE_WINDOW =
+      Duration.create(300, TimeUnit.MILLISECONDS);
+
+  @Test
+  public void probatoryDatesShouldBeRevertedOnceTheUpdateIsBoundToFail() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate bookedDate = arrivalDate.plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+    final TestKit database = new TestKit(system());
+    final TestKit writer = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef handler =
+        system()
+            .actorOf(
+                UpdateBookingRequestHandlerActor.props(
+                    UpdateBookingRequest.create(
+                        "1",
+                        BookingRequest.create(
+                            "bassam.riman@gmail.com", "Bassam Riman", arrivalDate, departureDate)),
+                    apiErrorMessages,
+                    database.getRef()));
+
+    handler.tell(RequestHandlerCommand.process(), requester.getRef());
+    database.expectMsgClass(SingleDateDatabaseCommand.UpdateBooking.class);
+    database.reply(
+        RollingMonthDatabaseResponse.broadcastRecipients(
+            ImmutableSet.of(arrivalDate, bookedDate, departureDate)));
+    database.reply(
+        SingleDateDatabaseResponse.probatoryUpdateConfirmation(true, arrivalDate, writer.getRef()));
+    writer.expectNoMsg(NO_MESSAGE_WINDOW);
+
+    // The update can't succeed anymore, the held date is released without waiting for the others
+    database.reply(SingleDateDatabaseResponse.isBooked(bookedDate));
+    Assert.assertEquals(
+        SingleDateDatabaseCommand.revert(arrivalDate, "1").toString(),
+        writer.expectMsgClass(SingleDateDatabaseCommand.Revert.class).toString());
+    requester.expectNoMsg(NO_MESSAGE_WINDOW);
+
+    // Dates confirmed afterwards are reverted on arrival
+    database.reply(
+        SingleDateDatabaseResponse.probatoryUpdateConfirmation(
+            false, departureDate, writer.getRef()));
+    Assert.assertEquals(
+        SingleDateDatabaseCommand.revert(departureDate, "1").toString(),
+        writer.expectMsgClass(SingleDateDatabaseCommand.Revert.class).toString());
+    requester.expectMsgClass(RequestHandlerResponse.Failure.class);
+    writer.expectNoMsg(NO_MESSAGE_WINDOW);
+  }
+}
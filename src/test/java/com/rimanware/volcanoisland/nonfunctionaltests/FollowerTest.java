@@ -0,0 +1,133 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorSystem;
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRoute;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.VolcanoIslandApp;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.common.UtilityFunctions;
+import com.rimanware.volcanoisland.replication.InMemoryReplica;
+import com.rimanware.volcanoisland.replication.api.ReplicationLag;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.rimanware.volcanoisland.services.models.responses.Availability;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.compat.java8.FutureConverters;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+/** A follower serving the availabilities of the primary from memory. */
+public final class FollowerTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+  private int primaryPort;
+  private ActorSystem followerNode;
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.replication.primary.interface = 127.0.0.1\n"
+            + "volcano-island.replication.primary.port = 0\n"
+            + "volcano-island.replication.primary.heartbeat-interval = 20ms");
+  }
+
+  @Override
+  public void initialize() {
+    final Config replicationConfig =
+        system().settings().config().getConfig("volcano-island.replication");
+    primaryPort =
+        VolcanoIslandApp.startReplicationPrimary(system(), replicationConfig, testDataBasePath)
+            .toCompletableFuture()
+            .join()
+            .localAddress()
+            .getPort();
+    volcanoIslandApp =
+        testRoute(
+            VolcanoIslandApp.initialize(currentDate, system(), Optional.of(testDataBasePath))
+                .getRoute());
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // Actors are created by VolcanoIslandApp, they live as long as the actor systems
+    if (followerNode != null) {
+      FutureConverters.toJava(followerNode.terminate()).toCompletableFuture().join();
+    }
+  }
+
+  @Test
+  public void followerShouldServeTheAvailabilitiesOfThePrimary() throws InterruptedException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+    final LocalDate endDate = arrivalDate.plusDays(6);
+
+    followerNode =
+        ActorSystem.create(
+            "follower",
+            ConfigFactory.parseString(
+                    "volcano-island.replication.standby.primary-host = 127.0.0.1\n"
+                        + "volcano-island.replication.standby.primary-port = "
+                        + primaryPort)
+                .withFallback(system().settings().config()));
+    final InMemoryReplica replica = InMemoryReplica.create();
+    final TestRoute followerApp =
+        testRoute(
+            VolcanoIslandApp.follow(
+                currentDate,
+                followerNode,
+                followerNode.settings().config().getConfig("volcano-island.replication"),
+                replica));
+
+    getBookingConfirmation(arrivalDate, departureDate);
+
+    // One event per committed date, departure date included
+    awaitCaughtUp(replica, 3);
+
+    final ImmutableList<LocalDate> expectedAvailableDates =
+        UtilityFunctions.generateAllDatesInRange(departureDate.plusDays(1), endDate).asList();
+    final Availabilities availabilities =
+        followerApp
+            .run(getAvailabilitiesRequest(arrivalDate, endDate))
+            .assertStatusCode(StatusCodes.OK)
+            .entity(Jackson.unmarshaller(Availabilities.class));
+    Assert.assertEquals(
+        expectedAvailableDates,
+        availabilities.getAvailabilities().stream()
+            .map(Availability::getAvailableDate)
+            .collect(ImmutableList.toImmutableList()));
+
+    final ReplicationLag lag =
+        followerApp
+            .run(HttpRequest.GET("/replication/lag"))
+            .assertStatusCode(StatusCodes.OK)
+            .entity(Jackson.unmarshaller(ReplicationLag.class));
+    Assert.assertTrue(lag.isCaughtUp());
+    Assert.assertEquals(3, lag.getLastAppliedSequenceNr());
+
+    followerApp
+        .run(createRequest(endDate, endDate))
+        .assertStatusCode(StatusCodes.MISDIRECTED_REQUEST);
+  }
+
+  private void awaitCaughtUp(final InMemoryReplica replica, final long records)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (true) {
+      final ReplicationLag lag = replica.getLag();
+      if (lag.isCaughtUp() && lag.getLastAppliedSequenceNr() >= records) {
+        return;
+      }
+      Assert.assertTrue("Follower is at " + lag, System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.http.javadsl.model.StatusCodes;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.CreateBookingRequestHandlerActor;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OrderedAcquisitionTest extends RoutesTester {
+  private static final int PAIRS = 8;
+  private static final FiniteDuration NO_MESSAGE_WINDOW =
+      Duration.create(300, TimeUnit.MILLISECONDS);
+
+  @Test
+  public void oneOfTwoOverlappingBookingsShouldSucceed()
+      throws ExecutionException, InterruptedException {
+    final LocalDate startDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate);
+    final ExecutorService executorService = Executors.newFixedThreadPool(2 * PAIRS);
+    try {
+      // Each pair overlaps on its last two dates, pairs don't overlap with each other
+      final List<Future<Integer>> statusCodes =
+          IntStream.range(0, 2 * PAIRS)
+              .mapToObj(
+                  i -> {
+                    final LocalDate pairStartDate = startDate.plusDays(i / 2 * 3);
+                    final LocalDate arrivalDate =
+                        i % 2 == 0 ? pairStartDate : pairStartDate.plusDays(1);
+                    return executorService.submit(
+                        () ->
+                            create(arrivalDate, pairStartDate.plusDays(2))
+                                .response()
+                                .status()
+                                .intValue());
+                  })
+              .collect(Collectors.toList());
+
+      for (int pair = 0; pair < PAIRS; pair++) {
+        // A deadlock would time out, a livelock would fail both
+        final int first = statusCodes.get(2 * pair).get();
+        final int second = statusCodes.get(2 * pair + 1).get();
+        Assert.assertEquals(
+            "Exactly one booking of the pair should succeed",
+            1,
+            (first == StatusCodes.CREATED.intValue() ? 1 : 0)
+                + (second == StatusCodes.CREATED.intValue() ? 1 : 0));
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void acquiredDatesShouldBeRevertedAsSoonAsADateIsRefused() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate bookedDate = arrivalDate.plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+    final TestKit database = new TestKit(system());
+    final TestKit writer = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef handler =
+        system()
+            .actorOf(
+                CreateBookingRequestHandlerActor.props(
+                    BookingRequest.create(
+                        "bassam.riman@gmail.com", "Bassam Riman", arrivalDate, departureDate),
+                    apiErrorMessages,
+                    database.getRef()));
+
+    handler.tell(RequestHandlerCommand.process(), requester.getRef());
+    final Booking booking =
+        database.expectMsgClass(SingleDateDatabaseCommand.Book.class).getBooking();
+    database.reply(
+        SingleDateDatabaseResponse.probatoryBookingConfirmation(
+            SingleDateDatabaseResponse.bookingConfirmation(booking, arrivalDate),
+            writer.getRef()));
+
+    // Dates are acquired one at a time, in ascending order
+    Assert.assertEquals(
+        bookedDate, database.expectMsgClass(SingleDateDatabaseCommand.Book.class).getDate());
+    writer.expectNoMsg(NO_MESSAGE_WINDOW);
+
+    // The first date is released without waiting for the probe of the last one
+    database.reply(SingleDateDatabaseResponse.isBooked(bookedDate));
+    Assert.assertEquals(
+        SingleDateDatabaseCommand.revert(arrivalDate, booking.getId()).toString(),
+        writer.expectMsgClass(SingleDateDatabaseCommand.Revert.class).toString());
+    Assert.assertEquals(
+        departureDate,
+        database.expectMsgClass(SingleDateDatabaseCommand.GetAvailability.class).getDate());
+    requester.expectNoMsg(NO_MESSAGE_WINDOW);
+
+    database.reply(SingleDateDatabaseResponse.isAvailable(departureDate, 1));
+    requester.expectMsgClass(RequestHandlerResponse.Failure.class);
+    writer.expectNoMsg(NO_MESSAGE_WINDOW);
+  }
+}
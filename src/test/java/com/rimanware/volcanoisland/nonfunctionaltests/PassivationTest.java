@@ -0,0 +1,90 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.testkit.javadsl.TestKit;
+import akka.http.javadsl.model.StatusCodes;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class PassivationTest extends RoutesTester {
+  private static final FiniteDuration PASSIVATION_DEADLINE = Duration.create(5, TimeUnit.SECONDS);
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.passivate-after = 300ms");
+  }
+
+  @Test
+  public void passivatedDatesShouldKeepTheirBookingAndBeReactivatedOnDemand() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(1);
+
+    final long passivations = passivations();
+    final BookingConfirmation bookingConfirmation =
+        getBookingConfirmation(arrivalDate, departureDate);
+
+    // Let booked dates go idle
+    new TestKit(system())
+        .awaitAssert(
+            PASSIVATION_DEADLINE,
+            () -> {
+              Assert.assertTrue(
+                  "Dates should have been passivated", passivations() >= passivations + 2);
+              return null;
+            });
+    Assert.assertTrue(
+        "Passivated dates should still be booked",
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().isEmpty());
+    create(arrivalDate, arrivalDate).assertStatusCode(StatusCodes.BAD_REQUEST);
+
+    // Cancelling needs the booked dates back
+    volcanoIslandApp
+        .run(HttpRequest.DELETE("/bookings/" + bookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+
+    Assert.assertEquals(
+        "Dates should be available once the booking is cancelled",
+        2,
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().size());
+  }
+
+  @Test
+  public void commitAndRevertShouldBeAnsweredGivenPassivatedDate() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final String bookingId = UUID.randomUUID().toString();
+    final TestKit requester = new TestKit(system());
+
+    // Never activated, the date has no transaction to settle
+    rollingMonthDatabaseActor.tell(
+        SingleDateDatabaseCommand.commit(date, bookingId), requester.getRef());
+    Assert.assertEquals(
+        date,
+        requester.expectMsgClass(SingleDateDatabaseResponse.TransactionExpired.class).getDate());
+    rollingMonthDatabaseActor.tell(
+        SingleDateDatabaseCommand.revert(date, bookingId), requester.getRef());
+    Assert.assertEquals(
+        date,
+        requester.expectMsgClass(SingleDateDatabaseResponse.RevertConfirmation.class).getDate());
+  }
+
+  private long passivations() {
+    return Metrics.METRICS.get(system()).get(RollingMonthDatabaseActor.PASSIVATIONS_METRIC);
+  }
+}
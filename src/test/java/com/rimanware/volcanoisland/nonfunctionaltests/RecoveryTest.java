@@ -0,0 +1,113 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static akka.pattern.PatternsCS.ask;
+
+public class RecoveryTest extends RoutesTester {
+
+  protected static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+
+  @Override
+  public void initialize() {
+    // On Disk Database
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    initializeRoutes(rollingMonthDatabaseActor);
+  }
+
+  @Test
+  public void bookingsShouldBeRecoveredFromDiskGivenRestart()
+      throws ExecutionException, InterruptedException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit eventsWritten = new TestKit(system());
+    system()
+        .eventStream()
+        .subscribe(eventsWritten.getRef(), SingleDateDatabaseActor.EventWritten.class);
+    getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2));
+    // Commits are sent once the booking is confirmed, don't stop the writers before they are done
+    eventsWritten.receiveN(3);
+
+    // Restart the database on the same folder
+    cleanUpActors();
+    initialize();
+
+    final RollingMonthDatabaseResponse.Status status = awaitReady();
+    Assert.assertEquals(
+        bookingConstraints.generateAllReservableDays(currentDate).size(),
+        status.getRecoveredDates());
+
+    Assert.assertTrue(
+        "Recovered booking dates should not be available",
+        getAvailabilities(arrivalDate, arrivalDate.plusDays(2)).getAvailabilities().isEmpty());
+  }
+
+  @Test
+  public void databaseShouldStopGivenItsFilesCannotBeRead() throws IOException {
+    final Path corruptedDataBasePath = Paths.get(dataBasePath, "test-" + UUID.randomUUID());
+    final LocalDate date = bookingConstraints.generateAllReservableDays(currentDate).get(0);
+    Files.createDirectories(corruptedDataBasePath);
+    Files.write(
+        corruptedDataBasePath.resolve(date + ".data"),
+        "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    final ActorRef corruptedDatabase =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    corruptedDataBasePath.toString(),
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props));
+    final TestKit probe = new TestKit(system());
+    probe.watch(corruptedDatabase);
+    corruptedDatabase.tell(RollingMonthDatabaseCommand.start(currentDate), ActorRef.noSender());
+
+    // Every attempt fails, the database doesn't stay stuck recovering
+    probe.expectTerminated(Duration.create(10, TimeUnit.SECONDS), corruptedDatabase);
+  }
+
+  private RollingMonthDatabaseResponse.Status awaitReady()
+      throws ExecutionException, InterruptedException {
+    while (true) {
+      final RollingMonthDatabaseResponse.Status status =
+          ask(rollingMonthDatabaseActor, RollingMonthDatabaseCommand.getStatus(), timeout)
+              .thenApply(RollingMonthDatabaseResponse.Status.class::cast)
+              .toCompletableFuture()
+              .get();
+      if (status.isReady()) {
+        return status;
+      }
+      Thread.sleep(10);
+    }
+  }
+}
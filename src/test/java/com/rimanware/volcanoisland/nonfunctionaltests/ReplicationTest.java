@@ -0,0 +1,134 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.testkit.TestRoute;
+import com.rimanware.volcanoisland.VolcanoIslandApp;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyCommand;
+import com.rimanware.volcanoisland.replication.api.ReplicationStandbyResponse;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.compat.java8.FutureConverters;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static akka.pattern.PatternsCS.ask;
+
+/** A standby started after the primary took bookings, then promoted. */
+public final class ReplicationTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+  private final String primaryDataBasePath = testDataBasePath + "/primary";
+  private final String standbyDataBasePath = testDataBasePath + "/standby";
+  private int primaryPort;
+  private ActorSystem standbyNode;
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.replication.primary.interface = 127.0.0.1\n"
+            + "volcano-island.replication.primary.port = 0");
+  }
+
+  @Override
+  public void initialize() {
+    final Config replicationConfig =
+        system().settings().config().getConfig("volcano-island.replication");
+    primaryPort =
+        VolcanoIslandApp.startReplicationPrimary(system(), replicationConfig, primaryDataBasePath)
+            .toCompletableFuture()
+            .join()
+            .localAddress()
+            .getPort();
+    volcanoIslandApp =
+        testRoute(
+            VolcanoIslandApp.initialize(currentDate, system(), Optional.of(primaryDataBasePath))
+                .getRoute());
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // Actors are created by VolcanoIslandApp, they live as long as the actor systems
+    if (standbyNode != null) {
+      FutureConverters.toJava(standbyNode.terminate()).toCompletableFuture().join();
+    }
+  }
+
+  @Test
+  public void promotedStandbyShouldServeTheBookingsOfThePrimary()
+      throws ExecutionException, InterruptedException {
+    final LocalDate firstArrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate secondArrivalDate = firstArrivalDate.plusDays(5);
+
+    // Written before the standby connects, it catches up from a snapshot
+    final BookingConfirmation firstBookingConfirmation =
+        getBookingConfirmation(firstArrivalDate, firstArrivalDate.plusDays(2));
+
+    standbyNode =
+        ActorSystem.create(
+            "standby",
+            ConfigFactory.parseString(
+                    "volcano-island.replication.standby.primary-host = 127.0.0.1\n"
+                        + "volcano-island.replication.standby.primary-port = "
+                        + primaryPort)
+                .withFallback(system().settings().config()));
+    final ActorRef replicationStandbyActor =
+        VolcanoIslandApp.startReplicationStandby(
+            standbyNode,
+            standbyNode.settings().config().getConfig("volcano-island.replication"),
+            standbyDataBasePath);
+
+    // Written while connected, streamed as they happen
+    getBookingConfirmation(secondArrivalDate, secondArrivalDate.plusDays(2));
+    volcanoIslandApp
+        .run(
+            HttpRequest.DELETE("/bookings/" + firstBookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+
+    // One event per committed or cancelled date, departure date included
+    awaitAppliedRecords(replicationStandbyActor, 9);
+
+    final TestRoute promotedApp =
+        testRoute(
+            VolcanoIslandApp.promote(
+                    currentDate, standbyNode, replicationStandbyActor, standbyDataBasePath)
+                .toCompletableFuture()
+                .get()
+                .getRoute());
+
+    promotedApp
+        .run(createRequest(secondArrivalDate, secondArrivalDate.plusDays(2)))
+        .assertStatusCode(StatusCodes.BAD_REQUEST);
+    promotedApp
+        .run(createRequest(firstArrivalDate, firstArrivalDate.plusDays(2)))
+        .assertStatusCode(StatusCodes.CREATED);
+  }
+
+  private void awaitAppliedRecords(final ActorRef replicationStandbyActor, final long records)
+      throws ExecutionException, InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (true) {
+      final ReplicationStandbyResponse.Status status =
+          ask(replicationStandbyActor, ReplicationStandbyCommand.getStatus(), timeout)
+              .thenApply(ReplicationStandbyResponse.Status.class::cast)
+              .toCompletableFuture()
+              .get();
+      if (status.getLastAppliedSequenceNr() >= records) {
+        return;
+      }
+      Assert.assertTrue("Standby is at " + status, System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+}
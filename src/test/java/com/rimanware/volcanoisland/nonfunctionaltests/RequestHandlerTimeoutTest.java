@@ -0,0 +1,50 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.services.models.requests.BookingRequest;
+import com.rimanware.volcanoisland.services.requesthandlers.CreateBookingRequestHandlerActor;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerCommand;
+import com.rimanware.volcanoisland.services.requesthandlers.api.RequestHandlerResponse;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class RequestHandlerTimeoutTest extends RoutesTester {
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString("volcano-island.request-handlers.idle-timeout = 300ms");
+  }
+
+  @Test
+  public void handlerShouldAnswerUnavailableAndStopGivenDatabaseNeverAnswers() {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final TestKit database = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef handler =
+        system()
+            .actorOf(
+                CreateBookingRequestHandlerActor.props(
+                    BookingRequest.create(
+                        "bassam.riman@gmail.com",
+                        "Bassam Riman",
+                        arrivalDate,
+                        arrivalDate.plusDays(1)),
+                    apiErrorMessages,
+                    database.getRef()));
+    requester.watch(handler);
+
+    handler.tell(RequestHandlerCommand.process(), requester.getRef());
+    // The request is lost, the database never answers
+    database.expectMsgClass(SingleDateDatabaseCommand.Book.class);
+
+    requester.expectMsgClass(RequestHandlerResponse.Failure.ServiceUnavailable.class);
+    requester.expectTerminated(handler);
+  }
+}
@@ -0,0 +1,174 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.marshallers.jackson.Jackson;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.business.api.BookingConstraints;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.RollingMonthDatabaseResponse;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.rimanware.volcanoisland.services.models.responses.Availabilities;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static akka.pattern.PatternsCS.ask;
+
+/**
+ * Benchmarks booking, availability and recovery on growing reservation windows. The number of date
+ * databases each request activates must not depend on the window size, timings are logged.
+ */
+@RunWith(Parameterized.class)
+public class ReservationWindowScaleTest extends RoutesTester {
+  private static final int NUMBER_OF_BOOKINGS = 5;
+  private static final String dataBasePath = "test-database";
+
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+  private final int reservableDays;
+
+  public ReservationWindowScaleTest(final int reservableDays) {
+    this.reservableDays = reservableDays;
+  }
+
+  @Parameterized.Parameters(name = "{0} reservable days")
+  public static Collection<Object[]> reservableDays() {
+    return Arrays.asList(new Object[][] {{30}, {365}, {3650}});
+  }
+
+  @Override
+  protected BookingConstraints getBookingConstraints() {
+    return BookingConstraintsImpl.create(1, reservableDays, 3);
+  }
+
+  @Override
+  public void initialize() {
+    // On Disk Database
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    getBookingConstraints(),
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    initializeRoutes(rollingMonthDatabaseActor);
+  }
+
+  @Test
+  public void requestsShouldOnlyActivateTheDatesTheyChangeGivenAnyWindowSize() {
+    final long recoveryMillis = timeMillis(this::awaitReady);
+    Assert.assertEquals(0, activations());
+
+    // Spread bookings over the whole window
+    final LocalDate startOfWindow =
+        getBookingConstraints().startDateOfReservationWindowGivenCurrentDate(currentDate);
+    final int spacing = reservableDays / NUMBER_OF_BOOKINGS;
+    final ImmutableList.Builder<BookingConfirmation> bookingConfirmations = ImmutableList.builder();
+    final long bookingMillis =
+        timeMillis(
+            () -> {
+              for (int i = 0; i < NUMBER_OF_BOOKINGS; i++) {
+                final LocalDate arrivalDate = startOfWindow.plusDays(i * spacing);
+                bookingConfirmations.add(
+                    getBookingConfirmation(arrivalDate, arrivalDate.plusDays(2)));
+              }
+            });
+    Assert.assertEquals(3 * NUMBER_OF_BOOKINGS, activations());
+
+    final long availabilityMillis =
+        timeMillis(
+            () ->
+                Assert.assertEquals(
+                    reservableDays - 3 * NUMBER_OF_BOOKINGS,
+                    volcanoIslandApp
+                        .run(HttpRequest.GET("/availabilities"))
+                        .assertStatusCode(StatusCodes.OK)
+                        .entity(Jackson.unmarshaller(Availabilities.class))
+                        .getAvailabilities()
+                        .size()));
+    Assert.assertEquals(
+        "Availabilities should not activate any date", 3 * NUMBER_OF_BOOKINGS, activations());
+
+    final long cancellationMillis =
+        timeMillis(
+            () ->
+                volcanoIslandApp
+                    .run(
+                        HttpRequest.DELETE(
+                            "/bookings/"
+                                + bookingConfirmations
+                                    .build()
+                                    .get(0)
+                                    .getBookingConfirmationId()))
+                    .assertStatusCode(StatusCodes.OK));
+    Assert.assertEquals(
+        "Cancellation should not activate any other date",
+        3 * NUMBER_OF_BOOKINGS,
+        activations());
+
+    // Restart the database on the same folder
+    cleanUpActors();
+    initialize();
+    final long restartRecoveryMillis = timeMillis(this::awaitReady);
+    Assert.assertEquals(
+        reservableDays - 3 * (NUMBER_OF_BOOKINGS - 1),
+        getAvailabilities(startOfWindow, startOfWindow.plusDays(reservableDays - 1))
+            .getAvailabilities()
+            .size());
+    Assert.assertEquals(
+        "Recovery should not activate any date", 3 * NUMBER_OF_BOOKINGS, activations());
+
+    system()
+        .log()
+        .info(
+            String.format(
+                "%d reservable days: recovery %d ms, %d bookings %d ms, all availabilities %d ms, "
+                    + "cancellation %d ms, recovery after restart %d ms",
+                reservableDays,
+                recoveryMillis,
+                NUMBER_OF_BOOKINGS,
+                bookingMillis,
+                availabilityMillis,
+                cancellationMillis,
+                restartRecoveryMillis));
+  }
+
+  private long activations() {
+    return Metrics.METRICS.get(system()).get(RollingMonthDatabaseActor.ACTIVATIONS_METRIC);
+  }
+
+  private void awaitReady() {
+    try {
+      while (!ask(rollingMonthDatabaseActor, RollingMonthDatabaseCommand.getStatus(), timeout)
+          .thenApply(RollingMonthDatabaseResponse.Status.class::cast)
+          .toCompletableFuture()
+          .get()
+          .isReady()) {
+        Thread.sleep(10);
+      }
+    } catch (final InterruptedException | ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static long timeMillis(final Runnable runnable) {
+    final long start = System.nanoTime();
+    runnable.run();
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,84 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.RocksDbDateStorage;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class RocksDbStorageTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString("volcano-island.single-date-database.storage = rocksdb");
+  }
+
+  @Override
+  public void initialize() {
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    initializeRoutes(rollingMonthDatabaseActor);
+  }
+
+  @Test
+  public void bookingsShouldBeRecoveredAndIndexedGivenRestart() throws IOException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final LocalDate departureDate = arrivalDate.plusDays(2);
+
+    // Confirmed once every date wrote its commit, the writers can be stopped right away
+    final BookingConfirmation bookingConfirmation =
+        getBookingConfirmation(arrivalDate, departureDate);
+
+    // The RocksDB is closed once the database is stopped
+    final TestKit watcher = new TestKit(system());
+    watcher.watch(rollingMonthDatabaseActor);
+    cleanUpActors();
+    watcher.expectTerminated(rollingMonthDatabaseActor);
+
+    final RocksDbDateStorage storage = RocksDbDateStorage.create(testDataBasePath);
+    try {
+      Assert.assertEquals(
+          ImmutableSet.of(arrivalDate, arrivalDate.plusDays(1), departureDate),
+          storage.datesOf(bookingConfirmation.getBookingConfirmationId()));
+      Assert.assertTrue(
+          storage
+              .readLatest(departureDate)
+              .isBookedBy(bookingConfirmation.getBookingConfirmationId()));
+      Assert.assertFalse(
+          storage
+              .readLatest(departureDate.plusDays(1))
+              .isBookedBy(bookingConfirmation.getBookingConfirmationId()));
+    } finally {
+      storage.close();
+    }
+
+    // Restart the database on the same folder
+    initialize();
+
+    Assert.assertTrue(
+        "Recovered booking dates should not be available",
+        getAvailabilities(arrivalDate, departureDate).getAvailabilities().isEmpty());
+  }
+}
@@ -0,0 +1,103 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.StatusCodes;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.business.BookingConstraintsImpl;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.FileDateStorage;
+import com.rimanware.volcanoisland.database.RollingMonthDatabaseActor;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseManagerActor;
+import com.rimanware.volcanoisland.database.api.DateStore;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.rimanware.volcanoisland.services.models.responses.BookingConfirmation;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class SnapshotOnPassivationTest extends RoutesTester {
+
+  private static final String dataBasePath = "test-database";
+  private static final FiniteDuration PASSIVATION_DEADLINE = Duration.create(5, TimeUnit.SECONDS);
+  private final String testDataBasePath = dataBasePath + "/test-" + UUID.randomUUID().toString();
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.passivate-after = 300ms\n"
+            + "volcano-island.single-date-database.snapshot-on-passivation = on");
+  }
+
+  @Override
+  public void initialize() {
+    rollingMonthDatabaseActor =
+        system()
+            .actorOf(
+                RollingMonthDatabaseActor.props(
+                    testDataBasePath,
+                    BookingConstraintsImpl.INSTANCE,
+                    SingleDateDatabaseManagerActor::props),
+                "RollingMonthDatabaseActor-" + UUID.randomUUID().toString());
+
+    initializeRoutes(rollingMonthDatabaseActor);
+  }
+
+  @Test
+  public void passivatedDatesShouldOnlyKeepTheirLatestEvent() throws IOException {
+    final LocalDate arrivalDate =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+
+    final long passivations = passivations();
+    final BookingConfirmation bookingConfirmation =
+        getBookingConfirmation(arrivalDate, arrivalDate);
+
+    // The snapshot is written before the idle date reports its passivation
+    awaitPassivations(passivations + 1);
+
+    final ImmutableList<SingleDateDatabaseEvent> snapshot = history(arrivalDate);
+    Assert.assertEquals(1, snapshot.size());
+    Assert.assertTrue(snapshot.get(0).isBookedBy(bookingConfirmation.getBookingConfirmationId()));
+
+    // Reactivated on the snapshot, appends after it
+    volcanoIslandApp
+        .run(HttpRequest.DELETE("/bookings/" + bookingConfirmation.getBookingConfirmationId()))
+        .assertStatusCode(StatusCodes.OK);
+    awaitPassivations(passivations + 2);
+
+    final ImmutableList<SingleDateDatabaseEvent> history = history(arrivalDate);
+    Assert.assertEquals(1, history.size());
+    Assert.assertEquals(1, getAvailabilities(arrivalDate, arrivalDate).getAvailabilities().size());
+  }
+
+  private void awaitPassivations(final long expectedPassivations) {
+    new TestKit(system())
+        .awaitAssert(
+            PASSIVATION_DEADLINE,
+            () -> {
+              Assert.assertEquals(
+                  "Date should have been passivated", expectedPassivations, passivations());
+              return null;
+            });
+  }
+
+  private long passivations() {
+    return Metrics.METRICS.get(system()).get(RollingMonthDatabaseActor.PASSIVATIONS_METRIC);
+  }
+
+  private ImmutableList<SingleDateDatabaseEvent> history(final LocalDate date)
+      throws IOException {
+    try (final DateStore store = FileDateStorage.create(testDataBasePath).open(date)) {
+      return store.history();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.metrics.Metrics;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+public class TransactionReaperTest extends RoutesTester {
+  private static final FiniteDuration REAP_DEADLINE = Duration.create(5, TimeUnit.SECONDS);
+
+  @Override
+  public Config additionalConfig() {
+    return ConfigFactory.parseString(
+        "volcano-island.single-date-database.transaction-timeout = 1s");
+  }
+
+  @Test
+  public void probatoryBookingShouldBeRevertedGivenItIsNeverCommitted() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final long reapedTransactions = reapedTransactions();
+
+    // Simulate a request handler that dies after its probatory booking
+    book(booking(date), new TestKit(system()));
+
+    final TestKit probe = new TestKit(system());
+    probe.awaitAssert(
+        REAP_DEADLINE,
+        () -> {
+          Assert.assertEquals(
+              "Date should be available once the transaction is reaped",
+              1,
+              getAvailabilities(date, date).getAvailabilities().size());
+          return null;
+        });
+    Assert.assertEquals(reapedTransactions + 1, reapedTransactions());
+  }
+
+  @Test
+  public void commitShouldBeRefusedGivenItsTransactionWasReaped() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(2);
+    final TestKit requester = new TestKit(system());
+    final long reapedTransactions = reapedTransactions();
+    final Booking booking = booking(date);
+    final ActorRef writer = book(booking, requester);
+
+    requester.awaitCond(REAP_DEADLINE, () -> reapedTransactions() > reapedTransactions);
+
+    writer.tell(SingleDateDatabaseCommand.commit(date, booking.getId()), requester.getRef());
+    requester.expectMsgClass(SingleDateDatabaseResponse.TransactionExpired.class);
+    Assert.assertEquals(
+        "Date should stay available", 1, getAvailabilities(date, date).getAvailabilities().size());
+  }
+
+  @Test
+  public void commitShouldBeRefusedGivenItIsNotSentByTheRequester() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(3);
+    final TestKit requester = new TestKit(system());
+    final TestKit otherRequester = new TestKit(system());
+    final Booking booking = booking(date);
+    final ActorRef writer = book(booking, requester);
+
+    writer.tell(SingleDateDatabaseCommand.commit(date, booking.getId()), otherRequester.getRef());
+    otherRequester.expectMsgClass(SingleDateDatabaseResponse.TransactionExpired.class);
+
+    // The transaction is still open for its requester
+    writer.tell(SingleDateDatabaseCommand.commit(date, booking.getId()), requester.getRef());
+    requester.expectMsgClass(SingleDateDatabaseResponse.CommitConfirmation.class);
+  }
+
+  private static Booking booking(final LocalDate date) {
+    return Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date);
+  }
+
+  /** @return writer holding the date on probation for the requester */
+  private ActorRef book(final Booking booking, final TestKit requester) {
+    rollingMonthDatabaseActor.tell(
+        SingleDateDatabaseCommand.book(booking, booking.getArrivalDate()), requester.getRef());
+    return requester
+        .expectMsgClass(SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class)
+        .getWriter();
+  }
+
+  private long reapedTransactions() {
+    return Metrics.METRICS.get(system()).get(SingleDateDatabaseActor.REAPED_TRANSACTIONS_METRIC);
+  }
+}
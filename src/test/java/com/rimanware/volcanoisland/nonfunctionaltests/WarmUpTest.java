@@ -0,0 +1,59 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.Done;
+import akka.stream.ActorMaterializer;
+import com.google.common.collect.ImmutableList;
+import com.rimanware.volcanoisland.VolcanoIslandApp;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.startup.WarmUp;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class WarmUpTest extends RoutesTester {
+  private VolcanoIslandApp.Instance instance;
+
+  @Override
+  public void initialize() {
+    // Whole application in memory, as warmed up on startup
+    instance = VolcanoIslandApp.initialize(currentDate, system(), Optional.empty());
+    volcanoIslandApp = testRoute(instance.getRoute());
+  }
+
+  @Override
+  public void cleanUpActors() {
+    // Actors are created by VolcanoIslandApp, they live as long as the actor system
+  }
+
+  @Test
+  public void warmUpShouldCancelEveryBookingItMakes()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    final ImmutableList<LocalDate> warmUpDays =
+        bookingConstraints.generateAllReservableDays(currentDate).subList(0, 5);
+    instance.getDatabaseReady().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+    Assert.assertEquals(
+        Done.getInstance(),
+        WarmUp.run(
+                instance.getRoute(),
+                system(),
+                ActorMaterializer.create(system()),
+                warmUpDays,
+                20,
+                4)
+            .toCompletableFuture()
+            .get(30, TimeUnit.SECONDS));
+
+    Assert.assertEquals(
+        "Warm-up bookings should all be cancelled",
+        warmUpDays.size(),
+        getAvailabilities(warmUpDays.get(0), warmUpDays.get(warmUpDays.size() - 1))
+            .getAvailabilities()
+            .size());
+  }
+}
@@ -0,0 +1,53 @@
+package com.rimanware.volcanoisland.nonfunctionaltests;
+
+import akka.actor.ActorRef;
+import akka.testkit.javadsl.TestKit;
+import com.google.common.collect.ImmutableSet;
+import com.rimanware.volcanoisland.common.RoutesTester;
+import com.rimanware.volcanoisland.database.AvailabilitySnapshot;
+import com.rimanware.volcanoisland.database.InMemoryDateStorage;
+import com.rimanware.volcanoisland.database.SingleDateDatabaseActor;
+import com.rimanware.volcanoisland.database.WindowAvailability;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseCommand;
+import com.rimanware.volcanoisland.database.api.SingleDateDatabaseResponse;
+import com.rimanware.volcanoisland.database.models.Booking;
+import com.rimanware.volcanoisland.database.models.SingleDateDatabaseEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class WindowAvailabilityTest extends RoutesTester {
+
+  @Test
+  public void claimedDateShouldBePublishedBeforeTheRequesterIsAnswered() {
+    final LocalDate date =
+        bookingConstraints.startDateOfReservationWindowGivenCurrentDate(currentDate).plusDays(1);
+    final WindowAvailability windowAvailability = WindowAvailability.create();
+    final TestKit readReplica = new TestKit(system());
+    final TestKit requester = new TestKit(system());
+    final ActorRef writer =
+        system()
+            .actorOf(
+                SingleDateDatabaseActor.props(
+                    date,
+                    InMemoryDateStorage.create(),
+                    SingleDateDatabaseEvent.noBooking(),
+                    readReplica.getRef(),
+                    windowAvailability));
+    final AvailabilitySnapshot before = windowAvailability.read();
+
+    writer.tell(
+        SingleDateDatabaseCommand.book(
+            Booking.create("bassam.riman@gmail.com", "Bassam Riman", date, date), date),
+        requester.getRef());
+    requester.expectMsgClass(SingleDateDatabaseResponse.ProbatoryBookingConfirmation.class);
+
+    // The snapshot read is consistent with the reply, and older snapshots never change
+    final AvailabilitySnapshot after = windowAvailability.read();
+    Assert.assertTrue(after.getVersion() > before.getVersion());
+    Assert.assertEquals(Integer.valueOf(0), after.getRemainingCapacityByDate().get(date));
+    Assert.assertTrue(after.availableDates(ImmutableSet.of(date)).isEmpty());
+    Assert.assertTrue(before.getRemainingCapacityByDate().isEmpty());
+  }
+}